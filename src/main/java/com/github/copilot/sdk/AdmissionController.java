@@ -0,0 +1,410 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import com.github.copilot.sdk.json.AdmissionControlConfig;
+
+/**
+ * Client-wide admission control for session turns.
+ * <p>
+ * A turn is admitted when a token is available in the rate limiter's bucket
+ * and its model is below the concurrency cap. Turns that cannot start
+ * immediately are queued per session and served round robin across tenants,
+ * then across the sessions of a tenant; within a session they stay FIFO. While
+ * the last reported quota is below the configured threshold, new turns are
+ * shed without queueing.
+ * <p>
+ * All state is guarded by the controller's monitor. Futures are completed
+ * outside of it, so admitted turns never run their continuations while the
+ * lock is held.
+ */
+final class AdmissionController implements AutoCloseable {
+
+    static final String DEFAULT_MODEL = "default";
+
+    /**
+     * While the quota is exhausted, one turn per interval is let through so that
+     * a fresh quota report can lift the shedding once the quota resets.
+     */
+    static final long QUOTA_PROBE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final AdmissionControlConfig config;
+    private final CopilotMetrics metrics;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService scheduler;
+    private final double ratePerNano;
+    private final double capacity;
+
+    private final Map<String, Integer> inFlight = new HashMap<>();
+    private final LinkedHashMap<String, LinkedHashMap<String, ArrayDeque<Waiter>>> queues = new LinkedHashMap<>();
+    private double tokens;
+    private long lastRefill;
+    private int queued;
+    private boolean drainScheduled;
+    private boolean closed;
+    private volatile double remainingQuota = Double.NaN;
+    private long lastQuotaProbe;
+
+    AdmissionController(AdmissionControlConfig config, CopilotMetrics metrics) {
+        this(config, metrics, System::nanoTime);
+    }
+
+    AdmissionController(AdmissionControlConfig config, CopilotMetrics metrics, LongSupplier clock) {
+        this.config = config;
+        this.metrics = metrics != null ? metrics : CopilotMetrics.NOOP;
+        this.clock = clock;
+        this.ratePerNano = config.getRequestsPerSecond() / 1_000_000_000.0;
+        this.capacity = config.getBurst() > 0
+                ? config.getBurst()
+                : Math.max(1, Math.ceil(config.getRequestsPerSecond()));
+        this.tokens = capacity;
+        this.lastRefill = clock.getAsLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "copilot-admission");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * A granted admission. Releasing returns the model's concurrency slot; only
+     * the first call has an effect.
+     */
+    final class Permit {
+
+        private final String model;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String model) {
+            this.model = model;
+        }
+
+        String getModel() {
+            return model;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                synchronized (AdmissionController.this) {
+                    inFlight.merge(model, -1, (a, b) -> a + b <= 0 ? null : a + b);
+                }
+                drain();
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        final String tenant;
+        final String sessionId;
+        final String model;
+        final long enqueuedNanos;
+        final CompletableFuture<Permit> future = new CompletableFuture<>();
+        final AtomicBoolean decided = new AtomicBoolean();
+        ScheduledFuture<?> timeout;
+
+        Waiter(String tenant, String sessionId, String model, long enqueuedNanos) {
+            this.tenant = tenant;
+            this.sessionId = sessionId;
+            this.model = model;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        /**
+         * Claims the decision for this waiter, so that it is recorded exactly once
+         * and before the caller observes it.
+         */
+        boolean decide() {
+            return !future.isDone() && decided.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Requests admission for a turn of the given session.
+     *
+     * @param sessionId
+     *            the session starting the turn
+     * @param model
+     *            the session's model, or {@code null} for the server default
+     * @return a future that completes with a permit once admitted, or
+     *         exceptionally with {@link RejectedExecutionException} if the turn
+     *         is shed, times out in the queue, or the controller is closed
+     */
+    CompletableFuture<Permit> acquire(String sessionId, String model) {
+        String modelKey = model != null ? model : DEFAULT_MODEL;
+        String tenant = resolveTenant(sessionId);
+        var waiter = new Waiter(tenant, sessionId, modelKey, clock.getAsLong());
+
+        String rejection = null;
+        synchronized (this) {
+            if (closed) {
+                rejection = "Admission controller is closed";
+            } else if (isQuotaExhausted(waiter.enqueuedNanos)) {
+                rejection = "Remaining quota " + remainingQuota + "% is below the configured minimum of "
+                        + config.getMinRemainingQuotaPercentage() + "%";
+            } else if (queued >= config.getMaxQueueSize() && !canAdmitImmediately(waiter)) {
+                rejection = "Admission queue is full (" + queued + " waiting)";
+            } else {
+                queues.computeIfAbsent(tenant, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(sessionId, k -> new ArrayDeque<>()).add(waiter);
+                queued++;
+            }
+        }
+        if (rejection != null) {
+            reject(waiter, rejection);
+            return waiter.future;
+        }
+
+        drain();
+        if (!waiter.future.isDone()) {
+            long waitNanos = config.getMaxQueueWait().toNanos();
+            try {
+                waiter.timeout = scheduler.schedule(() -> expire(waiter), waitNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closed concurrently; close() has already rejected the waiter
+                reject(waiter, "Admission controller is closed");
+            }
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Updates the quota feedback from the {@code quotaSnapshots} of an
+     * {@code assistant.usage} event.
+     *
+     * @param quotaSnapshots
+     *            the reported snapshots, keyed by quota type
+     */
+    void updateQuota(Map<String, Object> quotaSnapshots) {
+        double lowest = Double.NaN;
+        for (Object value : quotaSnapshots.values()) {
+            if (!(value instanceof Map<?, ?> snapshot) || Boolean.TRUE.equals(snapshot.get("isUnlimitedEntitlement"))) {
+                continue;
+            }
+            if (snapshot.get("remainingPercentage") instanceof Number remaining) {
+                lowest = Double.isNaN(lowest) ? remaining.doubleValue() : Math.min(lowest, remaining.doubleValue());
+            }
+        }
+        if (!Double.isNaN(lowest)) {
+            synchronized (this) {
+                remainingQuota = lowest;
+                lastQuotaProbe = clock.getAsLong();
+            }
+        }
+    }
+
+    /**
+     * Returns the lowest remaining quota percentage last reported.
+     *
+     * @return the remaining quota, or {@code NaN} if none has been reported
+     */
+    double getRemainingQuota() {
+        return remainingQuota;
+    }
+
+    synchronized int getQueueLength() {
+        return queued;
+    }
+
+    synchronized int getInFlight(String model) {
+        return inFlight.getOrDefault(model != null ? model : DEFAULT_MODEL, 0);
+    }
+
+    /**
+     * Admits as many queued turns as tokens and concurrency slots allow.
+     */
+    void drain() {
+        List<Waiter> admitted = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            refill();
+            while (queued > 0 && (ratePerNano == 0 || tokens >= 1)) {
+                Waiter next = pollEligible();
+                if (next == null) {
+                    break;
+                }
+                if (ratePerNano > 0) {
+                    tokens -= 1;
+                }
+                inFlight.merge(next.model, 1, Integer::sum);
+                admitted.add(next);
+            }
+            if (queued > 0 && ratePerNano > 0 && tokens < 1 && !drainScheduled) {
+                drainScheduled = true;
+                long delay = (long) Math.ceil((1 - tokens) / ratePerNano);
+                scheduler.schedule(() -> {
+                    synchronized (this) {
+                        drainScheduled = false;
+                    }
+                    drain();
+                }, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+        long now = clock.getAsLong();
+        for (Waiter waiter : admitted) {
+            if (waiter.timeout != null) {
+                waiter.timeout.cancel(false);
+            }
+            var permit = new Permit(waiter.model);
+            if (waiter.decide()) {
+                metrics.admissionDecided(waiter.model, now - waiter.enqueuedNanos, true);
+            }
+            if (!waiter.future.complete(permit)) {
+                // The caller gave up (e.g. cancelled sendAndWait) while queued
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * Rejects all queued turns and stops the scheduler.
+     */
+    @Override
+    public void close() {
+        List<Waiter> pending = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queues.values().forEach(sessions -> sessions.values().forEach(pending::addAll));
+            queues.clear();
+            queued = 0;
+        }
+        scheduler.shutdownNow();
+        for (Waiter waiter : pending) {
+            reject(waiter, "Admission controller is closed");
+        }
+    }
+
+    private String resolveTenant(String sessionId) {
+        var resolver = config.getTenantResolver();
+        String tenant = resolver != null ? resolver.apply(sessionId) : null;
+        return tenant != null ? tenant : sessionId;
+    }
+
+    private boolean isQuotaExhausted(long now) {
+        double min = config.getMinRemainingQuotaPercentage();
+        if (min == 0 || !(remainingQuota < min)) {
+            return false;
+        }
+        if (now - lastQuotaProbe >= QUOTA_PROBE_INTERVAL_NANOS) {
+            lastQuotaProbe = now;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean hasSlot(String model) {
+        int cap = config.getMaxConcurrentPerModel();
+        return cap == 0 || inFlight.getOrDefault(model, 0) < cap;
+    }
+
+    private boolean canAdmitImmediately(Waiter waiter) {
+        refill();
+        return (ratePerNano == 0 || tokens >= 1) && hasSlot(waiter.model);
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        if (ratePerNano > 0) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        }
+        lastRefill = now;
+    }
+
+    /**
+     * Removes and returns the head of the first session queue, in round robin
+     * order, whose model has a free slot. The served session and its tenant are
+     * moved to the back of their respective rotations. Waiters whose future is
+     * already done (cancelled or expired) are discarded along the way.
+     */
+    private Waiter pollEligible() {
+        Iterator<Map.Entry<String, LinkedHashMap<String, ArrayDeque<Waiter>>>> tenants = queues.entrySet()
+                .iterator();
+        while (tenants.hasNext()) {
+            var tenantEntry = tenants.next();
+            LinkedHashMap<String, ArrayDeque<Waiter>> sessions = tenantEntry.getValue();
+            Iterator<Map.Entry<String, ArrayDeque<Waiter>>> sessionIt = sessions.entrySet().iterator();
+            while (sessionIt.hasNext()) {
+                var sessionEntry = sessionIt.next();
+                ArrayDeque<Waiter> deque = sessionEntry.getValue();
+                while (!deque.isEmpty() && deque.peekFirst().future.isDone()) {
+                    deque.pollFirst();
+                    queued--;
+                }
+                Waiter head = deque.peekFirst();
+                if (head == null) {
+                    sessionIt.remove();
+                    continue;
+                }
+                if (!hasSlot(head.model)) {
+                    continue;
+                }
+                deque.pollFirst();
+                queued--;
+                sessionIt.remove();
+                if (!deque.isEmpty()) {
+                    sessions.put(sessionEntry.getKey(), deque);
+                }
+                tenants.remove();
+                if (!sessions.isEmpty()) {
+                    queues.put(tenantEntry.getKey(), sessions);
+                }
+                return head;
+            }
+            if (sessions.isEmpty()) {
+                tenants.remove();
+            }
+        }
+        return null;
+    }
+
+    private void expire(Waiter waiter) {
+        boolean removed;
+        synchronized (this) {
+            var sessions = queues.get(waiter.tenant);
+            var deque = sessions != null ? sessions.get(waiter.sessionId) : null;
+            removed = deque != null && deque.remove(waiter);
+            if (removed) {
+                queued--;
+                if (deque.isEmpty()) {
+                    sessions.remove(waiter.sessionId);
+                    if (sessions.isEmpty()) {
+                        queues.remove(waiter.tenant);
+                    }
+                }
+            }
+        }
+        if (removed) {
+            reject(waiter, "Timed out after " + config.getMaxQueueWait().toMillis() + "ms waiting for admission");
+        }
+    }
+
+    private void reject(Waiter waiter, String reason) {
+        if (waiter.decide()) {
+            metrics.admissionDecided(waiter.model, clock.getAsLong() - waiter.enqueuedNanos, false);
+        }
+        waiter.future.completeExceptionally(new RejectedExecutionException(reason));
+    }
+}
@@ -8,9 +8,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.URI;
+import java.net.UnixDomainSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -137,18 +140,44 @@ final class CliServerManager {
      *             if connection fails
      */
     JsonRpcClient connectToServer(Process process, String tcpHost, Integer tcpPort) throws IOException {
-        if (tcpHost != null && tcpPort != null) {
+        if (tcpHost != null && tcpPort != null && options.getEventLoop() != null) {
+            // TCP mode served by a shared event loop
+            JsonRpcTransport transport = options.getEventLoop().connect(new InetSocketAddress(tcpHost, tcpPort));
+            return configure(JsonRpcClient.fromTransport(transport, options.getMetrics()));
+        } else if (tcpHost != null && tcpPort != null) {
             // TCP mode: external server or child process with explicit port
             Socket socket = new Socket(tcpHost, tcpPort);
-            return JsonRpcClient.fromSocket(socket);
+            return configure(JsonRpcClient.fromSocket(socket, options.getMetrics()));
         } else if (process != null) {
             // Stdio mode: child process
-            return JsonRpcClient.fromProcess(process);
+            return configure(JsonRpcClient.fromProcess(process, options.getMetrics()));
         } else {
             throw new IllegalStateException("Cannot connect: no process for stdio and no host:port for TCP");
         }
     }
 
+    /**
+     * Connects to a Copilot server listening on a Unix domain socket.
+     *
+     * @param socketPath
+     *            the path of the socket file
+     * @return the JSON-RPC client connected to the server
+     * @throws IOException
+     *             if connection fails
+     */
+    JsonRpcClient connectToServer(Path socketPath) throws IOException {
+        if (options.getEventLoop() != null) {
+            JsonRpcTransport transport = options.getEventLoop().connect(UnixDomainSocketAddress.of(socketPath));
+            return configure(JsonRpcClient.fromTransport(transport, options.getMetrics()));
+        }
+        return configure(JsonRpcClient.fromUnixSocket(socketPath, options.getMetrics()));
+    }
+
+    private JsonRpcClient configure(JsonRpcClient client) {
+        client.setMaxFrameSize(options.getMaxFrameSize());
+        return client;
+    }
+
     private void startStderrReader(Process process) {
         var stderrThread = new Thread(() -> {
             try (BufferedReader reader = new BufferedReader(
@@ -235,6 +264,26 @@ final class CliServerManager {
         return result;
     }
 
+    /**
+     * Returns the socket path of a {@code unix:} CLI URL, such as
+     * {@code unix:/run/copilot.sock} or {@code unix:///run/copilot.sock}.
+     *
+     * @return the socket path, or {@code null} if the URL names a TCP server
+     */
+    static Path parseSocketPath(String url) {
+        if (!url.regionMatches(true, 0, "unix:", 0, 5)) {
+            return null;
+        }
+        String path = url.substring(5);
+        if (path.startsWith("//")) {
+            path = path.substring(2);
+        }
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("CliUrl names no socket path: " + url);
+        }
+        return Path.of(path);
+    }
+
     static URI parseCliUrl(String url) {
         // If it's just a port number, treat as localhost
         try {
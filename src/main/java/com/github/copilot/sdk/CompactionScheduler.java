@@ -0,0 +1,393 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.copilot.sdk.events.AbstractSessionEvent;
+import com.github.copilot.sdk.events.AssistantTurnStartEvent;
+import com.github.copilot.sdk.events.SessionCompactionCompleteEvent;
+import com.github.copilot.sdk.events.SessionIdleEvent;
+import com.github.copilot.sdk.events.SessionUsageInfoEvent;
+import com.github.copilot.sdk.events.UserMessageEvent;
+
+/**
+ * Compacts sessions proactively while they are idle, so that the CLI's own
+ * compaction thresholds are less likely to fire in the middle of a turn.
+ * <p>
+ * The scheduler tracks the context window utilization reported by
+ * {@code session.usage_info} events for every attached session. When a session
+ * goes idle with utilization at or above the configured threshold, a
+ * {@link CopilotSession#compact()} is scheduled after a short grace period on
+ * the scheduler's own thread. The compaction is abandoned if the session
+ * becomes busy again before it starts, and at most
+ * {@link #setMaxConcurrentCompactions(int) a fixed number} of compactions run
+ * at the same time across all sessions; the rest wait in FIFO order.
+ * <p>
+ * Every {@code session.compaction_complete} event observed on an attached
+ * session, whether requested by this scheduler or by the CLI, is reported to
+ * the listener as a {@link CompactionReport}.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var compactions = new CompactionScheduler().setThreshold(0.6).setMaxConcurrentCompactions(2)
+ * 		.setListener(r -> log.info("compacted {}: -{} tokens", r.sessionId(), r.tokensRemoved()));
+ *
+ * var session = client.createSession(config).get();
+ * compactions.attach(session);
+ * }</pre>
+ *
+ * @see CopilotSession#compact()
+ * @see com.github.copilot.sdk.json.InfiniteSessionConfig
+ * @since 1.0.12
+ */
+public class CompactionScheduler implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(CompactionScheduler.class.getName());
+
+    private final Function<CopilotSession, CompletableFuture<Void>> compactor;
+    private final ScheduledExecutorService executor;
+    private final ArrayDeque<SessionState> waiting = new ArrayDeque<>();
+    private final LongAdder triggered = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder tokensRemoved = new LongAdder();
+    private volatile double threshold = 0.6;
+    private volatile int maxConcurrentCompactions = 1;
+    private volatile Duration idleDelay = Duration.ofSeconds(2);
+    private volatile Consumer<CompactionReport> listener;
+    private int running;
+    private boolean closed;
+
+    /**
+     * Outcome of a single compaction.
+     *
+     * @param sessionId
+     *            the compacted session
+     * @param proactive
+     *            {@code true} if the compaction was requested by this scheduler,
+     *            {@code false} if the CLI compacted on its own
+     * @param success
+     *            whether the compaction succeeded
+     * @param error
+     *            the error message if it failed, otherwise {@code null}
+     * @param preCompactionTokens
+     *            context tokens before compaction
+     * @param postCompactionTokens
+     *            context tokens after compaction
+     * @param tokensRemoved
+     *            tokens removed from the context
+     * @param messagesRemoved
+     *            messages removed from the context
+     * @param duration
+     *            time from the compaction request to its completion event, or
+     *            {@code null} if the compaction was not requested by this
+     *            scheduler
+     * @since 1.0.12
+     */
+    public record CompactionReport(String sessionId, boolean proactive, boolean success, String error,
+            double preCompactionTokens, double postCompactionTokens, double tokensRemoved, double messagesRemoved,
+            Duration duration) {
+    }
+
+    /**
+     * Aggregate statistics for compactions requested by this scheduler.
+     *
+     * @param triggered
+     *            compactions started
+     * @param succeeded
+     *            compactions that reported success
+     * @param failed
+     *            compactions whose request failed or that reported failure
+     * @param tokensRemoved
+     *            total tokens removed by successful compactions
+     * @since 1.0.12
+     */
+    public record Stats(long triggered, long succeeded, long failed, long tokensRemoved) {
+    }
+
+    /**
+     * Creates a scheduler with a threshold of 0.6, one concurrent compaction and
+     * a two second idle grace period.
+     */
+    public CompactionScheduler() {
+        this(CopilotSession::compact);
+    }
+
+    CompactionScheduler(Function<CopilotSession, CompletableFuture<Void>> compactor) {
+        this.compactor = compactor;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "copilot-compaction");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Sets the context window utilization at or above which an idle session is
+     * compacted.
+     *
+     * @param threshold
+     *            {@code currentTokens / tokenLimit}, between 0 and 1
+     * @return this scheduler for method chaining
+     * @throws IllegalArgumentException
+     *             if the threshold is outside 0 to 1
+     */
+    public CompactionScheduler setThreshold(double threshold) {
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be between 0 and 1");
+        }
+        this.threshold = threshold;
+        return this;
+    }
+
+    /**
+     * Sets how many compactions may run at the same time across all attached
+     * sessions.
+     *
+     * @param maxConcurrentCompactions
+     *            the cap, at least 1
+     * @return this scheduler for method chaining
+     * @throws IllegalArgumentException
+     *             if the cap is less than 1
+     */
+    public CompactionScheduler setMaxConcurrentCompactions(int maxConcurrentCompactions) {
+        if (maxConcurrentCompactions < 1) {
+            throw new IllegalArgumentException("maxConcurrentCompactions must be at least 1");
+        }
+        this.maxConcurrentCompactions = maxConcurrentCompactions;
+        return this;
+    }
+
+    /**
+     * Sets how long a session must stay idle before it is compacted. A new
+     * message or turn within this period cancels the compaction.
+     *
+     * @param idleDelay
+     *            the grace period
+     * @return this scheduler for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code idleDelay} is {@code null} or negative
+     */
+    public CompactionScheduler setIdleDelay(Duration idleDelay) {
+        if (idleDelay == null || idleDelay.isNegative()) {
+            throw new IllegalArgumentException("idleDelay must not be null or negative");
+        }
+        this.idleDelay = idleDelay;
+        return this;
+    }
+
+    /**
+     * Sets the listener that receives a report for every observed compaction.
+     *
+     * @param listener
+     *            called on the event dispatch thread, or {@code null}
+     * @return this scheduler for method chaining
+     */
+    public CompactionScheduler setListener(Consumer<CompactionReport> listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Starts tracking a session.
+     *
+     * @param session
+     *            the session to compact when idle
+     * @return a handle that stops tracking the session when closed
+     */
+    public Closeable attach(CopilotSession session) {
+        var state = new SessionState(session);
+        Closeable events = session.on(event -> onEvent(state, event));
+        return () -> {
+            events.close();
+            synchronized (this) {
+                state.detached = true;
+                state.cancelPending();
+                waiting.remove(state);
+            }
+        };
+    }
+
+    /**
+     * Returns statistics for the compactions requested by this scheduler.
+     *
+     * @return a snapshot of the statistics
+     */
+    public Stats getStats() {
+        return new Stats(triggered.sum(), succeeded.sum(), failed.sum(), tokensRemoved.sum());
+    }
+
+    /**
+     * Stops scheduling compactions. Compactions already requested are not
+     * cancelled.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            waiting.clear();
+        }
+        executor.shutdownNow();
+    }
+
+    private void onEvent(SessionState state, AbstractSessionEvent event) {
+        if (event instanceof SessionUsageInfoEvent usage && usage.getData() != null) {
+            var data = usage.getData();
+            state.tokenLimit = data.tokenLimit();
+            state.utilization = data.tokenLimit() > 0 ? data.currentTokens() / data.tokenLimit() : 0;
+        } else if (event instanceof UserMessageEvent || event instanceof AssistantTurnStartEvent) {
+            synchronized (this) {
+                state.busy = true;
+                state.cancelPending();
+                waiting.remove(state);
+            }
+        } else if (event instanceof SessionIdleEvent) {
+            scheduleIfNeeded(state);
+        } else if (event instanceof SessionCompactionCompleteEvent complete && complete.getData() != null) {
+            report(state, complete.getData());
+        }
+    }
+
+    private synchronized void scheduleIfNeeded(SessionState state) {
+        state.busy = false;
+        if (closed || state.detached || state.compacting || state.pending != null
+                || state.utilization < threshold) {
+            return;
+        }
+        try {
+            state.pending = executor.schedule(() -> tryStart(state), idleDelay.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed concurrently
+        }
+    }
+
+    private void tryStart(SessionState state) {
+        synchronized (this) {
+            state.pending = null;
+            if (closed || state.detached || state.busy || state.compacting) {
+                return;
+            }
+            if (running >= maxConcurrentCompactions) {
+                if (!waiting.contains(state)) {
+                    waiting.add(state);
+                }
+                return;
+            }
+            running++;
+            state.compacting = true;
+            state.awaitingReport = true;
+            state.requestedNanos = System.nanoTime();
+        }
+        triggered.increment();
+        CompletableFuture<Void> compaction;
+        try {
+            compaction = compactor.apply(state.session);
+        } catch (RuntimeException e) {
+            compaction = CompletableFuture.failedFuture(e);
+        }
+        compaction.whenComplete((v, ex) -> {
+            if (ex != null) {
+                LOG.log(Level.FINE, "Proactive compaction failed for session " + state.session.getSessionId(), ex);
+                failed.increment();
+            }
+            SessionState next;
+            synchronized (this) {
+                running--;
+                state.compacting = false;
+                if (ex != null) {
+                    state.awaitingReport = false;
+                }
+                next = waiting.poll();
+            }
+            if (next != null) {
+                try {
+                    executor.execute(() -> tryStart(next));
+                } catch (RejectedExecutionException e) {
+                    // Closed concurrently
+                }
+            }
+        });
+    }
+
+    private void report(SessionState state, SessionCompactionCompleteEvent.SessionCompactionCompleteData data) {
+        boolean proactive;
+        long requestedNanos;
+        synchronized (this) {
+            proactive = state.awaitingReport;
+            requestedNanos = state.requestedNanos;
+            state.awaitingReport = false;
+        }
+        double pre = data.preCompactionTokens() != null ? data.preCompactionTokens() : 0;
+        double post = data.postCompactionTokens() != null ? data.postCompactionTokens() : 0;
+        double removed = data.tokensRemoved() != null ? data.tokensRemoved() : Math.max(0, pre - post);
+        if (proactive) {
+            if (data.success()) {
+                succeeded.increment();
+                tokensRemoved.add((long) removed);
+            } else {
+                failed.increment();
+            }
+        }
+        if (data.success() && state.tokenLimit > 0) {
+            // Don't compact again on the next idle before a fresh usage_info arrives
+            state.utilization = post / state.tokenLimit;
+        }
+        Consumer<CompactionReport> l = listener;
+        if (l == null) {
+            return;
+        }
+        var report = new CompactionReport(state.session.getSessionId(), proactive, data.success(), data.error(), pre,
+                post, removed, data.messagesRemoved() != null ? data.messagesRemoved() : 0,
+                proactive ? Duration.ofNanos(System.nanoTime() - requestedNanos) : null);
+        try {
+            l.accept(report);
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Compaction listener error", e);
+        }
+    }
+
+    /**
+     * Per-session tracking state. Fields other than {@code utilization} and
+     * {@code tokenLimit} are guarded by the scheduler's monitor.
+     */
+    private static final class SessionState {
+
+        final CopilotSession session;
+        volatile double utilization;
+        volatile double tokenLimit;
+        boolean busy;
+        boolean detached;
+        boolean compacting;
+        boolean awaitingReport;
+        long requestedNanos;
+        ScheduledFuture<?> pending;
+
+        SessionState(CopilotSession session) {
+            this.session = session;
+        }
+
+        void cancelPending() {
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+    }
+}
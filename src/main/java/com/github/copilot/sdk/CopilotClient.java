@@ -6,20 +6,25 @@ package com.github.copilot.sdk;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.github.copilot.sdk.events.AssistantUsageEvent;
 import com.github.copilot.sdk.json.CopilotClientOptions;
 import com.github.copilot.sdk.json.CreateSessionResponse;
 import com.github.copilot.sdk.json.DeleteSessionResponse;
+import com.github.copilot.sdk.json.EventJournalConfig;
 import com.github.copilot.sdk.json.GetAuthStatusResponse;
 import com.github.copilot.sdk.json.GetLastSessionIdResponse;
 import com.github.copilot.sdk.json.GetModelsResponse;
@@ -73,12 +78,17 @@ public final class CopilotClient implements AutoCloseable {
     public static final int AUTOCLOSEABLE_TIMEOUT_SECONDS = 10;
     private final CopilotClientOptions options;
     private final CliServerManager serverManager;
-    private final LifecycleEventManager lifecycleManager = new LifecycleEventManager();
+    private final LifecycleEventManager lifecycleManager;
     private final Map<String, CopilotSession> sessions = new ConcurrentHashMap<>();
+    private final List<RpcHandlerDispatcher.SessionEventObserver> eventObservers = new CopyOnWriteArrayList<>();
+    private final UsageLedger usageLedger = new UsageLedger();
+    private final AdmissionController admission;
+    private final ToolBulkheads toolBulkheads;
     private volatile CompletableFuture<Connection> connectionFuture;
     private volatile boolean disposed = false;
     private final String optionsHost;
     private final Integer optionsPort;
+    private final Path optionsSocketPath;
     private volatile List<ModelInfo> modelsCache;
     private final Object modelsCacheLock = new Object();
 
@@ -100,7 +110,7 @@ public final class CopilotClient implements AutoCloseable {
     public CopilotClient(CopilotClientOptions options) {
         this.options = options != null ? options : new CopilotClientOptions();
 
-        // When cliUrl is set, auto-correct useStdio since we're connecting via TCP
+        // When cliUrl is set, auto-correct useStdio since we're connecting via a socket
         if (this.options.getCliUrl() != null && !this.options.getCliUrl().isEmpty()) {
             this.options.setUseStdio(false);
         }
@@ -120,15 +130,34 @@ public final class CopilotClient implements AutoCloseable {
 
         // Parse CliUrl if provided
         if (this.options.getCliUrl() != null && !this.options.getCliUrl().isEmpty()) {
-            URI uri = CliServerManager.parseCliUrl(this.options.getCliUrl());
-            this.optionsHost = uri.getHost();
-            this.optionsPort = uri.getPort();
+            this.optionsSocketPath = CliServerManager.parseSocketPath(this.options.getCliUrl());
+            URI uri = optionsSocketPath == null ? CliServerManager.parseCliUrl(this.options.getCliUrl()) : null;
+            this.optionsHost = uri != null ? uri.getHost() : null;
+            this.optionsPort = uri != null ? uri.getPort() : null;
         } else {
             this.optionsHost = null;
             this.optionsPort = null;
+            this.optionsSocketPath = null;
         }
 
         this.serverManager = new CliServerManager(this.options);
+        this.lifecycleManager = new LifecycleEventManager(this.options.getLifecycleEventThreads());
+        this.toolBulkheads = new ToolBulkheads(this.options.getMetrics());
+        this.eventObservers.add((session, event) -> {
+            if (event instanceof AssistantUsageEvent usage) {
+                usageLedger.record(session.getSessionId(), usage.getData());
+            }
+        });
+        if (this.options.getAdmissionControl() != null) {
+            this.admission = new AdmissionController(this.options.getAdmissionControl(), this.options.getMetrics());
+            this.eventObservers.add((session, event) -> {
+                if (event instanceof AssistantUsageEvent usage && usage.getData() != null) {
+                    admission.updateQuota(usage.getData().quotaSnapshots());
+                }
+            });
+        } else {
+            this.admission = null;
+        }
     }
 
     /**
@@ -155,7 +184,10 @@ public final class CopilotClient implements AutoCloseable {
                 JsonRpcClient rpc;
                 Process process = null;
 
-                if (optionsHost != null && optionsPort != null) {
+                if (optionsSocketPath != null) {
+                    // External server (Unix domain socket)
+                    rpc = serverManager.connectToServer(optionsSocketPath);
+                } else if (optionsHost != null && optionsPort != null) {
                     // External server (TCP)
                     rpc = serverManager.connectToServer(null, optionsHost, optionsPort);
                 } else {
@@ -169,7 +201,8 @@ public final class CopilotClient implements AutoCloseable {
                 Connection connection = new Connection(rpc, process);
 
                 // Register handlers for server-to-client calls
-                RpcHandlerDispatcher dispatcher = new RpcHandlerDispatcher(sessions, lifecycleManager::dispatch);
+                RpcHandlerDispatcher dispatcher = new RpcHandlerDispatcher(sessions, lifecycleManager::dispatch,
+                        eventObservers);
                 dispatcher.registerHandlers(rpc);
 
                 // Verify protocol version
@@ -251,7 +284,14 @@ public final class CopilotClient implements AutoCloseable {
      */
     public CompletableFuture<Void> forceStop() {
         disposed = true;
+        for (CopilotSession session : sessions.values()) {
+            session.cancelToolCalls("client stopped");
+        }
         sessions.clear();
+        lifecycleManager.close();
+        if (admission != null) {
+            admission.close();
+        }
         return cleanupConnection();
     }
 
@@ -330,6 +370,13 @@ public final class CopilotClient implements AutoCloseable {
 
             var session = new CopilotSession(sessionId, connection.rpc);
             SessionRequestBuilder.configureSession(session, config);
+            session.setToolBulkheads(toolBulkheads);
+            session.setToolTimeout(options.getToolTimeout());
+            session.setCloseListener(this::forgetSession);
+            if (admission != null) {
+                session.setAdmissionController(admission, config.getModel());
+            }
+            openJournal(session, false);
             sessions.put(sessionId, session);
 
             var request = SessionRequestBuilder.buildCreateRequest(config, sessionId);
@@ -347,6 +394,7 @@ public final class CopilotClient implements AutoCloseable {
                 return session;
             }).exceptionally(ex -> {
                 sessions.remove(sessionId);
+                session.setJournal(null);
                 throw ex instanceof RuntimeException re ? re : new RuntimeException(ex);
             });
         });
@@ -388,6 +436,13 @@ public final class CopilotClient implements AutoCloseable {
             // Register the session before the RPC call to avoid missing early events.
             var session = new CopilotSession(sessionId, connection.rpc);
             SessionRequestBuilder.configureSession(session, config);
+            session.setToolBulkheads(toolBulkheads);
+            session.setToolTimeout(options.getToolTimeout());
+            session.setCloseListener(this::forgetSession);
+            if (admission != null) {
+                session.setAdmissionController(admission, config.getModel());
+            }
+            openJournal(session, true);
             sessions.put(sessionId, session);
 
             var request = SessionRequestBuilder.buildResumeRequest(sessionId, config);
@@ -404,6 +459,7 @@ public final class CopilotClient implements AutoCloseable {
                 return session;
             }).exceptionally(ex -> {
                 sessions.remove(sessionId);
+                session.setJournal(null);
                 throw ex instanceof RuntimeException re ? re : new RuntimeException(ex);
             });
         });
@@ -551,12 +607,92 @@ public final class CopilotClient implements AutoCloseable {
     public CompletableFuture<Void> deleteSession(String sessionId) {
         return ensureConnected().thenCompose(connection -> connection.rpc
                 .invoke("session.delete", Map.of("sessionId", sessionId), DeleteSessionResponse.class)
-                .thenAccept(response -> {
-                    if (!response.success()) {
-                        throw new RuntimeException("Failed to delete session " + sessionId + ": " + response.error());
+                .thenAccept(response -> sessionDeleted(sessionId, response)));
+    }
+
+    /**
+     * Permanently deletes several sessions, sending all deletions to the server
+     * in a single JSON-RPC batch instead of one round-trip per session.
+     * <p>
+     * Each session is deleted independently: a failure for one does not stop
+     * the others, and every session that was deleted is cleaned up as by
+     * {@link #deleteSession(String)}. If the server does not accept batches,
+     * the sessions are deleted one request at a time.
+     *
+     * @param sessionIds
+     *            the IDs of the sessions to delete
+     * @return a future that completes when every deletion has finished; it
+     *         completes exceptionally if any of them failed, naming the first
+     *         failure and carrying the others as suppressed exceptions
+     * @since 1.0.12
+     */
+    public CompletableFuture<Void> deleteSessions(Collection<String> sessionIds) {
+        List<String> ids = List.copyOf(sessionIds);
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return ensureConnected().thenCompose(connection -> {
+            List<Map<String, String>> params = ids.stream().map(id -> Map.of("sessionId", id)).toList();
+            List<CompletableFuture<DeleteSessionResponse>> responses = connection.rpc.invokeBatch("session.delete",
+                    params, DeleteSessionResponse.class);
+            var failures = new ArrayList<CompletableFuture<RuntimeException>>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                String sessionId = ids.get(i);
+                failures.add(responses.get(i).handle((response, ex) -> {
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    if (cause instanceof JsonRpcException rpcEx
+                            && (rpcEx.getCode() == -32600 || rpcEx.getCode() == -32700)) {
+                        // Invalid Request or Parse error: the server rejected the batch itself
+                        return deleteSession(sessionId);
                     }
-                    sessions.remove(sessionId);
+                    if (cause != null) {
+                        return CompletableFuture.<Void>failedFuture(cause);
+                    }
+                    sessionDeleted(sessionId, response);
+                    return CompletableFuture.<Void>completedFuture(null);
+                }).thenCompose(deletion -> deletion).handle((ignored, ex) -> {
+                    if (ex == null) {
+                        return null;
+                    }
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    return cause instanceof RuntimeException runtime && !(cause instanceof JsonRpcException)
+                            ? runtime
+                            : new RuntimeException("Failed to delete session " + sessionId + ": " + cause.getMessage(),
+                                    cause);
                 }));
+            }
+            return CompletableFuture.allOf(failures.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+                RuntimeException first = null;
+                for (CompletableFuture<RuntimeException> failure : failures) {
+                    RuntimeException error = failure.join();
+                    if (error == null) {
+                        continue;
+                    } else if (first == null) {
+                        first = error;
+                    } else {
+                        first.addSuppressed(error);
+                    }
+                }
+                if (first != null) {
+                    throw first;
+                }
+                return null;
+            });
+        });
+    }
+
+    private void sessionDeleted(String sessionId, DeleteSessionResponse response) {
+        if (!response.success()) {
+            throw new RuntimeException("Failed to delete session " + sessionId + ": " + response.error());
+        }
+        CopilotSession removed = sessions.remove(sessionId);
+        usageLedger.forgetSession(sessionId);
+        if (options.getEventJournal() != null) {
+            if (removed != null) {
+                removed.setJournal(null);
+            }
+            SessionJournal.delete(options.getEventJournal().getDirectory(), sessionId);
+        }
     }
 
     /**
@@ -679,6 +815,60 @@ public final class CopilotClient implements AutoCloseable {
         return lifecycleManager.subscribe(eventType, handler);
     }
 
+    /**
+     * Returns the ledger that accumulates token and cost usage reported by all
+     * sessions of this client.
+     *
+     * @return the client's usage ledger
+     * @since 1.0.12
+     */
+    public UsageLedger getUsageLedger() {
+        return usageLedger;
+    }
+
+    /**
+     * Returns the number of tool calls currently waiting for a slot, per tool.
+     * Only tools with a {@link com.github.copilot.sdk.json.ToolConcurrencyPolicy}
+     * that have been called appear.
+     *
+     * @return an immutable map from tool name to queue depth
+     * @see com.github.copilot.sdk.json.ToolDefinition#withConcurrency
+     * @since 1.0.12
+     */
+    public Map<String, Integer> getToolQueueDepths() {
+        return toolBulkheads.getQueueDepths();
+    }
+
+    CopilotMetrics getMetrics() {
+        return options.getMetrics();
+    }
+
+    /**
+     * Stops routing server events to a closed session and drops its usage
+     * counters, if it is still the session registered under its ID.
+     */
+    void forgetSession(CopilotSession session) {
+        if (sessions.remove(session.getSessionId(), session)) {
+            usageLedger.forgetSession(session.getSessionId());
+        }
+    }
+
+    private void openJournal(CopilotSession session, boolean resumed) {
+        EventJournalConfig config = options.getEventJournal();
+        if (config == null) {
+            return;
+        }
+        try {
+            var journal = SessionJournal.open(config.getDirectory(), session.getSessionId(), config.getSegmentSize());
+            if (resumed) {
+                journal.markStale();
+            }
+            session.setJournal(journal);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to open event journal for session " + session.getSessionId(), e);
+        }
+    }
+
     private CompletableFuture<Connection> ensureConnected() {
         if (connectionFuture == null && !options.isAutoStart()) {
             throw new IllegalStateException("Client not connected. Call start() first.");
@@ -712,6 +902,10 @@ public final class CopilotClient implements AutoCloseable {
         } catch (Exception e) {
             LOG.log(Level.FINE, "Error during close", e);
         }
+        lifecycleManager.close();
+        if (admission != null) {
+            admission.close();
+        }
     }
 
     private static record Connection(JsonRpcClient rpc, Process process) {
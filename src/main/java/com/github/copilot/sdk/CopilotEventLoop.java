@@ -0,0 +1,451 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.copilot.sdk.json.CopilotClientOptions;
+
+/**
+ * A shared NIO event loop that serves the socket connections of many clients
+ * on a few threads.
+ * <p>
+ * By default every {@link CopilotClient} reads its connection on a dedicated
+ * thread that spends most of its life blocked in {@code read()}. Clients
+ * configured with the same event loop through
+ * {@link CopilotClientOptions#setEventLoop(CopilotEventLoop)} instead register
+ * non-blocking channels with one of its selector threads, which decode frames
+ * incrementally from a direct buffer and hand them to a dispatch thread. A JVM
+ * with a hundred connections then runs a handful of I/O threads rather than a
+ * hundred readers.
+ * <p>
+ * Each connection is pinned to one dispatch thread, so its messages are
+ * handled in the order they arrived, and a handler that blocks delays the
+ * other connections sharing that thread. Writes go straight to the channel
+ * while it accepts them; the rest is queued and flushed by the selector
+ * thread, and writers wait while more than 8 MiB is queued for a connection.
+ * <p>
+ * The event loop serves TCP and Unix domain socket connections, including CLI
+ * processes started by the SDK in TCP mode. Stdio pipes of a child process
+ * cannot be selected on and keep their reader thread.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * try (var loop = new CopilotEventLoop(2, 8)) {
+ * 	var options = new CopilotClientOptions().setCliUrl("localhost:4321").setEventLoop(loop);
+ * 	var clients = IntStream.range(0, 100).mapToObj(i -> new CopilotClient(options.clone())).toList();
+ * 	// ...
+ * }
+ * }</pre>
+ *
+ * @since 1.0.12
+ */
+public final class CopilotEventLoop implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(CopilotEventLoop.class.getName());
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_QUEUED_WRITE_BYTES = 8L * 1024 * 1024;
+
+    private final IoThread[] ioThreads;
+    private final ExecutorService[] dispatchLanes;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Creates an event loop with one selector thread and four dispatch threads.
+     *
+     * @throws IOException
+     *             if a selector cannot be opened
+     */
+    public CopilotEventLoop() throws IOException {
+        this(1, 4);
+    }
+
+    /**
+     * Creates an event loop.
+     *
+     * @param ioThreads
+     *            the number of selector threads that read and write the
+     *            connections
+     * @param dispatchThreads
+     *            the number of threads that handle decoded messages
+     * @throws IllegalArgumentException
+     *             if either count is less than 1
+     * @throws IOException
+     *             if a selector cannot be opened
+     */
+    public CopilotEventLoop(int ioThreads, int dispatchThreads) throws IOException {
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("ioThreads must be at least 1");
+        }
+        if (dispatchThreads < 1) {
+            throw new IllegalArgumentException("dispatchThreads must be at least 1");
+        }
+        this.ioThreads = new IoThread[ioThreads];
+        try {
+            for (int i = 0; i < ioThreads; i++) {
+                this.ioThreads[i] = new IoThread("copilot-io-" + i);
+            }
+        } catch (IOException e) {
+            for (IoThread thread : this.ioThreads) {
+                if (thread != null) {
+                    thread.selector.close();
+                }
+            }
+            throw e;
+        }
+        this.dispatchLanes = new ExecutorService[dispatchThreads];
+        for (int i = 0; i < dispatchThreads; i++) {
+            String name = "copilot-dispatch-" + i;
+            dispatchLanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        for (IoThread thread : this.ioThreads) {
+            thread.thread.start();
+        }
+    }
+
+    /**
+     * Gets the number of selector threads.
+     *
+     * @return the number of selector threads
+     */
+    public int getIoThreadCount() {
+        return ioThreads.length;
+    }
+
+    /**
+     * Gets the number of dispatch threads.
+     *
+     * @return the number of dispatch threads
+     */
+    public int getDispatchThreadCount() {
+        return dispatchLanes.length;
+    }
+
+    /**
+     * Gets the number of open connections served by this event loop.
+     *
+     * @return the number of open connections
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Opens a connection to the given TCP or Unix domain socket address and
+     * serves it from this event loop.
+     *
+     * @param address
+     *            the server address
+     * @return the transport of the connection
+     * @throws IOException
+     *             if the connection cannot be established or the event loop is
+     *             closed
+     */
+    JsonRpcTransport connect(SocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        try {
+            return register(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Serves a connected channel from this event loop. The channel is switched
+     * to non-blocking mode; reading starts when the client calls
+     * {@link JsonRpcTransport#startReading}.
+     */
+    JsonRpcTransport register(SocketChannel channel) throws IOException {
+        if (closed) {
+            throw new IOException("Event loop is closed");
+        }
+        channel.configureBlocking(false);
+        int n = nextConnection.getAndIncrement() & Integer.MAX_VALUE;
+        connectionCount.incrementAndGet();
+        return new Connection(channel, ioThreads[n % ioThreads.length], dispatchLanes[n % dispatchLanes.length]);
+    }
+
+    /**
+     * Closes every connection and stops the threads of this event loop.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (IoThread thread : ioThreads) {
+            thread.selector.wakeup();
+        }
+        for (ExecutorService lane : dispatchLanes) {
+            lane.shutdown();
+        }
+    }
+
+    /**
+     * A selector thread. Connections are registered through a queue, because
+     * registering blocks while the selector is in {@code select()}.
+     */
+    private final class IoThread implements Runnable {
+
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Connection> registrations = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        IoThread(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        void register(Connection connection) {
+            registrations.add(connection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select(this::process);
+                    Connection connection;
+                    while ((connection = registrations.poll()) != null) {
+                        connection.registerWith(selector);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.SEVERE, "Event loop thread failed", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                registrations.forEach(Connection::close);
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    LOG.log(Level.FINE, "Error closing selector", e);
+                }
+            }
+        }
+
+        private void process(SelectionKey key) {
+            var connection = (Connection) key.attachment();
+            try {
+                if (key.isValid() && key.isWritable()) {
+                    connection.flushQueued();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.read(readBuffer);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.FINE, "Closing connection after I/O error", e);
+                connection.close();
+            }
+        }
+    }
+
+    /** A non-blocking connection served by one selector thread. */
+    private final class Connection implements JsonRpcTransport {
+
+        private final SocketChannel channel;
+        private final IoThread ioThread;
+        private final ExecutorService lane;
+        private final FrameDecoder decoder = new FrameDecoder();
+        private final AtomicBoolean open = new AtomicBoolean(true);
+        private final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                Objects.checkFromIndexSize(off, len, b.length);
+                Connection.this.write(ByteBuffer.wrap(b, off, len));
+            }
+        };
+        // Guarded by this
+        private final ArrayDeque<ByteBuffer> queued = new ArrayDeque<>();
+        private long queuedBytes;
+        private SelectionKey key;
+        private volatile FrameListener listener;
+
+        Connection(SocketChannel channel, IoThread ioThread, ExecutorService lane) {
+            this.channel = channel;
+            this.ioThread = ioThread;
+            this.lane = lane;
+        }
+
+        @Override
+        public InputStream inputStream() {
+            // Frames are delivered by the event loop, so there is nothing to read here
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public OutputStream outputStream() {
+            return out;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return open.get() && channel.isConnected();
+        }
+
+        @Override
+        public boolean startReading(FrameListener listener) {
+            // Decoded frames are handed to the dispatch lane of this connection
+            this.listener = new FrameListener() {
+                @Override
+                public void onFrame(byte[] buffer, int length, int frameSize) {
+                    dispatch(buffer, () -> listener.onFrame(buffer, length, frameSize));
+                }
+
+                @Override
+                public int maxFrameSize() {
+                    return listener.maxFrameSize();
+                }
+
+                @Override
+                public void onOversizedFrame(byte[] prefix, int length, int frameSize) {
+                    dispatch(prefix, () -> listener.onOversizedFrame(prefix, length, frameSize));
+                }
+            };
+            ioThread.register(this);
+            return true;
+        }
+
+        private void dispatch(byte[] buffer, Runnable task) {
+            try {
+                lane.execute(task);
+            } catch (RejectedExecutionException e) {
+                LOG.log(Level.FINE, "Dropping frame, event loop is closed", e);
+                FrameBufferPool.shared().releaseShared(buffer);
+            }
+        }
+
+        /** Called on the selector thread. */
+        synchronized void registerWith(Selector selector) {
+            if (!open.get()) {
+                return;
+            }
+            try {
+                int ops = SelectionKey.OP_READ | (queued.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+                key = channel.register(selector, ops, this);
+            } catch (ClosedChannelException e) {
+                close();
+            }
+        }
+
+        /** Called on the selector thread. */
+        void read(ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            int n = channel.read(buffer);
+            if (n == -1) {
+                LOG.fine("Server closed the connection");
+                close();
+                return;
+            }
+            buffer.flip();
+            decoder.decode(buffer, listener);
+        }
+
+        synchronized void write(ByteBuffer source) throws IOException {
+            if (!open.get()) {
+                throw new ClosedChannelException();
+            }
+            if (queued.isEmpty()) {
+                while (source.hasRemaining() && channel.write(source) > 0) {
+                    // Write as much as the socket buffer takes
+                }
+                if (!source.hasRemaining()) {
+                    return;
+                }
+            }
+            ByteBuffer copy = ByteBuffer.allocate(source.remaining());
+            copy.put(source).flip();
+            queued.add(copy);
+            queuedBytes += copy.remaining();
+            if (key != null) {
+                try {
+                    key.interestOpsOr(SelectionKey.OP_WRITE);
+                } catch (CancelledKeyException e) {
+                    throw new ClosedChannelException();
+                }
+                key.selector().wakeup();
+            }
+            while (queuedBytes > MAX_QUEUED_WRITE_BYTES && open.get()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to write");
+                }
+            }
+        }
+
+        /** Called on the selector thread. */
+        synchronized void flushQueued() throws IOException {
+            ByteBuffer head;
+            while ((head = queued.peek()) != null) {
+                int n = channel.write(head);
+                queuedBytes -= n;
+                if (head.hasRemaining()) {
+                    break;
+                }
+                queued.poll();
+            }
+            if (queued.isEmpty()) {
+                key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            }
+            notifyAll();
+        }
+
+        @Override
+        public void close() {
+            if (!open.compareAndSet(true, false)) {
+                return;
+            }
+            connectionCount.decrementAndGet();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Error closing channel", e);
+            }
+            synchronized (this) {
+                queued.clear();
+                queuedBytes = 0;
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+/**
+ * Service provider interface for collecting SDK runtime metrics.
+ * <p>
+ * The SDK reports JSON-RPC traffic, session event dispatch and callback timings
+ * to the {@code CopilotMetrics} configured via
+ * {@link com.github.copilot.sdk.json.CopilotClientOptions#setMetrics(CopilotMetrics)}.
+ * Every method has an empty default implementation, so implementations only
+ * override what they care about. Methods are called on SDK-internal threads,
+ * including the JSON-RPC reader thread, and must be thread-safe, fast and
+ * non-blocking.
+ * <p>
+ * Use {@link CopilotMetricsRegistry} for a ready-made in-memory implementation
+ * and {@link JmxMetricsExporter} to publish it over JMX.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var metrics = new CopilotMetricsRegistry();
+ * var client = new CopilotClient(new CopilotClientOptions().setMetrics(metrics));
+ *
+ * // later
+ * metrics.getRequestStats().forEach((method, stats) -> System.out
+ *         .println(method + " p99=" + stats.latency().percentileMillis(99.0) + "ms"));
+ * }</pre>
+ *
+ * @see CopilotMetricsRegistry
+ * @since 1.0.12
+ */
+public interface CopilotMetrics {
+
+    /**
+     * Error code reported for requests that failed without a JSON-RPC error
+     * response, for example because the connection was closed.
+     */
+    int TRANSPORT_ERROR = -1;
+
+    /**
+     * A metrics implementation that discards everything. This is the default.
+     */
+    CopilotMetrics NOOP = new CopilotMetrics() {
+    };
+
+    /**
+     * The kind of user callback being timed.
+     *
+     * @see #callbackCompleted(CallbackType, String, long, boolean)
+     */
+    enum CallbackType {
+        /** A tool handler invocation. */
+        TOOL,
+        /** A permission handler invocation. */
+        PERMISSION,
+        /** A user input handler invocation. */
+        USER_INPUT,
+        /** A session hook invocation. */
+        HOOK
+    }
+
+    /**
+     * Called when a JSON-RPC request is sent to the server.
+     *
+     * @param method
+     *            the JSON-RPC method name
+     */
+    default void requestStarted(String method) {
+    }
+
+    /**
+     * Called when a JSON-RPC request completed successfully.
+     *
+     * @param method
+     *            the JSON-RPC method name
+     * @param durationNanos
+     *            the round-trip time in nanoseconds
+     */
+    default void requestCompleted(String method, long durationNanos) {
+    }
+
+    /**
+     * Called when a JSON-RPC request failed.
+     *
+     * @param method
+     *            the JSON-RPC method name
+     * @param errorCode
+     *            the JSON-RPC error code, or {@link #TRANSPORT_ERROR} if the
+     *            request failed without an error response
+     * @param durationNanos
+     *            the time until the failure in nanoseconds
+     */
+    default void requestFailed(String method, int errorCode, long durationNanos) {
+    }
+
+    /**
+     * Called after a frame has been written to the connection.
+     *
+     * @param bytes
+     *            the frame size including headers
+     */
+    default void frameSent(int bytes) {
+    }
+
+    /**
+     * Called after a frame has been read from the connection.
+     *
+     * @param bytes
+     *            the frame size including headers
+     */
+    default void frameReceived(int bytes) {
+    }
+
+    /**
+     * Called after a frame larger than the maximum frame size has been
+     * discarded. The frame has also been reported to
+     * {@link #frameReceived(int)}.
+     *
+     * @param bytes
+     *            the frame size including headers
+     * @since 1.0.12
+     */
+    default void frameRejected(int bytes) {
+    }
+
+    /**
+     * Called after a session event has been delivered to all of a session's
+     * handlers.
+     *
+     * @param eventType
+     *            the event type, e.g. {@code "assistant.message"}
+     * @param durationNanos
+     *            the total time spent in handlers in nanoseconds
+     */
+    default void eventDispatched(String eventType, long durationNanos) {
+    }
+
+    /**
+     * Called when a tool, permission, user input or hook callback completes.
+     *
+     * @param type
+     *            the kind of callback
+     * @param name
+     *            the tool name, permission kind or hook type
+     * @param durationNanos
+     *            the time until the callback's result was available, in
+     *            nanoseconds
+     * @param success
+     *            {@code false} if the callback threw or completed exceptionally
+     */
+    default void callbackCompleted(CallbackType type, String name, long durationNanos, boolean success) {
+    }
+
+    /**
+     * Called when a session turn is admitted or rejected by client-side
+     * admission control.
+     *
+     * @param model
+     *            the model the turn runs against, or {@code "default"} if the
+     *            session did not select one
+     * @param queueWaitNanos
+     *            the time the turn waited for admission, in nanoseconds
+     * @param admitted
+     *            {@code false} if the turn was shed or timed out in the queue
+     * @see com.github.copilot.sdk.json.CopilotClientOptions#setAdmissionControl
+     */
+    default void admissionDecided(String model, long queueWaitNanos, boolean admitted) {
+    }
+
+    /**
+     * Called when a {@link SessionHibernator} hibernates an idle session.
+     *
+     * @param sessionId
+     *            the hibernated session
+     */
+    default void sessionHibernated(String sessionId) {
+    }
+
+    /**
+     * Called when a {@link SessionHibernator} has resumed a hibernated session
+     * on demand.
+     *
+     * @param sessionId
+     *            the resumed session
+     * @param durationNanos
+     *            the time from the access that triggered the resume until the
+     *            session was live again, in nanoseconds
+     * @param success
+     *            {@code false} if the resume failed
+     */
+    default void sessionResumed(String sessionId, long durationNanos, boolean success) {
+    }
+
+    /**
+     * Called when a tool wrapped by a {@link ToolResultCache} is invoked.
+     *
+     * @param toolName
+     *            the tool name
+     * @param hit
+     *            {@code true} if the result came from the cache or from an
+     *            identical invocation already in flight
+     */
+    default void toolCacheAccessed(String toolName, boolean hit) {
+    }
+
+    /**
+     * Called when a call of a tool with a
+     * {@link com.github.copilot.sdk.json.ToolConcurrencyPolicy} is admitted to
+     * run or rejected.
+     *
+     * @param toolName
+     *            the tool name
+     * @param queueWaitNanos
+     *            the time the call waited for a slot, in nanoseconds;
+     *            {@code 0} if it was decided without queueing
+     * @param admitted
+     *            {@code false} if the queue was full or the call timed out in
+     *            it
+     */
+    default void toolBulkheadDecided(String toolName, long queueWaitNanos, boolean admitted) {
+    }
+
+    /**
+     * Called when a hook misses the deadline set with
+     * {@link com.github.copilot.sdk.json.SessionHooks#setTimeout} and the
+     * fallback output is sent instead. The latency of the hook itself is still
+     * reported to {@link #callbackCompleted} when it eventually completes.
+     *
+     * @param hookType
+     *            the hook type, such as {@code "preToolUse"}
+     */
+    default void hookDeadlineExceeded(String hookType) {
+    }
+}
@@ -0,0 +1,440 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-memory {@link CopilotMetrics} implementation.
+ * <p>
+ * All counters are {@link LongAdder}s and all latencies are recorded into
+ * lock-free {@link LatencyHistogram}s, so recording never blocks the SDK
+ * threads that report metrics. Statistics are keyed by JSON-RPC method, session
+ * event type and callback name, and can be read at any time as immutable
+ * snapshots.
+ * <p>
+ * A single registry may be shared by several clients to aggregate their
+ * metrics.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var metrics = new CopilotMetricsRegistry();
+ * var client = new CopilotClient(new CopilotClientOptions().setMetrics(metrics));
+ * // ...
+ * var create = metrics.getRequestStats().get("session.create");
+ * System.out.println("session.create p50=" + create.latency().percentileMillis(50.0) + "ms");
+ * System.out.println("pending: " + metrics.getPendingRequests());
+ * }</pre>
+ *
+ * @see JmxMetricsExporter
+ * @since 1.0.12
+ */
+public class CopilotMetricsRegistry implements CopilotMetrics {
+
+    private final Map<String, RequestCounters> requests = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> events = new ConcurrentHashMap<>();
+    private final Map<String, CallbackCounters> callbacks = new ConcurrentHashMap<>();
+    private final Map<String, AdmissionCounters> admissions = new ConcurrentHashMap<>();
+    private final Map<String, ToolCacheCounters> toolCaches = new ConcurrentHashMap<>();
+    private final Map<String, AdmissionCounters> toolBulkheads = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> hookDeadlines = new ConcurrentHashMap<>();
+    private final LongAdder requestsStarted = new LongAdder();
+    private final LongAdder requestsFinished = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder framesRejected = new LongAdder();
+    private final LongAdder hibernations = new LongAdder();
+    private final LongAdder resumeFailures = new LongAdder();
+    private final LatencyHistogram resumeLatency = new LatencyHistogram();
+
+    /**
+     * Statistics for a single JSON-RPC method.
+     *
+     * @param count
+     *            the number of completed requests, successful or not
+     * @param errors
+     *            the number of failed requests
+     * @param errorCodes
+     *            the number of failures per JSON-RPC error code
+     * @param latency
+     *            the round-trip latency of all completed requests
+     * @since 1.0.12
+     */
+    public record RequestStats(long count, long errors, Map<Integer, Long> errorCodes,
+            LatencyHistogram.Snapshot latency) {
+    }
+
+    /**
+     * Statistics for a single callback.
+     *
+     * @param count
+     *            the number of completed invocations
+     * @param failures
+     *            the number of invocations that threw or completed
+     *            exceptionally
+     * @param latency
+     *            the invocation latency
+     * @since 1.0.12
+     */
+    public record CallbackStats(long count, long failures, LatencyHistogram.Snapshot latency) {
+    }
+
+    /**
+     * Admission control statistics for a single model.
+     *
+     * @param admitted
+     *            the number of admitted turns
+     * @param rejected
+     *            the number of turns that were shed or timed out in the queue
+     * @param queueWait
+     *            the time turns waited for a decision, admitted or not
+     * @since 1.0.12
+     */
+    public record AdmissionStats(long admitted, long rejected, LatencyHistogram.Snapshot queueWait) {
+    }
+
+    /**
+     * Session hibernation statistics.
+     *
+     * @param hibernations
+     *            the number of sessions hibernated
+     * @param resumes
+     *            the number of successful on-demand resumes
+     * @param resumeFailures
+     *            the number of failed resumes
+     * @param resumeLatency
+     *            the latency of all resumes, successful or not
+     * @since 1.0.12
+     */
+    public record HibernationStats(long hibernations, long resumes, long resumeFailures,
+            LatencyHistogram.Snapshot resumeLatency) {
+    }
+
+    /**
+     * Tool result cache statistics for a single tool.
+     *
+     * @param hits
+     *            invocations answered from the cache
+     * @param misses
+     *            invocations that ran the tool handler
+     * @since 1.0.12
+     */
+    public record ToolCacheStats(long hits, long misses) {
+    }
+
+    /**
+     * Bulkhead statistics for a single tool.
+     *
+     * @param admitted
+     *            the number of calls admitted to run
+     * @param rejected
+     *            the number of calls rejected because the queue was full or
+     *            they timed out in it
+     * @param queueWait
+     *            the time calls waited for a decision, admitted or not
+     * @since 1.0.12
+     */
+    public record ToolBulkheadStats(long admitted, long rejected, LatencyHistogram.Snapshot queueWait) {
+    }
+
+    @Override
+    public void requestStarted(String method) {
+        requestsStarted.increment();
+    }
+
+    @Override
+    public void requestCompleted(String method, long durationNanos) {
+        requestsFinished.increment();
+        requestCounters(method).latency.record(durationNanos);
+    }
+
+    @Override
+    public void requestFailed(String method, int errorCode, long durationNanos) {
+        requestsFinished.increment();
+        RequestCounters counters = requestCounters(method);
+        counters.latency.record(durationNanos);
+        counters.errors.increment();
+        counters.errorCodes.computeIfAbsent(errorCode, k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void frameSent(int bytes) {
+        framesSent.increment();
+        bytesSent.add(bytes);
+    }
+
+    @Override
+    public void frameReceived(int bytes) {
+        framesReceived.increment();
+        bytesReceived.add(bytes);
+    }
+
+    @Override
+    public void frameRejected(int bytes) {
+        framesRejected.increment();
+    }
+
+    @Override
+    public void eventDispatched(String eventType, long durationNanos) {
+        events.computeIfAbsent(eventType, k -> new LatencyHistogram()).record(durationNanos);
+    }
+
+    @Override
+    public void callbackCompleted(CallbackType type, String name, long durationNanos, boolean success) {
+        CallbackCounters counters = callbacks.computeIfAbsent(callbackKey(type, name), k -> new CallbackCounters());
+        counters.latency.record(durationNanos);
+        if (!success) {
+            counters.failures.increment();
+        }
+    }
+
+    @Override
+    public void admissionDecided(String model, long queueWaitNanos, boolean admitted) {
+        AdmissionCounters counters = admissions.computeIfAbsent(model, k -> new AdmissionCounters());
+        counters.queueWait.record(queueWaitNanos);
+        if (!admitted) {
+            counters.rejected.increment();
+        }
+    }
+
+    @Override
+    public void sessionHibernated(String sessionId) {
+        hibernations.increment();
+    }
+
+    @Override
+    public void sessionResumed(String sessionId, long durationNanos, boolean success) {
+        resumeLatency.record(durationNanos);
+        if (!success) {
+            resumeFailures.increment();
+        }
+    }
+
+    @Override
+    public void toolCacheAccessed(String toolName, boolean hit) {
+        ToolCacheCounters counters = toolCaches.computeIfAbsent(toolName, k -> new ToolCacheCounters());
+        (hit ? counters.hits : counters.misses).increment();
+    }
+
+    @Override
+    public void toolBulkheadDecided(String toolName, long queueWaitNanos, boolean admitted) {
+        AdmissionCounters counters = toolBulkheads.computeIfAbsent(toolName, k -> new AdmissionCounters());
+        counters.queueWait.record(queueWaitNanos);
+        if (!admitted) {
+            counters.rejected.increment();
+        }
+    }
+
+    @Override
+    public void hookDeadlineExceeded(String hookType) {
+        hookDeadlines.computeIfAbsent(hookType, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Returns per-method JSON-RPC request statistics.
+     *
+     * @return an immutable map from method name to statistics, sorted by method
+     */
+    public Map<String, RequestStats> getRequestStats() {
+        var result = new TreeMap<String, RequestStats>();
+        requests.forEach((method, counters) -> {
+            var codes = new TreeMap<Integer, Long>();
+            counters.errorCodes.forEach((code, count) -> codes.put(code, count.sum()));
+            LatencyHistogram.Snapshot latency = counters.latency.snapshot();
+            result.put(method, new RequestStats(latency.getCount(), counters.errors.sum(),
+                    Collections.unmodifiableMap(codes), latency));
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns handler latency per session event type.
+     *
+     * @return an immutable map from event type to the time spent in handlers
+     */
+    public Map<String, LatencyHistogram.Snapshot> getEventStats() {
+        var result = new TreeMap<String, LatencyHistogram.Snapshot>();
+        events.forEach((type, histogram) -> result.put(type, histogram.snapshot()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns callback statistics keyed by {@code "<type>:<name>"}, for example
+     * {@code "TOOL:get_weather"} or {@code "HOOK:preToolUse"}.
+     *
+     * @return an immutable map from callback key to statistics
+     */
+    public Map<String, CallbackStats> getCallbackStats() {
+        var result = new TreeMap<String, CallbackStats>();
+        callbacks.forEach((key, counters) -> {
+            LatencyHistogram.Snapshot latency = counters.latency.snapshot();
+            result.put(key, new CallbackStats(latency.getCount(), counters.failures.sum(), latency));
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns admission control statistics per model.
+     *
+     * @return an immutable map from model to statistics, empty if admission
+     *         control is not configured
+     */
+    public Map<String, AdmissionStats> getAdmissionStats() {
+        var result = new TreeMap<String, AdmissionStats>();
+        admissions.forEach((model, counters) -> {
+            LatencyHistogram.Snapshot wait = counters.queueWait.snapshot();
+            long rejected = counters.rejected.sum();
+            result.put(model, new AdmissionStats(wait.getCount() - rejected, rejected, wait));
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns session hibernation statistics.
+     *
+     * @return the statistics, all zero if no {@link SessionHibernator} reports
+     *         to this registry
+     */
+    public HibernationStats getHibernationStats() {
+        LatencyHistogram.Snapshot latency = resumeLatency.snapshot();
+        long failures = resumeFailures.sum();
+        return new HibernationStats(hibernations.sum(), latency.getCount() - failures, failures, latency);
+    }
+
+    /**
+     * Returns tool result cache statistics per tool.
+     *
+     * @return an immutable map from tool name to statistics, empty if no
+     *         {@link ToolResultCache} reports to this registry
+     */
+    public Map<String, ToolCacheStats> getToolCacheStats() {
+        var result = new TreeMap<String, ToolCacheStats>();
+        toolCaches.forEach((tool, counters) -> result.put(tool,
+                new ToolCacheStats(counters.hits.sum(), counters.misses.sum())));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns bulkhead statistics per tool.
+     *
+     * @return an immutable map from tool name to statistics, empty if no tool
+     *         has a concurrency policy
+     */
+    public Map<String, ToolBulkheadStats> getToolBulkheadStats() {
+        var result = new TreeMap<String, ToolBulkheadStats>();
+        toolBulkheads.forEach((tool, counters) -> {
+            LatencyHistogram.Snapshot wait = counters.queueWait.snapshot();
+            long rejected = counters.rejected.sum();
+            result.put(tool, new ToolBulkheadStats(wait.getCount() - rejected, rejected, wait));
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns how often hooks of each type missed their deadline. Hook latency
+     * percentiles are part of {@link #getCallbackStats()}, keyed by
+     * {@code "HOOK:<hookType>"}.
+     *
+     * @return an immutable map from hook type to the number of missed
+     *         deadlines
+     */
+    public Map<String, Long> getHookDeadlinesExceeded() {
+        var result = new TreeMap<String, Long>();
+        hookDeadlines.forEach((type, count) -> result.put(type, count.sum()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns the number of requests that have been sent but not yet completed.
+     *
+     * @return the pending request count
+     */
+    public long getPendingRequests() {
+        return Math.max(0, requestsStarted.sum() - requestsFinished.sum());
+    }
+
+    /**
+     * Returns the total number of bytes written, including frame headers.
+     *
+     * @return bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * Returns the total number of bytes read, including frame headers.
+     *
+     * @return bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * Returns the number of frames written.
+     *
+     * @return frames sent
+     */
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    /**
+     * Returns the number of frames read.
+     *
+     * @return frames received
+     */
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    /**
+     * Returns the number of frames discarded for exceeding the maximum frame
+     * size.
+     *
+     * @return frames rejected
+     * @since 1.0.12
+     */
+    public long getFramesRejected() {
+        return framesRejected.sum();
+    }
+
+    static String callbackKey(CallbackType type, String name) {
+        return type.name() + ":" + name;
+    }
+
+    private RequestCounters requestCounters(String method) {
+        return requests.computeIfAbsent(method, k -> new RequestCounters());
+    }
+
+    private static final class RequestCounters {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final Map<Integer, LongAdder> errorCodes = new ConcurrentHashMap<>();
+    }
+
+    private static final class CallbackCounters {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+    }
+
+    private static final class AdmissionCounters {
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        final LongAdder rejected = new LongAdder();
+    }
+
+    private static final class ToolCacheCounters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+    }
+}
@@ -6,34 +6,47 @@ package com.github.copilot.sdk;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.events.AbortEvent;
 import com.github.copilot.sdk.events.AbstractSessionEvent;
 import com.github.copilot.sdk.events.AssistantMessageEvent;
 import com.github.copilot.sdk.events.ExternalToolRequestedEvent;
 import com.github.copilot.sdk.events.PermissionRequestedEvent;
 import com.github.copilot.sdk.events.SessionErrorEvent;
-import com.github.copilot.sdk.events.SessionEventParser;
 import com.github.copilot.sdk.events.SessionIdleEvent;
+import com.github.copilot.sdk.events.ToolExecutionCompleteEvent;
 import com.github.copilot.sdk.json.AgentInfo;
+import com.github.copilot.sdk.json.GetMessagesOptions;
 import com.github.copilot.sdk.json.GetMessagesResponse;
+import com.github.copilot.sdk.json.HookFallback;
 import com.github.copilot.sdk.json.HookInvocation;
 import com.github.copilot.sdk.json.MessageOptions;
 import com.github.copilot.sdk.json.PermissionHandler;
@@ -43,11 +56,13 @@ import com.github.copilot.sdk.json.PermissionRequestResult;
 import com.github.copilot.sdk.json.PermissionRequestResultKind;
 import com.github.copilot.sdk.json.PostToolUseHookInput;
 import com.github.copilot.sdk.json.PreToolUseHookInput;
+import com.github.copilot.sdk.json.PreToolUseHookOutput;
 import com.github.copilot.sdk.json.SendMessageRequest;
 import com.github.copilot.sdk.json.SendMessageResponse;
 import com.github.copilot.sdk.json.SessionEndHookInput;
 import com.github.copilot.sdk.json.SessionHooks;
 import com.github.copilot.sdk.json.SessionStartHookInput;
+import com.github.copilot.sdk.json.ToolCancellationToken;
 import com.github.copilot.sdk.json.ToolDefinition;
 import com.github.copilot.sdk.json.ToolResultObject;
 import com.github.copilot.sdk.json.UserInputHandler;
@@ -56,6 +71,8 @@ import com.github.copilot.sdk.json.UserInputRequest;
 import com.github.copilot.sdk.json.UserInputResponse;
 import com.github.copilot.sdk.json.UserPromptSubmittedHookInput;
 
+import jdk.jfr.Event;
+
 /**
  * Represents a single conversation session with the Copilot CLI.
  * <p>
@@ -113,11 +130,22 @@ public final class CopilotSession implements AutoCloseable {
     private volatile String sessionId;
     private volatile String workspacePath;
     private final JsonRpcClient rpc;
+    private final CopilotMetrics metrics;
+    private final Set<CopilotMetrics> callbackObservers = ConcurrentHashMap.newKeySet();
     private final Set<Consumer<AbstractSessionEvent>> eventHandlers = ConcurrentHashMap.newKeySet();
     private final Map<String, ToolDefinition> toolHandlers = new ConcurrentHashMap<>();
+    private final Map<String, ToolArgumentValidator> toolValidators = new ConcurrentHashMap<>();
     private final AtomicReference<PermissionHandler> permissionHandler = new AtomicReference<>();
     private final AtomicReference<UserInputHandler> userInputHandler = new AtomicReference<>();
     private final AtomicReference<SessionHooks> hooksHandler = new AtomicReference<>();
+    private final AtomicReference<AdmissionTurn> admissionTurn = new AtomicReference<>();
+    private volatile AdmissionController admission;
+    private volatile ToolBulkheads toolBulkheads;
+    private volatile Duration toolTimeout;
+    private final Map<ToolCancellationToken, String> activeToolCalls = new ConcurrentHashMap<>();
+    private volatile SessionJournal journal;
+    private volatile Consumer<CopilotSession> closeListener;
+    private volatile String model;
     private volatile EventErrorHandler eventErrorHandler;
     private volatile EventErrorPolicy eventErrorPolicy = EventErrorPolicy.PROPAGATE_AND_LOG_ERRORS;
 
@@ -155,6 +183,8 @@ public final class CopilotSession implements AutoCloseable {
     CopilotSession(String sessionId, JsonRpcClient rpc, String workspacePath) {
         this.sessionId = sessionId;
         this.rpc = rpc;
+        this.metrics = rpc != null ? rpc.getMetrics() : CopilotMetrics.NOOP;
+        this.toolBulkheads = new ToolBulkheads(metrics);
         this.workspacePath = workspacePath;
     }
 
@@ -332,6 +362,14 @@ public final class CopilotSession implements AutoCloseable {
      * <p>
      * This method sends a message asynchronously and returns immediately. Use
      * {@link #sendAndWait(MessageOptions)} to wait for the response.
+     * <p>
+     * If the client is configured with
+     * {@link com.github.copilot.sdk.json.CopilotClientOptions#setAdmissionControl
+     * admission control}, the first message of a turn is only sent once the turn
+     * is admitted; messages sent while the turn is running are not admitted
+     * again. If the turn is shed or times out waiting for admission, the returned
+     * future completes exceptionally with
+     * {@link java.util.concurrent.RejectedExecutionException}.
      *
      * @param options
      *            the message options containing the prompt and attachments
@@ -349,7 +387,141 @@ public final class CopilotSession implements AutoCloseable {
         request.setAttachments(options.getAttachments());
         request.setMode(options.getMode());
 
-        return rpc.invoke("session.send", request, SendMessageResponse.class).thenApply(SendMessageResponse::messageId);
+        AdmissionController controller = admission;
+        if (controller == null) {
+            return rpc.invoke("session.send", request, SendMessageResponse.class)
+                    .thenApply(SendMessageResponse::messageId);
+        }
+        AdmissionTurn turn = admissionTurn.get();
+        if (turn == null) {
+            var acquired = new AdmissionTurn();
+            if (admissionTurn.compareAndSet(null, acquired)) {
+                controller.acquire(sessionId, model).whenComplete((permit, ex) -> {
+                    if (ex != null) {
+                        admissionTurn.compareAndSet(acquired, null);
+                        acquired.permit.completeExceptionally(ex);
+                    } else if (!acquired.permit.complete(permit)) {
+                        permit.release();
+                    }
+                });
+                return acquired.permit
+                        .thenCompose(permit -> rpc.invoke("session.send", request, SendMessageResponse.class))
+                        .whenComplete((response, ex) -> {
+                            if (ex != null) {
+                                releaseAdmission(acquired);
+                            } else {
+                                acquired.started = true;
+                            }
+                        }).thenApply(SendMessageResponse::messageId);
+            }
+            // Lost the race against a concurrent send that started the turn
+            return send(options);
+        }
+        // Follow-up message within a turn that is already admitted (or queued)
+        return turn.permit.thenCompose(permit -> rpc.invoke("session.send", request, SendMessageResponse.class))
+                .thenApply(SendMessageResponse::messageId);
+    }
+
+    /**
+     * Installs client-wide admission control for {@link #send(MessageOptions)}.
+     *
+     * @param controller
+     *            the client's admission controller
+     * @param model
+     *            the model the session was created with, or {@code null}
+     */
+    void setAdmissionController(AdmissionController controller, String model) {
+        this.admission = controller;
+        this.model = model;
+    }
+
+    /**
+     * Installs a callback that runs once the session has been closed, so the
+     * client can release what it keeps for the session.
+     *
+     * @param listener
+     *            receives the closed session
+     */
+    void setCloseListener(Consumer<CopilotSession> listener) {
+        this.closeListener = listener;
+    }
+
+    /**
+     * Installs the client's tool bulkheads, so that concurrency policies apply
+     * across all sessions of the client.
+     *
+     * @param bulkheads
+     *            the client's bulkheads
+     */
+    void setToolBulkheads(ToolBulkheads bulkheads) {
+        this.toolBulkheads = bulkheads;
+    }
+
+    /**
+     * Sets the maximum time a tool handler may run.
+     *
+     * @param timeout
+     *            the timeout, or {@code null} for none
+     */
+    void setToolTimeout(Duration timeout) {
+        this.toolTimeout = timeout;
+    }
+
+    /**
+     * Cancels every running tool invocation of this session.
+     *
+     * @param reason
+     *            why the invocations are cancelled
+     */
+    void cancelToolCalls(String reason) {
+        for (ToolCancellationToken token : activeToolCalls.keySet()) {
+            token.cancel(reason);
+        }
+    }
+
+    private void cancelToolCall(String toolCallId) {
+        if (toolCallId == null) {
+            return;
+        }
+        activeToolCalls.forEach((token, id) -> {
+            if (id.equals(toolCallId)) {
+                token.cancel("tool call completed by the CLI");
+            }
+        });
+    }
+
+    /**
+     * Releases the admission held by the current turn, if the given turn (or
+     * any turn, when {@code null}) is the current one.
+     */
+    private void releaseAdmission(AdmissionTurn expected) {
+        AdmissionTurn turn = admissionTurn.get();
+        if (turn == null || (expected != null && turn != expected) || !admissionTurn.compareAndSet(turn, null)) {
+            return;
+        }
+        turn.permit.thenAccept(AdmissionController.Permit::release);
+    }
+
+    /**
+     * Releases the admission of the current turn when one of its terminal
+     * events arrives. A turn only ends once the server has accepted its first
+     * message: events are delivered in order on the connection, so a terminal
+     * event arriving earlier belongs to the previous turn, such as the idle
+     * event that follows an error, and must not release the new turn.
+     */
+    private void endAdmittedTurn() {
+        AdmissionTurn turn = admissionTurn.get();
+        if (turn != null && turn.started) {
+            releaseAdmission(turn);
+        }
+    }
+
+    /** The admission of one turn, from its first message to its end. */
+    private static final class AdmissionTurn {
+
+        final CompletableFuture<AdmissionController.Permit> permit = new CompletableFuture<>();
+        // Set once the server has accepted the first message of the turn
+        volatile boolean started;
     }
 
     /**
@@ -584,14 +756,35 @@ public final class CopilotSession implements AutoCloseable {
      * @see #setEventErrorPolicy(EventErrorPolicy)
      */
     void dispatchEvent(AbstractSessionEvent event) {
+        if (event instanceof SessionIdleEvent || event instanceof SessionErrorEvent) {
+            endAdmittedTurn();
+        }
+        if (event instanceof AbortEvent) {
+            cancelToolCalls("session aborted");
+        } else if (event instanceof ToolExecutionCompleteEvent complete && complete.getData() != null) {
+            cancelToolCall(complete.getData().toolCallId());
+        }
+
         // Handle broadcast request events (protocol v3) before dispatching to user
         // handlers. These are fire-and-forget: the response is sent asynchronously.
         handleBroadcastEventAsync(event);
 
+        long start = System.nanoTime();
+        try {
+            deliverToHandlers(event);
+        } finally {
+            metrics.eventDispatched(event.getType(), System.nanoTime() - start);
+        }
+    }
+
+    private void deliverToHandlers(AbstractSessionEvent event) {
         for (Consumer<AbstractSessionEvent> handler : eventHandlers) {
+            var jfrEvent = JfrEvents.SessionEventDispatch.start();
             try {
                 handler.accept(event);
+                commitDispatchEvent(jfrEvent, event, handler, false);
             } catch (Exception e) {
+                commitDispatchEvent(jfrEvent, event, handler, true);
                 LOG.log(Level.WARNING, "Error in event handler", e);
                 EventErrorHandler errorHandler = this.eventErrorHandler;
                 if (errorHandler != null) {
@@ -609,6 +802,21 @@ public final class CopilotSession implements AutoCloseable {
         }
     }
 
+    private void commitDispatchEvent(JfrEvents.SessionEventDispatch jfrEvent, AbstractSessionEvent event,
+            Consumer<AbstractSessionEvent> handler, boolean failed) {
+        if (jfrEvent == null) {
+            return;
+        }
+        jfrEvent.end();
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.sessionId = sessionId;
+            jfrEvent.eventType = event.getType();
+            jfrEvent.handler = handler.getClass().getName();
+            jfrEvent.failed = failed;
+            jfrEvent.commit();
+        }
+    }
+
     /**
      * Handles broadcast request events by executing local handlers and responding
      * via RPC (protocol v3).
@@ -657,7 +865,8 @@ public final class CopilotSession implements AutoCloseable {
                 var invocation = new com.github.copilot.sdk.json.ToolInvocation().setSessionId(sessionId)
                         .setToolCallId(toolCallId).setToolName(toolName).setArguments(argumentsNode);
 
-                tool.handler().invoke(invocation).thenAccept(result -> {
+                CompletableFuture<Object> pending = invokeTool(tool, invocation);
+                pending.thenAccept(result -> {
                     try {
                         ToolResultObject toolResult;
                         if (result instanceof ToolResultObject tr) {
@@ -707,7 +916,10 @@ public final class CopilotSession implements AutoCloseable {
             try {
                 var invocation = new PermissionInvocation();
                 invocation.setSessionId(sessionId);
-                handler.handle(permissionRequest, invocation).thenAccept(result -> {
+                CompletableFuture<PermissionRequestResult> pending = timeCallback(
+                        CopilotMetrics.CallbackType.PERMISSION, permissionRequest.getKind(),
+                        () -> handler.handle(permissionRequest, invocation));
+                pending.thenAccept(result -> {
                     try {
                         rpc.invoke("session.permissions.handlePendingPermissionRequest",
                                 Map.of("sessionId", sessionId, "requestId", requestId, "result", result), Object.class);
@@ -739,6 +951,72 @@ public final class CopilotSession implements AutoCloseable {
         });
     }
 
+    /**
+     * Invokes a user callback and reports its latency to the configured
+     * {@link CopilotMetrics} and, when enabled, to JDK Flight Recorder once the
+     * returned future completes.
+     *
+     * @param type
+     *            the kind of callback
+     * @param name
+     *            the tool name, permission kind or hook type
+     * @param callback
+     *            the callback invocation
+     * @return the future returned by the callback
+     */
+    <T> CompletableFuture<T> timeCallback(CopilotMetrics.CallbackType type, String name,
+            Supplier<CompletableFuture<T>> callback) {
+        long start = System.nanoTime();
+        Event jfrEvent = startCallbackEvent(type, name);
+        CompletableFuture<T> future;
+        try {
+            future = callback.get();
+        } catch (RuntimeException e) {
+            callbackCompleted(type, name, start, jfrEvent, false);
+            throw e;
+        }
+        future.whenComplete((result, ex) -> callbackCompleted(type, name, start, jfrEvent, ex == null));
+        return future;
+    }
+
+    /**
+     * Registers an observer that is notified of every callback timed by
+     * {@link #timeCallback}, in addition to the client's metrics.
+     *
+     * @param observer
+     *            the observer; only
+     *            {@link CopilotMetrics#callbackCompleted(CopilotMetrics.CallbackType, String, long, boolean)}
+     *            is called
+     * @return a handle that removes the observer when closed
+     */
+    Closeable observeCallbacks(CopilotMetrics observer) {
+        callbackObservers.add(observer);
+        return () -> callbackObservers.remove(observer);
+    }
+
+    private Event startCallbackEvent(CopilotMetrics.CallbackType type, String name) {
+        if (type == CopilotMetrics.CallbackType.TOOL) {
+            return JfrEvents.ToolInvocation.start(sessionId, name);
+        }
+        return JfrEvents.Callback.start(sessionId, type.name(), name);
+    }
+
+    private void callbackCompleted(CopilotMetrics.CallbackType type, String name, long start, Event jfrEvent,
+            boolean success) {
+        long duration = System.nanoTime() - start;
+        metrics.callbackCompleted(type, name, duration, success);
+        for (CopilotMetrics observer : callbackObservers) {
+            observer.callbackCompleted(type, name, duration, success);
+        }
+        if (jfrEvent instanceof JfrEvents.ToolInvocation toolEvent) {
+            toolEvent.success = success;
+            toolEvent.commit();
+        } else if (jfrEvent instanceof JfrEvents.Callback callbackEvent) {
+            callbackEvent.success = success;
+            callbackEvent.commit();
+        }
+    }
+
     /**
      * Registers custom tool handlers for this session.
      * <p>
@@ -749,9 +1027,14 @@ public final class CopilotSession implements AutoCloseable {
      */
     void registerTools(List<ToolDefinition> tools) {
         toolHandlers.clear();
+        toolValidators.clear();
         if (tools != null) {
             for (ToolDefinition tool : tools) {
                 toolHandlers.put(tool.name(), tool);
+                ToolArgumentValidator validator = ToolArgumentValidator.forTool(tool);
+                if (validator != null) {
+                    toolValidators.put(tool.name(), validator);
+                }
             }
         }
     }
@@ -767,6 +1050,98 @@ public final class CopilotSession implements AutoCloseable {
         return toolHandlers.get(name);
     }
 
+    /**
+     * Invokes a tool handler through the tool's bulkhead, timing the handler
+     * itself as a {@link CopilotMetrics.CallbackType#TOOL} callback.
+     * <p>
+     * The invocation gets a fresh cancellation token and, if a tool timeout is
+     * set, a deadline. When the deadline passes the returned future completes
+     * with a failure result; when the session is aborted or closed it completes
+     * with a {@link CancellationException}. Either way the token fires and the
+     * handler's future is cancelled, which releases its bulkhead slot.
+     *
+     * @param tool
+     *            the tool to invoke
+     * @param invocation
+     *            the invocation context
+     * @return the handler's result, or a failure result if the arguments do not
+     *         match the tool's schema, the tool's concurrency policy rejected
+     *         the call or it timed out
+     */
+    CompletableFuture<Object> invokeTool(ToolDefinition tool, com.github.copilot.sdk.json.ToolInvocation invocation) {
+        ToolArgumentValidator validator = toolValidators.get(tool.name());
+        if (validator != null) {
+            List<String> violations = validator.validate(invocation.getArgumentsNode());
+            if (!violations.isEmpty()) {
+                String details = String.join("; ", violations);
+                return CompletableFuture.completedFuture(ToolResultObject.failure("Invalid arguments for tool '"
+                        + tool.name() + "': " + details + ". Correct the arguments and call the tool again.",
+                        "invalid arguments: " + details));
+            }
+        }
+        var token = new ToolCancellationToken();
+        invocation.setCancellationToken(token);
+        var response = new CompletableFuture<Object>();
+        var handlerFuture = new AtomicReference<CompletableFuture<Object>>();
+        Duration timeout = toolTimeout;
+        String timeoutReason = timeout != null ? "timed out after " + timeout.toMillis() + " ms" : null;
+        var timedOut = new AtomicBoolean();
+        if (timeout != null) {
+            invocation.setDeadline(Instant.now().plus(timeout));
+            CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (!response.isDone()) {
+                    timedOut.set(true);
+                    token.cancel(timeoutReason);
+                }
+            });
+        }
+        activeToolCalls.put(token, Objects.toString(invocation.getToolCallId(), ""));
+        response.whenComplete((value, ex) -> activeToolCalls.remove(token));
+        token.onCancel(() -> {
+            CompletableFuture<Object> handler = handlerFuture.get();
+            if (handler != null) {
+                handler.cancel(true);
+            }
+            if (timedOut.get()) {
+                response.complete(ToolResultObject.failure(
+                        "Tool '" + tool.name() + "' did not complete within " + timeout.toMillis() + " ms.",
+                        "tool '" + tool.name() + "' " + timeoutReason));
+            } else {
+                response.completeExceptionally(new CancellationException("Tool call cancelled: " + token.getReason()));
+            }
+        });
+
+        CompletableFuture<Object> result;
+        try {
+            result = toolBulkheads.invoke(tool, () -> {
+                if (token.isCancelled()) {
+                    return CompletableFuture.failedFuture(new CancellationException(token.getReason()));
+                }
+                CompletableFuture<Object> handler = timeCallback(CopilotMetrics.CallbackType.TOOL, tool.name(),
+                        () -> tool.handler().invoke(invocation));
+                handlerFuture.set(handler);
+                if (token.isCancelled()) {
+                    handler.cancel(true);
+                }
+                return handler;
+            });
+        } catch (RuntimeException e) {
+            response.completeExceptionally(e);
+            return response;
+        }
+        result.whenComplete((value, ex) -> {
+            if (token.isCancelled()) {
+                return; // The response was completed by the cancellation
+            }
+            if (ex != null) {
+                response.completeExceptionally(ex instanceof CompletionException ce ? ce.getCause() : ex);
+            } else {
+                response.complete(value);
+            }
+        });
+        return response;
+    }
+
     /**
      * Registers a handler for permission requests.
      * <p>
@@ -801,7 +1176,10 @@ public final class CopilotSession implements AutoCloseable {
             PermissionRequest request = MAPPER.treeToValue(permissionRequestData, PermissionRequest.class);
             var invocation = new PermissionInvocation();
             invocation.setSessionId(sessionId);
-            return handler.handle(request, invocation).exceptionally(ex -> {
+            CompletableFuture<PermissionRequestResult> pending = timeCallback(
+                    CopilotMetrics.CallbackType.PERMISSION, request.getKind(),
+                    () -> handler.handle(request, invocation));
+            return pending.exceptionally(ex -> {
                 LOG.log(Level.SEVERE, "Permission handler threw an exception", ex);
                 PermissionRequestResult result = new PermissionRequestResult();
                 result.setKind("denied-no-approval-rule-and-could-not-request-from-user");
@@ -845,7 +1223,9 @@ public final class CopilotSession implements AutoCloseable {
 
         try {
             var invocation = new UserInputInvocation().setSessionId(sessionId);
-            return handler.handle(request, invocation).exceptionally(ex -> {
+            CompletableFuture<UserInputResponse> pending = timeCallback(CopilotMetrics.CallbackType.USER_INPUT,
+                    "userInput", () -> handler.handle(request, invocation));
+            return pending.exceptionally(ex -> {
                 LOG.log(Level.SEVERE, "User input handler threw an exception", ex);
                 throw new RuntimeException("User input handler error", ex);
             });
@@ -886,19 +1266,22 @@ public final class CopilotSession implements AutoCloseable {
 
         var invocation = new HookInvocation().setSessionId(sessionId);
 
+        CompletableFuture<Object> result = null;
         try {
             switch (hookType) {
                 case "preToolUse" :
                     if (hooks.getOnPreToolUse() != null) {
                         PreToolUseHookInput preInput = MAPPER.treeToValue(input, PreToolUseHookInput.class);
-                        return hooks.getOnPreToolUse().handle(preInput, invocation)
+                        result = timeCallback(CopilotMetrics.CallbackType.HOOK, hookType,
+                                () -> hooks.getOnPreToolUse().handle(preInput, invocation))
                                 .thenApply(output -> (Object) output);
                     }
                     break;
                 case "postToolUse" :
                     if (hooks.getOnPostToolUse() != null) {
                         PostToolUseHookInput postInput = MAPPER.treeToValue(input, PostToolUseHookInput.class);
-                        return hooks.getOnPostToolUse().handle(postInput, invocation)
+                        result = timeCallback(CopilotMetrics.CallbackType.HOOK, hookType,
+                                () -> hooks.getOnPostToolUse().handle(postInput, invocation))
                                 .thenApply(output -> (Object) output);
                     }
                     break;
@@ -906,21 +1289,24 @@ public final class CopilotSession implements AutoCloseable {
                     if (hooks.getOnUserPromptSubmitted() != null) {
                         UserPromptSubmittedHookInput promptInput = MAPPER.treeToValue(input,
                                 UserPromptSubmittedHookInput.class);
-                        return hooks.getOnUserPromptSubmitted().handle(promptInput, invocation)
+                        result = timeCallback(CopilotMetrics.CallbackType.HOOK, hookType,
+                                () -> hooks.getOnUserPromptSubmitted().handle(promptInput, invocation))
                                 .thenApply(output -> (Object) output);
                     }
                     break;
                 case "sessionStart" :
                     if (hooks.getOnSessionStart() != null) {
                         SessionStartHookInput startInput = MAPPER.treeToValue(input, SessionStartHookInput.class);
-                        return hooks.getOnSessionStart().handle(startInput, invocation)
+                        result = timeCallback(CopilotMetrics.CallbackType.HOOK, hookType,
+                                () -> hooks.getOnSessionStart().handle(startInput, invocation))
                                 .thenApply(output -> (Object) output);
                     }
                     break;
                 case "sessionEnd" :
                     if (hooks.getOnSessionEnd() != null) {
                         SessionEndHookInput endInput = MAPPER.treeToValue(input, SessionEndHookInput.class);
-                        return hooks.getOnSessionEnd().handle(endInput, invocation)
+                        result = timeCallback(CopilotMetrics.CallbackType.HOOK, hookType,
+                                () -> hooks.getOnSessionEnd().handle(endInput, invocation))
                                 .thenApply(output -> (Object) output);
                     }
                     break;
@@ -932,7 +1318,53 @@ public final class CopilotSession implements AutoCloseable {
             return CompletableFuture.failedFuture(e);
         }
 
-        return CompletableFuture.completedFuture(null);
+        return result != null ? withHookDeadline(hooks, hookType, result) : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Answers with the fallback output of the hooks if the result is not
+     * available within the deadline for the hook type. A result that arrives
+     * later is logged and discarded.
+     */
+    private CompletableFuture<Object> withHookDeadline(SessionHooks hooks, String hookType,
+            CompletableFuture<Object> result) {
+        Duration timeout = hooks.getTimeout(hookType);
+        if (timeout == null || result.isDone()) {
+            return result;
+        }
+        long start = System.nanoTime();
+        HookFallback fallback = hooks.getFallback();
+        var decided = new AtomicBoolean();
+        var response = new CompletableFuture<Object>();
+        CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (!decided.compareAndSet(false, true)) {
+                return;
+            }
+            Object output = null;
+            if ("preToolUse".equals(hookType) && fallback == HookFallback.ALLOW) {
+                output = PreToolUseHookOutput.allow();
+            } else if ("preToolUse".equals(hookType) && fallback == HookFallback.DENY) {
+                output = PreToolUseHookOutput.deny("Hook did not respond within " + timeout.toMillis() + " ms");
+            }
+            metrics.hookDeadlineExceeded(hookType);
+            LOG.warning("Hook " + hookType + " of session " + sessionId + " missed its " + timeout.toMillis()
+                    + " ms deadline; answered with " + fallback);
+            response.complete(output);
+        });
+        result.whenComplete((output, ex) -> {
+            if (decided.compareAndSet(false, true)) {
+                if (ex != null) {
+                    response.completeExceptionally(ex);
+                } else {
+                    response.complete(output);
+                }
+                return;
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            LOG.log(Level.INFO, "Discarding late " + (ex != null ? "failure" : "output " + output) + " of hook "
+                    + hookType + " in session " + sessionId + " after " + elapsedMillis + " ms", ex);
+        });
+        return response;
     }
 
     /**
@@ -940,6 +1372,12 @@ public final class CopilotSession implements AutoCloseable {
      * <p>
      * This retrieves the full conversation history, including all user messages,
      * assistant responses, tool invocations, and other session events.
+     * <p>
+     * If the client has an
+     * {@link com.github.copilot.sdk.json.CopilotClientOptions#setEventJournal
+     * event journal}, the history is read from the local journal. For a resumed
+     * session, the first call fetches the server's history and journals only the
+     * events after the last journaled one.
      *
      * @return a future that resolves with a list of all session events
      * @throws IllegalStateException
@@ -947,24 +1385,110 @@ public final class CopilotSession implements AutoCloseable {
      * @see AbstractSessionEvent
      */
     public CompletableFuture<List<AbstractSessionEvent>> getMessages() {
+        return streamMessages(new GetMessagesOptions()).thenApply(stream -> {
+            try (stream) {
+                return stream.collect(Collectors.toCollection(ArrayList::new));
+            }
+        });
+    }
+
+    /**
+     * Streams the messages and events in the session.
+     * <p>
+     * Unlike {@link #getMessages()}, events are bound lazily as the stream is
+     * consumed, so large histories are never held as a JSON tree and as event
+     * objects at the same time. Event types can be filtered before binding, and
+     * chunks can be bound in parallel while keeping the history order; see
+     * {@link GetMessagesOptions}. The history is served from the
+     * {@link com.github.copilot.sdk.json.CopilotClientOptions#setEventJournal
+     * event journal} when there is one.
+     * <p>
+     * The stream should be closed when it is not fully consumed, to cancel any
+     * chunks that are still being bound.
+     *
+     * @param options
+     *            the stream options
+     * @return a future that resolves with the ordered, sequential event stream
+     * @throws IllegalStateException
+     *             if this session has been terminated
+     * @since 1.0.12
+     */
+    public CompletableFuture<Stream<AbstractSessionEvent>> streamMessages(GetMessagesOptions options) {
         ensureNotTerminated();
-        return rpc.invoke("session.getMessages", Map.of("sessionId", sessionId), GetMessagesResponse.class)
-                .thenApply(response -> {
-                    var events = new ArrayList<AbstractSessionEvent>();
-                    if (response.events() != null) {
-                        for (JsonNode eventNode : response.events()) {
-                            try {
-                                AbstractSessionEvent event = SessionEventParser.parse(eventNode);
-                                if (event != null) {
-                                    events.add(event);
-                                }
-                            } catch (Exception e) {
-                                LOG.log(Level.WARNING, "Failed to parse event", e);
-                            }
-                        }
-                    }
-                    return events;
-                });
+        Objects.requireNonNull(options, "options");
+        SessionJournal local = journal;
+        if (local != null && local.isSynced()) {
+            return CompletableFuture.completedFuture(SessionEventStreams.fromRecords(local.readAll(), options));
+        }
+        Map<String, Object> params = Map.of("sessionId", sessionId);
+        if (local == null) {
+            return rpc.invokeRaw("session.getMessages", params).thenApply(frame -> {
+                try {
+                    return SessionEventStreams.fromResponse(frame, options);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        }
+        return rpc.invoke("session.getMessages", params, GetMessagesResponse.class).thenApply(response -> {
+            List<JsonNode> nodes = response.events() != null ? response.events() : List.of();
+            if (catchUpJournal(local, nodes)) {
+                return SessionEventStreams.fromRecords(local.readAll(), options);
+            }
+            return SessionEventStreams.fromNodes(nodes, options);
+        });
+    }
+
+    /**
+     * Installs the local event journal of this session.
+     *
+     * @param journal
+     *            the opened journal, or {@code null} to stop journaling
+     */
+    void setJournal(SessionJournal journal) {
+        SessionJournal previous = this.journal;
+        this.journal = journal;
+        if (previous != null && previous != journal) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Appends a persisted event received from the server to the local journal,
+     * if journaling is enabled.
+     *
+     * @param node
+     *            the event JSON as received
+     * @param event
+     *            the parsed event
+     */
+    void journalEvent(JsonNode node, AbstractSessionEvent event) {
+        SessionJournal local = journal;
+        if (local == null || Boolean.TRUE.equals(event.getEphemeral())) {
+            return;
+        }
+        try {
+            local.append(MAPPER.writeValueAsBytes(node), event.getId());
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to journal event " + event.getType(), e);
+        }
+    }
+
+    private static boolean catchUpJournal(SessionJournal local, List<JsonNode> nodes) {
+        try {
+            var history = new ArrayList<byte[]>(nodes.size());
+            var ids = new ArrayList<UUID>(nodes.size());
+            for (JsonNode node : nodes) {
+                JsonNode id = node.get("id");
+                history.add(MAPPER.writeValueAsBytes(node));
+                ids.add(id != null && id.isTextual() ? UUID.fromString(id.asText()) : null);
+            }
+            local.catchUp(history, ids);
+            return true;
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to catch up event journal", e);
+            return false;
+        }
     }
 
     /**
@@ -979,6 +1503,7 @@ public final class CopilotSession implements AutoCloseable {
      */
     public CompletableFuture<Void> abort() {
         ensureNotTerminated();
+        cancelToolCalls("session aborted");
         return rpc.invoke("session.abort", Map.of("sessionId", sessionId), Void.class);
     }
 
@@ -1001,7 +1526,8 @@ public final class CopilotSession implements AutoCloseable {
      */
     public CompletableFuture<Void> setModel(String model) {
         ensureNotTerminated();
-        return rpc.invoke("session.model.switchTo", Map.of("sessionId", sessionId, "modelId", model), Void.class);
+        return rpc.invoke("session.model.switchTo", Map.of("sessionId", sessionId, "modelId", model), Void.class)
+                .thenRun(() -> this.model = model);
     }
 
     /**
@@ -1171,11 +1697,21 @@ public final class CopilotSession implements AutoCloseable {
             LOG.log(Level.FINE, "Error destroying session", e);
         }
 
+        releaseAdmission(null);
+        cancelToolCalls("session closed");
+        setJournal(null);
         eventHandlers.clear();
+        for (ToolDefinition tool : toolHandlers.values()) {
+            ToolResultShaper.forgetSession(tool, sessionId);
+        }
         toolHandlers.clear();
         permissionHandler.set(null);
         userInputHandler.set(null);
         hooksHandler.set(null);
+        Consumer<CopilotSession> listener = closeListener;
+        if (listener != null) {
+            listener.accept(this);
+        }
     }
 
     // ===== Internal response types for agent API =====
@@ -0,0 +1,145 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of byte arrays that inbound frames are read into.
+ * <p>
+ * Buffers come in power-of-two size classes from 4 KiB to 1 MiB, so a frame
+ * is read into the smallest class that holds it and the array is reused once
+ * the frame has been parsed. Frames larger than {@link #MAX_POOLED_SIZE} are
+ * not pooled; the blocking reader parses them straight from the stream.
+ * <p>
+ * Every thread keeps one buffer per class up to 64 KiB, which covers the
+ * common small frames without any synchronization. Other released buffers go
+ * to a shared queue per class, and the shared queues retain at most
+ * {@code maxRetainedBytes} in total; buffers beyond that are left to the
+ * garbage collector. Thread-local buffers are not counted, so a reader thread
+ * that ends takes its cache with it without skewing the count.
+ * <p>
+ * The thread-local tier only helps when one thread both acquires and releases,
+ * as the blocking reader does. Frames decoded by a {@link CopilotEventLoop}
+ * are acquired on a selector thread and released on a dispatch thread, so
+ * they are returned with {@link #releaseShared(byte[])}, which the selector
+ * thread can take them back from.
+ */
+final class FrameBufferPool {
+
+    /** The largest frame body that is read into a pooled buffer. */
+    static final int MAX_POOLED_SIZE = 1 << 20;
+
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 20;
+    private static final int MAX_THREAD_LOCAL_SHIFT = 16;
+    private static final FrameBufferPool SHARED = new FrameBufferPool(32L * 1024 * 1024);
+
+    private final long maxRetainedBytes;
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final List<ConcurrentLinkedQueue<byte[]>> shared;
+    private final ThreadLocal<byte[][]> local = ThreadLocal
+            .withInitial(() -> new byte[MAX_THREAD_LOCAL_SHIFT - MIN_SHIFT + 1][]);
+
+    FrameBufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        var queues = new ArrayList<ConcurrentLinkedQueue<byte[]>>(MAX_SHIFT - MIN_SHIFT + 1);
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            queues.add(new ConcurrentLinkedQueue<>());
+        }
+        this.shared = List.copyOf(queues);
+    }
+
+    /**
+     * Returns the pool shared by all clients, which retains up to 32 MiB.
+     */
+    static FrameBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a buffer of at least {@code size} bytes. Buffers for sizes above
+     * {@link #MAX_POOLED_SIZE} are allocated with the exact size and are not
+     * pooled.
+     */
+    byte[] acquire(int size) {
+        if (size > MAX_POOLED_SIZE) {
+            return new byte[size];
+        }
+        int shift = shiftFor(size);
+        if (shift <= MAX_THREAD_LOCAL_SHIFT) {
+            byte[][] cache = local.get();
+            byte[] buffer = cache[shift - MIN_SHIFT];
+            if (buffer != null) {
+                cache[shift - MIN_SHIFT] = null;
+                return buffer;
+            }
+        }
+        byte[] buffer = shared.get(shift - MIN_SHIFT).poll();
+        if (buffer != null) {
+            retainedBytes.addAndGet(-buffer.length);
+            return buffer;
+        }
+        return new byte[1 << shift];
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use it afterwards.
+     * Buffers that were not pooled are ignored.
+     */
+    void release(byte[] buffer) {
+        int length = buffer.length;
+        if (length < (1 << MIN_SHIFT) || length > MAX_POOLED_SIZE || Integer.bitCount(length) != 1) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(length);
+        if (shift <= MAX_THREAD_LOCAL_SHIFT) {
+            byte[][] cache = local.get();
+            if (cache[shift - MIN_SHIFT] == null) {
+                cache[shift - MIN_SHIFT] = buffer;
+                return;
+            }
+        }
+        offerShared(buffer, shift);
+    }
+
+    /**
+     * Returns a buffer that was acquired on another thread to the shared
+     * queues, skipping the cache of the calling thread. The caller must not use
+     * it afterwards. Buffers that were not pooled are ignored.
+     */
+    void releaseShared(byte[] buffer) {
+        int length = buffer.length;
+        if (length < (1 << MIN_SHIFT) || length > MAX_POOLED_SIZE || Integer.bitCount(length) != 1) {
+            return;
+        }
+        offerShared(buffer, Integer.numberOfTrailingZeros(length));
+    }
+
+    /**
+     * Returns the number of bytes held by the shared queues.
+     */
+    long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    private void offerShared(byte[] buffer, int shift) {
+        if (retainedBytes.addAndGet(buffer.length) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-buffer.length);
+            return;
+        }
+        shared.get(shift - MIN_SHIFT).offer(buffer);
+    }
+
+    private static int shiftFor(int size) {
+        if (size <= (1 << MIN_SHIFT)) {
+            return MIN_SHIFT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
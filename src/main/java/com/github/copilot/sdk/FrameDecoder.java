@@ -0,0 +1,128 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental decoder for Content-Length framed JSON-RPC messages.
+ * <p>
+ * Unlike the blocking reader of {@link JsonRpcClient}, the decoder is fed
+ * whatever bytes a non-blocking read returned, which may end in the middle of
+ * a header line or a message body. Its state carries over to the next call,
+ * and every frame completed by a call is handed to the listener before the
+ * call returns. Bodies are read into buffers from a {@link FrameBufferPool},
+ * which the listener releases. Header lines follow the same rules as the
+ * blocking reader: they end with a line feed, a blank line ends the headers,
+ * and frames without a positive Content-Length are skipped. Bodies larger
+ * than the listener's {@link JsonRpcTransport.FrameListener#maxFrameSize()
+ * maximum} are not buffered: the decoder keeps their first bytes and skips
+ * the rest as it arrives.
+ * <p>
+ * A decoder belongs to one connection and is not thread-safe.
+ */
+final class FrameDecoder {
+
+    private final FrameBufferPool bufferPool;
+    private final StringBuilder headerLine = new StringBuilder();
+    private boolean lastWasCR;
+    private int headerBytes;
+    private int contentLength = -1;
+    private byte[] content;
+    private int contentRead;
+    private int kept;
+    private boolean oversized;
+
+    FrameDecoder() {
+        this(FrameBufferPool.shared());
+    }
+
+    FrameDecoder(FrameBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Consumes all remaining bytes of the buffer.
+     *
+     * @param input
+     *            the bytes read from the connection
+     * @param listener
+     *            receives each completed frame
+     * @throws IOException
+     *             if a Content-Length header is malformed
+     */
+    void decode(ByteBuffer input, JsonRpcTransport.FrameListener listener) throws IOException {
+        while (input.hasRemaining()) {
+            if (content != null) {
+                int n = Math.min(input.remaining(), contentLength - contentRead);
+                if (contentRead < kept) {
+                    int copy = Math.min(n, kept - contentRead);
+                    input.get(content, contentRead, copy);
+                    input.position(input.position() + n - copy);
+                } else {
+                    input.position(input.position() + n);
+                }
+                contentRead += n;
+                if (contentRead == contentLength) {
+                    byte[] frame = content;
+                    int length = kept;
+                    int frameSize = headerBytes + contentLength;
+                    boolean discarded = oversized;
+                    reset();
+                    if (discarded) {
+                        listener.onOversizedFrame(frame, length, frameSize);
+                    } else {
+                        listener.onFrame(frame, length, frameSize);
+                    }
+                }
+                continue;
+            }
+            byte b = input.get();
+            headerBytes++;
+            if (b == '\r') {
+                lastWasCR = true;
+            } else if (b == '\n') {
+                String line = headerLine.toString();
+                headerLine.setLength(0);
+                lastWasCR = false;
+                if (line.isEmpty()) {
+                    // End of headers (blank line)
+                    if (contentLength > 0) {
+                        oversized = contentLength > listener.maxFrameSize();
+                        kept = oversized
+                                ? Math.min(contentLength, JsonRpcTransport.FrameListener.OVERSIZED_PREFIX_SIZE)
+                                : contentLength;
+                        content = bufferPool.acquire(kept);
+                        contentRead = 0;
+                    } else {
+                        reset();
+                    }
+                } else if (line.toLowerCase().startsWith("content-length:")) {
+                    try {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Malformed header: " + line, e);
+                    }
+                }
+            } else {
+                if (lastWasCR) {
+                    headerLine.append('\r');
+                    lastWasCR = false;
+                }
+                headerLine.append((char) (b & 0xFF));
+            }
+        }
+    }
+
+    private void reset() {
+        headerBytes = 0;
+        contentLength = -1;
+        content = null;
+        contentRead = 0;
+        kept = 0;
+        oversized = false;
+    }
+}
@@ -0,0 +1,242 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event types emitted by the SDK.
+ * <p>
+ * All events are registered under the {@code com.github.copilot.sdk} name
+ * prefix and the "Copilot SDK" category, and are controlled through standard
+ * JFR settings, for example:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording:settings=profile ...
+ * jfr print --events com.github.copilot.sdk.RpcRequest recording.jfr
+ * </pre>
+ * <p>
+ * Events that complete on the calling thread use the usual
+ * {@code begin()}/{@code commit()} idiom, which the JIT reduces to nothing when
+ * the event is disabled. Events that complete asynchronously, or that are
+ * handed to other methods, are only allocated after checking the
+ * {@link EventType#isEnabled() enabled} state of their type, so a disabled
+ * recording costs a single flag check.
+ */
+final class JfrEvents {
+
+    private JfrEvents() {
+    }
+
+    /**
+     * A JSON-RPC request sent to the server, from {@code invoke} until the
+     * response future completes.
+     */
+    @Name("com.github.copilot.sdk.RpcRequest")
+    @Label("JSON-RPC Request")
+    @Category({"Copilot SDK", "JSON-RPC"})
+    @Description("Round-trip of a JSON-RPC request sent to the Copilot CLI")
+    @StackTrace(false)
+    static final class RpcRequest extends Event {
+
+        private static final EventType TYPE = EventType.getEventType(RpcRequest.class);
+
+        @Label("Method")
+        String method;
+
+        @Label("Request ID")
+        long id;
+
+        @Label("Request Size")
+        @DataAmount
+        long requestSize;
+
+        @Label("Response Size")
+        @DataAmount
+        long responseSize;
+
+        @Label("Error Code")
+        @Description("JSON-RPC error code, -1 for transport failures, 0 on success")
+        int errorCode;
+
+        /**
+         * Starts timing a request, or returns {@code null} if the event is
+         * disabled.
+         */
+        static RpcRequest start(String method, long id) {
+            if (!TYPE.isEnabled()) {
+                return null;
+            }
+            var event = new RpcRequest();
+            event.method = method;
+            event.id = id;
+            event.begin();
+            return event;
+        }
+    }
+
+    /**
+     * Parsing of a single inbound JSON-RPC frame.
+     */
+    @Name("com.github.copilot.sdk.FrameParse")
+    @Label("JSON-RPC Frame Parse")
+    @Category({"Copilot SDK", "JSON-RPC"})
+    @Description("Parsing of an inbound JSON-RPC frame into a JSON tree")
+    @StackTrace(false)
+    static final class FrameParse extends Event {
+
+        private static final EventType TYPE = EventType.getEventType(FrameParse.class);
+
+        @Label("Frame Size")
+        @DataAmount
+        long size;
+
+        @Label("Message Kind")
+        @Description("response, request, notification or batch")
+        String kind;
+
+        @Label("Method")
+        String method;
+
+        /**
+         * Starts timing a parse, or returns {@code null} if the event is
+         * disabled.
+         */
+        static FrameParse start() {
+            if (!TYPE.isEnabled()) {
+                return null;
+            }
+            var event = new FrameParse();
+            event.begin();
+            return event;
+        }
+    }
+
+    /**
+     * Delivery of a session event to a single handler.
+     */
+    @Name("com.github.copilot.sdk.SessionEventDispatch")
+    @Label("Session Event Dispatch")
+    @Category({"Copilot SDK", "Session"})
+    @Description("Delivery of a session event to one registered handler")
+    @StackTrace(false)
+    static final class SessionEventDispatch extends Event {
+
+        private static final EventType TYPE = EventType.getEventType(SessionEventDispatch.class);
+
+        @Label("Session ID")
+        String sessionId;
+
+        @Label("Event Type")
+        String eventType;
+
+        @Label("Handler")
+        String handler;
+
+        @Label("Failed")
+        boolean failed;
+
+        /**
+         * Starts timing a delivery, or returns {@code null} if the event is
+         * disabled.
+         */
+        static SessionEventDispatch start() {
+            if (!TYPE.isEnabled()) {
+                return null;
+            }
+            var event = new SessionEventDispatch();
+            event.begin();
+            return event;
+        }
+    }
+
+    /**
+     * A tool handler invocation, from the call until its result future
+     * completes.
+     */
+    @Name("com.github.copilot.sdk.ToolInvocation")
+    @Label("Tool Invocation")
+    @Category({"Copilot SDK", "Callbacks"})
+    @Description("Execution of a tool handler registered with a session")
+    @StackTrace(false)
+    static final class ToolInvocation extends Event {
+
+        private static final EventType TYPE = EventType.getEventType(ToolInvocation.class);
+
+        @Label("Session ID")
+        String sessionId;
+
+        @Label("Tool Name")
+        String toolName;
+
+        @Label("Succeeded")
+        boolean success;
+
+        /**
+         * Starts timing a tool call, or returns {@code null} if the event is
+         * disabled.
+         */
+        static ToolInvocation start(String sessionId, String toolName) {
+            if (!TYPE.isEnabled()) {
+                return null;
+            }
+            var event = new ToolInvocation();
+            event.sessionId = sessionId;
+            event.toolName = toolName;
+            event.begin();
+            return event;
+        }
+    }
+
+    /**
+     * A permission, user input or hook callback, from the call until its
+     * result future completes.
+     */
+    @Name("com.github.copilot.sdk.Callback")
+    @Label("Callback")
+    @Category({"Copilot SDK", "Callbacks"})
+    @Description("Execution of a permission, user input or hook callback")
+    @StackTrace(false)
+    static final class Callback extends Event {
+
+        private static final EventType TYPE = EventType.getEventType(Callback.class);
+
+        @Label("Session ID")
+        String sessionId;
+
+        @Label("Callback Type")
+        String callbackType;
+
+        @Label("Name")
+        @Description("Permission kind or hook type")
+        String name;
+
+        @Label("Succeeded")
+        boolean success;
+
+        /**
+         * Starts timing a callback, or returns {@code null} if the event is
+         * disabled.
+         */
+        static Callback start(String sessionId, String callbackType, String name) {
+            if (!TYPE.isEnabled()) {
+                return null;
+            }
+            var event = new Callback();
+            event.sessionId = sessionId;
+            event.callbackType = callbackType;
+            event.name = name;
+            event.begin();
+            return event;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes a {@link CopilotMetricsRegistry} as a JMX MBean.
+ * <p>
+ * The MBean is registered under
+ * {@code com.github.copilot.sdk:type=CopilotMetrics,name=<name>} and exposes
+ * read-only attributes that are computed from the registry on every read:
+ * <ul>
+ * <li>{@code PendingRequests}, {@code BytesSent}, {@code BytesReceived},
+ * {@code FramesSent}, {@code FramesReceived}, {@code FramesRejected}</li>
+ * <li>{@code Request.<method>.Count}, {@code .Errors}, {@code .MeanMs},
+ * {@code .P50Ms}, {@code .P99Ms}, {@code .MaxMs}</li>
+ * <li>{@code Event.<type>.Count}, {@code .P99Ms}</li>
+ * <li>{@code Callback.<TYPE>:<name>.Count}, {@code .Failures},
+ * {@code .P50Ms}, {@code .P99Ms}</li>
+ * <li>{@code Admission.<model>.Admitted}, {@code .Rejected},
+ * {@code .QueueWaitP50Ms}, {@code .QueueWaitP99Ms}</li>
+ * <li>{@code Hibernation.Hibernations}, {@code .Resumes},
+ * {@code .ResumeFailures}, {@code .ResumeP50Ms}, {@code .ResumeP99Ms}, once a
+ * session has been hibernated</li>
+ * <li>{@code ToolCache.<tool>.Hits}, {@code .Misses}</li>
+ * <li>{@code ToolBulkhead.<tool>.Admitted}, {@code .Rejected},
+ * {@code .QueueWaitP50Ms}, {@code .QueueWaitP99Ms}</li>
+ * <li>{@code Hook.<type>.DeadlinesExceeded}</li>
+ * </ul>
+ * New methods, event types and callbacks appear as they are first recorded.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var metrics = new CopilotMetricsRegistry();
+ * try (var jmx = JmxMetricsExporter.register(metrics, "default")) {
+ *     var client = new CopilotClient(new CopilotClientOptions().setMetrics(metrics));
+ *     // attributes are now visible in JConsole / VisualVM
+ * }
+ * }</pre>
+ *
+ * @since 1.0.12
+ */
+public final class JmxMetricsExporter implements AutoCloseable {
+
+    /**
+     * The JMX domain used for registered MBeans.
+     */
+    public static final String DOMAIN = "com.github.copilot.sdk";
+
+    private final MBeanServer server;
+    private final ObjectName objectName;
+
+    private JmxMetricsExporter(MBeanServer server, ObjectName objectName) {
+        this.server = server;
+        this.objectName = objectName;
+    }
+
+    /**
+     * Registers the registry with the platform MBean server.
+     *
+     * @param registry
+     *            the registry to publish
+     * @param name
+     *            the value of the {@code name} key of the object name
+     * @return a handle that unregisters the MBean when closed
+     * @throws IllegalStateException
+     *             if the MBean could not be registered, e.g. because the name is
+     *             already in use
+     */
+    public static JmxMetricsExporter register(CopilotMetricsRegistry registry, String name) {
+        return register(registry, name, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Registers the registry with the given MBean server.
+     *
+     * @param registry
+     *            the registry to publish
+     * @param name
+     *            the value of the {@code name} key of the object name
+     * @param server
+     *            the MBean server to register with
+     * @return a handle that unregisters the MBean when closed
+     * @throws IllegalStateException
+     *             if the MBean could not be registered, e.g. because the name is
+     *             already in use
+     */
+    public static JmxMetricsExporter register(CopilotMetricsRegistry registry, String name, MBeanServer server) {
+        try {
+            var objectName = new ObjectName(DOMAIN + ":type=CopilotMetrics,name=" + ObjectName.quote(name));
+            server.registerMBean(new MetricsMBean(registry), objectName);
+            return new JmxMetricsExporter(server, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register metrics MBean: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the object name the MBean was registered under.
+     *
+     * @return the object name
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Unregisters the MBean. Calling this more than once has no effect.
+     */
+    @Override
+    public void close() {
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            // Already unregistered concurrently
+        }
+    }
+
+    static Map<String, Object> attributes(CopilotMetricsRegistry registry) {
+        var attrs = new LinkedHashMap<String, Object>();
+        attrs.put("PendingRequests", registry.getPendingRequests());
+        attrs.put("BytesSent", registry.getBytesSent());
+        attrs.put("BytesReceived", registry.getBytesReceived());
+        attrs.put("FramesSent", registry.getFramesSent());
+        attrs.put("FramesReceived", registry.getFramesReceived());
+        attrs.put("FramesRejected", registry.getFramesRejected());
+        registry.getRequestStats().forEach((method, stats) -> {
+            String prefix = "Request." + method + ".";
+            attrs.put(prefix + "Count", stats.count());
+            attrs.put(prefix + "Errors", stats.errors());
+            attrs.put(prefix + "MeanMs", stats.latency().getMeanNanos() / 1_000_000.0);
+            attrs.put(prefix + "P50Ms", stats.latency().percentileMillis(50.0));
+            attrs.put(prefix + "P99Ms", stats.latency().percentileMillis(99.0));
+            attrs.put(prefix + "MaxMs", stats.latency().getMaxNanos() / 1_000_000.0);
+        });
+        registry.getEventStats().forEach((type, latency) -> {
+            String prefix = "Event." + type + ".";
+            attrs.put(prefix + "Count", latency.getCount());
+            attrs.put(prefix + "P99Ms", latency.percentileMillis(99.0));
+        });
+        registry.getCallbackStats().forEach((key, stats) -> {
+            String prefix = "Callback." + key + ".";
+            attrs.put(prefix + "Count", stats.count());
+            attrs.put(prefix + "Failures", stats.failures());
+            attrs.put(prefix + "P50Ms", stats.latency().percentileMillis(50.0));
+            attrs.put(prefix + "P99Ms", stats.latency().percentileMillis(99.0));
+        });
+        registry.getAdmissionStats().forEach((model, stats) -> {
+            String prefix = "Admission." + model + ".";
+            attrs.put(prefix + "Admitted", stats.admitted());
+            attrs.put(prefix + "Rejected", stats.rejected());
+            attrs.put(prefix + "QueueWaitP50Ms", stats.queueWait().percentileMillis(50.0));
+            attrs.put(prefix + "QueueWaitP99Ms", stats.queueWait().percentileMillis(99.0));
+        });
+        var hibernation = registry.getHibernationStats();
+        if (hibernation.hibernations() > 0 || hibernation.resumeLatency().getCount() > 0) {
+            attrs.put("Hibernation.Hibernations", hibernation.hibernations());
+            attrs.put("Hibernation.Resumes", hibernation.resumes());
+            attrs.put("Hibernation.ResumeFailures", hibernation.resumeFailures());
+            attrs.put("Hibernation.ResumeP50Ms", hibernation.resumeLatency().percentileMillis(50.0));
+            attrs.put("Hibernation.ResumeP99Ms", hibernation.resumeLatency().percentileMillis(99.0));
+        }
+        registry.getToolCacheStats().forEach((tool, stats) -> {
+            attrs.put("ToolCache." + tool + ".Hits", stats.hits());
+            attrs.put("ToolCache." + tool + ".Misses", stats.misses());
+        });
+        registry.getToolBulkheadStats().forEach((tool, stats) -> {
+            String prefix = "ToolBulkhead." + tool + ".";
+            attrs.put(prefix + "Admitted", stats.admitted());
+            attrs.put(prefix + "Rejected", stats.rejected());
+            attrs.put(prefix + "QueueWaitP50Ms", stats.queueWait().percentileMillis(50.0));
+            attrs.put(prefix + "QueueWaitP99Ms", stats.queueWait().percentileMillis(99.0));
+        });
+        registry.getHookDeadlinesExceeded()
+                .forEach((type, count) -> attrs.put("Hook." + type + ".DeadlinesExceeded", count));
+        return attrs;
+    }
+
+    private static final class MetricsMBean implements DynamicMBean {
+
+        private final CopilotMetricsRegistry registry;
+
+        MetricsMBean(CopilotMetricsRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = attributes(registry).get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics attributes are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, Object> attrs = attributes(registry);
+            var list = new AttributeList();
+            for (String name : names) {
+                Object value = attrs.get(name);
+                if (value != null) {
+                    list.add(new Attribute(name, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("No operations: " + actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            Map<String, Object> attrs = attributes(registry);
+            var infos = new MBeanAttributeInfo[attrs.size()];
+            int i = 0;
+            for (var entry : attrs.entrySet()) {
+                infos[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                        entry.getKey(), true, false, false);
+            }
+            return new MBeanInfo(CopilotMetricsRegistry.class.getName(), "Copilot SDK metrics", infos, null, null,
+                    null);
+        }
+    }
+}
@@ -5,12 +5,21 @@
 package com.github.copilot.sdk;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,7 +31,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -42,27 +53,52 @@ class JsonRpcClient implements AutoCloseable {
     private static final Logger LOG = Logger.getLogger(JsonRpcClient.class.getName());
     private static final ObjectMapper MAPPER = createObjectMapper();
 
-    private final InputStream inputStream;
+    private final JsonRpcTransport transport;
     private final OutputStream outputStream;
-    private final Socket socket;
-    private final Process process;
     private final AtomicLong requestIdCounter = new AtomicLong(0);
     private final Map<Long, CompletableFuture<JsonNode>> pendingRequests = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<byte[]>> rawRequests = new ConcurrentHashMap<>();
     private final Map<String, BiConsumer<String, JsonNode>> notificationHandlers = new ConcurrentHashMap<>();
+    private final Map<Long, JfrEvents.RpcRequest> recordedRequests = new ConcurrentHashMap<>();
+    private final Set<PendingBatch> batches = ConcurrentHashMap.newKeySet();
     private final ExecutorService readerExecutor;
+    private final CopilotMetrics metrics;
+    private final FrameBufferPool bufferPool = FrameBufferPool.shared();
+    private final Object writeLock = new Object();
     private volatile boolean running = true;
+    private volatile int maxFrameSize = Integer.MAX_VALUE;
 
-    private JsonRpcClient(InputStream inputStream, OutputStream outputStream, Socket socket, Process process) {
-        this.inputStream = inputStream;
-        this.outputStream = outputStream;
-        this.socket = socket;
-        this.process = process;
+    private JsonRpcClient(JsonRpcTransport transport, CopilotMetrics metrics) {
+        this.transport = transport;
+        this.outputStream = transport.outputStream();
+        this.metrics = metrics != null ? metrics : CopilotMetrics.NOOP;
+        var listener = new JsonRpcTransport.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int length, int frameSize) {
+                handleFrame(buffer, length, frameSize, true);
+            }
+
+            @Override
+            public int maxFrameSize() {
+                return maxFrameSize;
+            }
+
+            @Override
+            public void onOversizedFrame(byte[] prefix, int length, int frameSize) {
+                handleOversizedFrame(prefix, length, frameSize);
+            }
+        };
+        if (transport.startReading(listener)) {
+            // Frames are decoded and delivered by an event loop
+            this.readerExecutor = null;
+            return;
+        }
         this.readerExecutor = Executors.newSingleThreadExecutor(r -> {
             Thread t = new Thread(r, "jsonrpc-reader");
             t.setDaemon(true);
             return t;
         });
-        startReader();
+        startReader(transport.inputStream());
     }
 
     static ObjectMapper createObjectMapper() {
@@ -82,14 +118,68 @@ class JsonRpcClient implements AutoCloseable {
      * Creates a JSON-RPC client using stdio with a process.
      */
     public static JsonRpcClient fromProcess(Process process) {
-        return new JsonRpcClient(process.getInputStream(), process.getOutputStream(), null, process);
+        return fromProcess(process, CopilotMetrics.NOOP);
+    }
+
+    /**
+     * Creates a JSON-RPC client using stdio with a process, reporting to the given
+     * metrics collector.
+     */
+    public static JsonRpcClient fromProcess(Process process, CopilotMetrics metrics) {
+        return new JsonRpcClient(JsonRpcTransport.of(process), metrics);
     }
 
     /**
      * Creates a JSON-RPC client using TCP socket.
      */
     public static JsonRpcClient fromSocket(Socket socket) throws IOException {
-        return new JsonRpcClient(socket.getInputStream(), socket.getOutputStream(), socket, null);
+        return fromSocket(socket, CopilotMetrics.NOOP);
+    }
+
+    /**
+     * Creates a JSON-RPC client using TCP socket, reporting to the given metrics
+     * collector.
+     */
+    public static JsonRpcClient fromSocket(Socket socket, CopilotMetrics metrics) throws IOException {
+        return new JsonRpcClient(JsonRpcTransport.of(socket), metrics);
+    }
+
+    /**
+     * Creates a JSON-RPC client connected to a server listening on a Unix domain
+     * socket, reporting to the given metrics collector.
+     */
+    public static JsonRpcClient fromUnixSocket(Path socketPath, CopilotMetrics metrics) throws IOException {
+        return new JsonRpcClient(JsonRpcTransport.connect(socketPath), metrics);
+    }
+
+    /**
+     * Creates a JSON-RPC client over the given transport, reporting to the given
+     * metrics collector.
+     */
+    static JsonRpcClient fromTransport(JsonRpcTransport transport, CopilotMetrics metrics) {
+        return new JsonRpcClient(transport, metrics);
+    }
+
+    /**
+     * Sets the largest message body the client buffers and parses. Larger frames
+     * are discarded as they are read; a request whose response is discarded
+     * fails with error code -32600, and a server request that is discarded is
+     * answered with that error. The reader finds the ID anywhere in the frame,
+     * while transports that read on their own keep only the first
+     * {@link JsonRpcTransport.FrameListener#OVERSIZED_PREFIX_SIZE} bytes.
+     *
+     * @param maxFrameSize
+     *            the maximum body size in bytes
+     */
+    void setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Returns the metrics collector this client reports to.
+     */
+    CopilotMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -104,33 +194,203 @@ class JsonRpcClient implements AutoCloseable {
      * Sends a JSON-RPC request and waits for the response.
      */
     public <T> CompletableFuture<T> invoke(String method, Object params, Class<T> responseType) {
-        long id = requestIdCounter.incrementAndGet();
-        var future = new CompletableFuture<JsonNode>();
-        pendingRequests.put(id, future);
+        return sendRequest(method, params, pendingRequests).thenApply(result -> {
+            try {
+                if (responseType == Void.class || responseType == void.class) {
+                    return null;
+                }
+                return MAPPER.treeToValue(result, responseType);
+            } catch (JsonProcessingException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
 
-        var request = new JsonRpcRequest();
-        request.setJsonrpc("2.0");
-        request.setId(id);
-        request.setMethod(method);
-        request.setParams(params);
+    /**
+     * Sends a JSON-RPC request and completes with the raw bytes of the response
+     * frame instead of a parsed tree, so that large results can be tokenized
+     * incrementally by the caller. Error responses still complete exceptionally
+     * with a {@link JsonRpcException}.
+     *
+     * @param method
+     *            the method to invoke
+     * @param params
+     *            the request parameters
+     * @return a future that completes with the UTF-8 bytes of the whole response
+     *         message
+     */
+    CompletableFuture<byte[]> invokeRaw(String method, Object params) {
+        return sendRequest(method, params, rawRequests);
+    }
+
+    /**
+     * Sends several JSON-RPC requests in one batch frame. Each request gets its
+     * own ID and future, and the futures complete independently from the
+     * elements of the batch response, in whatever order the server answers
+     * them. A single call is sent as an ordinary request.
+     * <p>
+     * A response without an ID rejects a whole batch, which is how a server
+     * without batch support answers. Since it does not say which batch it
+     * rejects, it fails the requests of a batch with the error it carries only
+     * while that batch is the only one in flight; otherwise it is logged and
+     * the requests keep waiting.
+     *
+     * @param calls
+     *            the requests to send
+     * @return one future per call, in the order of the calls
+     */
+    List<CompletableFuture<JsonNode>> invokeBatch(List<BatchCall> calls) {
+        if (calls.size() <= 1) {
+            // JSON-RPC does not allow empty batches, and one call needs none
+            return calls.stream().map(call -> sendRequest(call.method(), call.params(), pendingRequests))
+                    .toList();
+        }
+        var outgoing = new ArrayList<OutgoingRequest<JsonNode>>(calls.size());
+        var requests = new ArrayList<JsonRpcRequest>(calls.size());
+        var batch = new PendingBatch();
+        batches.add(batch);
+        for (BatchCall call : calls) {
+            OutgoingRequest<JsonNode> request = startRequest(call.method(), call.params(), pendingRequests);
+            long id = request.message().getId();
+            batch.ids.add(id);
+            request.future().whenComplete((result, ex) -> {
+                batch.ids.remove(id);
+                if (batch.ids.isEmpty()) {
+                    batches.remove(batch);
+                }
+            });
+            outgoing.add(request);
+            requests.add(request.message());
+        }
 
         try {
-            sendMessage(request);
+            int size = sendMessage(requests);
+            for (OutgoingRequest<JsonNode> request : outgoing) {
+                if (request.jfrEvent() != null) {
+                    // Requests of a batch report the size of the whole frame
+                    request.jfrEvent().requestSize = size;
+                }
+            }
         } catch (IOException e) {
-            pendingRequests.remove(id);
-            future.completeExceptionally(e);
+            for (OutgoingRequest<JsonNode> request : outgoing) {
+                pendingRequests.remove(request.message().getId());
+                request.future().completeExceptionally(e);
+            }
         }
+        return outgoing.stream().map(OutgoingRequest::tracked).toList();
+    }
 
-        return future.thenApply(result -> {
+    /**
+     * Sends the same method with different parameters in one batch frame and
+     * converts each result to {@code responseType}.
+     *
+     * @see #invokeBatch(List)
+     */
+    <T> List<CompletableFuture<T>> invokeBatch(String method, List<?> params, Class<T> responseType) {
+        var calls = params.stream().map(p -> new BatchCall(method, p)).toList();
+        return invokeBatch(calls).stream().map(future -> future.thenApply(result -> {
             try {
-                if (responseType == Void.class || responseType == void.class) {
-                    return null;
-                }
                 return MAPPER.treeToValue(result, responseType);
             } catch (JsonProcessingException e) {
                 throw new CompletionException(e);
             }
+        })).toList();
+    }
+
+    private <R> CompletableFuture<R> sendRequest(String method, Object params,
+            Map<Long, CompletableFuture<R>> pending) {
+        OutgoingRequest<R> request = startRequest(method, params, pending);
+        try {
+            int size = sendMessage(request.message());
+            if (request.jfrEvent() != null) {
+                request.jfrEvent().requestSize = size;
+            }
+        } catch (IOException e) {
+            pending.remove(request.message().getId());
+            request.future().completeExceptionally(e);
+        }
+        return request.tracked();
+    }
+
+    /**
+     * Assigns an ID to a request and registers the future its response
+     * completes, without sending it yet.
+     */
+    private <R> OutgoingRequest<R> startRequest(String method, Object params,
+            Map<Long, CompletableFuture<R>> pending) {
+        long id = requestIdCounter.incrementAndGet();
+        var future = new CompletableFuture<R>();
+        pending.put(id, future);
+        long start = System.nanoTime();
+        metrics.requestStarted(method);
+        JfrEvents.RpcRequest jfrEvent = JfrEvents.RpcRequest.start(method, id);
+        if (jfrEvent != null) {
+            recordedRequests.put(id, jfrEvent);
+        }
+
+        var request = new JsonRpcRequest();
+        request.setJsonrpc("2.0");
+        request.setId(id);
+        request.setMethod(method);
+        request.setParams(params);
+
+        CompletableFuture<R> tracked = future.whenComplete((result, ex) -> {
+            long duration = System.nanoTime() - start;
+            int code = 0;
+            if (ex == null) {
+                metrics.requestCompleted(method, duration);
+            } else {
+                code = ex instanceof JsonRpcException rpcEx ? rpcEx.getCode() : CopilotMetrics.TRANSPORT_ERROR;
+                metrics.requestFailed(method, code, duration);
+            }
+            if (jfrEvent != null) {
+                recordedRequests.remove(id);
+                jfrEvent.errorCode = code;
+                jfrEvent.commit();
+            }
         });
+        return new OutgoingRequest<>(request, future, tracked, jfrEvent);
+    }
+
+    /**
+     * Fails the requests of a batch that are still waiting for their response.
+     */
+    private void failBatch(PendingBatch batch, Exception error) {
+        batches.remove(batch);
+        for (Long id : batch.ids) {
+            CompletableFuture<JsonNode> future = pendingRequests.remove(id);
+            if (future != null) {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    /**
+     * Returns the batch in flight that the request belongs to, or {@code null}
+     * if it was sent on its own.
+     */
+    private PendingBatch batchOf(long id) {
+        for (PendingBatch batch : batches) {
+            if (batch.ids.contains(id)) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the only batch in flight, or {@code null} if there is not exactly
+     * one.
+     */
+    private PendingBatch soleOutstandingBatch() {
+        PendingBatch sole = null;
+        for (PendingBatch batch : batches) {
+            if (sole != null) {
+                return null;
+            }
+            sole = batch;
+        }
+        return sole;
     }
 
     /**
@@ -169,19 +429,31 @@ class JsonRpcClient implements AutoCloseable {
         sendMessage(response);
     }
 
-    private synchronized void sendMessage(Object message) throws IOException {
-        String json = MAPPER.writeValueAsString(message);
-        byte[] content = json.getBytes(StandardCharsets.UTF_8);
-        String header = "Content-Length: " + content.length + "\r\n\r\n";
+    private int sendMessage(Object message) throws IOException {
+        // Serialize before taking the write lock, so that a slow payload such as a
+        // streamed binary tool result does not hold up other senders. The chunked
+        // buffer grows without copying what was already encoded.
+        var content = new ChunkedOutputStream();
+        MAPPER.writeValue(content, message);
+        String header = "Content-Length: " + content.size() + "\r\n\r\n";
 
-        outputStream.write(header.getBytes(StandardCharsets.UTF_8));
-        outputStream.write(content);
-        outputStream.flush();
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
 
-        LOG.fine("Sent: " + json);
+        synchronized (writeLock) {
+            outputStream.write(headerBytes);
+            content.writeTo(outputStream);
+            outputStream.flush();
+        }
+        int frameSize = headerBytes.length + content.size();
+        metrics.frameSent(frameSize);
+
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Sent: " + content.toString(StandardCharsets.UTF_8));
+        }
+        return frameSize;
     }
 
-    private void startReader() {
+    private void startReader(InputStream inputStream) {
         readerExecutor.submit(() -> {
             try {
                 // We need to read bytes because Content-Length specifies bytes, not characters.
@@ -191,6 +463,7 @@ class JsonRpcClient implements AutoCloseable {
                 while (running) {
                     // Read headers line by line
                     int contentLength = -1;
+                    int headerBytes = 0;
                     var headerLine = new StringBuilder();
                     boolean lastWasCR = false;
                     boolean inHeaders = true;
@@ -200,6 +473,7 @@ class JsonRpcClient implements AutoCloseable {
                         if (b == -1) {
                             return;
                         }
+                        headerBytes++;
 
                         if (b == '\r') {
                             lastWasCR = true;
@@ -227,21 +501,40 @@ class JsonRpcClient implements AutoCloseable {
                         continue;
                     }
 
-                    // Read content as bytes (Content-Length specifies bytes, not characters)
-                    byte[] buffer = new byte[contentLength];
-                    int read = 0;
-                    while (read < contentLength) {
-                        int result = bis.read(buffer, read, contentLength - read);
-                        if (result == -1) {
+                    int frameSize = headerBytes + contentLength;
+                    if (contentLength > maxFrameSize) {
+                        // Tokenize the frame for its ID and method as it is skipped, keeping nothing
+                        var body = new FrameBodyStream(bis, contentLength);
+                        OversizedFrame frame = scanOversizedFrame(body);
+                        if (!body.skipRemaining()) {
                             return;
                         }
-                        read += result;
+                        rejectOversizedFrame(frame, frameSize);
+                        continue;
+                    }
+                    if (contentLength > FrameBufferPool.MAX_POOLED_SIZE && rawRequests.isEmpty()) {
+                        // Parse oversized frames from the stream instead of buffering them
+                        metrics.frameReceived(frameSize);
+                        if (!handleStreamedFrame(new FrameBodyStream(bis, contentLength), frameSize)) {
+                            return;
+                        }
+                        continue;
                     }
 
-                    String content = new String(buffer, StandardCharsets.UTF_8);
-                    LOG.fine("Received: " + content);
-
-                    handleMessage(content);
+                    // Read content as bytes (Content-Length specifies bytes, not characters)
+                    byte[] buffer = bufferPool.acquire(contentLength);
+                    boolean complete = false;
+                    try {
+                        complete = bis.readNBytes(buffer, 0, contentLength) == contentLength;
+                    } finally {
+                        if (!complete) {
+                            bufferPool.release(buffer);
+                        }
+                    }
+                    if (!complete) {
+                        return;
+                    }
+                    handleFrame(buffer, contentLength, frameSize, false);
                 }
             } catch (Exception e) {
                 if (running) {
@@ -251,99 +544,563 @@ class JsonRpcClient implements AutoCloseable {
         });
     }
 
-    private void handleMessage(String content) {
+    /**
+     * Handles a frame read into a buffer from {@link #bufferPool}, and releases
+     * the buffer once the frame has been parsed. Frames delivered by the
+     * transport were read on another thread and are released to the shared
+     * queues.
+     */
+    private void handleFrame(byte[] buffer, int length, int frameSize, boolean delivered) {
+        metrics.frameReceived(frameSize);
         try {
-            JsonNode node = MAPPER.readTree(content);
-
-            // Check if this is a response to our request
-            if (node.has("id") && !node.get("id").isNull() && (node.has("result") || node.has("error"))) {
-                long id = node.get("id").asLong();
-                CompletableFuture<JsonNode> future = pendingRequests.remove(id);
-                if (future != null) {
-                    if (node.has("error")) {
-                        JsonNode errorNode = node.get("error");
-                        String errorMessage = errorNode.has("message")
-                                ? errorNode.get("message").asText()
-                                : "Unknown error";
-                        int errorCode = errorNode.has("code") ? errorNode.get("code").asInt() : -1;
-                        future.completeExceptionally(new JsonRpcException(errorCode, errorMessage));
-                    } else {
-                        future.complete(node.get("result"));
-                    }
-                }
+            if (!rawRequests.isEmpty() && completeRawResponse(buffer, length, frameSize)) {
+                return;
             }
-            // Check if this is a request from server (has method and id)
-            else if (node.has("method")) {
-                String method = node.get("method").asText();
-                JsonNode params = node.get("params");
-                Object id = node.has("id") && !node.get("id").isNull() ? node.get("id") : null;
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Received: " + new String(buffer, 0, length, StandardCharsets.UTF_8));
+            }
+            JfrEvents.FrameParse parseEvent = JfrEvents.FrameParse.start();
+            JsonNode node = MAPPER.readTree(buffer, 0, length);
+            if (parseEvent != null) {
+                parseEvent.end();
+            }
+            handleMessage(node, frameSize, parseEvent);
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Error parsing JSON-RPC message", e);
+        } finally {
+            release(buffer, delivered);
+        }
+    }
 
-                LOG.fine("Received method: " + method);
+    private void release(byte[] buffer, boolean delivered) {
+        if (delivered) {
+            bufferPool.releaseShared(buffer);
+        } else {
+            bufferPool.release(buffer);
+        }
+    }
 
-                BiConsumer<String, JsonNode> handler = notificationHandlers.get(method);
-                if (handler != null) {
-                    try {
-                        // Create a context that includes the request ID for responses
-                        handler.accept(id != null ? id.toString() : null, params);
-                    } catch (Exception e) {
-                        LOG.log(Level.SEVERE, "Error handling method " + method, e);
-                        if (id != null) {
-                            try {
-                                sendErrorResponse(id, -32603, e.getMessage());
-                            } catch (IOException ioe) {
-                                LOG.log(Level.SEVERE, "Failed to send error response", ioe);
-                            }
+    /**
+     * Handles a frame that exceeded {@link #maxFrameSize} and was delivered by
+     * the transport with only the start of its body. Releases the buffer like
+     * {@link #handleFrame}.
+     */
+    private void handleOversizedFrame(byte[] prefix, int length, int frameSize) {
+        OversizedFrame frame;
+        try {
+            frame = scanOversizedFrame(new ByteArrayInputStream(prefix, 0, length));
+        } finally {
+            bufferPool.releaseShared(prefix);
+        }
+        rejectOversizedFrame(frame, frameSize);
+    }
+
+    /**
+     * Tokenizes the top-level fields of an oversized frame for its ID and
+     * method. Values are skipped without being built, and scanning stops once
+     * the frame is identified. If the body ends early or is malformed, what was
+     * seen until then is returned.
+     */
+    private static OversizedFrame scanOversizedFrame(InputStream body) {
+        Object id = null;
+        String method = null;
+        boolean batch = false;
+        boolean response = false;
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            JsonToken first = parser.nextToken();
+            batch = first == JsonToken.START_ARRAY;
+            if (batch) {
+                // Look for the first element that carries an ID
+                JsonToken element;
+                while (id == null && (element = parser.nextToken()) != null && element != JsonToken.END_ARRAY) {
+                    if (element != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        if (parser.nextToken() == JsonToken.VALUE_NUMBER_INT && "id".equals(field)) {
+                            id = parser.getLongValue();
+                            break;
                         }
+                        parser.skipChildren();
+                    }
+                }
+            } else if (first == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("id".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                        id = parser.getLongValue();
+                    } else if ("id".equals(field) && value == JsonToken.VALUE_STRING) {
+                        id = parser.getText();
+                    } else if ("method".equals(field) && value == JsonToken.VALUE_STRING) {
+                        method = parser.getText();
+                    } else if ("result".equals(field) || "error".equals(field)) {
+                        response = true;
+                    }
+                    if (id != null && (method != null || response)) {
+                        break;
                     }
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            // The body ends inside the message
+        }
+        return new OversizedFrame(id, method, batch, response);
+    }
+
+    /**
+     * Discards an oversized frame: the request waiting for it fails, or the
+     * server request is answered with an error. A response whose ID was not
+     * seen can only be matched when a single request is outstanding.
+     */
+    private void rejectOversizedFrame(OversizedFrame frame, int frameSize) {
+        metrics.frameReceived(frameSize);
+        metrics.frameRejected(frameSize);
+        String message = "Frame of " + frameSize + " bytes exceeds the maximum frame size of " + maxFrameSize
+                + " bytes";
+        if (frame.batch()) {
+            // Any one ID identifies the batch that the response answers
+            PendingBatch batch = frame.id() instanceof Long requestId ? batchOf(requestId) : soleOutstandingBatch();
+            if (batch == null) {
+                LOG.warning("Discarded JSON-RPC batch that could not be matched to a request: " + message);
+                return;
+            }
+            LOG.warning("Discarded JSON-RPC batch: " + message);
+            failBatch(batch, new JsonRpcException(-32600, message));
+            return;
+        }
+        if (frame.method() != null) {
+            LOG.warning("Discarded JSON-RPC message " + frame.method() + ": " + message);
+            if (frame.id() != null) {
+                try {
+                    sendErrorResponse(frame.id(), -32600, message);
+                } catch (IOException e) {
+                    LOG.log(Level.SEVERE, "Failed to send error response", e);
+                }
+            }
+            return;
+        }
+        Object id = frame.id() == null && frame.response() ? soleOutstandingRequest() : frame.id();
+        if (!(id instanceof Long requestId)) {
+            LOG.warning("Discarded JSON-RPC frame that could not be matched to a request: " + message);
+            return;
+        }
+        LOG.warning("Discarded JSON-RPC response " + requestId + ": " + message);
+        var error = new JsonRpcException(-32600, message);
+        CompletableFuture<JsonNode> future = pendingRequests.remove(requestId);
+        if (future != null) {
+            future.completeExceptionally(error);
+        }
+        CompletableFuture<byte[]> raw = rawRequests.remove(requestId);
+        if (raw != null) {
+            raw.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Returns the ID of the only outstanding request that is not part of a
+     * batch, or {@code null} if there is not exactly one.
+     */
+    private Long soleOutstandingRequest() {
+        Long sole = null;
+        for (Long id : pendingRequests.keySet()) {
+            if (batchOf(id) == null) {
+                if (sole != null) {
+                    return null;
+                }
+                sole = id;
+            }
+        }
+        for (Long id : rawRequests.keySet()) {
+            if (sole != null) {
+                return null;
+            }
+            sole = id;
+        }
+        return sole;
+    }
+
+    /**
+     * Parses a frame body straight from the stream and skips whatever the
+     * parser left unread, so the next frame starts at the right position. This
+     * avoids a pooled copy of the raw bytes, but the whole message is still
+     * built as a {@link JsonNode} tree.
+     *
+     * @return {@code false} if the stream ended
+     */
+    private boolean handleStreamedFrame(FrameBodyStream body, int frameSize) throws IOException {
+        JsonNode node = null;
+        JfrEvents.FrameParse parseEvent = JfrEvents.FrameParse.start();
+        try {
+            node = MAPPER.readTree(body);
+            if (parseEvent != null) {
+                parseEvent.end();
+            }
+        } catch (JsonProcessingException e) {
+            LOG.log(Level.SEVERE, "Error parsing JSON-RPC message", e);
+        }
+        if (!body.skipRemaining()) {
+            return false;
+        }
+        if (node != null) {
+            LOG.fine("Received streamed frame of " + frameSize + " bytes");
+            handleMessage(node, frameSize, parseEvent);
+        }
+        return true;
+    }
+
+    /**
+     * Completes a pending {@link #invokeRaw} request if the frame is its
+     * response. Only the top-level fields of the frame are tokenized, and
+     * scanning stops at the {@code result} field once the ID is known.
+     */
+    private boolean completeRawResponse(byte[] frame, int length, int frameSize) throws IOException {
+        Long id = null;
+        boolean error = false;
+        try (JsonParser parser = MAPPER.getFactory().createParser(frame, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("method".equals(field)) {
+                    return false;
+                } else if ("id".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    id = parser.getLongValue();
+                } else if ("error".equals(field)) {
+                    error = true;
+                } else if ("result".equals(field) && id != null) {
+                    break;
+                }
+                parser.skipChildren();
+            }
+        }
+        CompletableFuture<byte[]> future = id != null ? rawRequests.remove(id) : null;
+        if (future == null) {
+            return false;
+        }
+        if (!recordedRequests.isEmpty()) {
+            JfrEvents.RpcRequest jfrEvent = recordedRequests.get(id);
+            if (jfrEvent != null) {
+                jfrEvent.responseSize = frameSize;
+            }
+        }
+        if (error) {
+            JsonNode errorNode = MAPPER.readTree(frame, 0, length).get("error");
+            String errorMessage = errorNode.has("message") ? errorNode.get("message").asText() : "Unknown error";
+            int errorCode = errorNode.has("code") ? errorNode.get("code").asInt() : -1;
+            future.completeExceptionally(new JsonRpcException(errorCode, errorMessage));
+        } else {
+            // The frame buffer goes back to the pool, so hand out a copy
+            future.complete(Arrays.copyOf(frame, length));
+        }
+        return true;
+    }
+
+    private void handleMessage(JsonNode node, int frameSize, JfrEvents.FrameParse parseEvent) {
+        if (node.isArray()) {
+            // A batch: its elements are handled as if each had its own frame
+            if (parseEvent != null && parseEvent.shouldCommit()) {
+                parseEvent.size = frameSize;
+                parseEvent.kind = "batch";
+                parseEvent.commit();
+            }
+            for (JsonNode element : node) {
+                handleMessage(element, frameSize, null);
+            }
+            return;
+        }
+        if (parseEvent != null && parseEvent.shouldCommit()) {
+            parseEvent.size = frameSize;
+            parseEvent.method = node.has("method") ? node.get("method").asText() : null;
+            parseEvent.kind = parseEvent.method == null
+                    ? "response"
+                    : (node.has("id") && !node.get("id").isNull() ? "request" : "notification");
+            parseEvent.commit();
+        }
+
+        // Check if this is a response to our request
+        if (node.has("id") && !node.get("id").isNull() && (node.has("result") || node.has("error"))) {
+            long id = node.get("id").asLong();
+            if (!recordedRequests.isEmpty()) {
+                JfrEvents.RpcRequest jfrEvent = recordedRequests.get(id);
+                if (jfrEvent != null) {
+                    jfrEvent.responseSize = frameSize;
+                }
+            }
+            CompletableFuture<JsonNode> future = pendingRequests.remove(id);
+            if (future != null) {
+                if (node.has("error")) {
+                    JsonNode errorNode = node.get("error");
+                    String errorMessage = errorNode.has("message")
+                            ? errorNode.get("message").asText()
+                            : "Unknown error";
+                    int errorCode = errorNode.has("code") ? errorNode.get("code").asInt() : -1;
+                    future.completeExceptionally(new JsonRpcException(errorCode, errorMessage));
                 } else {
-                    LOG.fine("No handler for method: " + method);
+                    future.complete(node.get("result"));
+                }
+            }
+        }
+        // A response without an ID rejects a whole batch, but does not say which
+        else if (node.has("error") && !node.has("method")) {
+            JsonNode errorNode = node.get("error");
+            String errorMessage = errorNode.has("message") ? errorNode.get("message").asText() : "Unknown error";
+            int errorCode = errorNode.has("code") ? errorNode.get("code").asInt() : -1;
+            PendingBatch batch = soleOutstandingBatch();
+            if (batch != null) {
+                LOG.warning("Batch rejected by server: " + errorMessage);
+                failBatch(batch, new JsonRpcException(errorCode, errorMessage));
+            } else {
+                LOG.warning("Ignoring JSON-RPC error without an ID: " + errorMessage);
+            }
+        }
+        // Check if this is a request from server (has method and id)
+        else if (node.has("method")) {
+            String method = node.get("method").asText();
+            JsonNode params = node.get("params");
+            Object id = node.has("id") && !node.get("id").isNull() ? node.get("id") : null;
+
+            LOG.fine("Received method: " + method);
+
+            BiConsumer<String, JsonNode> handler = notificationHandlers.get(method);
+            if (handler != null) {
+                try {
+                    // Create a context that includes the request ID for responses
+                    handler.accept(id != null ? id.toString() : null, params);
+                } catch (Exception e) {
+                    LOG.log(Level.SEVERE, "Error handling method " + method, e);
                     if (id != null) {
                         try {
-                            sendErrorResponse(id, -32601, "Method not found: " + method);
+                            sendErrorResponse(id, -32603, e.getMessage());
                         } catch (IOException ioe) {
                             LOG.log(Level.SEVERE, "Failed to send error response", ioe);
                         }
                     }
                 }
+            } else {
+                LOG.fine("No handler for method: " + method);
+                if (id != null) {
+                    try {
+                        sendErrorResponse(id, -32601, "Method not found: " + method);
+                    } catch (IOException ioe) {
+                        LOG.log(Level.SEVERE, "Failed to send error response", ioe);
+                    }
+                }
             }
-        } catch (JsonProcessingException e) {
-            LOG.log(Level.SEVERE, "Error parsing JSON-RPC message", e);
         }
     }
 
     @Override
     public void close() {
         running = false;
-        readerExecutor.shutdownNow();
+        if (readerExecutor != null) {
+            readerExecutor.shutdownNow();
+        }
 
-        // Cancel all pending requests
+        // Cancel all pending requests, batches first so none is left behind
+        for (PendingBatch batch : batches) {
+            failBatch(batch, new IOException("Client closed"));
+        }
+        batches.clear();
         pendingRequests.forEach((id, future) -> future.completeExceptionally(new IOException("Client closed")));
         pendingRequests.clear();
+        rawRequests.forEach((id, future) -> future.completeExceptionally(new IOException("Client closed")));
+        rawRequests.clear();
 
         try {
-            if (socket != null) {
-                socket.close();
-            }
+            transport.close();
         } catch (IOException e) {
-            LOG.log(Level.FINE, "Error closing socket", e);
-        }
-
-        if (process != null) {
-            process.destroy();
+            LOG.log(Level.FINE, "Error closing transport", e);
         }
     }
 
     public boolean isConnected() {
-        if (socket != null) {
-            return socket.isConnected() && !socket.isClosed();
+        return transport.isConnected();
+    }
+
+    public Process getProcess() {
+        return transport.process();
+    }
+
+    /**
+     * One request of a batch sent with {@link JsonRpcClient#invokeBatch(List)}.
+     *
+     * @param method
+     *            the method to invoke
+     * @param params
+     *            the request parameters
+     */
+    record BatchCall(String method, Object params) {
+    }
+
+    /**
+     * A registered request: the message to send, the future its response
+     * completes, and the same future with metrics recording attached.
+     */
+    private record OutgoingRequest<R>(JsonRpcRequest message, CompletableFuture<R> future,
+            CompletableFuture<R> tracked, JfrEvents.RpcRequest jfrEvent) {
+    }
+
+    /** The requests of one batch frame that are still waiting for a response. */
+    private static final class PendingBatch {
+
+        final Set<Long> ids = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * What the top-level fields of an oversized frame revealed: its ID and
+     * method if seen, whether it is a batch, and whether it carries a result
+     * or an error. For a batch, the ID is that of its first element with one.
+     */
+    private record OversizedFrame(Object id, String method, boolean batch, boolean response) {
+    }
+
+    /**
+     * An output buffer made of chunks that double in size up to 1 MiB. Unlike
+     * {@link ByteArrayOutputStream}, growing never copies the bytes already
+     * written, which matters for frames carrying large binary tool results.
+     */
+    private static final class ChunkedOutputStream extends OutputStream {
+
+        private static final int FIRST_CHUNK = 8 * 1024;
+        private static final int MAX_CHUNK = 1024 * 1024;
+
+        private final List<byte[]> chunks = new ArrayList<>();
+        private byte[] current = new byte[FIRST_CHUNK];
+        private int position;
+        private int size;
+
+        @Override
+        public void write(int b) {
+            if (position == current.length) {
+                nextChunk();
+            }
+            current[position++] = (byte) b;
+            size++;
         }
-        if (process != null) {
-            return process.isAlive();
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                if (position == current.length) {
+                    nextChunk();
+                }
+                int n = Math.min(len, current.length - position);
+                System.arraycopy(b, off, current, position, n);
+                position += n;
+                size += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            for (byte[] chunk : chunks) {
+                out.write(chunk);
+            }
+            out.write(current, 0, position);
+        }
+
+        String toString(Charset charset) {
+            var all = new ByteArrayOutputStream(size);
+            try {
+                writeTo(all);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return all.toString(charset);
+        }
+
+        private void nextChunk() {
+            chunks.add(current);
+            current = new byte[Math.min(current.length * 2, MAX_CHUNK)];
+            position = 0;
         }
-        return false;
     }
 
-    public Process getProcess() {
-        return process;
+    /**
+     * The body of one frame: reads stop at the Content-Length, and closing the
+     * stream leaves the underlying stream open.
+     */
+    private static final class FrameBodyStream extends FilterInputStream {
+
+        private int remaining;
+
+        FrameBodyStream(InputStream in, int length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public void close() {
+            // The connection stays open
+        }
+
+        /**
+         * Skips to the end of the frame.
+         *
+         * @return {@code false} if the stream ended first
+         */
+        boolean skipRemaining() throws IOException {
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped > 0) {
+                    remaining -= (int) skipped;
+                } else if (read() == -1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
     }
 }
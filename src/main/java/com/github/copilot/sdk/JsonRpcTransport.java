@@ -0,0 +1,283 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * The byte stream a {@link JsonRpcClient} exchanges Content-Length framed
+ * messages over.
+ * <p>
+ * Three transports are available: the stdio pipes of a child process, a TCP
+ * {@link Socket}, and a Unix domain socket for a CLI server on the same host,
+ * which avoids the loopback network stack and does not expose a port. The
+ * client reads these on a dedicated reader thread. Transports registered with
+ * a {@link CopilotEventLoop} instead decode frames on a shared selector thread
+ * and deliver them through {@link #startReading(FrameListener)}.
+ *
+ * @since 1.0.12
+ */
+interface JsonRpcTransport extends AutoCloseable {
+
+    /**
+     * Returns the stream incoming frames are read from. Only the reader thread
+     * reads from it, and only if {@link #startReading(FrameListener)} returned
+     * {@code false}. Transports that deliver frames themselves return a stream
+     * that is already at end of input.
+     */
+    InputStream inputStream();
+
+    /**
+     * Returns the stream outgoing frames are written to. Writers are serialized
+     * by the client.
+     */
+    OutputStream outputStream();
+
+    /**
+     * Returns whether the other side is still reachable.
+     */
+    boolean isConnected();
+
+    /**
+     * Returns the child process behind this transport, or {@code null} if the
+     * server was not started by the SDK.
+     */
+    default Process process() {
+        return null;
+    }
+
+    /**
+     * Starts delivering incoming frames to the listener, if this transport reads
+     * on its own I/O threads. Frames are delivered one at a time, in the order
+     * they arrived.
+     *
+     * @return {@code true} if frames will be delivered, {@code false} if the
+     *         client must read {@link #inputStream()} itself
+     */
+    default boolean startReading(FrameListener listener) {
+        return false;
+    }
+
+    @Override
+    void close() throws IOException;
+
+    /** Receives the frames of a transport that reads on its own. */
+    @FunctionalInterface
+    interface FrameListener {
+
+        /**
+         * Called for each complete frame. The buffer is taken from
+         * {@link FrameBufferPool#shared()} on the transport's I/O thread, and
+         * the listener releases it with
+         * {@link FrameBufferPool#releaseShared(byte[])} once the frame has been
+         * parsed.
+         *
+         * @param buffer
+         *            holds the message body in its first {@code length} bytes
+         * @param length
+         *            the length of the message body
+         * @param frameSize
+         *            the size of the frame including its headers
+         */
+        void onFrame(byte[] buffer, int length, int frameSize);
+
+        /**
+         * Returns the largest message body that is buffered and delivered to
+         * {@link #onFrame}.
+         */
+        default int maxFrameSize() {
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Called instead of {@link #onFrame} for a frame whose body exceeds
+         * {@link #maxFrameSize()}. Only the first {@link #OVERSIZED_PREFIX_SIZE}
+         * bytes of the body are kept; the rest has been discarded. The buffer is
+         * released like that of {@link #onFrame}; by default the frame is
+         * dropped.
+         *
+         * @param prefix
+         *            holds the start of the message body in its first
+         *            {@code length} bytes
+         * @param length
+         *            the number of bytes kept
+         * @param frameSize
+         *            the size of the whole frame including its headers
+         */
+        default void onOversizedFrame(byte[] prefix, int length, int frameSize) {
+            FrameBufferPool.shared().releaseShared(prefix);
+        }
+
+        /** The number of bytes kept from the start of an oversized frame. */
+        int OVERSIZED_PREFIX_SIZE = 16 * 1024;
+    }
+
+    /**
+     * Creates a transport over the stdio pipes of a child process. Closing it
+     * destroys the process.
+     */
+    static JsonRpcTransport of(Process process) {
+        return new ProcessTransport(Objects.requireNonNull(process, "process"));
+    }
+
+    /**
+     * Creates a transport over a connected TCP socket.
+     * <p>
+     * Nagle's algorithm is turned off: each frame is written as a header and a
+     * body, and holding the body back until the header is acknowledged would
+     * stall every request for the peer's delayed-ACK timeout.
+     */
+    static JsonRpcTransport of(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        return new SocketTransport(socket, socket.getInputStream(), socket.getOutputStream());
+    }
+
+    /**
+     * Connects to a server listening on a Unix domain socket.
+     *
+     * @param socketPath
+     *            the path of the socket file
+     * @throws IOException
+     *             if the connection cannot be established
+     */
+    static JsonRpcTransport connect(Path socketPath) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return of(channel);
+    }
+
+    /**
+     * Creates a transport over a connected, blocking socket channel.
+     * <p>
+     * The streams read and write the channel directly rather than through
+     * {@link java.nio.channels.Channels#newInputStream}, whose streams share the
+     * channel's blocking lock and would block every write while the reader
+     * thread waits for input.
+     */
+    static JsonRpcTransport of(SocketChannel channel) {
+        return new ChannelTransport(channel);
+    }
+
+    /** Stdio pipes of a child process. */
+    record ProcessTransport(Process process) implements JsonRpcTransport {
+
+        @Override
+        public InputStream inputStream() {
+            return process.getInputStream();
+        }
+
+        @Override
+        public OutputStream outputStream() {
+            return process.getOutputStream();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return process.isAlive();
+        }
+
+        @Override
+        public void close() {
+            process.destroy();
+        }
+    }
+
+    /** A TCP socket. */
+    record SocketTransport(Socket socket, InputStream inputStream,
+            OutputStream outputStream) implements JsonRpcTransport {
+
+        @Override
+        public boolean isConnected() {
+            return socket.isConnected() && !socket.isClosed();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /** A socket channel, such as a Unix domain socket. */
+    final class ChannelTransport implements JsonRpcTransport {
+
+        private final SocketChannel channel;
+        private final InputStream in;
+        private final OutputStream out;
+
+        ChannelTransport(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    int n = read(b, 0, 1);
+                    return n == -1 ? -1 : b[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    Objects.checkFromIndexSize(off, len, b.length);
+                    if (len == 0) {
+                        return 0;
+                    }
+                    int n;
+                    do {
+                        n = channel.read(ByteBuffer.wrap(b, off, len));
+                    } while (n == 0);
+                    return n;
+                }
+            };
+            this.out = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    Objects.checkFromIndexSize(off, len, b.length);
+                    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream inputStream() {
+            return in;
+        }
+
+        @Override
+        public OutputStream outputStream() {
+            return out;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return channel.isConnected();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, fixed-size latency histogram.
+ * <p>
+ * Values are recorded in nanoseconds into log-linear buckets: each power of two
+ * is split into eight equally sized sub-buckets, so any reported percentile is
+ * within 12.5% of the true value. Recording is a handful of atomic increments
+ * and never allocates, which makes the histogram safe to use on hot paths such
+ * as the JSON-RPC reader thread.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var histogram = new LatencyHistogram();
+ * long start = System.nanoTime();
+ * doWork();
+ * histogram.record(System.nanoTime() - start);
+ *
+ * var snapshot = histogram.snapshot();
+ * System.out.println("p99: " + snapshot.percentileMillis(99.0) + " ms");
+ * }</pre>
+ *
+ * @since 1.0.12
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single observation.
+     *
+     * @param nanos
+     *            the observed latency in nanoseconds; negative values are
+     *            recorded as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Records a single observation in the given unit.
+     *
+     * @param duration
+     *            the observed latency
+     * @param unit
+     *            the unit of {@code duration}
+     */
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    /**
+     * Returns the number of recorded observations.
+     *
+     * @return the observation count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Takes a point-in-time copy of the histogram.
+     * <p>
+     * Concurrent recordings may or may not be reflected in the snapshot; the
+     * snapshot itself is immutable.
+     *
+     * @return a snapshot of the current state
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = buckets.get(i);
+        }
+        return new Snapshot(copy, count.sum(), sum.sum(), max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (msb - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int msb = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (msb - SUB_BUCKET_BITS);
+        long lower = (long) (SUB_BUCKETS + sub) << (msb - SUB_BUCKET_BITS);
+        return lower + width - 1;
+    }
+
+    /**
+     * An immutable point-in-time view of a {@link LatencyHistogram}.
+     *
+     * @since 1.0.12
+     */
+    public static final class Snapshot {
+
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of observations in this snapshot.
+         *
+         * @return the observation count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of all observations in nanoseconds.
+         *
+         * @return the total recorded time in nanoseconds
+         */
+        public long getTotalNanos() {
+            return sum;
+        }
+
+        /**
+         * Returns the largest observation in nanoseconds.
+         *
+         * @return the maximum, or {@code 0} if empty
+         */
+        public long getMaxNanos() {
+            return max;
+        }
+
+        /**
+         * Returns the arithmetic mean in nanoseconds.
+         *
+         * @return the mean, or {@code 0} if empty
+         */
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the value at the given percentile in nanoseconds.
+         *
+         * @param percentile
+         *            the percentile, between {@code 0} and {@code 100}
+         * @return the upper bound of the bucket containing the percentile, capped
+         *         at the recorded maximum, or {@code 0} if empty
+         */
+        public long percentileNanos(double percentile) {
+            long total = 0;
+            for (long b : buckets) {
+                total += b;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total);
+            rank = Math.max(1, rank);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Returns the value at the given percentile in milliseconds.
+         *
+         * @param percentile
+         *            the percentile, between {@code 0} and {@code 100}
+         * @return the percentile value in milliseconds
+         */
+        public double percentileMillis(double percentile) {
+            return percentileNanos(percentile) / 1_000_000.0;
+        }
+    }
+}
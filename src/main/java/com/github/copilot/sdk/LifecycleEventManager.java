@@ -4,10 +4,12 @@
 
 package com.github.copilot.sdk;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,14 +21,57 @@ import com.github.copilot.sdk.json.SessionLifecycleHandler;
  * <p>
  * This class handles registration/unregistration of lifecycle event handlers
  * and dispatches events to the appropriate handlers.
+ * <p>
+ * Handlers are stored in immutable copy-on-write arrays: subscribing or
+ * unsubscribing replaces the array under {@code handlersLock}, while
+ * {@link #dispatch(SessionLifecycleEvent)} only reads the current volatile
+ * snapshot, so dispatch takes no lock and allocates nothing.
+ * <p>
+ * By default handlers run inline on the calling (JSON-RPC reader) thread. When
+ * created with a positive number of delivery threads, events are handed off to
+ * a dedicated executor instead. Each session is pinned to a single delivery
+ * lane, so events for the same session are always delivered in the order they
+ * were dispatched.
  */
-final class LifecycleEventManager {
+final class LifecycleEventManager implements AutoCloseable {
 
     private static final Logger LOG = Logger.getLogger(LifecycleEventManager.class.getName());
+    private static final SessionLifecycleHandler[] NO_HANDLERS = new SessionLifecycleHandler[0];
 
-    private final List<SessionLifecycleHandler> wildcardHandlers = new ArrayList<>();
-    private final Map<String, List<SessionLifecycleHandler>> typedHandlers = new ConcurrentHashMap<>();
+    private volatile SessionLifecycleHandler[] wildcardHandlers = NO_HANDLERS;
+    private volatile Map<String, SessionLifecycleHandler[]> typedHandlers = Map.of();
     private final Object handlersLock = new Object();
+    private final ExecutorService[] deliveryLanes;
+
+    /**
+     * Creates a manager that delivers events inline on the dispatching thread.
+     */
+    LifecycleEventManager() {
+        this(0);
+    }
+
+    /**
+     * Creates a manager with the given number of asynchronous delivery threads.
+     *
+     * @param deliveryThreads
+     *            the number of dedicated delivery threads, or {@code 0} to deliver
+     *            events inline on the dispatching thread
+     */
+    LifecycleEventManager(int deliveryThreads) {
+        if (deliveryThreads <= 0) {
+            this.deliveryLanes = null;
+            return;
+        }
+        this.deliveryLanes = new ExecutorService[deliveryThreads];
+        for (int i = 0; i < deliveryThreads; i++) {
+            String name = "copilot-lifecycle-" + i;
+            deliveryLanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
 
     /**
      * Subscribes to all session lifecycle events.
@@ -37,11 +82,11 @@ final class LifecycleEventManager {
      */
     AutoCloseable subscribe(SessionLifecycleHandler handler) {
         synchronized (handlersLock) {
-            wildcardHandlers.add(handler);
+            wildcardHandlers = append(wildcardHandlers, handler);
         }
         return () -> {
             synchronized (handlersLock) {
-                wildcardHandlers.remove(handler);
+                wildcardHandlers = remove(wildcardHandlers, handler);
             }
         };
     }
@@ -57,48 +102,114 @@ final class LifecycleEventManager {
      */
     AutoCloseable subscribe(String eventType, SessionLifecycleHandler handler) {
         synchronized (handlersLock) {
-            typedHandlers.computeIfAbsent(eventType, k -> new ArrayList<>()).add(handler);
+            var updated = new HashMap<>(typedHandlers);
+            updated.put(eventType, append(updated.getOrDefault(eventType, NO_HANDLERS), handler));
+            typedHandlers = Map.copyOf(updated);
         }
         return () -> {
             synchronized (handlersLock) {
-                List<SessionLifecycleHandler> handlers = typedHandlers.get(eventType);
-                if (handlers != null) {
-                    handlers.remove(handler);
+                SessionLifecycleHandler[] handlers = typedHandlers.get(eventType);
+                if (handlers == null) {
+                    return;
                 }
+                var updated = new HashMap<>(typedHandlers);
+                SessionLifecycleHandler[] remaining = remove(handlers, handler);
+                if (remaining.length == 0) {
+                    updated.remove(eventType);
+                } else {
+                    updated.put(eventType, remaining);
+                }
+                typedHandlers = Map.copyOf(updated);
             }
         };
     }
 
     /**
      * Dispatches a lifecycle event to all registered handlers.
+     * <p>
+     * Typed handlers for the event's type run first, followed by wildcard
+     * handlers. In asynchronous mode this method only enqueues the event on the
+     * delivery lane owned by the event's session and returns immediately.
      *
      * @param event
      *            the lifecycle event to dispatch
      */
     void dispatch(SessionLifecycleEvent event) {
-        List<SessionLifecycleHandler> typed;
-        List<SessionLifecycleHandler> wildcard;
+        if (deliveryLanes == null) {
+            deliver(event);
+            return;
+        }
+        try {
+            deliveryLanes[laneFor(event.getSessionId())].execute(() -> deliver(event));
+        } catch (RejectedExecutionException e) {
+            LOG.log(Level.FINE, "Lifecycle event dropped after shutdown", e);
+        }
+    }
 
-        synchronized (handlersLock) {
-            List<SessionLifecycleHandler> handlers = typedHandlers.get(event.getType());
-            typed = handlers != null ? new ArrayList<>(handlers) : new ArrayList<>();
-            wildcard = new ArrayList<>(wildcardHandlers);
+    /**
+     * Returns whether events are delivered on dedicated threads.
+     *
+     * @return {@code true} if delivery is asynchronous
+     */
+    boolean isAsync() {
+        return deliveryLanes != null;
+    }
+
+    /**
+     * Stops the asynchronous delivery threads, if any. Events already queued are
+     * still delivered; events dispatched afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        if (deliveryLanes != null) {
+            for (ExecutorService lane : deliveryLanes) {
+                lane.shutdown();
+            }
         }
+    }
+
+    private void deliver(SessionLifecycleEvent event) {
+        SessionLifecycleHandler[] typed = typedHandlers.get(event.getType());
+        if (typed != null) {
+            invokeAll(typed, event);
+        }
+        invokeAll(wildcardHandlers, event);
+    }
 
-        for (SessionLifecycleHandler handler : typed) {
+    private int laneFor(String sessionId) {
+        return sessionId == null ? 0 : Math.floorMod(sessionId.hashCode(), deliveryLanes.length);
+    }
+
+    private static void invokeAll(SessionLifecycleHandler[] handlers, SessionLifecycleEvent event) {
+        for (SessionLifecycleHandler handler : handlers) {
             try {
                 handler.onLifecycleEvent(event);
             } catch (Exception e) {
                 LOG.log(Level.WARNING, "Lifecycle handler error", e);
             }
         }
+    }
 
-        for (SessionLifecycleHandler handler : wildcard) {
-            try {
-                handler.onLifecycleEvent(event);
-            } catch (Exception e) {
-                LOG.log(Level.WARNING, "Lifecycle handler error", e);
+    private static SessionLifecycleHandler[] append(SessionLifecycleHandler[] handlers,
+            SessionLifecycleHandler handler) {
+        SessionLifecycleHandler[] copy = Arrays.copyOf(handlers, handlers.length + 1);
+        copy[handlers.length] = handler;
+        return copy;
+    }
+
+    private static SessionLifecycleHandler[] remove(SessionLifecycleHandler[] handlers,
+            SessionLifecycleHandler handler) {
+        for (int i = 0; i < handlers.length; i++) {
+            if (handlers[i].equals(handler)) {
+                if (handlers.length == 1) {
+                    return NO_HANDLERS;
+                }
+                SessionLifecycleHandler[] copy = new SessionLifecycleHandler[handlers.length - 1];
+                System.arraycopy(handlers, 0, copy, 0, i);
+                System.arraycopy(handlers, i + 1, copy, i, handlers.length - i - 1);
+                return copy;
             }
         }
+        return handlers;
     }
 }
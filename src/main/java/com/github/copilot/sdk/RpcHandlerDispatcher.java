@@ -7,6 +7,7 @@ package com.github.copilot.sdk;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
@@ -45,6 +46,7 @@ final class RpcHandlerDispatcher {
 
     private final Map<String, CopilotSession> sessions;
     private final LifecycleEventDispatcher lifecycleDispatcher;
+    private final List<SessionEventObserver> eventObservers;
 
     /**
      * Creates a dispatcher with session registry and lifecycle dispatcher.
@@ -55,8 +57,27 @@ final class RpcHandlerDispatcher {
      *            callback for dispatching lifecycle events
      */
     RpcHandlerDispatcher(Map<String, CopilotSession> sessions, LifecycleEventDispatcher lifecycleDispatcher) {
+        this(sessions, lifecycleDispatcher, List.of());
+    }
+
+    /**
+     * Creates a dispatcher with session registry, lifecycle dispatcher and
+     * client-level session event observers.
+     *
+     * @param sessions
+     *            the session registry to look up sessions by ID
+     * @param lifecycleDispatcher
+     *            callback for dispatching lifecycle events
+     * @param eventObservers
+     *            observers notified of every session event before it is
+     *            dispatched to the session's handlers; the list is read on every
+     *            event, so it may be a live concurrent list
+     */
+    RpcHandlerDispatcher(Map<String, CopilotSession> sessions, LifecycleEventDispatcher lifecycleDispatcher,
+            List<SessionEventObserver> eventObservers) {
         this.sessions = sessions;
         this.lifecycleDispatcher = lifecycleDispatcher;
+        this.eventObservers = eventObservers;
     }
 
     /**
@@ -86,6 +107,14 @@ final class RpcHandlerDispatcher {
             if (session != null && eventNode != null) {
                 AbstractSessionEvent event = SessionEventParser.parse(eventNode);
                 if (event != null) {
+                    session.journalEvent(eventNode, event);
+                    for (SessionEventObserver observer : eventObservers) {
+                        try {
+                            observer.onEvent(session, event);
+                        } catch (Exception e) {
+                            LOG.log(Level.WARNING, "Error in session event observer", e);
+                        }
+                    }
                     session.dispatchEvent(event);
                 }
             }
@@ -140,7 +169,8 @@ final class RpcHandlerDispatcher {
                 var invocation = new ToolInvocation().setSessionId(sessionId).setToolCallId(toolCallId)
                         .setToolName(toolName).setArguments(arguments);
 
-                tool.handler().invoke(invocation).thenAccept(result -> {
+                CompletableFuture<Object> pending = session.invokeTool(tool, invocation);
+                pending.thenAccept(result -> {
                     try {
                         ToolResultObject toolResult;
                         if (result instanceof ToolResultObject tr) {
@@ -310,4 +340,13 @@ final class RpcHandlerDispatcher {
 
         void dispatch(SessionLifecycleEvent event);
     }
+
+    /**
+     * Functional interface for client-level observers of session events.
+     */
+    @FunctionalInterface
+    interface SessionEventObserver {
+
+        void onEvent(CopilotSession session, AbstractSessionEvent event);
+    }
 }
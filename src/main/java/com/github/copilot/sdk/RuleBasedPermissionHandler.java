@@ -0,0 +1,557 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.File;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import com.github.copilot.sdk.json.PermissionHandler;
+import com.github.copilot.sdk.json.PermissionInvocation;
+import com.github.copilot.sdk.json.PermissionRequest;
+import com.github.copilot.sdk.json.PermissionRequestResult;
+import com.github.copilot.sdk.json.PermissionRequestResultKind;
+
+/**
+ * A {@link PermissionHandler} that decides requests locally from a compiled
+ * rule set and caches the decisions of a slower delegate, such as a remote
+ * policy service.
+ * <p>
+ * Each rule allows or denies a permission kind, optionally restricted to a
+ * glob over the request's subject:
+ * <ul>
+ * <li>{@code read}: the {@code path}</li>
+ * <li>{@code write}: the {@code fileName}</li>
+ * <li>{@code shell}: the {@code fullCommandText}</li>
+ * <li>{@code url}: the {@code url}</li>
+ * <li>{@code mcp}: {@code <serverName>/<toolName>}</li>
+ * <li>{@code custom-tool}: the {@code toolName}</li>
+ * </ul>
+ * In globs, {@code *} matches any run of characters, including {@code /}, and
+ * {@code ?} matches a single character. The kind {@code "*"} matches every
+ * kind. Deny rules take precedence over allow rules.
+ * <p>
+ * Paths of {@code read} and {@code write} requests are normalized before they
+ * are matched, so {@code /workspace/../etc/passwd} is matched as
+ * {@code /etc/passwd}. Allow rules never approve a path that still contains a
+ * {@code ..} segment, or a command line that chains, substitutes or redirects
+ * commands ({@code ;}, {@code &}, {@code |}, {@code `}, {@code $(},
+ * {@code <}, {@code >} or a line break): a glob such as {@code "git status*"}
+ * would otherwise approve whatever follows the first command. Such requests
+ * are still checked against the deny rules and then passed to the delegate. Rules are compiled on
+ * first use into exact-match tables, prefix tries for globs whose only
+ * wildcard is a trailing {@code *}, and regular expressions for the rest.
+ * <p>
+ * Requests that match no rule are passed to the delegate. Its
+ * {@code approved} and {@code denied-interactively-by-user} decisions are
+ * cached per scope, kind and subject for the {@link #setCacheTtl TTL}, in a
+ * cache bounded to {@link #setMaxCacheEntries a number of entries} with least
+ * recently used eviction. Concurrent misses for the same key share one
+ * delegate call. Requests without a subject are never cached.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var permissions = new RuleBasedPermissionHandler(policyService::check).allow("read", "/workspace/*")
+ * 		.deny("shell", "rm *").allow("shell", "git status").setCacheTtl(Duration.ofMinutes(5))
+ * 		.setCacheScope(invocation -> tenantOf(invocation.getSessionId()));
+ *
+ * var session = client.createSession(new SessionConfig().setOnPermissionRequest(permissions)).get();
+ * }</pre>
+ *
+ * @see com.github.copilot.sdk.json.SessionConfig#setOnPermissionRequest(PermissionHandler)
+ * @since 1.0.12
+ */
+public class RuleBasedPermissionHandler implements PermissionHandler {
+
+    private static final String ANY_KIND = "*";
+
+    /** Shell syntax that chains, substitutes or redirects commands. */
+    private static final Pattern SHELL_OPERATORS = Pattern.compile("[;&|`<>\\n\\r]|\\$\\(");
+
+    private final PermissionHandler delegate;
+    private final LongSupplier clock;
+    private final List<Rule> rules = new ArrayList<>();
+    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder ruleDecisions = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder delegateCalls = new LongAdder();
+    private volatile Map<String, KindRules> compiled;
+    private volatile Duration cacheTtl = Duration.ofMinutes(5);
+    private volatile int maxCacheEntries = 10_000;
+    private volatile Function<PermissionInvocation, String> cacheScope = PermissionInvocation::getSessionId;
+
+    /**
+     * Counters of how requests were decided.
+     *
+     * @param ruleDecisions
+     *            requests decided by a rule
+     * @param cacheHits
+     *            requests answered from the cache
+     * @param delegateCalls
+     *            requests passed to the delegate
+     * @since 1.0.12
+     */
+    public record Stats(long ruleDecisions, long cacheHits, long delegateCalls) {
+    }
+
+    /**
+     * Creates a handler that falls through to a delegate.
+     *
+     * @param delegate
+     *            the handler for requests that match no rule, or {@code null}
+     *            to deny them
+     */
+    public RuleBasedPermissionHandler(PermissionHandler delegate) {
+        this(delegate, System::nanoTime);
+    }
+
+    RuleBasedPermissionHandler(PermissionHandler delegate, LongSupplier clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a rule that approves every request of a kind.
+     *
+     * @param kind
+     *            the permission kind, or {@code "*"} for all kinds
+     * @return this handler for method chaining
+     */
+    public RuleBasedPermissionHandler allow(String kind) {
+        return addRule(kind, null, true);
+    }
+
+    /**
+     * Adds a rule that approves requests of a kind whose subject matches a glob.
+     *
+     * @param kind
+     *            the permission kind, or {@code "*"} for all kinds
+     * @param subjectGlob
+     *            the glob over the request's subject
+     * @return this handler for method chaining
+     */
+    public RuleBasedPermissionHandler allow(String kind, String subjectGlob) {
+        return addRule(kind, requireGlob(subjectGlob), true);
+    }
+
+    /**
+     * Adds a rule that denies every request of a kind.
+     *
+     * @param kind
+     *            the permission kind, or {@code "*"} for all kinds
+     * @return this handler for method chaining
+     */
+    public RuleBasedPermissionHandler deny(String kind) {
+        return addRule(kind, null, false);
+    }
+
+    /**
+     * Adds a rule that denies requests of a kind whose subject matches a glob.
+     *
+     * @param kind
+     *            the permission kind, or {@code "*"} for all kinds
+     * @param subjectGlob
+     *            the glob over the request's subject
+     * @return this handler for method chaining
+     */
+    public RuleBasedPermissionHandler deny(String kind, String subjectGlob) {
+        return addRule(kind, requireGlob(subjectGlob), false);
+    }
+
+    /**
+     * Sets how long delegate decisions are cached.
+     * <p>
+     * Default: 5 minutes
+     *
+     * @param cacheTtl
+     *            the time to live, or {@link Duration#ZERO} to disable caching
+     * @return this handler for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code cacheTtl} is {@code null} or negative
+     */
+    public RuleBasedPermissionHandler setCacheTtl(Duration cacheTtl) {
+        if (cacheTtl == null || cacheTtl.isNegative()) {
+            throw new IllegalArgumentException("cacheTtl must not be null or negative");
+        }
+        this.cacheTtl = cacheTtl;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of cached decisions.
+     * <p>
+     * Default: 10000
+     *
+     * @param maxCacheEntries
+     *            the bound, at least 1
+     * @return this handler for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxCacheEntries} is less than 1
+     */
+    public RuleBasedPermissionHandler setMaxCacheEntries(int maxCacheEntries) {
+        if (maxCacheEntries < 1) {
+            throw new IllegalArgumentException("maxCacheEntries must be at least 1");
+        }
+        this.maxCacheEntries = maxCacheEntries;
+        return this;
+    }
+
+    /**
+     * Sets the function that derives the cache scope of a request. Decisions are
+     * only reused within the same scope.
+     * <p>
+     * Default: the session ID
+     *
+     * @param cacheScope
+     *            maps an invocation to its scope, e.g. a tenant ID
+     * @return this handler for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code cacheScope} is {@code null}
+     */
+    public RuleBasedPermissionHandler setCacheScope(Function<PermissionInvocation, String> cacheScope) {
+        if (cacheScope == null) {
+            throw new IllegalArgumentException("cacheScope must not be null");
+        }
+        this.cacheScope = cacheScope;
+        return this;
+    }
+
+    /**
+     * Removes every cached decision, e.g. after the delegate's policy changed.
+     */
+    public void invalidateCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns how requests have been decided so far.
+     *
+     * @return the counters
+     */
+    public Stats getStats() {
+        return new Stats(ruleDecisions.sum(), cacheHits.sum(), delegateCalls.sum());
+    }
+
+    @Override
+    public CompletableFuture<PermissionRequestResult> handle(PermissionRequest request,
+            PermissionInvocation invocation) {
+        String kind = request.getKind() != null ? request.getKind() : "";
+        String subject = subjectOf(kind, request.getExtensionData());
+        Boolean decision = evaluate(kind, subject, mayApprove(kind, subject));
+        if (decision != null) {
+            ruleDecisions.increment();
+            return CompletableFuture.completedFuture(new PermissionRequestResult().setKind(
+                    decision ? PermissionRequestResultKind.APPROVED : PermissionRequestResultKind.DENIED_BY_RULES));
+        }
+        if (delegate == null) {
+            return CompletableFuture.completedFuture(new PermissionRequestResult()
+                    .setKind(PermissionRequestResultKind.DENIED_COULD_NOT_REQUEST_FROM_USER));
+        }
+        long ttl = cacheTtl.toNanos();
+        if (subject == null || ttl == 0) {
+            delegateCalls.increment();
+            return delegate.handle(request, invocation);
+        }
+
+        String key = cacheScope.apply(invocation) + '\u0000' + kind + '\u0000' + subject;
+        long now = clock.getAsLong();
+        var entry = new CacheEntry(new CompletableFuture<>(), now + ttl);
+        synchronized (cache) {
+            CacheEntry cached = cache.get(key);
+            if (cached != null && now - cached.expiresNanos < 0) {
+                cacheHits.increment();
+                return cached.decision.thenApply(RuleBasedPermissionHandler::copy);
+            }
+            cache.put(key, entry);
+            evictOverflow(now);
+        }
+        delegateCalls.increment();
+        CompletableFuture<PermissionRequestResult> result;
+        try {
+            result = delegate.handle(request, invocation);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((decided, ex) -> {
+            if (ex != null || !isCacheable(decided)) {
+                synchronized (cache) {
+                    cache.remove(key, entry);
+                }
+            }
+            if (ex != null) {
+                entry.decision.completeExceptionally(ex);
+            } else {
+                entry.decision.complete(decided);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns {@code true} to approve, {@code false} to deny, or {@code null} if
+     * no rule matches. Allow rules are only consulted if {@code approvable}.
+     */
+    Boolean evaluate(String kind, String subject, boolean approvable) {
+        Map<String, KindRules> rulesByKind = compiled();
+        KindRules specific = rulesByKind.get(kind);
+        KindRules any = rulesByKind.get(ANY_KIND);
+        if ((specific != null && specific.deny.matches(subject)) || (any != null && any.deny.matches(subject))) {
+            return Boolean.FALSE;
+        }
+        if (!approvable) {
+            return null;
+        }
+        if ((specific != null && specific.allow.matches(subject)) || (any != null && any.allow.matches(subject))) {
+            return Boolean.TRUE;
+        }
+        return null;
+    }
+
+    static String subjectOf(String kind, Map<String, Object> data) {
+        if (data == null) {
+            return null;
+        }
+        return switch (kind) {
+            case "read" -> normalizePath(stringValue(data, "path"));
+            case "write" -> normalizePath(stringValue(data, "fileName"));
+            case "shell" -> stringValue(data, "fullCommandText");
+            case "url" -> stringValue(data, "url");
+            case "custom-tool" -> stringValue(data, "toolName");
+            case "mcp" -> {
+                String server = stringValue(data, "serverName");
+                String tool = stringValue(data, "toolName");
+                yield server != null && tool != null ? server + "/" + tool : null;
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns whether allow rules may approve a subject: paths must not escape
+     * through {@code ..} and command lines must consist of a single command.
+     */
+    static boolean mayApprove(String kind, String subject) {
+        if (subject == null) {
+            return true;
+        }
+        return switch (kind) {
+            case "read", "write" -> subject.indexOf('\0') < 0 && !hasParentSegment(subject);
+            case "shell" -> !SHELL_OPERATORS.matcher(subject).find();
+            default -> true;
+        };
+    }
+
+    private static String normalizePath(String path) {
+        if (path == null) {
+            return null;
+        }
+        try {
+            String normalized = Path.of(path).normalize().toString();
+            return File.separatorChar == '/' ? normalized : normalized.replace(File.separatorChar, '/');
+        } catch (InvalidPathException e) {
+            // Matched as given; mayApprove rejects it if it escapes
+            return path;
+        }
+    }
+
+    private static boolean hasParentSegment(String path) {
+        for (String segment : path.split("[/\\\\]")) {
+            if ("..".equals(segment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stringValue(Map<String, Object> data, String key) {
+        return data.get(key) instanceof String value ? value : null;
+    }
+
+    private static boolean isCacheable(PermissionRequestResult result) {
+        return result != null && (PermissionRequestResultKind.APPROVED.getValue().equals(result.getKind())
+                || PermissionRequestResultKind.DENIED_INTERACTIVELY_BY_USER.getValue().equals(result.getKind()));
+    }
+
+    private static PermissionRequestResult copy(PermissionRequestResult result) {
+        return new PermissionRequestResult().setKind(result.getKind()).setRules(result.getRules());
+    }
+
+    private static String requireGlob(String glob) {
+        if (glob == null || glob.isEmpty()) {
+            throw new IllegalArgumentException("subjectGlob must not be null or empty");
+        }
+        return glob;
+    }
+
+    private RuleBasedPermissionHandler addRule(String kind, String glob, boolean allow) {
+        if (kind == null || kind.isEmpty()) {
+            throw new IllegalArgumentException("kind must not be null or empty");
+        }
+        synchronized (rules) {
+            rules.add(new Rule(kind, glob, allow));
+            compiled = null;
+        }
+        return this;
+    }
+
+    private Map<String, KindRules> compiled() {
+        Map<String, KindRules> result = compiled;
+        if (result == null) {
+            synchronized (rules) {
+                result = compiled;
+                if (result == null) {
+                    var byKind = new HashMap<String, KindRules>();
+                    for (Rule rule : rules) {
+                        KindRules kindRules = byKind.computeIfAbsent(rule.kind, k -> new KindRules());
+                        (rule.allow ? kindRules.allow : kindRules.deny).add(rule.glob);
+                    }
+                    result = Map.copyOf(byKind);
+                    compiled = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops expired entries from the least recently used end and then evicts
+     * until the cache fits. Must hold the cache monitor.
+     */
+    private void evictOverflow(long now) {
+        Iterator<CacheEntry> it = cache.values().iterator();
+        int max = maxCacheEntries;
+        while (it.hasNext()) {
+            CacheEntry eldest = it.next();
+            if (cache.size() > max || now - eldest.expiresNanos >= 0) {
+                it.remove();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private record Rule(String kind, String glob, boolean allow) {
+    }
+
+    private record CacheEntry(CompletableFuture<PermissionRequestResult> decision, long expiresNanos) {
+    }
+
+    private static final class KindRules {
+        final Matcher allow = new Matcher();
+        final Matcher deny = new Matcher();
+    }
+
+    /**
+     * Matches a subject against the globs of one kind and effect.
+     */
+    private static final class Matcher {
+
+        private boolean matchAll;
+        private final Set<String> exact = new HashSet<>();
+        private final PrefixTrie prefixes = new PrefixTrie();
+        private final List<Pattern> patterns = new ArrayList<>();
+
+        void add(String glob) {
+            if (glob == null || "*".equals(glob)) {
+                matchAll = true;
+                return;
+            }
+            int star = glob.indexOf('*');
+            boolean hasQuestion = glob.indexOf('?') >= 0;
+            if (star < 0 && !hasQuestion) {
+                exact.add(glob);
+            } else if (star == glob.length() - 1 && !hasQuestion) {
+                prefixes.add(glob.substring(0, star));
+            } else {
+                patterns.add(toPattern(glob));
+            }
+        }
+
+        boolean matches(String subject) {
+            if (matchAll) {
+                return true;
+            }
+            if (subject == null) {
+                return false;
+            }
+            if (exact.contains(subject) || prefixes.matchesPrefixOf(subject)) {
+                return true;
+            }
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(subject).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static Pattern toPattern(String glob) {
+            var regex = new StringBuilder();
+            int literalStart = 0;
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (i > literalStart) {
+                        regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                    literalStart = i + 1;
+                }
+            }
+            if (literalStart < glob.length()) {
+                regex.append(Pattern.quote(glob.substring(literalStart)));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+
+    /**
+     * Character trie of literal prefixes.
+     */
+    private static final class PrefixTrie {
+
+        private final Map<Character, PrefixTrie> children = new HashMap<>();
+        private boolean terminal;
+
+        void add(String prefix) {
+            PrefixTrie node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), k -> new PrefixTrie());
+            }
+            node.terminal = true;
+        }
+
+        boolean matchesPrefixOf(String subject) {
+            PrefixTrie node = this;
+            for (int i = 0; node != null; i++) {
+                if (node.terminal) {
+                    return true;
+                }
+                if (i == subject.length()) {
+                    return false;
+                }
+                node = node.children.get(subject.charAt(i));
+            }
+            return false;
+        }
+    }
+}
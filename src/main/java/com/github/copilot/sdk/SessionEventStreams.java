@@ -0,0 +1,315 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.events.AbstractSessionEvent;
+import com.github.copilot.sdk.events.SessionEventParser;
+import com.github.copilot.sdk.json.GetMessagesOptions;
+
+/**
+ * Lazily parsed, ordered streams of session events.
+ * <p>
+ * Events are read one array element at a time, filtered on their {@code type}
+ * field and only then bound to event objects, so the full history is never
+ * held as a tree and as objects at the same time. In parallel mode the source
+ * is cut into chunks that are bound on a {@link ForkJoinPool}; at most two
+ * chunks per pool thread are in flight ahead of the consumer, and chunks are
+ * emitted in submission order.
+ */
+final class SessionEventStreams {
+
+    private static final Logger LOG = Logger.getLogger(SessionEventStreams.class.getName());
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    private SessionEventStreams() {
+    }
+
+    /**
+     * Streams the events of a raw {@code session.getMessages} response frame,
+     * tokenizing {@code result.events} as the stream is consumed.
+     *
+     * @param frame
+     *            the UTF-8 bytes of the JSON-RPC response
+     * @param options
+     *            the stream options
+     * @return the ordered events
+     * @throws IOException
+     *             if the frame is not a JSON object
+     */
+    static Stream<AbstractSessionEvent> fromResponse(byte[] frame, GetMessagesOptions options) throws IOException {
+        JsonParser parser = MAPPER.getFactory().createParser(frame);
+        try {
+            boolean found = seekEvents(parser);
+            Iterator<JsonNode> elements = found ? new ArrayElements(parser) : Collections.emptyIterator();
+            return stream(elements, node -> node, options).onClose(() -> closeQuietly(parser));
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(parser);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams already materialized event trees.
+     *
+     * @param nodes
+     *            the event JSON
+     * @param options
+     *            the stream options
+     * @return the ordered events
+     */
+    static Stream<AbstractSessionEvent> fromNodes(List<JsonNode> nodes, GetMessagesOptions options) {
+        return stream(nodes.iterator(), node -> node, options);
+    }
+
+    /**
+     * Streams journaled event records; each record is only parsed when it is
+     * bound, so parallel mode parallelizes tokenizing as well.
+     *
+     * @param records
+     *            the event JSON records, oldest first
+     * @param options
+     *            the stream options
+     * @return the ordered events
+     */
+    static Stream<AbstractSessionEvent> fromRecords(List<byte[]> records, GetMessagesOptions options) {
+        return stream(records.iterator(), json -> {
+            try {
+                return MAPPER.readTree(json);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to parse journaled event", e);
+                return null;
+            }
+        }, options);
+    }
+
+    private static <T> Stream<AbstractSessionEvent> stream(Iterator<T> source, Function<T, JsonNode> toTree,
+            GetMessagesOptions options) {
+        Set<String> types = options.getEventTypes();
+        Function<T, AbstractSessionEvent> binder = element -> {
+            JsonNode node = toTree.apply(element);
+            if (node == null) {
+                return null;
+            }
+            if (types != null) {
+                JsonNode type = node.get("type");
+                if (type == null || !types.contains(type.asText())) {
+                    return null;
+                }
+            }
+            return SessionEventParser.parse(node);
+        };
+        Iterator<AbstractSessionEvent> events;
+        Runnable onClose;
+        if (options.isParallel()) {
+            ForkJoinPool pool = options.getPool() != null ? options.getPool() : ForkJoinPool.commonPool();
+            var parallel = new ParallelEvents<>(source, binder, pool, options.getChunkSize());
+            events = parallel;
+            onClose = parallel::cancel;
+        } else {
+            events = new SequentialEvents<>(source, binder);
+            onClose = () -> {
+            };
+        }
+        Spliterator<AbstractSessionEvent> spliterator = Spliterators.spliteratorUnknownSize(events,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(onClose);
+    }
+
+    /**
+     * Advances the parser to the start of the {@code result.events} array.
+     */
+    private static boolean seekEvents(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON-RPC response object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("result".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String resultField = parser.currentName();
+                    if (parser.nextToken() == JsonToken.START_ARRAY && "events".equals(resultField)) {
+                        return true;
+                    }
+                    parser.skipChildren();
+                }
+                return false;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static void closeQuietly(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Failed to close parser", e);
+        }
+    }
+
+    /**
+     * Reads the elements of the array the parser is positioned in, one tree at a
+     * time.
+     */
+    private static final class ArrayElements implements Iterator<JsonNode> {
+
+        private final JsonParser parser;
+        private JsonNode next;
+        private boolean done;
+
+        ArrayElements(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        next = MAPPER.readTree(parser);
+                    } else {
+                        done = true;
+                    }
+                } catch (IOException e) {
+                    done = true;
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public JsonNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            JsonNode result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    private static final class SequentialEvents<T> implements Iterator<AbstractSessionEvent> {
+
+        private final Iterator<T> source;
+        private final Function<T, AbstractSessionEvent> binder;
+        private AbstractSessionEvent next;
+
+        SequentialEvents(Iterator<T> source, Function<T, AbstractSessionEvent> binder) {
+            this.source = source;
+            this.binder = binder;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && source.hasNext()) {
+                next = binder.apply(source.next());
+            }
+            return next != null;
+        }
+
+        @Override
+        public AbstractSessionEvent next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            AbstractSessionEvent result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    private static final class ParallelEvents<T> implements Iterator<AbstractSessionEvent> {
+
+        private final Iterator<T> source;
+        private final Function<T, AbstractSessionEvent> binder;
+        private final ForkJoinPool pool;
+        private final int chunkSize;
+        private final int maxPending;
+        private final ArrayDeque<ForkJoinTask<List<AbstractSessionEvent>>> pending = new ArrayDeque<>();
+        private Iterator<AbstractSessionEvent> current = Collections.emptyIterator();
+
+        ParallelEvents(Iterator<T> source, Function<T, AbstractSessionEvent> binder, ForkJoinPool pool,
+                int chunkSize) {
+            this.source = source;
+            this.binder = binder;
+            this.pool = pool;
+            this.chunkSize = chunkSize;
+            this.maxPending = Math.max(2, pool.getParallelism() * 2);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                fill();
+                ForkJoinTask<List<AbstractSessionEvent>> task = pending.poll();
+                if (task == null) {
+                    return false;
+                }
+                current = task.join().iterator();
+                fill();
+            }
+            return true;
+        }
+
+        @Override
+        public AbstractSessionEvent next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        void cancel() {
+            ForkJoinTask<List<AbstractSessionEvent>> task;
+            while ((task = pending.poll()) != null) {
+                task.cancel(false);
+            }
+        }
+
+        private void fill() {
+            while (pending.size() < maxPending && source.hasNext()) {
+                var chunk = new ArrayList<T>(chunkSize);
+                while (chunk.size() < chunkSize && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+                pending.add(pool.submit(() -> {
+                    var events = new ArrayList<AbstractSessionEvent>(chunk.size());
+                    for (T element : chunk) {
+                        AbstractSessionEvent event = binder.apply(element);
+                        if (event != null) {
+                            events.add(event);
+                        }
+                    }
+                    return events;
+                }));
+            }
+        }
+    }
+}
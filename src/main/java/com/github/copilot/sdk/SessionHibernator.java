@@ -0,0 +1,485 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.copilot.sdk.events.AbstractSessionEvent;
+import com.github.copilot.sdk.events.AssistantTurnStartEvent;
+import com.github.copilot.sdk.events.SessionErrorEvent;
+import com.github.copilot.sdk.events.SessionIdleEvent;
+import com.github.copilot.sdk.events.UserMessageEvent;
+import com.github.copilot.sdk.json.ResumeSessionConfig;
+import com.github.copilot.sdk.json.SessionConfig;
+
+/**
+ * Keeps a large number of logical sessions while only a bounded number of them
+ * are live, by hibernating idle sessions and resuming them on demand.
+ * <p>
+ * Every session managed by the hibernator is remembered by its ID together
+ * with the configuration needed to resume it. A session that has not been
+ * accessed and has not received events for the {@link #setIdleTimeout idle
+ * timeout} is hibernated: it is closed, which destroys it on the server and
+ * releases its handlers, and it is removed from the client. When more than
+ * {@link #setMaxLiveSessions the maximum} sessions are live, the least recently
+ * used idle sessions are hibernated as well. Sessions in the middle of a turn
+ * are never hibernated.
+ * <p>
+ * {@link #get(String)} returns the live session, transparently resuming a
+ * hibernated one. Because a hibernated session object is closed, callers
+ * should look sessions up through {@link #get(String)} on every access instead
+ * of holding on to them, and register event handlers through
+ * {@link SessionConfig#setOnEvent} so that they are installed again on resume.
+ * Resume latency is reported to the client's {@link CopilotMetrics}.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var sessions = new SessionHibernator(client).setIdleTimeout(Duration.ofMinutes(5)).setMaxLiveSessions(500);
+ *
+ * String id = sessions.create(config).get().getSessionId();
+ * // later, possibly after the session was hibernated
+ * sessions.get(id).get().sendAndWait(new MessageOptions().setPrompt("Continue")).get();
+ * }</pre>
+ *
+ * @see CopilotClient#resumeSession(String, ResumeSessionConfig)
+ * @since 1.0.12
+ */
+public class SessionHibernator implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(SessionHibernator.class.getName());
+    private static final long MIN_SWEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_SWEEP_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Function<SessionConfig, CompletableFuture<CopilotSession>> creator;
+    private final BiFunction<String, ResumeSessionConfig, CompletableFuture<CopilotSession>> resumer;
+    private final Consumer<CopilotSession> closer;
+    private final CopilotMetrics metrics;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService executor;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final LinkedHashMap<String, Entry> live = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hibernations = new LongAdder();
+    private final LongAdder resumes = new LongAdder();
+    private final LongAdder resumeFailures = new LongAdder();
+    private volatile Duration idleTimeout = Duration.ofMinutes(10);
+    private volatile int maxLiveSessions;
+    private boolean closed;
+
+    /**
+     * Snapshot of the hibernator's state.
+     *
+     * @param liveSessions
+     *            sessions that are live or being resumed
+     * @param hibernatedSessions
+     *            sessions that are hibernated
+     * @param hibernations
+     *            sessions hibernated so far
+     * @param resumes
+     *            hibernated sessions resumed so far
+     * @param resumeFailures
+     *            resumes that failed
+     * @since 1.0.12
+     */
+    public record Stats(int liveSessions, int hibernatedSessions, long hibernations, long resumes,
+            long resumeFailures) {
+    }
+
+    /**
+     * Creates a hibernator for the sessions of a client, with a ten minute idle
+     * timeout and no bound on live sessions.
+     *
+     * @param client
+     *            the client that creates and resumes the sessions
+     */
+    public SessionHibernator(CopilotClient client) {
+        this(client::createSession, client::resumeSession, session -> {
+            session.close();
+            client.forgetSession(session);
+        }, client.getMetrics(), System::nanoTime);
+    }
+
+    SessionHibernator(Function<SessionConfig, CompletableFuture<CopilotSession>> creator,
+            BiFunction<String, ResumeSessionConfig, CompletableFuture<CopilotSession>> resumer,
+            Consumer<CopilotSession> closer, CopilotMetrics metrics, LongSupplier clock) {
+        this.creator = creator;
+        this.resumer = resumer;
+        this.closer = closer;
+        this.metrics = metrics != null ? metrics : CopilotMetrics.NOOP;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "copilot-hibernation");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduleSweep();
+    }
+
+    /**
+     * Sets how long a session must go without being accessed or receiving
+     * events before it is hibernated.
+     * <p>
+     * Default: 10 minutes
+     *
+     * @param idleTimeout
+     *            the idle timeout
+     * @return this hibernator for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code idleTimeout} is {@code null}, zero or negative
+     */
+    public SessionHibernator setIdleTimeout(Duration idleTimeout) {
+        if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("idleTimeout must be positive");
+        }
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of live sessions. When it is exceeded, the least
+     * recently used idle sessions are hibernated.
+     * <p>
+     * Default: 0 (unlimited)
+     *
+     * @param maxLiveSessions
+     *            the bound, or {@code 0} for no bound
+     * @return this hibernator for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxLiveSessions} is negative
+     */
+    public SessionHibernator setMaxLiveSessions(int maxLiveSessions) {
+        if (maxLiveSessions < 0) {
+            throw new IllegalArgumentException("maxLiveSessions must not be negative");
+        }
+        this.maxLiveSessions = maxLiveSessions;
+        return this;
+    }
+
+    /**
+     * Creates a session and manages it. It is resumed with the same
+     * configuration after hibernation, without a {@code session.resume} event.
+     *
+     * @param config
+     *            the session configuration
+     * @return a future that resolves with the created session
+     */
+    public CompletableFuture<CopilotSession> create(SessionConfig config) {
+        return creator.apply(config).thenApply(session -> {
+            register(session, toResumeConfig(config));
+            return session;
+        });
+    }
+
+    /**
+     * Manages a session that was created or resumed directly on the client.
+     *
+     * @param session
+     *            the live session
+     * @param config
+     *            the configuration used to resume the session after hibernation
+     * @throws IllegalArgumentException
+     *             if {@code config} is {@code null}
+     */
+    public void register(CopilotSession session, ResumeSessionConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config must not be null");
+        }
+        var entry = new Entry(session.getSessionId(), config);
+        synchronized (this) {
+            Entry previous = entries.put(entry.sessionId, entry);
+            if (previous != null) {
+                unsubscribe(previous);
+            }
+            entry.session = CompletableFuture.completedFuture(session);
+            live.put(entry.sessionId, entry);
+        }
+        subscribe(entry, session);
+        enforceLimit();
+    }
+
+    /**
+     * Returns a managed session, resuming it if it is hibernated. Concurrent
+     * calls for a hibernated session share a single resume.
+     *
+     * @param sessionId
+     *            the session ID
+     * @return a future that resolves with the live session, or fails with
+     *         {@link IllegalArgumentException} if the session is not managed
+     */
+    public CompletableFuture<CopilotSession> get(String sessionId) {
+        CompletableFuture<CopilotSession> result;
+        boolean resuming = false;
+        synchronized (this) {
+            Entry entry = entries.get(sessionId);
+            if (entry == null) {
+                return CompletableFuture
+                        .failedFuture(new IllegalArgumentException("Session " + sessionId + " is not managed"));
+            }
+            entry.lastAccessNanos = clock.getAsLong();
+            live.put(sessionId, entry);
+            if (entry.session == null) {
+                result = resume(entry);
+                resuming = true;
+            } else {
+                result = entry.session;
+            }
+        }
+        if (resuming) {
+            enforceLimit();
+        }
+        return result;
+    }
+
+    /**
+     * Hibernates a live session now, unless it is in the middle of a turn.
+     *
+     * @param sessionId
+     *            the session ID
+     * @return a future that completes when the hibernated session has been
+     *         closed, or immediately if the session stays live
+     */
+    public CompletableFuture<Void> hibernate(String sessionId) {
+        synchronized (this) {
+            Entry entry = entries.get(sessionId);
+            if (entry == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            hibernate(entry);
+            return entry.session == null ? entry.closing : CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Stops managing a session. A live session is left open.
+     *
+     * @param sessionId
+     *            the session ID
+     */
+    public void remove(String sessionId) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(sessionId);
+            live.remove(sessionId);
+        }
+        if (entry != null) {
+            unsubscribe(entry);
+        }
+    }
+
+    /**
+     * Returns whether a managed session is live or being resumed.
+     *
+     * @param sessionId
+     *            the session ID
+     * @return {@code true} if the session is live
+     */
+    public synchronized boolean isLive(String sessionId) {
+        return live.containsKey(sessionId);
+    }
+
+    /**
+     * Returns a snapshot of the hibernator's state.
+     *
+     * @return the statistics
+     */
+    public synchronized Stats getStats() {
+        return new Stats(live.size(), entries.size() - live.size(), hibernations.sum(), resumes.sum(),
+                resumeFailures.sum());
+    }
+
+    /**
+     * Stops hibernating sessions. Live sessions stay open and are closed with
+     * the client.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hibernates idle sessions. Runs on the hibernator's thread.
+     */
+    void sweep() {
+        long now = clock.getAsLong();
+        long timeout = idleTimeout.toNanos();
+        synchronized (this) {
+            for (Entry entry : new ArrayList<>(live.values())) {
+                if (now - entry.lastAccessNanos >= timeout) {
+                    hibernate(entry);
+                }
+            }
+        }
+        enforceLimit();
+    }
+
+    private void scheduleSweep() {
+        long period = Math.max(MIN_SWEEP_NANOS, Math.min(MAX_SWEEP_NANOS, idleTimeout.toNanos() / 4));
+        try {
+            executor.schedule(() -> {
+                try {
+                    sweep();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Session hibernation sweep failed", e);
+                }
+                scheduleSweep();
+            }, period, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed
+        }
+    }
+
+    private synchronized void enforceLimit() {
+        int max = maxLiveSessions;
+        if (max == 0 || live.size() <= max) {
+            return;
+        }
+        // Iterates from the least recently used
+        List<Entry> candidates = new ArrayList<>(live.values());
+        for (int i = 0; i < candidates.size() && live.size() > max; i++) {
+            hibernate(candidates.get(i));
+        }
+    }
+
+    /**
+     * Closes a live, idle session. Must hold the monitor.
+     */
+    private boolean hibernate(Entry entry) {
+        CompletableFuture<CopilotSession> current = entry.session;
+        if (closed || current == null || !current.isDone() || current.isCompletedExceptionally() || entry.busy) {
+            return false;
+        }
+        CopilotSession session = current.join();
+        entry.session = null;
+        live.remove(entry.sessionId);
+        unsubscribe(entry);
+        entry.closing = CompletableFuture.runAsync(() -> {
+            try {
+                closer.accept(session);
+            } catch (RuntimeException e) {
+                LOG.log(Level.FINE, "Error hibernating session " + entry.sessionId, e);
+            }
+        }, executor);
+        hibernations.increment();
+        metrics.sessionHibernated(entry.sessionId);
+        return true;
+    }
+
+    /**
+     * Starts resuming a hibernated session once its close has completed. Must
+     * hold the monitor.
+     */
+    private CompletableFuture<CopilotSession> resume(Entry entry) {
+        var result = new CompletableFuture<CopilotSession>();
+        entry.session = result;
+        long start = clock.getAsLong();
+        entry.closing.thenCompose(v -> resumer.apply(entry.sessionId, entry.config))
+                .whenComplete((session, ex) -> {
+                    long duration = clock.getAsLong() - start;
+                    metrics.sessionResumed(entry.sessionId, duration, ex == null);
+                    if (ex != null) {
+                        resumeFailures.increment();
+                        synchronized (this) {
+                            if (entry.session == result) {
+                                entry.session = null;
+                                live.remove(entry.sessionId);
+                            }
+                        }
+                        result.completeExceptionally(ex);
+                        return;
+                    }
+                    resumes.increment();
+                    subscribe(entry, session);
+                    result.complete(session);
+                });
+        return result;
+    }
+
+    private void subscribe(Entry entry, CopilotSession session) {
+        entry.busy = false;
+        entry.lastAccessNanos = clock.getAsLong();
+        Closeable subscription = session.on(event -> onEvent(entry, event));
+        synchronized (this) {
+            entry.subscription = subscription;
+        }
+    }
+
+    private static void unsubscribe(Entry entry) {
+        Closeable subscription = entry.subscription;
+        entry.subscription = null;
+        if (subscription != null) {
+            try {
+                subscription.close();
+            } catch (IOException e) {
+                // Handler removal does not fail
+            }
+        }
+    }
+
+    private void onEvent(Entry entry, AbstractSessionEvent event) {
+        entry.lastAccessNanos = clock.getAsLong();
+        if (event instanceof UserMessageEvent || event instanceof AssistantTurnStartEvent) {
+            entry.busy = true;
+        } else if (event instanceof SessionIdleEvent || event instanceof SessionErrorEvent) {
+            entry.busy = false;
+        }
+    }
+
+    private static ResumeSessionConfig toResumeConfig(SessionConfig config) {
+        return new ResumeSessionConfig().setClientName(config.getClientName()).setModel(config.getModel())
+                .setReasoningEffort(config.getReasoningEffort()).setTools(config.getTools())
+                .setSystemMessage(config.getSystemMessage()).setAvailableTools(config.getAvailableTools())
+                .setExcludedTools(config.getExcludedTools()).setProvider(config.getProvider())
+                .setOnPermissionRequest(config.getOnPermissionRequest())
+                .setOnUserInputRequest(config.getOnUserInputRequest()).setHooks(config.getHooks())
+                .setWorkingDirectory(config.getWorkingDirectory()).setConfigDir(config.getConfigDir())
+                .setStreaming(config.isStreaming()).setMcpServers(config.getMcpServers())
+                .setCustomAgents(config.getCustomAgents()).setAgent(config.getAgent())
+                .setSkillDirectories(config.getSkillDirectories()).setDisabledSkills(config.getDisabledSkills())
+                .setInfiniteSessions(config.getInfiniteSessions()).setOnEvent(config.getOnEvent())
+                .setDisableResume(true);
+    }
+
+    /**
+     * A managed session. {@code session}, {@code closing} and
+     * {@code subscription} are guarded by the hibernator's monitor.
+     */
+    private static final class Entry {
+
+        final String sessionId;
+        final ResumeSessionConfig config;
+        CompletableFuture<CopilotSession> session;
+        CompletableFuture<Void> closing = CompletableFuture.completedFuture(null);
+        Closeable subscription;
+        volatile long lastAccessNanos;
+        volatile boolean busy;
+
+        Entry(String sessionId, ResumeSessionConfig config) {
+            this.sessionId = sessionId;
+            this.config = config;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only, segmented journal of the session events dispatched to a single
+ * session, stored in memory-mapped files.
+ * <p>
+ * Each segment is a file of a fixed size named after its sequence number.
+ * Records are laid out as
+ * {@code [int length][long idMsb][long idLsb][length bytes of event JSON]}.
+ * The length is written last, so a record that was torn by a crash is ignored
+ * when the journal is reopened: recovery scans each segment until it finds a
+ * zero length. A record that does not fit into the remaining space of the
+ * current segment starts a new segment, which is enlarged if the record is
+ * bigger than the configured segment size.
+ * <p>
+ * A journal is <em>synced</em> when it is known to contain every persisted
+ * event of the session, i.e. it was created together with the session. A
+ * journal reopened for a resumed session is stale until
+ * {@link CopilotSession#getMessages()} has appended the tail of the server's
+ * history after {@link #getLastEventId()}; while stale, live events are not
+ * appended.
+ * <p>
+ * All methods are synchronized. Writes go to the page cache and are forced to
+ * disk when the journal is closed.
+ */
+final class SessionJournal implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(SessionJournal.class.getName());
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private MappedByteBuffer current;
+    private long records;
+    private UUID lastEventId;
+    private boolean synced;
+    private boolean closed;
+
+    private SessionJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal of a session, recovering any existing segments.
+     *
+     * @param root
+     *            the journal root directory
+     * @param sessionId
+     *            the session ID
+     * @param segmentSize
+     *            the size of new segment files in bytes
+     * @return the opened journal; it is synced if it is empty
+     * @throws IOException
+     *             if the journal cannot be created or read
+     */
+    static SessionJournal open(Path root, String sessionId, int segmentSize) throws IOException {
+        var journal = new SessionJournal(directoryOf(root, sessionId), segmentSize);
+        Files.createDirectories(journal.directory);
+        journal.recover();
+        journal.synced = journal.records == 0;
+        return journal;
+    }
+
+    /**
+     * Deletes the journal of a session, if there is one.
+     *
+     * @param root
+     *            the journal root directory
+     * @param sessionId
+     *            the session ID
+     */
+    static void delete(Path root, String sessionId) {
+        Path dir = directoryOf(root, sessionId);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to delete event journal " + dir, e);
+        }
+    }
+
+    static Path directoryOf(Path root, String sessionId) {
+        return root.resolve(sessionId.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    /**
+     * Appends an event, unless the journal is stale or the event is the last
+     * one appended.
+     *
+     * @param json
+     *            the event JSON
+     * @param id
+     *            the event ID, or {@code null}
+     * @return {@code true} if the event was appended
+     */
+    synchronized boolean append(byte[] json, UUID id) {
+        if (closed || !synced || (id != null && id.equals(lastEventId))) {
+            return false;
+        }
+        write(json, id);
+        return true;
+    }
+
+    /**
+     * Appends events fetched from the server after the last journaled event and
+     * marks the journal as synced. If the last journaled event is not part of the
+     * server history, the journal is discarded and rebuilt from the full history.
+     *
+     * @param history
+     *            the server's history as event JSON, oldest first
+     * @param ids
+     *            the event IDs matching {@code history}
+     * @throws IOException
+     *             if a diverged journal cannot be discarded
+     */
+    synchronized void catchUp(List<byte[]> history, List<UUID> ids) throws IOException {
+        if (closed) {
+            return;
+        }
+        int from = 0;
+        if (lastEventId != null) {
+            int last = ids.lastIndexOf(lastEventId);
+            if (last < 0) {
+                LOG.fine("Journal of " + directory + " diverged from server history; rebuilding");
+                reset();
+            } else {
+                from = last + 1;
+            }
+        }
+        for (int i = from; i < history.size(); i++) {
+            write(history.get(i), ids.get(i));
+        }
+        synced = true;
+    }
+
+    /**
+     * Returns every journaled event JSON, oldest first.
+     *
+     * @return the raw records
+     */
+    synchronized List<byte[]> readAll() {
+        var result = new ArrayList<byte[]>((int) Math.min(records, Integer.MAX_VALUE));
+        for (MappedByteBuffer segment : segments) {
+            var view = segment.duplicate();
+            int pos = 0;
+            int end = segment == current ? current.position() : view.capacity();
+            while (pos + HEADER_SIZE <= end) {
+                int length = view.getInt(pos);
+                if (length <= 0) {
+                    break;
+                }
+                var json = new byte[length];
+                view.get(pos + HEADER_SIZE, json);
+                result.add(json);
+                pos += HEADER_SIZE + length;
+            }
+        }
+        return result;
+    }
+
+    synchronized boolean isSynced() {
+        return synced;
+    }
+
+    synchronized void markStale() {
+        synced = false;
+    }
+
+    synchronized long size() {
+        return records;
+    }
+
+    synchronized UUID getLastEventId() {
+        return lastEventId;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        segments.clear();
+        current = null;
+    }
+
+    private void recover() throws IOException {
+        var files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (Path file : files) {
+            MappedByteBuffer segment = map(file, Files.size(file));
+            int pos = 0;
+            while (pos + HEADER_SIZE <= segment.capacity()) {
+                int length = segment.getInt(pos);
+                if (length <= 0 || pos + HEADER_SIZE + length > segment.capacity()) {
+                    break;
+                }
+                long msb = segment.getLong(pos + Integer.BYTES);
+                long lsb = segment.getLong(pos + Integer.BYTES + Long.BYTES);
+                lastEventId = msb == 0 && lsb == 0 ? null : new UUID(msb, lsb);
+                records++;
+                pos += HEADER_SIZE + length;
+            }
+            segment.position(pos);
+            segments.add(segment);
+            current = segment;
+        }
+    }
+
+    private void write(byte[] json, UUID id) {
+        int needed = HEADER_SIZE + json.length;
+        try {
+            if (current == null || current.remaining() < needed) {
+                Path file = directory.resolve(String.format("%020d%s", segments.size(), SUFFIX));
+                current = map(file, Math.max(segmentSize, needed));
+                segments.add(current);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to allocate event journal segment in " + directory, e);
+            synced = false;
+            return;
+        }
+        int pos = current.position();
+        current.putLong(pos + Integer.BYTES, id != null ? id.getMostSignificantBits() : 0);
+        current.putLong(pos + Integer.BYTES + Long.BYTES, id != null ? id.getLeastSignificantBits() : 0);
+        current.put(pos + HEADER_SIZE, json);
+        // Publish the record by writing its length last
+        current.putInt(pos, json.length);
+        current.position(pos + needed);
+        records++;
+        lastEventId = id;
+    }
+
+    private void reset() throws IOException {
+        segments.clear();
+        current = null;
+        records = 0;
+        lastEventId = null;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        }
+    }
+}
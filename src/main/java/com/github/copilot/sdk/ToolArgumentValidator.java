@@ -0,0 +1,409 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.copilot.sdk.json.ToolDefinition;
+
+/**
+ * Validates tool arguments against the tool's JSON schema.
+ * <p>
+ * The schema is compiled once into a tree of checks; validation walks the
+ * argument tree without reflection or schema lookups. The supported keywords
+ * are the ones tool schemas use in practice: {@code type}, {@code enum},
+ * {@code const}, {@code properties}, {@code required},
+ * {@code additionalProperties}, {@code items}, {@code minItems},
+ * {@code maxItems}, {@code uniqueItems}, {@code minLength}, {@code maxLength},
+ * {@code pattern}, {@code minimum}, {@code maximum}, {@code exclusiveMinimum},
+ * {@code exclusiveMaximum}, {@code multipleOf}, {@code allOf}, {@code anyOf},
+ * {@code oneOf} and {@code not}. Other keywords, including {@code $ref}, are
+ * ignored, so an unsupported schema never rejects valid arguments.
+ * <p>
+ * Compiled validators are cached per {@link ToolDefinition}, so sessions that
+ * register the same tools share them.
+ */
+final class ToolArgumentValidator {
+
+    private static final Logger LOG = Logger.getLogger(ToolArgumentValidator.class.getName());
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+    private static final JsonNode EMPTY_OBJECT = JsonNodeFactory.instance.objectNode();
+    private static final int MAX_ERRORS = 5;
+    private static final Map<ToolDefinition, ToolArgumentValidator> CACHE = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    private final Check root;
+
+    private ToolArgumentValidator(Check root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the validator for a tool's parameter schema.
+     *
+     * @param tool
+     *            the tool definition
+     * @return the validator, or {@code null} if the tool has no usable schema
+     */
+    static ToolArgumentValidator forTool(ToolDefinition tool) {
+        if (tool.parameters() == null) {
+            return null;
+        }
+        return CACHE.computeIfAbsent(tool, t -> {
+            try {
+                return compile(MAPPER.valueToTree(t.parameters()));
+            } catch (IllegalArgumentException e) {
+                LOG.log(Level.WARNING, "Schema of tool " + t.name() + " cannot be compiled; not validating", e);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Compiles a JSON schema.
+     *
+     * @param schema
+     *            the schema
+     * @return the validator
+     */
+    static ToolArgumentValidator compile(JsonNode schema) {
+        return new ToolArgumentValidator(compileCheck(schema));
+    }
+
+    /**
+     * Validates tool arguments. Missing arguments are treated as an empty object.
+     *
+     * @param arguments
+     *            the arguments, possibly {@code null}
+     * @return the violations, empty if the arguments are valid
+     */
+    List<String> validate(JsonNode arguments) {
+        var errors = new ArrayList<String>();
+        root.check(arguments == null || arguments.isNull() || arguments.isMissingNode() ? EMPTY_OBJECT : arguments,
+                "$", errors);
+        return errors.size() > MAX_ERRORS ? errors.subList(0, MAX_ERRORS) : errors;
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        void check(JsonNode value, String path, List<String> errors);
+    }
+
+    private static final Check ANY = (value, path, errors) -> {
+    };
+
+    private static Check compileCheck(JsonNode schema) {
+        if (schema == null || !schema.isObject()) {
+            // true, false or malformed schemas; only "false" rejects
+            if (schema != null && schema.isBoolean() && !schema.asBoolean()) {
+                return (value, path, errors) -> errors.add(path + ": no value is allowed here");
+            }
+            return ANY;
+        }
+        var checks = new ArrayList<Check>();
+        compileType(schema.get("type"), checks);
+        compileEnum(schema, checks);
+        compileObject(schema, checks);
+        compileArray(schema, checks);
+        compileString(schema, checks);
+        compileNumber(schema, checks);
+        compileCombinators(schema, checks);
+        if (checks.isEmpty()) {
+            return ANY;
+        }
+        if (checks.size() == 1) {
+            return checks.get(0);
+        }
+        Check[] all = checks.toArray(new Check[0]);
+        return (value, path, errors) -> {
+            for (Check check : all) {
+                if (errors.size() > MAX_ERRORS) {
+                    return;
+                }
+                check.check(value, path, errors);
+            }
+        };
+    }
+
+    private static void compileType(JsonNode type, List<Check> checks) {
+        if (type == null) {
+            return;
+        }
+        var types = new HashSet<String>();
+        if (type.isArray()) {
+            type.forEach(t -> types.add(t.asText()));
+        } else {
+            types.add(type.asText());
+        }
+        String expected = String.join(" or ", types);
+        checks.add((value, path, errors) -> {
+            if (!matchesType(value, types)) {
+                errors.add(path + ": expected " + expected + " but got " + typeOf(value));
+            }
+        });
+    }
+
+    private static boolean matchesType(JsonNode value, Set<String> types) {
+        return switch (value.getNodeType()) {
+            case OBJECT -> types.contains("object");
+            case ARRAY -> types.contains("array");
+            case STRING -> types.contains("string");
+            case BOOLEAN -> types.contains("boolean");
+            case NULL -> types.contains("null");
+            case NUMBER -> types.contains("number") || (types.contains("integer") && isIntegral(value));
+            default -> true;
+        };
+    }
+
+    private static boolean isIntegral(JsonNode value) {
+        return value.isIntegralNumber() || (value.isNumber() && value.decimalValue().stripTrailingZeros().scale() <= 0);
+    }
+
+    private static String typeOf(JsonNode value) {
+        return switch (value.getNodeType()) {
+            case NUMBER -> isIntegral(value) ? "integer" : "number";
+            default -> value.getNodeType().name().toLowerCase(Locale.ROOT);
+        };
+    }
+
+    private static void compileEnum(JsonNode schema, List<Check> checks) {
+        JsonNode values = schema.get("enum");
+        if (values != null && values.isArray()) {
+            var allowed = new HashSet<JsonNode>();
+            values.forEach(allowed::add);
+            checks.add((value, path, errors) -> {
+                if (!allowed.contains(value)) {
+                    errors.add(path + ": must be one of " + values);
+                }
+            });
+        }
+        JsonNode constant = schema.get("const");
+        if (constant != null) {
+            checks.add((value, path, errors) -> {
+                if (!constant.equals(value)) {
+                    errors.add(path + ": must be " + constant);
+                }
+            });
+        }
+    }
+
+    private static void compileObject(JsonNode schema, List<Check> checks) {
+        var properties = new LinkedHashMap<String, Check>();
+        JsonNode props = schema.get("properties");
+        if (props != null && props.isObject()) {
+            props.properties().forEach(e -> properties.put(e.getKey(), compileCheck(e.getValue())));
+        }
+        var required = new ArrayList<String>();
+        JsonNode req = schema.get("required");
+        if (req != null && req.isArray()) {
+            req.forEach(r -> required.add(r.asText()));
+        }
+        JsonNode additional = schema.get("additionalProperties");
+        Check additionalCheck = additional == null ? null : compileCheck(additional);
+        boolean noAdditional = additional != null && additional.isBoolean() && !additional.asBoolean();
+        if (properties.isEmpty() && required.isEmpty() && additionalCheck == null) {
+            return;
+        }
+        String[] requiredNames = required.toArray(new String[0]);
+        checks.add((value, path, errors) -> {
+            if (!value.isObject()) {
+                return;
+            }
+            for (String name : requiredNames) {
+                if (!value.has(name)) {
+                    errors.add(path + ": missing required property '" + name + "'");
+                }
+            }
+            for (Map.Entry<String, JsonNode> field : value.properties()) {
+                Check property = properties.get(field.getKey());
+                if (property != null) {
+                    property.check(field.getValue(), path + "." + field.getKey(), errors);
+                } else if (noAdditional) {
+                    errors.add(path + ": unexpected property '" + field.getKey() + "'");
+                } else if (additionalCheck != null) {
+                    additionalCheck.check(field.getValue(), path + "." + field.getKey(), errors);
+                }
+            }
+        });
+    }
+
+    private static void compileArray(JsonNode schema, List<Check> checks) {
+        JsonNode itemsSchema = schema.get("items");
+        Check items = itemsSchema != null && itemsSchema.isObject() ? compileCheck(itemsSchema) : null;
+        int minItems = schema.path("minItems").asInt(-1);
+        int maxItems = schema.path("maxItems").asInt(-1);
+        boolean unique = schema.path("uniqueItems").asBoolean(false);
+        if (items == null && minItems < 0 && maxItems < 0 && !unique) {
+            return;
+        }
+        checks.add((value, path, errors) -> {
+            if (!value.isArray()) {
+                return;
+            }
+            if (minItems >= 0 && value.size() < minItems) {
+                errors.add(path + ": must have at least " + minItems + " items");
+            }
+            if (maxItems >= 0 && value.size() > maxItems) {
+                errors.add(path + ": must have at most " + maxItems + " items");
+            }
+            if (unique && new HashSet<JsonNode>(toList(value)).size() != value.size()) {
+                errors.add(path + ": items must be unique");
+            }
+            if (items != null) {
+                for (int i = 0; i < value.size(); i++) {
+                    items.check(value.get(i), path + "[" + i + "]", errors);
+                }
+            }
+        });
+    }
+
+    private static List<JsonNode> toList(JsonNode array) {
+        var list = new ArrayList<JsonNode>(array.size());
+        array.forEach(list::add);
+        return list;
+    }
+
+    private static void compileString(JsonNode schema, List<Check> checks) {
+        int minLength = schema.path("minLength").asInt(-1);
+        int maxLength = schema.path("maxLength").asInt(-1);
+        Pattern pattern = null;
+        if (schema.hasNonNull("pattern")) {
+            try {
+                pattern = Pattern.compile(schema.get("pattern").asText());
+            } catch (PatternSyntaxException e) {
+                LOG.log(Level.FINE, "Ignoring unsupported schema pattern " + schema.get("pattern"), e);
+            }
+        }
+        if (minLength < 0 && maxLength < 0 && pattern == null) {
+            return;
+        }
+        Pattern compiled = pattern;
+        checks.add((value, path, errors) -> {
+            if (!value.isTextual()) {
+                return;
+            }
+            String text = value.textValue();
+            int length = text.codePointCount(0, text.length());
+            if (minLength >= 0 && length < minLength) {
+                errors.add(path + ": must be at least " + minLength + " characters");
+            }
+            if (maxLength >= 0 && length > maxLength) {
+                errors.add(path + ": must be at most " + maxLength + " characters");
+            }
+            if (compiled != null && !compiled.matcher(text).find()) {
+                errors.add(path + ": must match pattern " + compiled.pattern());
+            }
+        });
+    }
+
+    private static void compileNumber(JsonNode schema, List<Check> checks) {
+        JsonNode minimum = schema.get("minimum");
+        JsonNode maximum = schema.get("maximum");
+        JsonNode exclusiveMinimum = schema.get("exclusiveMinimum");
+        JsonNode exclusiveMaximum = schema.get("exclusiveMaximum");
+        JsonNode multipleOf = schema.get("multipleOf");
+        if (!isNumber(minimum) && !isNumber(maximum) && !isNumber(exclusiveMinimum) && !isNumber(exclusiveMaximum)
+                && !isNumber(multipleOf)) {
+            return;
+        }
+        checks.add((value, path, errors) -> {
+            if (!value.isNumber()) {
+                return;
+            }
+            var number = value.decimalValue();
+            if (isNumber(minimum) && number.compareTo(minimum.decimalValue()) < 0) {
+                errors.add(path + ": must be >= " + minimum);
+            }
+            if (isNumber(maximum) && number.compareTo(maximum.decimalValue()) > 0) {
+                errors.add(path + ": must be <= " + maximum);
+            }
+            if (isNumber(exclusiveMinimum) && number.compareTo(exclusiveMinimum.decimalValue()) <= 0) {
+                errors.add(path + ": must be > " + exclusiveMinimum);
+            }
+            if (isNumber(exclusiveMaximum) && number.compareTo(exclusiveMaximum.decimalValue()) >= 0) {
+                errors.add(path + ": must be < " + exclusiveMaximum);
+            }
+            if (isNumber(multipleOf) && multipleOf.decimalValue().signum() > 0
+                    && number.remainder(multipleOf.decimalValue()).signum() != 0) {
+                errors.add(path + ": must be a multiple of " + multipleOf);
+            }
+        });
+    }
+
+    private static boolean isNumber(JsonNode node) {
+        return node != null && node.isNumber();
+    }
+
+    private static void compileCombinators(JsonNode schema, List<Check> checks) {
+        List<Check> allOf = compileAll(schema.get("allOf"));
+        List<Check> anyOf = compileAll(schema.get("anyOf"));
+        List<Check> oneOf = compileAll(schema.get("oneOf"));
+        for (Check check : allOf) {
+            checks.add(check);
+        }
+        if (!anyOf.isEmpty()) {
+            checks.add((value, path, errors) -> {
+                if (countMatches(anyOf, value, path) == 0) {
+                    errors.add(path + ": does not match any of the allowed schemas");
+                }
+            });
+        }
+        if (!oneOf.isEmpty()) {
+            checks.add((value, path, errors) -> {
+                int matches = countMatches(oneOf, value, path);
+                if (matches != 1) {
+                    errors.add(path + ": must match exactly one of the allowed schemas but matched " + matches);
+                }
+            });
+        }
+        JsonNode not = schema.get("not");
+        if (not != null) {
+            Check negated = compileCheck(not);
+            checks.add((value, path, errors) -> {
+                var nested = new ArrayList<String>();
+                negated.check(value, path, nested);
+                if (nested.isEmpty()) {
+                    errors.add(path + ": matches a disallowed schema");
+                }
+            });
+        }
+    }
+
+    private static List<Check> compileAll(JsonNode schemas) {
+        if (schemas == null || !schemas.isArray()) {
+            return List.of();
+        }
+        var compiled = new ArrayList<Check>();
+        schemas.forEach(s -> compiled.add(compileCheck(s)));
+        return compiled;
+    }
+
+    private static int countMatches(List<Check> alternatives, JsonNode value, String path) {
+        int matches = 0;
+        for (Check alternative : alternatives) {
+            var nested = new ArrayList<String>();
+            alternative.check(value, path, nested);
+            if (nested.isEmpty()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
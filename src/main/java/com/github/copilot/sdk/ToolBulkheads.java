@@ -0,0 +1,168 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.github.copilot.sdk.json.ToolConcurrencyPolicy;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+/**
+ * Per-tool bulkheads that enforce {@link ToolConcurrencyPolicy}.
+ * <p>
+ * Each tool name gets one bulkhead, shared by every session that uses this
+ * instance. The limits of the policy attached to the invoked definition apply
+ * on every call. Calls that cannot start wait in a FIFO queue; the slot of a
+ * finished call is handed directly to the next waiter. Overflowing calls
+ * complete with a {@link ToolResultObject#failure failure} result instead of
+ * running the handler, so the model learns the tool is at capacity.
+ * <p>
+ * Queue state is guarded by each bulkhead's monitor; waiters are completed
+ * outside of it, and queued calls run on the common pool rather than on the
+ * thread that freed their slot.
+ */
+final class ToolBulkheads {
+
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final CopilotMetrics metrics;
+    private final LongSupplier clock;
+
+    ToolBulkheads(CopilotMetrics metrics) {
+        this(metrics, System::nanoTime);
+    }
+
+    ToolBulkheads(CopilotMetrics metrics, LongSupplier clock) {
+        this.metrics = metrics != null ? metrics : CopilotMetrics.NOOP;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs a tool call through the tool's bulkhead, if it has a concurrency
+     * policy.
+     *
+     * @param tool
+     *            the invoked tool
+     * @param call
+     *            starts the handler
+     * @return the handler's result, or a failure result if the call was
+     *         rejected
+     */
+    CompletableFuture<Object> invoke(ToolDefinition tool, Supplier<CompletableFuture<Object>> call) {
+        ToolConcurrencyPolicy policy = tool.concurrency();
+        if (policy == null) {
+            return call.get();
+        }
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(tool.name(), Bulkhead::new);
+        Waiter waiter;
+        synchronized (bulkhead) {
+            if (bulkhead.inFlight < policy.getMaxConcurrentCalls()) {
+                bulkhead.inFlight++;
+                waiter = null;
+            } else if (bulkhead.queue.size() < policy.getMaxQueueSize()) {
+                waiter = new Waiter(clock.getAsLong());
+                bulkhead.queue.add(waiter);
+            } else {
+                metrics.toolBulkheadDecided(tool.name(), 0, false);
+                return CompletableFuture.completedFuture(rejected(tool.name(), "queue full"));
+            }
+        }
+        if (waiter == null) {
+            metrics.toolBulkheadDecided(tool.name(), 0, true);
+            return run(bulkhead, call);
+        }
+
+        long timeoutNanos = policy.getQueueTimeout().toNanos();
+        CompletableFuture.delayedExecutor(timeoutNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            boolean removed;
+            synchronized (bulkhead) {
+                removed = bulkhead.queue.remove(waiter);
+            }
+            if (removed) {
+                metrics.toolBulkheadDecided(tool.name(), clock.getAsLong() - waiter.enqueuedNanos, false);
+                waiter.future.complete(false);
+            }
+        });
+        return waiter.future.thenComposeAsync(admitted -> admitted
+                ? run(bulkhead, call)
+                : CompletableFuture.completedFuture(rejected(tool.name(), "timed out waiting in queue")));
+    }
+
+    /**
+     * Returns the number of calls waiting for a slot, per tool.
+     *
+     * @return an immutable map from tool name to queue depth
+     */
+    Map<String, Integer> getQueueDepths() {
+        var result = new TreeMap<String, Integer>();
+        bulkheads.forEach((name, bulkhead) -> {
+            synchronized (bulkhead) {
+                result.put(name, bulkhead.queue.size());
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    private CompletableFuture<Object> run(Bulkhead bulkhead, Supplier<CompletableFuture<Object>> call) {
+        CompletableFuture<Object> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            release(bulkhead);
+            throw e;
+        }
+        future.whenComplete((result, ex) -> release(bulkhead));
+        return future;
+    }
+
+    private void release(Bulkhead bulkhead) {
+        Waiter next;
+        synchronized (bulkhead) {
+            next = bulkhead.queue.poll();
+            if (next == null) {
+                bulkhead.inFlight--;
+            }
+        }
+        if (next != null) {
+            metrics.toolBulkheadDecided(bulkhead.toolName, clock.getAsLong() - next.enqueuedNanos, true);
+            next.future.complete(true);
+        }
+    }
+
+    private static ToolResultObject rejected(String toolName, String reason) {
+        return ToolResultObject.failure("Tool '" + toolName
+                + "' is at capacity and could not run. Try again later or continue without it.",
+                "tool '" + toolName + "' rejected: " + reason);
+    }
+
+    private static final class Bulkhead {
+
+        final String toolName;
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        int inFlight;
+
+        Bulkhead(String toolName) {
+            this.toolName = toolName;
+        }
+    }
+
+    private static final class Waiter {
+
+        final long enqueuedNanos;
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        Waiter(long enqueuedNanos) {
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
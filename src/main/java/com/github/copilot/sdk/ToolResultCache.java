@@ -0,0 +1,465 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.copilot.sdk.json.ToolBinaryResult;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolHandler;
+import com.github.copilot.sdk.json.ToolInvocation;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+/**
+ * Memoizes the results of idempotent tools.
+ * <p>
+ * A tool is cached by wrapping its definition with {@link #wrap(ToolDefinition)}
+ * or {@link ToolDefinition#withCache(ToolResultCache)}. Results are keyed by
+ * the tool name and the canonical JSON of the invocation's arguments, with
+ * object keys sorted, so argument order does not matter. With
+ * {@link Scope#SESSION} the key also includes the session ID; with
+ * {@link Scope#CLIENT} every session that uses the same cache instance shares
+ * results.
+ * <p>
+ * Entries expire after the {@link #setTtl TTL}. The cache is bounded both by
+ * {@link #setMaxEntries entry count} and by {@link #setMaxBytes size}, where
+ * the size of an entry is the UTF-8 length of its key plus that of its JSON
+ * serialized result; the least recently used entries are evicted first.
+ * Concurrent calls with identical keys share a single handler invocation.
+ * Each caller gets its own future, so cancelling one caller, for example by
+ * aborting its session, detaches only that caller. The shared invocation has
+ * its own cancellation token and the latest deadline of its callers, and it is
+ * cancelled once every caller has been cancelled.
+ * Only successful results are cached: failed futures, {@code null} results and
+ * {@link ToolResultObject}s whose result type is not {@code "success"} are
+ * not, and neither are results carrying a single-use stream
+ * {@link com.github.copilot.sdk.json.ToolBinarySource}.
+ * <p>
+ * Hits and misses are reported per tool to the configured
+ * {@link #setMetrics metrics}.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var cache = new ToolResultCache().setScope(ToolResultCache.Scope.CLIENT).setTtl(Duration.ofMinutes(10))
+ * 		.setMaxBytes(32 * 1024 * 1024).setMetrics(metrics);
+ *
+ * var lookup = ToolDefinition.create("lookup_customer", "Looks up a customer", schema, handler).withCache(cache);
+ * }</pre>
+ *
+ * @see ToolDefinition#withCache(ToolResultCache)
+ * @since 1.0.12
+ */
+public class ToolResultCache {
+
+    private static final Logger LOG = Logger.getLogger(ToolResultCache.class.getName());
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).build();
+
+    /**
+     * Which invocations share cached results.
+     *
+     * @since 1.0.12
+     */
+    public enum Scope {
+        /** Results are only reused within the session that produced them. */
+        SESSION,
+        /** Results are shared by all sessions using the cache. */
+        CLIENT
+    }
+
+    /**
+     * Aggregate cache statistics.
+     *
+     * @param entries
+     *            the number of cached results
+     * @param bytes
+     *            the accounted size of all cached results
+     * @param hits
+     *            invocations answered from the cache or joined to an identical
+     *            invocation in flight
+     * @param misses
+     *            invocations that ran the handler
+     * @param evictions
+     *            entries evicted because a bound was exceeded
+     * @since 1.0.12
+     */
+    public record Stats(int entries, long bytes, long hits, long misses, long evictions) {
+    }
+
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by this
+    private final Map<String, Flight> inFlight = new HashMap<>();
+    private volatile Scope scope = Scope.SESSION;
+    private volatile Duration ttl = Duration.ofMinutes(5);
+    private volatile int maxEntries = 1000;
+    private volatile long maxBytes = 64L * 1024 * 1024;
+    private volatile CopilotMetrics metrics = CopilotMetrics.NOOP;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a session-scoped cache with a five minute TTL, up to 1000 entries
+     * and 64 MiB.
+     */
+    public ToolResultCache() {
+        this(System::nanoTime);
+    }
+
+    ToolResultCache(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets which invocations share cached results.
+     * <p>
+     * Default: {@link Scope#SESSION}
+     *
+     * @param scope
+     *            the cache scope
+     * @return this cache for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code scope} is {@code null}
+     */
+    public ToolResultCache setScope(Scope scope) {
+        if (scope == null) {
+            throw new IllegalArgumentException("scope must not be null");
+        }
+        this.scope = scope;
+        return this;
+    }
+
+    /**
+     * Sets how long a result is reused.
+     * <p>
+     * Default: 5 minutes
+     *
+     * @param ttl
+     *            the time to live
+     * @return this cache for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code ttl} is {@code null}, zero or negative
+     */
+    public ToolResultCache setTtl(Duration ttl) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.ttl = ttl;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of cached results.
+     * <p>
+     * Default: 1000
+     *
+     * @param maxEntries
+     *            the bound, at least 1
+     * @return this cache for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxEntries} is less than 1
+     */
+    public ToolResultCache setMaxEntries(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Sets the maximum accounted size of all cached results. Results larger than
+     * this are not cached.
+     * <p>
+     * Default: 64 MiB
+     *
+     * @param maxBytes
+     *            the bound in bytes, at least 1
+     * @return this cache for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxBytes} is less than 1
+     */
+    public ToolResultCache setMaxBytes(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        }
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Sets the collector that receives per-tool hits and misses.
+     *
+     * @param metrics
+     *            the metrics collector, or {@code null} to disable metrics
+     * @return this cache for method chaining
+     */
+    public ToolResultCache setMetrics(CopilotMetrics metrics) {
+        this.metrics = metrics != null ? metrics : CopilotMetrics.NOOP;
+        return this;
+    }
+
+    /**
+     * Returns a copy of a tool definition whose handler is memoized by this
+     * cache.
+     *
+     * @param tool
+     *            the tool to cache; it must be idempotent
+     * @return the cached tool definition
+     */
+    public ToolDefinition wrap(ToolDefinition tool) {
+        ToolHandler handler = tool.handler();
+        if (handler == null) {
+            return tool;
+        }
+        return new ToolDefinition(tool.name(), tool.description(), tool.parameters(),
+                invocation -> invoke(tool.name(), handler, invocation), tool.overridesBuiltInTool(),
+                tool.concurrency());
+    }
+
+    /**
+     * Removes every cached result of a tool.
+     *
+     * @param toolName
+     *            the tool name
+     */
+    public synchronized void invalidate(String toolName) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.toolName.equals(toolName)) {
+                bytes -= entry.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns aggregate statistics.
+     *
+     * @return a snapshot of the statistics
+     */
+    public synchronized Stats getStats() {
+        return new Stats(entries.size(), bytes, hits, misses, evictions);
+    }
+
+    private CompletableFuture<Object> invoke(String toolName, ToolHandler handler, ToolInvocation invocation) {
+        String key;
+        try {
+            String arguments = CANONICAL.writeValueAsString(invocation.getArguments());
+            String sessionScope = scope == Scope.SESSION ? String.valueOf(invocation.getSessionId()) : "";
+            key = sessionScope + '\u0000' + toolName + '\u0000' + arguments;
+        } catch (JsonProcessingException | RuntimeException e) {
+            LOG.log(Level.FINE, "Arguments of " + toolName + " cannot be canonicalized; not caching", e);
+            return handler.invoke(invocation);
+        }
+
+        Flight flight;
+        boolean joined;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                if (clock.getAsLong() - cached.expiresNanos < 0) {
+                    hits++;
+                    metrics.toolCacheAccessed(toolName, true);
+                    return CompletableFuture.completedFuture(cached.result);
+                }
+                entries.remove(key);
+                bytes -= cached.bytes;
+            }
+            flight = inFlight.get(key);
+            joined = flight != null;
+            if (joined) {
+                hits++;
+                flight.join(invocation.getDeadline());
+            } else {
+                misses++;
+                flight = new Flight(invocation);
+                inFlight.put(key, flight);
+            }
+            flight.callers++;
+        }
+        metrics.toolCacheAccessed(toolName, joined);
+
+        // Cancelling a caller's own copy leaves the shared invocation to the others
+        CompletableFuture<Object> caller = flight.result.copy();
+        Flight shared = flight;
+        caller.whenComplete((value, ex) -> {
+            if (caller.isCancelled()) {
+                leave(key, shared);
+            }
+        });
+        invocation.getCancellationToken().onCancel(() -> caller.cancel(true));
+        if (!joined) {
+            start(key, toolName, handler, flight);
+        }
+        return caller;
+    }
+
+    private void start(String key, String toolName, ToolHandler handler, Flight flight) {
+        CompletableFuture<Object> result;
+        try {
+            result = handler.invoke(flight.invocation);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        boolean abandoned;
+        synchronized (this) {
+            flight.handler = result;
+            abandoned = flight.callers == 0;
+        }
+        if (abandoned) {
+            result.cancel(true);
+        }
+        result.whenComplete((value, ex) -> {
+            if (ex == null && isCacheable(value)) {
+                store(key, toolName, value);
+            }
+            synchronized (this) {
+                inFlight.remove(key, flight);
+            }
+            if (ex != null) {
+                flight.result.completeExceptionally(ex);
+            } else {
+                flight.result.complete(value);
+            }
+        });
+    }
+
+    /**
+     * Detaches a cancelled caller, and cancels the shared invocation once none
+     * is left.
+     */
+    private void leave(String key, Flight flight) {
+        CompletableFuture<Object> handler;
+        synchronized (this) {
+            if (--flight.callers > 0 || flight.result.isDone()) {
+                return;
+            }
+            inFlight.remove(key, flight);
+            handler = flight.handler;
+        }
+        flight.invocation.getCancellationToken().cancel("all callers cancelled");
+        if (handler != null) {
+            handler.cancel(true);
+        }
+        flight.result.completeExceptionally(new CancellationException("all callers cancelled"));
+    }
+
+    private void store(String key, String toolName, Object value) {
+        long size;
+        try {
+            long resultSize = value instanceof String s ? utf8Length(s) : CANONICAL.writeValueAsBytes(value).length;
+            size = utf8Length(key) + resultSize;
+        } catch (JsonProcessingException e) {
+            LOG.log(Level.FINE, "Result of " + toolName + " cannot be serialized; not caching", e);
+            return;
+        }
+        synchronized (this) {
+            if (size > maxBytes) {
+                return;
+            }
+            Entry previous = entries.put(key, new Entry(toolName, value, size, clock.getAsLong() + ttl.toNanos()));
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+            bytes += size;
+            Iterator<Entry> it = entries.values().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+                bytes -= it.next().bytes;
+                it.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private static boolean isCacheable(Object value) {
+        if (value instanceof ToolResultObject result) {
+            if (result.binaryResultsForLlm() != null) {
+                for (ToolBinaryResult binary : result.binaryResultsForLlm()) {
+                    if (binary != null && binary.source() != null && !binary.source().isRepeatable()) {
+                        return false;
+                    }
+                }
+            }
+            return "success".equals(result.resultType());
+        }
+        return value != null;
+    }
+
+    private static long utf8Length(String s) {
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private record Entry(String toolName, Object result, long bytes, long expiresNanos) {
+    }
+
+    /**
+     * A handler invocation shared by concurrent calls with identical keys. It
+     * runs with a copy of the first caller's invocation that has its own
+     * cancellation token.
+     */
+    private static final class Flight {
+
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        final ToolInvocation invocation;
+        // Guarded by the cache
+        CompletableFuture<Object> handler;
+        int callers;
+
+        Flight(ToolInvocation first) {
+            this.invocation = new ToolInvocation().setSessionId(first.getSessionId())
+                    .setToolCallId(first.getToolCallId()).setToolName(first.getToolName())
+                    .setArguments(first.getArgumentsNode()).setDeadline(first.getDeadline());
+        }
+
+        /** Extends the deadline to that of a joining caller. */
+        void join(Instant deadline) {
+            Instant current = invocation.getDeadline();
+            if (current != null && (deadline == null || deadline.isAfter(current))) {
+                invocation.setDeadline(deadline);
+            }
+        }
+    }
+}
@@ -0,0 +1,558 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolHandler;
+import com.github.copilot.sdk.json.ToolInvocation;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+/**
+ * Keeps large tool results within a budget before they reach the model.
+ * <p>
+ * A tool is shaped by wrapping its definition with {@link #wrap(ToolDefinition)}
+ * or {@link ToolDefinition#withResultShaper(ToolResultShaper)}. When the text
+ * of a result (a {@code String}, the {@code textResultForLlm} of a
+ * {@link ToolResultObject}, or the JSON of any other value) exceeds the
+ * {@link #setMaxBytes budget}, it is reduced with the configured
+ * {@link Strategy} and a short notice is appended. The full text is kept in a
+ * bounded side store, and the notice tells the model how to read it page by
+ * page with the {@link #getPageTool() page tool}, which must be registered on
+ * the session alongside the shaped tools. Stored results belong to the
+ * session whose tool call produced them: the page tool only reads results of
+ * the session calling it, and a session's results are dropped when it closes.
+ * Results within the budget pass through unchanged.
+ * <p>
+ * Oversized results inflate the context of every later turn and make the CLI
+ * compact or truncate the conversation sooner, so shaping tools that return
+ * logs or query dumps keeps turns fast.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var shaper = new ToolResultShaper().setMaxTokens(2_000).setStrategy(ToolResultShaper.Strategy.HEAD_TAIL);
+ *
+ * var logs = ToolDefinition.create("read_logs", "Reads service logs", schema, handler).withResultShaper(shaper);
+ * var session = client.createSession(new SessionConfig().setTools(List.of(logs, shaper.getPageTool()))).get();
+ * }</pre>
+ *
+ * @see ToolDefinition#withResultShaper(ToolResultShaper)
+ * @since 1.0.12
+ */
+public class ToolResultShaper {
+
+    /**
+     * The number of UTF-8 bytes assumed per token by {@link #setMaxTokens}.
+     */
+    public static final int BYTES_PER_TOKEN = 4;
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+    private static final int[][] PRUNE_LIMITS = {{50, 2000, 16}, {20, 500, 8}, {10, 200, 6}, {5, 80, 4},
+            {2, 40, 3}, {1, 16, 2}};
+
+    /**
+     * How an oversized result is reduced.
+     *
+     * @since 1.0.12
+     */
+    public enum Strategy {
+        /** Keeps the beginning of the text. */
+        HEAD,
+        /** Keeps the end of the text. */
+        TAIL,
+        /** Keeps the beginning and the end, omitting the middle. */
+        HEAD_TAIL,
+        /** Keeps evenly spaced lines from the whole text. */
+        SAMPLE_LINES,
+        /**
+         * Parses the text as JSON and prunes it: long arrays keep their first
+         * items, long strings are shortened and deep nesting is collapsed. Text
+         * that is not JSON is shaped with {@link #HEAD_TAIL}.
+         */
+        JSON_PRUNE
+    }
+
+    private final LinkedHashMap<String, String> store = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile Strategy strategy = Strategy.HEAD_TAIL;
+    private volatile int maxBytes = 16 * 1024;
+    private volatile int pageBytes = 16 * 1024;
+    private volatile int maxStoredResults = 50;
+    private volatile long maxStoredBytes = 32L * 1024 * 1024;
+    private volatile String pageToolName = "read_tool_result";
+    private long storedBytes;
+
+    /**
+     * Creates a shaper with a 16 KiB budget, the {@link Strategy#HEAD_TAIL}
+     * strategy and a side store of up to 50 results and 32 MiB.
+     */
+    public ToolResultShaper() {
+    }
+
+    /**
+     * Sets how oversized results are reduced.
+     * <p>
+     * Default: {@link Strategy#HEAD_TAIL}
+     *
+     * @param strategy
+     *            the strategy
+     * @return this shaper for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code strategy} is {@code null}
+     */
+    public ToolResultShaper setStrategy(Strategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("strategy must not be null");
+        }
+        this.strategy = strategy;
+        return this;
+    }
+
+    /**
+     * Sets the budget, in UTF-8 bytes, for the text passed to the model. The
+     * appended notice is not counted.
+     * <p>
+     * Default: 16 KiB
+     *
+     * @param maxBytes
+     *            the budget
+     * @return this shaper for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxBytes} is less than 64
+     */
+    public ToolResultShaper setMaxBytes(int maxBytes) {
+        if (maxBytes < 64) {
+            throw new IllegalArgumentException("maxBytes must be at least 64");
+        }
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Sets the budget in tokens, approximated as {@value #BYTES_PER_TOKEN} UTF-8
+     * bytes per token.
+     *
+     * @param maxTokens
+     *            the budget
+     * @return this shaper for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxTokens} is less than 16 or the byte budget would
+     *             overflow
+     */
+    public ToolResultShaper setMaxTokens(int maxTokens) {
+        if (maxTokens < 16 || maxTokens > Integer.MAX_VALUE / BYTES_PER_TOKEN) {
+            throw new IllegalArgumentException(
+                    "maxTokens must be between 16 and " + Integer.MAX_VALUE / BYTES_PER_TOKEN);
+        }
+        return setMaxBytes(maxTokens * BYTES_PER_TOKEN);
+    }
+
+    /**
+     * Sets the size, in UTF-8 bytes, of the pages returned by the page tool.
+     * <p>
+     * Default: 16 KiB
+     *
+     * @param pageBytes
+     *            the page size
+     * @return this shaper for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code pageBytes} is less than 64
+     */
+    public ToolResultShaper setPageBytes(int pageBytes) {
+        if (pageBytes < 64) {
+            throw new IllegalArgumentException("pageBytes must be at least 64");
+        }
+        this.pageBytes = pageBytes;
+        return this;
+    }
+
+    /**
+     * Bounds the side store holding full results. The least recently read
+     * results are dropped first.
+     * <p>
+     * Default: 50 results and 32 MiB
+     *
+     * @param maxResults
+     *            the maximum number of stored results
+     * @param maxBytes
+     *            the maximum total UTF-8 size of stored results
+     * @return this shaper for method chaining
+     * @throws IllegalArgumentException
+     *             if either bound is negative
+     */
+    public ToolResultShaper setStoreLimits(int maxResults, long maxBytes) {
+        if (maxResults < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("store limits must not be negative");
+        }
+        this.maxStoredResults = maxResults;
+        this.maxStoredBytes = maxBytes;
+        synchronized (this) {
+            evict();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the name of the generated page tool.
+     * <p>
+     * Default: {@code read_tool_result}
+     *
+     * @param name
+     *            the tool name
+     * @return this shaper for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code name} is {@code null} or empty
+     */
+    public ToolResultShaper setPageToolName(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("name must not be empty");
+        }
+        this.pageToolName = name;
+        return this;
+    }
+
+    /**
+     * Returns a copy of a tool definition whose results are shaped by this
+     * shaper.
+     *
+     * @param tool
+     *            the tool to shape
+     * @return the shaped tool definition
+     */
+    public ToolDefinition wrap(ToolDefinition tool) {
+        ToolHandler handler = tool.handler();
+        if (handler == null) {
+            return tool;
+        }
+        return new ToolDefinition(tool.name(), tool.description(), tool.parameters(),
+                invocation -> handler.invoke(invocation)
+                        .thenApply(result -> shape(invocation.getSessionId(), tool.name(), result)),
+                tool.overridesBuiltInTool(), tool.concurrency());
+    }
+
+    /**
+     * Returns the tool the model uses to page through full results. Register it
+     * on every session that uses shaped tools.
+     *
+     * @return the page tool definition
+     */
+    public ToolDefinition getPageTool() {
+        Map<String, Object> schema = Map.of("type", "object", "properties",
+                Map.of("id", Map.of("type", "string", "description", "The stored result ID from the notice"),
+                        "page", Map.of("type", "integer", "minimum", 1, "description", "The page number, from 1")),
+                "required", List.of("id"));
+        return ToolDefinition.create(pageToolName,
+                "Reads a page of a tool result that was shortened to fit the context. Use the result ID and page"
+                        + " count from the notice at the end of the shortened result.",
+                schema, new PageReader());
+    }
+
+    /**
+     * Returns the number of full results currently stored.
+     *
+     * @return the stored result count
+     */
+    public synchronized int getStoredResultCount() {
+        return store.size();
+    }
+
+    /**
+     * Drops the stored results of a session if the given tool is the page tool
+     * of a shaper.
+     */
+    static void forgetSession(ToolDefinition tool, String sessionId) {
+        if (tool.handler() instanceof PageReader reader) {
+            reader.shaper().forget(sessionId);
+        }
+    }
+
+    private synchronized void forget(String sessionId) {
+        String prefix = storeKey(sessionId, "");
+        Iterator<Map.Entry<String, String>> it = store.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                storedBytes -= utf8Length(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    private static String storeKey(String sessionId, String id) {
+        return (sessionId != null ? sessionId : "") + '\u0000' + id;
+    }
+
+    Object shape(String sessionId, String toolName, Object result) {
+        String text;
+        if (result instanceof ToolResultObject tro) {
+            text = tro.textResultForLlm();
+        } else if (result instanceof String s) {
+            text = s;
+        } else if (result == null) {
+            return null;
+        } else {
+            try {
+                text = MAPPER.writeValueAsString(result);
+            } catch (JsonProcessingException e) {
+                return result;
+            }
+        }
+        if (text == null) {
+            return result;
+        }
+        long size = utf8Length(text);
+        int budget = maxBytes;
+        if (size <= budget) {
+            return result;
+        }
+
+        String shaped = reduce(text, budget);
+        String id = toolName + "-" + sequence.incrementAndGet();
+        var reply = new StringBuilder(shaped).append("\n\n[Result shortened from ").append(size).append(" to ")
+                .append(utf8Length(shaped)).append(" bytes (").append(strategy.name().toLowerCase(Locale.ROOT))
+                .append(").");
+        if (put(storeKey(sessionId, id), text, size)) {
+            int pages = pages(text).size();
+            reply.append(" The full result is stored as '").append(id).append("' in ").append(pages)
+                    .append(pages == 1 ? " page" : " pages").append("; call ").append(pageToolName)
+                    .append(" with {\"id\":\"").append(id).append("\",\"page\":1} to read it.]");
+        } else {
+            reply.append(" The full result was too large to keep.]");
+        }
+        if (result instanceof ToolResultObject tro) {
+            return new ToolResultObject(tro.resultType(), reply.toString(), tro.binaryResultsForLlm(), tro.error(),
+                    tro.sessionLog(), tro.toolTelemetry());
+        }
+        return reply.toString();
+    }
+
+    private CompletableFuture<Object> readPage(ToolInvocation invocation) {
+        JsonNode args = invocation.getArgumentsNode();
+        String id = args != null && args.hasNonNull("id") ? args.get("id").asText() : null;
+        int page = args != null && args.hasNonNull("page") ? args.get("page").asInt() : 1;
+        String text;
+        synchronized (this) {
+            text = id != null ? store.get(storeKey(invocation.getSessionId(), id)) : null;
+        }
+        if (text == null) {
+            return CompletableFuture.completedFuture(ToolResultObject.failure(
+                    "Stored result '" + id + "' is no longer available. Call the original tool again.",
+                    "stored result '" + id + "' not found"));
+        }
+        List<String> pages = pages(text);
+        if (page < 1 || page > pages.size()) {
+            return CompletableFuture.completedFuture(ToolResultObject.failure(
+                    "Stored result '" + id + "' has pages 1 to " + pages.size() + ".",
+                    "page " + page + " out of range"));
+        }
+        return CompletableFuture
+                .completedFuture("[Page " + page + " of " + pages.size() + " of '" + id + "']\n" + pages.get(page - 1));
+    }
+
+    /** Reads pages for the page tool; also marks the tool as a page tool. */
+    private final class PageReader implements ToolHandler {
+
+        @Override
+        public CompletableFuture<Object> invoke(ToolInvocation invocation) {
+            return readPage(invocation);
+        }
+
+        ToolResultShaper shaper() {
+            return ToolResultShaper.this;
+        }
+    }
+
+    private String reduce(String text, int budget) {
+        switch (strategy) {
+            case HEAD :
+                return text.substring(0, prefixEnd(text, budget));
+            case TAIL :
+                return text.substring(suffixStart(text, budget));
+            case SAMPLE_LINES :
+                return sampleLines(text, budget);
+            case JSON_PRUNE :
+                String pruned = pruneJson(text, budget);
+                return pruned != null ? pruned : headTail(text, budget);
+            case HEAD_TAIL :
+            default :
+                return headTail(text, budget);
+        }
+    }
+
+    private static String headTail(String text, int budget) {
+        String marker = "\n[...]\n";
+        int half = (budget - marker.length()) / 2;
+        int head = prefixEnd(text, half);
+        int tail = suffixStart(text, half);
+        return text.substring(0, head) + marker + text.substring(Math.max(tail, head));
+    }
+
+    private static String sampleLines(String text, int budget) {
+        String[] lines = text.split("\n", -1);
+        long total = utf8Length(text);
+        int stride = (int) Math.max(2, (total + budget - 1) / budget);
+        var out = new StringBuilder();
+        long used = 0;
+        for (int i = 0; i < lines.length; i += stride) {
+            String line = (i + 1) + ": " + lines[i];
+            long length = utf8Length(line) + 1;
+            if (used + length > budget) {
+                int room = (int) (budget - used - 1);
+                if (room > 16) {
+                    out.append(line, 0, prefixEnd(line, room)).append('\n');
+                }
+                break;
+            }
+            out.append(line).append('\n');
+            used += length;
+        }
+        return out.toString();
+    }
+
+    private static String pruneJson(String text, int budget) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(text);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+        if (root == null || !root.isContainerNode()) {
+            return null;
+        }
+        String pruned = null;
+        for (int[] limits : PRUNE_LIMITS) {
+            try {
+                pruned = MAPPER.writeValueAsString(prune(root, limits[0], limits[1], limits[2]));
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+            if (utf8Length(pruned) <= budget) {
+                return pruned;
+            }
+        }
+        return pruned.substring(0, prefixEnd(pruned, budget));
+    }
+
+    private static JsonNode prune(JsonNode node, int maxItems, int maxString, int depth) {
+        if (node.isTextual() && node.asText().length() > maxString) {
+            String value = node.asText();
+            return TextNode.valueOf(value.substring(0, prefixEnd(value, maxString)) + "...");
+        }
+        if (!node.isContainerNode()) {
+            return node;
+        }
+        if (depth == 0) {
+            return TextNode.valueOf(node.isArray() ? "[" + node.size() + " items]" : "{" + node.size() + " fields}");
+        }
+        if (node.isArray()) {
+            ArrayNode copy = MAPPER.createArrayNode();
+            for (int i = 0; i < Math.min(maxItems, node.size()); i++) {
+                copy.add(prune(node.get(i), maxItems, maxString, depth - 1));
+            }
+            if (node.size() > maxItems) {
+                copy.add("... " + (node.size() - maxItems) + " more items");
+            }
+            return copy;
+        }
+        ObjectNode copy = MAPPER.createObjectNode();
+        for (Map.Entry<String, JsonNode> field : node.properties()) {
+            copy.set(field.getKey(), prune(field.getValue(), maxItems, maxString, depth - 1));
+        }
+        return copy;
+    }
+
+    private List<String> pages(String text) {
+        int size = pageBytes;
+        var pages = new ArrayList<String>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = start + prefixEnd(text.substring(start, Math.min(text.length(), start + size)), size);
+            pages.add(text.substring(start, end));
+            start = end;
+        }
+        return pages;
+    }
+
+    private synchronized boolean put(String id, String text, long size) {
+        if (size > maxStoredBytes || maxStoredResults == 0) {
+            return false;
+        }
+        store.put(id, text);
+        storedBytes += size;
+        evict();
+        return store.containsKey(id);
+    }
+
+    private void evict() {
+        Iterator<String> it = store.values().iterator();
+        while (it.hasNext() && (store.size() > maxStoredResults || storedBytes > maxStoredBytes)) {
+            storedBytes -= utf8Length(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the largest end index such that {@code text[0, end)} fits in
+     * {@code maxBytes} UTF-8 bytes without splitting a surrogate pair.
+     */
+    private static int prefixEnd(String text, int maxBytes) {
+        long used = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            int length = utf8Length(cp);
+            if (used + length > maxBytes) {
+                break;
+            }
+            used += length;
+            i += Character.charCount(cp);
+        }
+        return i;
+    }
+
+    private static int suffixStart(String text, int maxBytes) {
+        long used = 0;
+        int i = text.length();
+        while (i > 0) {
+            int cp = text.codePointBefore(i);
+            int length = utf8Length(cp);
+            if (used + length > maxBytes) {
+                break;
+            }
+            used += length;
+            i -= Character.charCount(cp);
+        }
+        return i;
+    }
+
+    private static long utf8Length(String s) {
+        long length = 0;
+        for (int i = 0; i < s.length();) {
+            int cp = s.codePointAt(i);
+            length += utf8Length(cp);
+            i += Character.charCount(cp);
+        }
+        return length;
+    }
+
+    private static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+}
@@ -0,0 +1,76 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Latency breakdown of a single assistant turn, produced by
+ * {@link TurnProfiler}.
+ * <p>
+ * All durations are measured on the client from the arrival of session events,
+ * except {@link #modelTime()}, which is the sum of the {@code duration} values
+ * reported by {@code assistant.usage} events during the turn.
+ *
+ * @param sessionId
+ *            the session the turn belongs to
+ * @param turnId
+ *            the turn ID from {@code assistant.turn_start}, or {@code null} if
+ *            the turn start was not observed
+ * @param startTime
+ *            when the turn started
+ * @param duration
+ *            time from {@code assistant.turn_start} to
+ *            {@code assistant.turn_end} (or {@code session.idle} if no end was
+ *            received)
+ * @param timeToFirstToken
+ *            time from turn start to the first {@code assistant.message_delta},
+ *            or {@code null} if the turn did not stream
+ * @param modelTime
+ *            total model time reported by usage events
+ * @param inputTokens
+ *            input tokens reported by usage events
+ * @param outputTokens
+ *            output tokens reported by usage events
+ * @param toolTime
+ *            wall time per tool name, from {@code tool.execution_start} to
+ *            {@code tool.execution_complete}; parallel calls are summed
+ * @param permissionWait
+ *            time spent in this application's permission handler
+ * @param hookWait
+ *            time spent in this application's session hooks
+ * @see TurnProfiler
+ * @since 1.0.12
+ */
+public record TurnProfile(String sessionId, String turnId, Instant startTime, Duration duration,
+        Duration timeToFirstToken, Duration modelTime, double inputTokens, double outputTokens,
+        Map<String, Duration> toolTime, Duration permissionWait, Duration hookWait) {
+
+    /**
+     * Returns the output token throughput over the model time.
+     *
+     * @return output tokens per second, or {@code 0} if no model time was
+     *         reported
+     */
+    public double tokensPerSecond() {
+        long nanos = modelTime.toNanos();
+        return nanos == 0 ? 0 : outputTokens * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * Returns the combined wall time of all tool executions in the turn.
+     *
+     * @return the total tool time
+     */
+    public Duration totalToolTime() {
+        Duration total = Duration.ZERO;
+        for (Duration d : toolTime.values()) {
+            total = total.plus(d);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,276 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.copilot.sdk.events.AbstractSessionEvent;
+import com.github.copilot.sdk.events.AssistantMessageDeltaEvent;
+import com.github.copilot.sdk.events.AssistantTurnEndEvent;
+import com.github.copilot.sdk.events.AssistantTurnStartEvent;
+import com.github.copilot.sdk.events.AssistantUsageEvent;
+import com.github.copilot.sdk.events.SessionIdleEvent;
+import com.github.copilot.sdk.events.ToolExecutionCompleteEvent;
+import com.github.copilot.sdk.events.ToolExecutionStartEvent;
+
+/**
+ * Opt-in profiler that derives a {@link TurnProfile} for every assistant turn
+ * from a session's event stream.
+ * <p>
+ * A profiler is attached to each session to be profiled and aggregates the
+ * resulting profiles across all of them, which makes it easy to tell whether
+ * slow turns are caused by the model, by tools, or by this application's own
+ * permission and hook handlers. Aggregates are kept in lock-free
+ * {@link LatencyHistogram}s.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var profiler = new TurnProfiler(profile -> log.info("turn {} ttft={} model={} tools={}", profile.turnId(),
+ * 		profile.timeToFirstToken(), profile.modelTime(), profile.toolTime()));
+ *
+ * var session = client.createSession(config).get();
+ * profiler.attach(session);
+ *
+ * // later
+ * var summary = profiler.getSummary();
+ * System.out.println("p99 TTFT: " + summary.timeToFirstToken().percentileMillis(99.0) + " ms");
+ * }</pre>
+ *
+ * @see TurnProfile
+ * @since 1.0.12
+ */
+public class TurnProfiler {
+
+    private static final Logger LOG = Logger.getLogger(TurnProfiler.class.getName());
+
+    private final Consumer<TurnProfile> listener;
+    private final LatencyHistogram turnDuration = new LatencyHistogram();
+    private final LatencyHistogram timeToFirstToken = new LatencyHistogram();
+    private final LatencyHistogram modelTime = new LatencyHistogram();
+    private final LatencyHistogram permissionWait = new LatencyHistogram();
+    private final LatencyHistogram hookWait = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> toolTime = new ConcurrentHashMap<>();
+    private final DoubleAdder outputTokens = new DoubleAdder();
+
+    /**
+     * Aggregated statistics over all profiled turns.
+     *
+     * @param turns
+     *            the number of completed turns
+     * @param turnDuration
+     *            distribution of turn durations
+     * @param timeToFirstToken
+     *            distribution of time-to-first-token, over streaming turns only
+     * @param modelTime
+     *            distribution of model time per turn
+     * @param toolTime
+     *            distribution of execution time per tool name, one observation
+     *            per tool call
+     * @param permissionWait
+     *            distribution of permission handler time per turn
+     * @param hookWait
+     *            distribution of hook handler time per turn
+     * @param outputTokens
+     *            total output tokens across all turns
+     * @since 1.0.12
+     */
+    public record Summary(long turns, LatencyHistogram.Snapshot turnDuration,
+            LatencyHistogram.Snapshot timeToFirstToken, LatencyHistogram.Snapshot modelTime,
+            Map<String, LatencyHistogram.Snapshot> toolTime, LatencyHistogram.Snapshot permissionWait,
+            LatencyHistogram.Snapshot hookWait, double outputTokens) {
+    }
+
+    /**
+     * Creates a profiler that only aggregates.
+     */
+    public TurnProfiler() {
+        this(null);
+    }
+
+    /**
+     * Creates a profiler that also passes every completed profile to the given
+     * listener.
+     *
+     * @param listener
+     *            called on the event dispatch thread for each completed turn, or
+     *            {@code null}
+     */
+    public TurnProfiler(Consumer<TurnProfile> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts profiling a session.
+     *
+     * @param session
+     *            the session to profile
+     * @return a handle that stops profiling the session when closed
+     */
+    public Closeable attach(CopilotSession session) {
+        var state = new SessionState(session.getSessionId());
+        Closeable events = session.on(event -> onEvent(state, event));
+        Closeable callbacks = session.observeCallbacks(new CopilotMetrics() {
+            @Override
+            public void callbackCompleted(CallbackType type, String name, long durationNanos, boolean success) {
+                state.addCallback(type, durationNanos);
+            }
+        });
+        return () -> {
+            events.close();
+            callbacks.close();
+        };
+    }
+
+    /**
+     * Returns aggregated statistics over all profiled turns.
+     *
+     * @return a snapshot of the aggregates
+     */
+    public Summary getSummary() {
+        var tools = new TreeMap<String, LatencyHistogram.Snapshot>();
+        toolTime.forEach((name, histogram) -> tools.put(name, histogram.snapshot()));
+        LatencyHistogram.Snapshot duration = turnDuration.snapshot();
+        return new Summary(duration.getCount(), duration, timeToFirstToken.snapshot(), modelTime.snapshot(),
+                Collections.unmodifiableMap(tools), permissionWait.snapshot(), hookWait.snapshot(),
+                outputTokens.sum());
+    }
+
+    private void onEvent(SessionState state, AbstractSessionEvent event) {
+        long now = System.nanoTime();
+        TurnProfile completed = null;
+        synchronized (state) {
+            if (event instanceof AssistantTurnStartEvent start) {
+                completed = state.finish(now);
+                state.start(now, start.getData() != null ? start.getData().turnId() : null);
+            } else if (event instanceof AssistantMessageDeltaEvent) {
+                if (state.active && !state.streamed) {
+                    state.streamed = true;
+                    state.firstTokenNanos = now;
+                }
+            } else if (event instanceof ToolExecutionStartEvent toolStart && toolStart.getData() != null) {
+                var data = toolStart.getData();
+                state.pendingTools.put(data.toolCallId(), new PendingTool(data.toolName(), now));
+            } else if (event instanceof ToolExecutionCompleteEvent toolEnd && toolEnd.getData() != null) {
+                PendingTool pending = state.pendingTools.remove(toolEnd.getData().toolCallId());
+                if (pending != null) {
+                    long elapsed = now - pending.startNanos();
+                    state.toolNanos.merge(pending.toolName(), elapsed, Long::sum);
+                    toolTime.computeIfAbsent(pending.toolName(), k -> new LatencyHistogram()).record(elapsed);
+                }
+            } else if (event instanceof AssistantUsageEvent usage && usage.getData() != null) {
+                var data = usage.getData();
+                if (data.duration() != null) {
+                    state.modelNanos += (long) (data.duration() * 1_000_000.0);
+                }
+                state.inputTokens += data.inputTokens() != null ? data.inputTokens() : 0;
+                state.outputTokens += data.outputTokens() != null ? data.outputTokens() : 0;
+            } else if (event instanceof AssistantTurnEndEvent || event instanceof SessionIdleEvent) {
+                completed = state.finish(now);
+            }
+        }
+        if (completed != null) {
+            record(completed);
+        }
+    }
+
+    private void record(TurnProfile profile) {
+        turnDuration.record(profile.duration().toNanos());
+        modelTime.record(profile.modelTime().toNanos());
+        permissionWait.record(profile.permissionWait().toNanos());
+        hookWait.record(profile.hookWait().toNanos());
+        if (profile.timeToFirstToken() != null) {
+            timeToFirstToken.record(profile.timeToFirstToken().toNanos());
+        }
+        outputTokens.add(profile.outputTokens());
+        if (listener != null) {
+            try {
+                listener.accept(profile);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Turn profile listener error", e);
+            }
+        }
+    }
+
+    private record PendingTool(String toolName, long startNanos) {
+    }
+
+    /**
+     * Per-session accumulator for the turn in progress. Values observed between
+     * turns (for example a {@code userPromptSubmitted} hook) are carried into the
+     * next turn.
+     */
+    private static final class SessionState {
+
+        final String sessionId;
+        final Map<String, PendingTool> pendingTools = new HashMap<>();
+        final Map<String, Long> toolNanos = new HashMap<>();
+        boolean active;
+        boolean streamed;
+        String turnId;
+        Instant startTime;
+        long startNanos;
+        long firstTokenNanos;
+        long modelNanos;
+        double inputTokens;
+        double outputTokens;
+        long permissionNanos;
+        long hookNanos;
+
+        SessionState(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void start(long now, String turnId) {
+            this.active = true;
+            this.streamed = false;
+            this.turnId = turnId;
+            this.startTime = Instant.now();
+            this.startNanos = now;
+        }
+
+        synchronized void addCallback(CopilotMetrics.CallbackType type, long durationNanos) {
+            if (type == CopilotMetrics.CallbackType.PERMISSION) {
+                permissionNanos += durationNanos;
+            } else if (type == CopilotMetrics.CallbackType.HOOK) {
+                hookNanos += durationNanos;
+            }
+        }
+
+        TurnProfile finish(long now) {
+            if (!active) {
+                return null;
+            }
+            var tools = new TreeMap<String, Duration>();
+            toolNanos.forEach((name, nanos) -> tools.put(name, Duration.ofNanos(nanos)));
+            var profile = new TurnProfile(sessionId, turnId, startTime, Duration.ofNanos(now - startNanos),
+                    streamed ? Duration.ofNanos(firstTokenNanos - startNanos) : null,
+                    Duration.ofNanos(modelNanos), inputTokens, outputTokens, Collections.unmodifiableMap(tools),
+                    Duration.ofNanos(permissionNanos), Duration.ofNanos(hookNanos));
+            active = false;
+            streamed = false;
+            turnId = null;
+            startTime = null;
+            modelNanos = 0;
+            inputTokens = 0;
+            outputTokens = 0;
+            permissionNanos = 0;
+            hookNanos = 0;
+            toolNanos.clear();
+            return profile;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import com.github.copilot.sdk.events.AssistantUsageEvent.AssistantUsageData;
+
+/**
+ * Lock-free token and cost accounting across all sessions of a client.
+ * <p>
+ * Every client owns a ledger (see {@link CopilotClient#getUsageLedger()}) that
+ * is fed automatically from {@code assistant.usage} events. Usage is accumulated
+ * in striped {@link LongAdder}/{@link DoubleAdder} counters per model, per
+ * session and per custom tag, so recording scales with the number of
+ * concurrently active sessions.
+ * <p>
+ * Global, per-model and per-tag usage is additionally kept in rolling windows:
+ * second-resolution for windows up to one minute and minute-resolution for
+ * windows up to one hour. Window totals are approximate at bucket boundaries.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var ledger = client.getUsageLedger();
+ * ledger.tagSession(session.getSessionId(), "tenant:acme");
+ *
+ * // later
+ * UsageLedger.Usage lastMinute = ledger.getUsage(Duration.ofMinutes(1));
+ * System.out.println("output tokens/min: " + lastMinute.outputTokens());
+ * System.out.println("acme cost: " + ledger.snapshot().byTag().get("tenant:acme").cost());
+ * }</pre>
+ *
+ * @since 1.0.12
+ */
+public final class UsageLedger {
+
+    private static final int SECOND_BUCKETS = 60;
+    private static final int MINUTE_BUCKETS = 60;
+
+    private final LongSupplier clock;
+    private final Account total;
+    private final Map<String, Account> byModel = new ConcurrentHashMap<>();
+    private final Map<String, Counters> bySession = new ConcurrentHashMap<>();
+    private final Map<String, Account> byTag = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionTags = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> quotaSnapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Accumulated usage.
+     *
+     * @param requests
+     *            the number of model calls
+     * @param inputTokens
+     *            input tokens
+     * @param outputTokens
+     *            output tokens
+     * @param cacheReadTokens
+     *            tokens read from the prompt cache
+     * @param cacheWriteTokens
+     *            tokens written to the prompt cache
+     * @param cost
+     *            the cost reported by the server
+     * @param totalNanoAiu
+     *            Copilot usage in nano-AIU
+     * @since 1.0.12
+     */
+    public record Usage(long requests, long inputTokens, long outputTokens, long cacheReadTokens,
+            long cacheWriteTokens, double cost, double totalNanoAiu) {
+
+        /** Usage with all counters at zero. */
+        public static final Usage EMPTY = new Usage(0, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * A point-in-time export of all cumulative counters.
+     *
+     * @param timestamp
+     *            when the snapshot was taken
+     * @param total
+     *            usage across all sessions
+     * @param byModel
+     *            usage per model
+     * @param bySession
+     *            usage per session
+     * @param byTag
+     *            usage per tag
+     * @since 1.0.12
+     */
+    public record Snapshot(Instant timestamp, Usage total, Map<String, Usage> byModel, Map<String, Usage> bySession,
+            Map<String, Usage> byTag) {
+    }
+
+    /**
+     * Creates an empty ledger.
+     */
+    public UsageLedger() {
+        this(System::currentTimeMillis);
+    }
+
+    UsageLedger(LongSupplier clock) {
+        this.clock = clock;
+        this.total = new Account();
+    }
+
+    /**
+     * Records the usage reported by an {@code assistant.usage} event.
+     * <p>
+     * Called automatically by the client for every session it manages.
+     *
+     * @param sessionId
+     *            the session the usage belongs to
+     * @param data
+     *            the usage data; {@code null} is ignored
+     */
+    public void record(String sessionId, AssistantUsageData data) {
+        if (data == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        long input = tokens(data.inputTokens());
+        long output = tokens(data.outputTokens());
+        long cacheRead = tokens(data.cacheReadTokens());
+        long cacheWrite = tokens(data.cacheWriteTokens());
+        double cost = data.cost() != null ? data.cost() : 0;
+        double nanoAiu = data.copilotUsage() != null ? data.copilotUsage().totalNanoAiu() : 0;
+
+        total.add(now, input, output, cacheRead, cacheWrite, cost, nanoAiu);
+        String model = data.model() != null ? data.model() : "unknown";
+        byModel.computeIfAbsent(model, k -> new Account()).add(now, input, output, cacheRead, cacheWrite, cost,
+                nanoAiu);
+        if (sessionId != null) {
+            bySession.computeIfAbsent(sessionId, k -> new Counters()).add(input, output, cacheRead, cacheWrite, cost,
+                    nanoAiu);
+            Set<String> tags = sessionTags.get(sessionId);
+            if (tags != null) {
+                for (String tag : tags) {
+                    byTag.computeIfAbsent(tag, k -> new Account()).add(now, input, output, cacheRead, cacheWrite,
+                            cost, nanoAiu);
+                }
+            }
+        }
+        if (data.quotaSnapshots() != null && !data.quotaSnapshots().isEmpty()) {
+            quotaSnapshots.put(model, Collections.unmodifiableMap(data.quotaSnapshots()));
+        }
+    }
+
+    /**
+     * Attributes all future usage of a session to the given tags, for example a
+     * tenant or feature name.
+     *
+     * @param sessionId
+     *            the session ID
+     * @param tags
+     *            the tags to add
+     */
+    public void tagSession(String sessionId, String... tags) {
+        Set<String> set = sessionTags.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet());
+        Collections.addAll(set, tags);
+    }
+
+    /**
+     * Returns the tags attributed to a session.
+     *
+     * @param sessionId
+     *            the session ID
+     * @return an immutable copy of the session's tags
+     */
+    public Set<String> getSessionTags(String sessionId) {
+        Set<String> tags = sessionTags.get(sessionId);
+        return tags != null ? Set.copyOf(tags) : Set.of();
+    }
+
+    /**
+     * Drops the per-session counters and tags of a session. Model, tag and total
+     * counters are unaffected.
+     * <p>
+     * Called automatically when a session of the client is closed, hibernated
+     * or deleted.
+     *
+     * @param sessionId
+     *            the session ID
+     */
+    public void forgetSession(String sessionId) {
+        bySession.remove(sessionId);
+        sessionTags.remove(sessionId);
+    }
+
+    /**
+     * Returns cumulative usage across all sessions.
+     *
+     * @return the total usage
+     */
+    public Usage getTotal() {
+        return total.cumulative.toUsage();
+    }
+
+    /**
+     * Returns cumulative usage of a session.
+     *
+     * @param sessionId
+     *            the session ID
+     * @return the session's usage, or {@link Usage#EMPTY}
+     */
+    public Usage getSessionUsage(String sessionId) {
+        Counters counters = bySession.get(sessionId);
+        return counters != null ? counters.toUsage() : Usage.EMPTY;
+    }
+
+    /**
+     * Returns usage across all sessions within a rolling window.
+     *
+     * @param window
+     *            the window length, at most one hour
+     * @return the usage within the window
+     */
+    public Usage getUsage(Duration window) {
+        return total.window(clock.getAsLong(), window);
+    }
+
+    /**
+     * Returns usage of a model within a rolling window.
+     *
+     * @param model
+     *            the model ID
+     * @param window
+     *            the window length, at most one hour
+     * @return the model's usage within the window, or {@link Usage#EMPTY}
+     */
+    public Usage getModelUsage(String model, Duration window) {
+        Account account = byModel.get(model);
+        return account != null ? account.window(clock.getAsLong(), window) : Usage.EMPTY;
+    }
+
+    /**
+     * Returns usage attributed to a tag within a rolling window.
+     *
+     * @param tag
+     *            the tag
+     * @param window
+     *            the window length, at most one hour
+     * @return the tag's usage within the window, or {@link Usage#EMPTY}
+     */
+    public Usage getTagUsage(String tag, Duration window) {
+        Account account = byTag.get(tag);
+        return account != null ? account.window(clock.getAsLong(), window) : Usage.EMPTY;
+    }
+
+    /**
+     * Returns the most recent {@code quotaSnapshots} reported for each model.
+     *
+     * @return an immutable map from model ID to its latest quota snapshots
+     */
+    public Map<String, Map<String, Object>> getQuotaSnapshots() {
+        return Map.copyOf(quotaSnapshots);
+    }
+
+    /**
+     * Exports all cumulative counters.
+     *
+     * @return an immutable snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(Instant.ofEpochMilli(clock.getAsLong()), getTotal(), export(byModel, a -> a.cumulative),
+                export(bySession, c -> c), export(byTag, a -> a.cumulative));
+    }
+
+    private static <T> Map<String, Usage> export(Map<String, T> source, Function<T, Counters> counters) {
+        var result = new TreeMap<String, Usage>();
+        source.forEach((key, value) -> result.put(key, counters.apply(value).toUsage()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static long tokens(Double value) {
+        return value != null ? Math.round(value) : 0;
+    }
+
+    private static final class Counters {
+        final LongAdder requests = new LongAdder();
+        final LongAdder inputTokens = new LongAdder();
+        final LongAdder outputTokens = new LongAdder();
+        final LongAdder cacheReadTokens = new LongAdder();
+        final LongAdder cacheWriteTokens = new LongAdder();
+        final DoubleAdder cost = new DoubleAdder();
+        final DoubleAdder totalNanoAiu = new DoubleAdder();
+
+        void add(long input, long output, long cacheRead, long cacheWrite, double cost, double nanoAiu) {
+            requests.increment();
+            inputTokens.add(input);
+            outputTokens.add(output);
+            cacheReadTokens.add(cacheRead);
+            cacheWriteTokens.add(cacheWrite);
+            this.cost.add(cost);
+            totalNanoAiu.add(nanoAiu);
+        }
+
+        Usage toUsage() {
+            return new Usage(requests.sum(), inputTokens.sum(), outputTokens.sum(), cacheReadTokens.sum(),
+                    cacheWriteTokens.sum(), cost.sum(), totalNanoAiu.sum());
+        }
+    }
+
+    /**
+     * Cumulative counters plus second- and minute-resolution rolling windows.
+     */
+    private static final class Account {
+        final Counters cumulative = new Counters();
+        final Ring seconds = new Ring(1_000, SECOND_BUCKETS);
+        final Ring minutes = new Ring(60_000, MINUTE_BUCKETS);
+
+        void add(long now, long input, long output, long cacheRead, long cacheWrite, double cost, double nanoAiu) {
+            cumulative.add(input, output, cacheRead, cacheWrite, cost, nanoAiu);
+            seconds.bucket(now).add(input, output, cacheRead, cacheWrite, cost, nanoAiu);
+            minutes.bucket(now).add(input, output, cacheRead, cacheWrite, cost, nanoAiu);
+        }
+
+        Usage window(long now, Duration window) {
+            long millis = window.toMillis();
+            return millis <= SECOND_BUCKETS * 1_000L ? seconds.sum(now, millis) : minutes.sum(now, millis);
+        }
+    }
+
+    /**
+     * A ring of time buckets. A bucket is lazily replaced by the first writer
+     * that observes it belongs to an older period; the replacement is a single
+     * compare-and-set, so no write to the new period can be lost to a reset.
+     */
+    private static final class Ring {
+        final long widthMillis;
+        final AtomicReferenceArray<Bucket> buckets;
+
+        Ring(long widthMillis, int size) {
+            this.widthMillis = widthMillis;
+            this.buckets = new AtomicReferenceArray<>(size);
+            for (int i = 0; i < size; i++) {
+                buckets.set(i, new Bucket(Long.MIN_VALUE, new Counters()));
+            }
+        }
+
+        Counters bucket(long now) {
+            long period = now / widthMillis;
+            int index = (int) Math.floorMod(period, (long) buckets.length());
+            while (true) {
+                Bucket current = buckets.get(index);
+                if (current.period() >= period) {
+                    return current.counters();
+                }
+                var fresh = new Bucket(period, new Counters());
+                if (buckets.compareAndSet(index, current, fresh)) {
+                    return fresh.counters();
+                }
+            }
+        }
+
+        Usage sum(long now, long windowMillis) {
+            long newest = now / widthMillis;
+            long count = Math.min(buckets.length(), Math.max(1, (windowMillis + widthMillis - 1) / widthMillis));
+            long oldest = newest - count + 1;
+            long requests = 0;
+            long input = 0;
+            long output = 0;
+            long cacheRead = 0;
+            long cacheWrite = 0;
+            double cost = 0;
+            double nanoAiu = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                Bucket bucket = buckets.get(i);
+                if (bucket.period() >= oldest && bucket.period() <= newest) {
+                    Counters c = bucket.counters();
+                    requests += c.requests.sum();
+                    input += c.inputTokens.sum();
+                    output += c.outputTokens.sum();
+                    cacheRead += c.cacheReadTokens.sum();
+                    cacheWrite += c.cacheWriteTokens.sum();
+                    cost += c.cost.sum();
+                    nanoAiu += c.totalNanoAiu.sum();
+                }
+            }
+            return new Usage(requests, input, output, cacheRead, cacheWrite, cost, nanoAiu);
+        }
+    }
+
+    /**
+     * The counters of one time bucket and the period they belong to.
+     */
+    private record Bucket(long period, Counters counters) {
+    }
+}
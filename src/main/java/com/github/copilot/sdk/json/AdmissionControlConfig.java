@@ -0,0 +1,262 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Configuration for client-side admission control of
+ * {@link com.github.copilot.sdk.CopilotSession#send(MessageOptions)}.
+ * <p>
+ * When configured on {@link CopilotClientOptions#setAdmissionControl}, every
+ * session turn must be admitted before its message is sent to the server. A
+ * turn holds its admission from the first {@code send} until the session
+ * reports {@code session.idle} or {@code session.error}; further messages sent
+ * during the turn are not admitted again. Admission combines:
+ * <ul>
+ * <li>a token bucket that limits how many turns start per second across the
+ * whole client,</li>
+ * <li>a cap on the number of concurrent turns per model,</li>
+ * <li>feedback from the {@code quotaSnapshots} reported by
+ * {@code assistant.usage} events: when the remaining quota drops below a
+ * threshold, new turns are shed instead of queued.</li>
+ * </ul>
+ * Turns that cannot start immediately wait in a queue that is served round
+ * robin across tenants, then across sessions of the same tenant, so a single
+ * busy session or tenant cannot starve the others. Sends that are shed or wait
+ * longer than {@link #getMaxQueueWait()} fail with
+ * {@link java.util.concurrent.RejectedExecutionException}.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var admission = new AdmissionControlConfig().setRequestsPerSecond(5).setMaxConcurrentPerModel(8)
+ * 		.setMinRemainingQuotaPercentage(5.0).setTenantResolver(sessionId -> tenantOf(sessionId));
+ *
+ * var client = new CopilotClient(new CopilotClientOptions().setAdmissionControl(admission));
+ * }</pre>
+ *
+ * @see CopilotClientOptions#setAdmissionControl(AdmissionControlConfig)
+ * @since 1.0.12
+ */
+public class AdmissionControlConfig {
+
+    private double requestsPerSecond;
+    private int burst;
+    private int maxConcurrentPerModel;
+    private int maxQueueSize = 1000;
+    private Duration maxQueueWait = Duration.ofMinutes(1);
+    private double minRemainingQuotaPercentage;
+    private Function<String, String> tenantResolver;
+
+    /**
+     * Gets the rate at which new turns are admitted.
+     *
+     * @return turns per second, or {@code 0} if the rate is not limited
+     */
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * Sets the rate at which new turns are admitted across all sessions of the
+     * client.
+     * <p>
+     * Default: 0 (unlimited)
+     *
+     * @param requestsPerSecond
+     *            turns per second, or {@code 0} for no limit
+     * @return this config instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code requestsPerSecond} is negative
+     */
+    public AdmissionControlConfig setRequestsPerSecond(double requestsPerSecond) {
+        if (requestsPerSecond < 0) {
+            throw new IllegalArgumentException("requestsPerSecond must not be negative");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        return this;
+    }
+
+    /**
+     * Gets the token bucket capacity.
+     *
+     * @return the burst size, or {@code 0} to derive it from the rate
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Sets how many turns may be admitted back to back before the rate limit
+     * applies.
+     * <p>
+     * Default: 0, which uses the rate rounded up (at least 1)
+     *
+     * @param burst
+     *            the token bucket capacity
+     * @return this config instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code burst} is negative
+     */
+    public AdmissionControlConfig setBurst(int burst) {
+        if (burst < 0) {
+            throw new IllegalArgumentException("burst must not be negative");
+        }
+        this.burst = burst;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of concurrent turns per model.
+     *
+     * @return the cap, or {@code 0} if concurrency is not limited
+     */
+    public int getMaxConcurrentPerModel() {
+        return maxConcurrentPerModel;
+    }
+
+    /**
+     * Sets the maximum number of turns that may run concurrently against the
+     * same model. Sessions without an explicit model share the server's default
+     * model bucket.
+     * <p>
+     * Default: 0 (unlimited)
+     *
+     * @param maxConcurrentPerModel
+     *            the cap, or {@code 0} for no limit
+     * @return this config instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxConcurrentPerModel} is negative
+     */
+    public AdmissionControlConfig setMaxConcurrentPerModel(int maxConcurrentPerModel) {
+        if (maxConcurrentPerModel < 0) {
+            throw new IllegalArgumentException("maxConcurrentPerModel must not be negative");
+        }
+        this.maxConcurrentPerModel = maxConcurrentPerModel;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of queued turns.
+     *
+     * @return the queue capacity
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Sets the maximum number of turns waiting for admission. Sends beyond this
+     * limit are shed immediately.
+     * <p>
+     * Default: 1000
+     *
+     * @param maxQueueSize
+     *            the queue capacity; {@code 0} sheds every send that cannot be
+     *            admitted immediately
+     * @return this config instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxQueueSize} is negative
+     */
+    public AdmissionControlConfig setMaxQueueSize(int maxQueueSize) {
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxQueueSize must not be negative");
+        }
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
+    /**
+     * Gets the maximum time a turn may wait for admission.
+     *
+     * @return the maximum queue wait
+     */
+    public Duration getMaxQueueWait() {
+        return maxQueueWait;
+    }
+
+    /**
+     * Sets the maximum time a turn may wait for admission before its send fails.
+     * <p>
+     * Default: 1 minute
+     *
+     * @param maxQueueWait
+     *            the maximum queue wait
+     * @return this config instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxQueueWait} is {@code null} or negative
+     */
+    public AdmissionControlConfig setMaxQueueWait(Duration maxQueueWait) {
+        if (maxQueueWait == null || maxQueueWait.isNegative()) {
+            throw new IllegalArgumentException("maxQueueWait must not be null or negative");
+        }
+        this.maxQueueWait = maxQueueWait;
+        return this;
+    }
+
+    /**
+     * Gets the remaining-quota threshold below which new turns are shed.
+     *
+     * @return the threshold percentage, or {@code 0} if quota feedback is
+     *         disabled
+     */
+    public double getMinRemainingQuotaPercentage() {
+        return minRemainingQuotaPercentage;
+    }
+
+    /**
+     * Sets the remaining-quota threshold below which new turns are shed.
+     * <p>
+     * The lowest {@code remainingPercentage} across the entries of the most
+     * recent {@code quotaSnapshots} is compared against this value; entries
+     * marked {@code isUnlimitedEntitlement} are ignored. While shedding, one turn
+     * per minute is still admitted so that a fresh report can end the shedding
+     * once the quota resets.
+     * <p>
+     * Default: 0 (disabled)
+     *
+     * @param minRemainingQuotaPercentage
+     *            the threshold, from 0 to 100
+     * @return this config instance for method chaining
+     * @throws IllegalArgumentException
+     *             if the value is outside 0 to 100
+     */
+    public AdmissionControlConfig setMinRemainingQuotaPercentage(double minRemainingQuotaPercentage) {
+        if (minRemainingQuotaPercentage < 0 || minRemainingQuotaPercentage > 100) {
+            throw new IllegalArgumentException("minRemainingQuotaPercentage must be between 0 and 100");
+        }
+        this.minRemainingQuotaPercentage = minRemainingQuotaPercentage;
+        return this;
+    }
+
+    /**
+     * Gets the function that maps session IDs to tenants.
+     *
+     * @return the tenant resolver, or {@code null} if every session is its own
+     *         tenant
+     */
+    public Function<String, String> getTenantResolver() {
+        return tenantResolver;
+    }
+
+    /**
+     * Sets the function that maps a session ID to the tenant it belongs to.
+     * Queued turns are served round robin across tenants first, then across the
+     * sessions of a tenant.
+     * <p>
+     * Default: {@code null}, which treats every session as its own tenant
+     *
+     * @param tenantResolver
+     *            maps a session ID to a tenant key; a {@code null} result falls
+     *            back to the session ID
+     * @return this config instance for method chaining
+     */
+    public AdmissionControlConfig setTenantResolver(Function<String, String> tenantResolver) {
+        this.tenantResolver = tenantResolver;
+        return this;
+    }
+}
@@ -4,12 +4,15 @@
 
 package com.github.copilot.sdk.json;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.copilot.sdk.CopilotEventLoop;
+import com.github.copilot.sdk.CopilotMetrics;
 
 /**
  * Configuration options for creating a
@@ -47,6 +50,13 @@ public class CopilotClientOptions {
     private String gitHubToken;
     private Boolean useLoggedInUser;
     private Supplier<CompletableFuture<List<ModelInfo>>> onListModels;
+    private int lifecycleEventThreads;
+    private CopilotMetrics metrics = CopilotMetrics.NOOP;
+    private AdmissionControlConfig admissionControl;
+    private Duration toolTimeout;
+    private EventJournalConfig eventJournal;
+    private CopilotEventLoop eventLoop;
+    private int maxFrameSize = 64 * 1024 * 1024;
 
     /**
      * Gets the path to the Copilot CLI executable.
@@ -175,6 +185,9 @@ public class CopilotClientOptions {
      * <p>
      * When provided, the client will not spawn a CLI process but will connect to
      * the specified URL instead. Format: "host:port" or "http://host:port".
+     * A server on the same host can also be reached through a Unix domain
+     * socket with "unix:/path/to/socket", which avoids the loopback network
+     * stack and does not expose a port.
      * <p>
      * <strong>Note:</strong> This is mutually exclusive with
      * {@link #setUseStdio(boolean)} and {@link #setCliPath(String)}.
@@ -378,6 +391,235 @@ public class CopilotClientOptions {
         return this;
     }
 
+    /**
+     * Gets the number of dedicated threads used to deliver session lifecycle
+     * events.
+     *
+     * @return the number of delivery threads, or {@code 0} if lifecycle handlers
+     *         run inline on the connection's reader thread (default)
+     */
+    public int getLifecycleEventThreads() {
+        return lifecycleEventThreads;
+    }
+
+    /**
+     * Sets the number of dedicated threads used to deliver session lifecycle
+     * events to handlers registered via
+     * {@link com.github.copilot.sdk.CopilotClient#onLifecycle(SessionLifecycleHandler)}.
+     * <p>
+     * By default ({@code 0}) handlers run inline on the thread that reads from the
+     * CLI connection, so a slow handler delays every message that follows. With a
+     * positive value, events are handed off to a dedicated executor. Events for
+     * the same session are always delivered in order.
+     *
+     * @param lifecycleEventThreads
+     *            the number of delivery threads, or {@code 0} for inline delivery
+     * @return this options instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code lifecycleEventThreads} is negative
+     */
+    public CopilotClientOptions setLifecycleEventThreads(int lifecycleEventThreads) {
+        if (lifecycleEventThreads < 0) {
+            throw new IllegalArgumentException("lifecycleEventThreads must not be negative");
+        }
+        this.lifecycleEventThreads = lifecycleEventThreads;
+        return this;
+    }
+
+    /**
+     * Gets the metrics collector.
+     *
+     * @return the metrics collector, {@link CopilotMetrics#NOOP} by default
+     */
+    public CopilotMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the collector that receives runtime metrics from the client.
+     * <p>
+     * The collector is notified of every JSON-RPC request (latency and error
+     * codes per method), frames and bytes sent and received, time spent in
+     * session event handlers per event type, and tool, permission, user input
+     * and hook callback latency. Use
+     * {@link com.github.copilot.sdk.CopilotMetricsRegistry} for an in-memory
+     * implementation.
+     *
+     * @param metrics
+     *            the metrics collector, or {@code null} to disable metrics
+     * @return this options instance for method chaining
+     */
+    public CopilotClientOptions setMetrics(CopilotMetrics metrics) {
+        this.metrics = metrics != null ? metrics : CopilotMetrics.NOOP;
+        return this;
+    }
+
+    /**
+     * Gets the admission control configuration.
+     *
+     * @return the admission control configuration, or {@code null} if sends
+     *         are not admission controlled (default)
+     */
+    public AdmissionControlConfig getAdmissionControl() {
+        return admissionControl;
+    }
+
+    /**
+     * Sets the admission control applied to
+     * {@link com.github.copilot.sdk.CopilotSession#send(MessageOptions)} across
+     * all sessions of the client.
+     * <p>
+     * With admission control, each session turn waits for a rate limit token and
+     * a per-model concurrency slot before its message is sent, and new turns are
+     * shed when the reported quota runs low. Queue wait time is reported to the
+     * configured {@link #setMetrics(CopilotMetrics) metrics} collector.
+     *
+     * @param admissionControl
+     *            the admission control configuration, or {@code null} to send
+     *            without admission control
+     * @return this options instance for method chaining
+     * @see AdmissionControlConfig
+     */
+    public CopilotClientOptions setAdmissionControl(AdmissionControlConfig admissionControl) {
+        this.admissionControl = admissionControl;
+        return this;
+    }
+
+    /**
+     * Gets the maximum time a tool handler may run.
+     *
+     * @return the tool timeout, or {@code null} if tool calls do not time out
+     *         (default)
+     */
+    public Duration getToolTimeout() {
+        return toolTimeout;
+    }
+
+    /**
+     * Sets the maximum time a tool handler may run, measured from when the call
+     * is received, including any time spent waiting in a tool's bulkhead queue.
+     * <p>
+     * Each {@link ToolInvocation} carries the resulting
+     * {@link ToolInvocation#getDeadline() deadline}. When it passes, the model
+     * receives a failure result, the handler's future is cancelled and its
+     * {@link ToolInvocation#getCancellationToken() cancellation token} fires.
+     *
+     * @param toolTimeout
+     *            the timeout, or {@code null} for none
+     * @return this options instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code toolTimeout} is zero or negative
+     * @since 1.0.12
+     */
+    public CopilotClientOptions setToolTimeout(Duration toolTimeout) {
+        if (toolTimeout != null && (toolTimeout.isNegative() || toolTimeout.isZero())) {
+            throw new IllegalArgumentException("toolTimeout must be positive");
+        }
+        this.toolTimeout = toolTimeout;
+        return this;
+    }
+
+    /**
+     * Gets the local event journal configuration.
+     *
+     * @return the event journal configuration, or {@code null} if events are not
+     *         journaled (default)
+     */
+    public EventJournalConfig getEventJournal() {
+        return eventJournal;
+    }
+
+    /**
+     * Enables a local, memory-mapped journal of each session's events, from
+     * which {@link com.github.copilot.sdk.CopilotSession#getMessages()} is
+     * served without re-downloading the history.
+     *
+     * @param eventJournal
+     *            the journal configuration, or {@code null} to disable journaling
+     * @return this options instance for method chaining
+     * @throws IllegalArgumentException
+     *             if the configuration has no directory
+     * @see EventJournalConfig
+     */
+    public CopilotClientOptions setEventJournal(EventJournalConfig eventJournal) {
+        if (eventJournal != null && eventJournal.getDirectory() == null) {
+            throw new IllegalArgumentException("EventJournalConfig requires a directory");
+        }
+        this.eventJournal = eventJournal;
+        return this;
+    }
+
+    /**
+     * Gets the event loop that serves the connection.
+     *
+     * @return the event loop, or {@code null} if the connection is read on a
+     *         dedicated thread (default)
+     * @since 1.0.12
+     */
+    public CopilotEventLoop getEventLoop() {
+        return eventLoop;
+    }
+
+    /**
+     * Sets a shared event loop that serves the connection on its selector
+     * threads instead of a dedicated reader thread.
+     * <p>
+     * Applies to TCP and Unix domain socket connections, whether to an external
+     * server set with {@link #setCliUrl(String)} or to a CLI process started
+     * with {@code useStdio} disabled. Stdio connections are always read on a
+     * dedicated thread. The event loop is not closed with the client.
+     *
+     * @param eventLoop
+     *            the event loop, or {@code null} to use a dedicated reader
+     *            thread
+     * @return this options instance for method chaining
+     * @since 1.0.12
+     */
+    public CopilotClientOptions setEventLoop(CopilotEventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+        return this;
+    }
+
+    /**
+     * Gets the maximum size of an inbound message.
+     *
+     * @return the maximum message body size in bytes, 64 MiB by default
+     * @since 1.0.12
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * Sets the maximum size of an inbound message, so that a corrupted
+     * Content-Length header or a pathological response cannot exhaust the heap.
+     * <p>
+     * Messages up to the limit are read as usual. Larger ones are skipped as
+     * they arrive, keeping nothing but their ID and method: a request whose
+     * response is discarded fails with JSON-RPC error -32600, the CLI receives
+     * that error for a discarded request, and the discarded frame is reported
+     * to {@link com.github.copilot.sdk.CopilotMetrics#frameRejected(int)}. With
+     * an {@link CopilotEventLoop} only the first 16 KiB
+     * are looked at; a response whose ID comes later is matched only if it is
+     * the single outstanding request.
+     * <p>
+     * Default: 64 MiB
+     *
+     * @param maxFrameSize
+     *            the maximum message body size in bytes
+     * @return this options instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxFrameSize} is less than 64 KiB
+     * @since 1.0.12
+     */
+    public CopilotClientOptions setMaxFrameSize(int maxFrameSize) {
+        if (maxFrameSize < 64 * 1024) {
+            throw new IllegalArgumentException("maxFrameSize must be at least 64 KiB");
+        }
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
     /**
      * Creates a shallow clone of this {@code CopilotClientOptions} instance.
      * <p>
@@ -404,6 +646,13 @@ public class CopilotClientOptions {
         copy.gitHubToken = this.gitHubToken;
         copy.useLoggedInUser = this.useLoggedInUser;
         copy.onListModels = this.onListModels;
+        copy.lifecycleEventThreads = this.lifecycleEventThreads;
+        copy.metrics = this.metrics;
+        copy.admissionControl = this.admissionControl;
+        copy.toolTimeout = this.toolTimeout;
+        copy.eventJournal = this.eventJournal;
+        copy.eventLoop = this.eventLoop;
+        copy.maxFrameSize = this.maxFrameSize;
         return copy;
     }
 }
@@ -0,0 +1,88 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method as a tool that the assistant can invoke.
+ * <p>
+ * The SDK's annotation processor turns every class with {@code @CopilotTool}
+ * methods into a generated {@code <ClassName>CopilotTools} class in the same
+ * package (nested classes are prefixed with their enclosing class names and
+ * an underscore). Its {@code definitions(...)} method returns a
+ * {@link ToolDefinition} per annotated method, with the JSON schema generated
+ * at compile time from the method's argument type and a precompiled Jackson
+ * reader that binds the arguments. No classpath scanning or reflection over
+ * the tool class happens at runtime.
+ * <p>
+ * An annotated method must not be private and may declare:
+ * <ul>
+ * <li>no parameters,</li>
+ * <li>one record or POJO parameter that receives the arguments,</li>
+ * <li>a {@link ToolInvocation} parameter, alone or after the arguments.</li>
+ * </ul>
+ * It may return any JSON-serializable value, a {@link ToolResultObject}, a
+ * {@link java.util.concurrent.CompletionStage} of either, or {@code void}.
+ * Record components and POJO properties are required arguments unless they
+ * are annotated with {@code @ToolParam(required = false)}, in which case a
+ * missing argument binds as {@code null} (use a wrapper type such as
+ * {@code Integer} for optional numbers).
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * public class WeatherTools {
+ * 	public record Forecast(@ToolParam(description = "City name") String city,
+ * 			@ToolParam(required = false) Integer days) {
+ * 	}
+ *
+ * 	&#64;CopilotTool(name = "get_forecast", description = "Gets the weather forecast for a city")
+ * 	public CompletableFuture<String> forecast(Forecast args) {
+ * 		return weatherService.forecast(args.city(), args.days() != null ? args.days() : 3);
+ * 	}
+ * }
+ *
+ * var session = client.createSession(new SessionConfig()
+ * 		.setTools(WeatherToolsCopilotTools.definitions(new WeatherTools()))
+ * 		.setOnPermissionRequest(PermissionHandler.APPROVE_ALL)).get();
+ * }</pre>
+ *
+ * @see ToolParam
+ * @see ToolDefinition
+ * @since 1.0.12
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface CopilotTool {
+
+    /**
+     * The tool name. Defaults to the method name.
+     *
+     * @return the tool name
+     */
+    String name() default "";
+
+    /**
+     * A description of what the tool does, shown to the model.
+     *
+     * @return the description
+     */
+    String description();
+
+    /**
+     * Whether the tool intentionally overrides a built-in CLI tool with the
+     * same name.
+     *
+     * @return {@code true} to override a built-in tool
+     * @see ToolDefinition#createOverride
+     */
+    boolean overridesBuiltInTool() default false;
+}
@@ -0,0 +1,85 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration for the local per-session event journal.
+ * <p>
+ * When configured on {@link CopilotClientOptions#setEventJournal}, every
+ * non-ephemeral event dispatched to a session is appended to an append-only,
+ * segmented, memory-mapped journal under {@code <directory>/<sessionId>/}, and
+ * {@link com.github.copilot.sdk.CopilotSession#getMessages()} is served from
+ * the journal instead of downloading and parsing the full history on every
+ * call. After a session is resumed, the first {@code getMessages()} call
+ * fetches the server's history once and journals only the events after the
+ * last journaled event ID.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var journal = new EventJournalConfig().setDirectory(Path.of("/var/lib/app/copilot-journal"));
+ * var client = new CopilotClient(new CopilotClientOptions().setEventJournal(journal));
+ * }</pre>
+ *
+ * @see CopilotClientOptions#setEventJournal(EventJournalConfig)
+ * @since 1.0.12
+ */
+public class EventJournalConfig {
+
+    private Path directory;
+    private int segmentSize = 8 * 1024 * 1024;
+
+    /**
+     * Gets the root directory of the journals.
+     *
+     * @return the journal root directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Sets the root directory under which each session's journal is stored.
+     *
+     * @param directory
+     *            the journal root directory; created if it does not exist
+     * @return this config instance for method chaining
+     */
+    public EventJournalConfig setDirectory(Path directory) {
+        this.directory = directory;
+        return this;
+    }
+
+    /**
+     * Gets the size of journal segment files.
+     *
+     * @return the segment size in bytes
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Sets the size of journal segment files. Each segment is memory-mapped as a
+     * whole; events larger than a segment get a segment of their own.
+     * <p>
+     * Default: 8 MiB
+     *
+     * @param segmentSize
+     *            the segment size in bytes
+     * @return this config instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code segmentSize} is less than 4 KiB
+     */
+    public EventJournalConfig setSegmentSize(int segmentSize) {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("segmentSize must be at least 4096 bytes");
+        }
+        this.segmentSize = segmentSize;
+        return this;
+    }
+}
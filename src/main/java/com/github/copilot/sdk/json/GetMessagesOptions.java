@@ -0,0 +1,138 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Options for streaming a session's history with
+ * {@link com.github.copilot.sdk.CopilotSession#streamMessages(GetMessagesOptions)}.
+ * <p>
+ * By default events are bound lazily on the consuming thread as the history
+ * is tokenized. Event types can be filtered before they are bound to event
+ * objects, and chunks of events can be bound in parallel on a
+ * {@link ForkJoinPool} while keeping the history order.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var options = new GetMessagesOptions().setEventTypes(Set.of("user.message", "assistant.message"))
+ * 		.setParallel(true);
+ * try (Stream<AbstractSessionEvent> events = session.streamMessages(options).get()) {
+ * 	events.forEach(event -> index(event));
+ * }
+ * }</pre>
+ *
+ * @see com.github.copilot.sdk.CopilotSession#streamMessages(GetMessagesOptions)
+ * @since 1.0.12
+ */
+public class GetMessagesOptions {
+
+    private Set<String> eventTypes;
+    private boolean parallel;
+    private int chunkSize = 256;
+    private ForkJoinPool pool;
+
+    /**
+     * Gets the event types to return.
+     *
+     * @return the event types, or {@code null} for all types
+     */
+    public Set<String> getEventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * Sets the event types to return, e.g. {@code "assistant.message"}. Events
+     * of other types are skipped after reading their {@code type} field, without
+     * being bound to event objects.
+     *
+     * @param eventTypes
+     *            the event types, or {@code null} for all types
+     * @return this options instance for method chaining
+     */
+    public GetMessagesOptions setEventTypes(Set<String> eventTypes) {
+        this.eventTypes = eventTypes != null ? Set.copyOf(eventTypes) : null;
+        return this;
+    }
+
+    /**
+     * Returns whether events are bound in parallel.
+     *
+     * @return {@code true} if chunks are bound in parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets whether chunks of events are bound in parallel on the
+     * {@link #setPool pool}. The returned stream keeps the history order either
+     * way; in parallel mode a bounded number of chunks is bound ahead of the
+     * consumer.
+     * <p>
+     * Default: false
+     *
+     * @param parallel
+     *            {@code true} to bind chunks in parallel
+     * @return this options instance for method chaining
+     */
+    public GetMessagesOptions setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Gets the number of events per parallel chunk.
+     *
+     * @return the chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of events bound by each parallel task.
+     * <p>
+     * Default: 256
+     *
+     * @param chunkSize
+     *            the chunk size
+     * @return this options instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code chunkSize} is not positive
+     */
+    public GetMessagesOptions setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Gets the pool used for parallel binding.
+     *
+     * @return the pool, or {@code null} for the common pool
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the pool used for parallel binding.
+     * <p>
+     * Default: {@link ForkJoinPool#commonPool()}
+     *
+     * @param pool
+     *            the pool, or {@code null} for the common pool
+     * @return this options instance for method chaining
+     */
+    public GetMessagesOptions setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+}
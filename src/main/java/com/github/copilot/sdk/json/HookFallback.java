@@ -0,0 +1,32 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+/**
+ * The output sent to the CLI in place of a hook result that missed its
+ * deadline.
+ *
+ * @see SessionHooks#setFallback(HookFallback)
+ * @since 1.0.12
+ */
+public enum HookFallback {
+
+    /**
+     * A {@code preToolUse} hook allows the tool call; other hooks pass their
+     * input through unchanged.
+     */
+    ALLOW,
+
+    /**
+     * A {@code preToolUse} hook denies the tool call; other hooks pass their
+     * input through unchanged.
+     */
+    DENY,
+
+    /**
+     * No output is returned, so the CLI proceeds as if no hook were registered.
+     */
+    PASS_THROUGH
+}
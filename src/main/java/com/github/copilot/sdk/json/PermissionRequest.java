@@ -4,8 +4,11 @@
 
 package com.github.copilot.sdk.json;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -70,9 +73,14 @@ public class PermissionRequest {
 
     /**
      * Gets additional extension data for the request.
+     * <p>
+     * Contains every kind-specific property of the request, such as
+     * {@code path} for {@code read} requests or {@code fullCommandText} and
+     * {@code commands} for {@code shell} requests.
      *
      * @return the extension data map
      */
+    @JsonAnyGetter
     public Map<String, Object> getExtensionData() {
         return extensionData;
     }
@@ -86,4 +94,12 @@ public class PermissionRequest {
     public void setExtensionData(Map<String, Object> extensionData) {
         this.extensionData = extensionData;
     }
+
+    @JsonAnySetter
+    void putExtensionData(String name, Object value) {
+        if (extensionData == null) {
+            extensionData = new LinkedHashMap<>();
+        }
+        extensionData.put(name, value);
+    }
 }
@@ -0,0 +1,209 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A pre-tool-use handler that runs several independent hooks in parallel and
+ * merges their outputs.
+ * <p>
+ * Every hook receives the same input and is started on the
+ * {@link #setExecutor executor}, so the CLI waits for the slowest hook rather
+ * than for the sum of all hooks. As soon as any hook denies the call, the chain
+ * answers with that denial without waiting for the others. Otherwise the
+ * outputs are merged with {@link #merge(List)} in the order the hooks were
+ * added. If a hook fails and no hook denied, the chain fails with that error.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var hooks = new SessionHooks().setOnPreToolUse(
+ * 		new PreToolUseHookChain().add(policyCheck).add(auditLog).add(piiScan).add(quotaCheck).setExecutor(executor));
+ *
+ * // or, equivalently
+ * var hooks = new SessionHooks().addOnPreToolUse(policyCheck).addOnPreToolUse(auditLog);
+ * }</pre>
+ *
+ * @see SessionHooks#addOnPreToolUse(PreToolUseHandler)
+ * @since 1.0.12
+ */
+public class PreToolUseHookChain implements PreToolUseHandler {
+
+    private final List<PreToolUseHandler> handlers = new CopyOnWriteArrayList<>();
+    private volatile Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * Creates an empty chain that runs hooks on the common fork-join pool.
+     */
+    public PreToolUseHookChain() {
+    }
+
+    /**
+     * Appends a hook to the chain.
+     *
+     * @param handler
+     *            the hook
+     * @return this chain for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code handler} is {@code null}
+     */
+    public PreToolUseHookChain add(PreToolUseHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
+        }
+        handlers.add(handler);
+        return this;
+    }
+
+    /**
+     * Gets the hooks of the chain, in the order they were added.
+     *
+     * @return an immutable copy of the hooks
+     */
+    public List<PreToolUseHandler> getHandlers() {
+        return List.copyOf(handlers);
+    }
+
+    /**
+     * Sets the executor the hooks are started on. Use an executor with enough
+     * threads for hooks that block.
+     * <p>
+     * Default: {@link ForkJoinPool#commonPool()}
+     *
+     * @param executor
+     *            the executor
+     * @return this chain for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code executor} is {@code null}
+     */
+    public PreToolUseHookChain setExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<PreToolUseHookOutput> handle(PreToolUseHookInput input, HookInvocation invocation) {
+        List<PreToolUseHandler> snapshot = List.copyOf(handlers);
+        if (snapshot.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        var result = new CompletableFuture<PreToolUseHookOutput>();
+        var futures = new ArrayList<CompletableFuture<PreToolUseHookOutput>>(snapshot.size());
+        for (PreToolUseHandler handler : snapshot) {
+            CompletableFuture<PreToolUseHookOutput> future = CompletableFuture
+                    .supplyAsync(() -> handler.handle(input, invocation), executor)
+                    .thenCompose(output -> output != null ? output : CompletableFuture.completedFuture(null));
+            future.thenAccept(output -> {
+                if (output != null && "deny".equals(output.permissionDecision())) {
+                    result.complete(output);
+                }
+            });
+            futures.add(future);
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null
+                        ? ex.getCause()
+                        : ex);
+                return;
+            }
+            var outputs = new ArrayList<PreToolUseHookOutput>(futures.size());
+            for (CompletableFuture<PreToolUseHookOutput> future : futures) {
+                outputs.add(future.join());
+            }
+            result.complete(merge(outputs));
+        });
+        result.whenComplete((output, ex) -> futures.forEach(future -> future.cancel(false)));
+        return result;
+    }
+
+    /**
+     * Merges hook outputs as the chain does, in the given order:
+     * <ul>
+     * <li>the most restrictive permission decision wins ({@code deny} over
+     * {@code ask} over {@code allow}), with the reason of the first output that
+     * made it;</li>
+     * <li>modified arguments are applied in order: object fields of later
+     * outputs override those of earlier ones, and any other value replaces the
+     * arguments;</li>
+     * <li>additional context is joined with newlines;</li>
+     * <li>output is suppressed if any output suppresses it.</li>
+     * </ul>
+     * {@code null} outputs express no opinion.
+     *
+     * @param outputs
+     *            the outputs to merge
+     * @return the merged output, or {@code null} if every output is
+     *         {@code null}
+     */
+    public static PreToolUseHookOutput merge(List<PreToolUseHookOutput> outputs) {
+        String decision = null;
+        String reason = null;
+        JsonNode args = null;
+        var context = new StringBuilder();
+        Boolean suppress = null;
+        boolean any = false;
+        for (PreToolUseHookOutput output : outputs) {
+            if (output == null) {
+                continue;
+            }
+            any = true;
+            if (rank(output.permissionDecision()) > rank(decision)) {
+                decision = output.permissionDecision();
+                reason = output.permissionDecisionReason();
+            }
+            if (output.modifiedArgs() != null) {
+                if (args instanceof ObjectNode merged && output.modifiedArgs() instanceof ObjectNode next) {
+                    merged.setAll(next.deepCopy());
+                } else {
+                    args = output.modifiedArgs().deepCopy();
+                }
+            }
+            if (output.additionalContext() != null) {
+                if (context.length() > 0) {
+                    context.append('\n');
+                }
+                context.append(output.additionalContext());
+            }
+            if (output.suppressOutput() != null) {
+                suppress = Boolean.TRUE.equals(suppress) || output.suppressOutput();
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        return new PreToolUseHookOutput(decision, reason, args, context.length() > 0 ? context.toString() : null,
+                suppress);
+    }
+
+    private static int rank(String decision) {
+        if (decision == null) {
+            return 0;
+        }
+        switch (decision) {
+            case "deny" :
+                return 3;
+            case "ask" :
+                return 2;
+            case "allow" :
+                return 1;
+            default :
+                return 0;
+        }
+    }
+}
@@ -4,6 +4,11 @@
 
 package com.github.copilot.sdk.json;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Hook handlers configuration for a session.
  * <p>
@@ -32,16 +37,28 @@ package com.github.copilot.sdk.json;
  *
  * var session = client.createSession(new SessionConfig().setHooks(hooks)).get();
  * }</pre>
+ * <p>
+ * The CLI waits for every hook before it continues, so a slow hook adds to the
+ * latency of each tool call or prompt. {@link #setTimeout(Duration) Deadlines}
+ * bound that wait: a hook that misses its deadline is answered with the
+ * {@link #setFallback(HookFallback) fallback} output, and its late result is
+ * logged and discarded.
  *
  * @since 1.0.6
  */
 public class SessionHooks {
 
+    private static final Set<String> HOOK_TYPES = Set.of("preToolUse", "postToolUse", "userPromptSubmitted",
+            "sessionStart", "sessionEnd");
+
     private PreToolUseHandler onPreToolUse;
     private PostToolUseHandler onPostToolUse;
     private UserPromptSubmittedHandler onUserPromptSubmitted;
     private SessionStartHandler onSessionStart;
     private SessionEndHandler onSessionEnd;
+    private Duration timeout;
+    private final Map<String, Duration> timeouts = new ConcurrentHashMap<>();
+    private HookFallback fallback = HookFallback.PASS_THROUGH;
 
     /**
      * Gets the pre-tool-use handler.
@@ -64,6 +81,28 @@ public class SessionHooks {
         return this;
     }
 
+    /**
+     * Adds a handler called before a tool is executed, alongside any handler
+     * already set. Several handlers are combined into a
+     * {@link PreToolUseHookChain}, which runs them in parallel and merges their
+     * outputs.
+     *
+     * @param handler
+     *            the handler to add
+     * @return this instance for method chaining
+     * @since 1.0.12
+     */
+    public SessionHooks addOnPreToolUse(PreToolUseHandler handler) {
+        if (onPreToolUse == null) {
+            onPreToolUse = handler;
+        } else if (onPreToolUse instanceof PreToolUseHookChain chain) {
+            chain.add(handler);
+        } else {
+            onPreToolUse = new PreToolUseHookChain().add(onPreToolUse).add(handler);
+        }
+        return this;
+    }
+
     /**
      * Gets the post-tool-use handler.
      *
@@ -154,6 +193,98 @@ public class SessionHooks {
         return this;
     }
 
+    /**
+     * Gets the deadline that applies to hooks of the given type.
+     *
+     * @param hookType
+     *            the hook type, such as {@code "preToolUse"}
+     * @return the deadline for that type, else the default deadline, or
+     *         {@code null} if hooks of that type may take as long as they need
+     * @since 1.0.12
+     */
+    public Duration getTimeout(String hookType) {
+        Duration specific = hookType != null ? timeouts.get(hookType) : null;
+        return specific != null ? specific : timeout;
+    }
+
+    /**
+     * Sets the default deadline for every hook.
+     *
+     * @param timeout
+     *            the deadline, or {@code null} to wait for hooks indefinitely
+     * @return this instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code timeout} is zero or negative
+     * @since 1.0.12
+     */
+    public SessionHooks setTimeout(Duration timeout) {
+        if (timeout != null && (timeout.isZero() || timeout.isNegative())) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the deadline for hooks of one type, overriding the default deadline.
+     *
+     * @param hookType
+     *            one of {@code "preToolUse"}, {@code "postToolUse"},
+     *            {@code "userPromptSubmitted"}, {@code "sessionStart"} or
+     *            {@code "sessionEnd"}
+     * @param timeout
+     *            the deadline, or {@code null} to use the default deadline
+     * @return this instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code hookType} is unknown or {@code timeout} is zero or
+     *             negative
+     * @since 1.0.12
+     */
+    public SessionHooks setTimeout(String hookType, Duration timeout) {
+        if (!HOOK_TYPES.contains(hookType)) {
+            throw new IllegalArgumentException("unknown hook type: " + hookType);
+        }
+        if (timeout == null) {
+            timeouts.remove(hookType);
+            return this;
+        }
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        timeouts.put(hookType, timeout);
+        return this;
+    }
+
+    /**
+     * Gets the output used for hooks that miss their deadline.
+     *
+     * @return the fallback
+     * @since 1.0.12
+     */
+    public HookFallback getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Sets the output used for hooks that miss their deadline.
+     * <p>
+     * Default: {@link HookFallback#PASS_THROUGH}
+     *
+     * @param fallback
+     *            the fallback
+     * @return this instance for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code fallback} is {@code null}
+     * @since 1.0.12
+     */
+    public SessionHooks setFallback(HookFallback fallback) {
+        if (fallback == null) {
+            throw new IllegalArgumentException("fallback must not be null");
+        }
+        this.fallback = fallback;
+        return this;
+    }
+
     /**
      * Returns whether any hooks are registered.
      *
@@ -4,14 +4,24 @@
 
 package com.github.copilot.sdk.json;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.IOException;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 
 /**
  * Binary result from a tool execution.
  * <p>
  * This record represents binary data (such as images) returned by a tool. The
- * data is base64-encoded for JSON transmission.
+ * data is base64-encoded for JSON transmission. For large payloads, create the
+ * result with {@link #of(ToolBinarySource, String, String, String)} so the
+ * bytes are encoded while the result is written instead of being held as a
+ * base64 string.
  *
  * <h2>Example Usage</h2>
  *
@@ -29,10 +39,83 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * @param description
  *            the content description, helps the assistant understand the
  *            content
+ * @param source
+ *            the raw bytes to encode in place of {@code data}, or {@code null}
  * @see ToolResultObject#setBinaryResultsForLlm(java.util.List)
  * @since 1.0.0
  */
-@JsonInclude(JsonInclude.Include.NON_NULL)
-public record ToolBinaryResult(@JsonProperty("data") String data, @JsonProperty("mimeType") String mimeType,
-        @JsonProperty("type") String type, @JsonProperty("description") String description) {
+@JsonSerialize(using = ToolBinaryResult.Serializer.class)
+public record ToolBinaryResult(String data, String mimeType, String type, String description,
+        @JsonIgnore ToolBinarySource source) {
+
+    /**
+     * Creates a binary result from base64-encoded data.
+     *
+     * @param data
+     *            the base64-encoded binary data
+     * @param mimeType
+     *            the MIME type
+     * @param type
+     *            the content type
+     * @param description
+     *            the content description
+     */
+    @JsonCreator
+    public ToolBinaryResult(@JsonProperty("data") String data, @JsonProperty("mimeType") String mimeType,
+            @JsonProperty("type") String type, @JsonProperty("description") String description) {
+        this(data, mimeType, type, description, null);
+    }
+
+    /**
+     * Creates a binary result whose bytes are base64-encoded while the result is
+     * serialized. {@link #data()} is {@code null} for such results.
+     *
+     * @param source
+     *            the raw bytes
+     * @param mimeType
+     *            the MIME type (e.g., "image/png", "application/pdf")
+     * @param type
+     *            the content type (e.g., "image", "file")
+     * @param description
+     *            the content description
+     * @return the binary result
+     * @since 1.0.12
+     */
+    public static ToolBinaryResult of(ToolBinarySource source, String mimeType, String type, String description) {
+        if (source == null) {
+            throw new IllegalArgumentException("source must not be null");
+        }
+        return new ToolBinaryResult(null, mimeType, type, description, source);
+    }
+
+    static final class Serializer extends StdSerializer<ToolBinaryResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(ToolBinaryResult.class);
+        }
+
+        @Override
+        public void serialize(ToolBinaryResult value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartObject(value);
+            if (value.source() != null) {
+                gen.writeFieldName("data");
+                value.source().writeTo(gen);
+            } else if (value.data() != null) {
+                gen.writeStringField("data", value.data());
+            }
+            writeOptional(gen, "mimeType", value.mimeType());
+            writeOptional(gen, "type", value.type());
+            writeOptional(gen, "description", value.description());
+            gen.writeEndObject();
+        }
+
+        private static void writeOptional(JsonGenerator gen, String name, String value) throws IOException {
+            if (value != null) {
+                gen.writeStringField(name, value);
+            }
+        }
+    }
 }
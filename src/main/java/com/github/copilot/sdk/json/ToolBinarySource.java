@@ -0,0 +1,177 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Raw bytes of a {@link ToolBinaryResult}, base64-encoded on the fly while the
+ * result is serialized.
+ * <p>
+ * Unlike {@link ToolBinaryResult#data()}, a source never holds a base64
+ * {@code String} on the heap: the bytes are streamed in small chunks into the
+ * JSON generator that writes the tool result. Buffer and file sources can be
+ * serialized any number of times; files are memory-mapped when written, so
+ * their contents are read straight from the page cache. Stream sources are
+ * consumed by the first serialization.
+ * <p>
+ * The result frame is encoded on the thread that sends the tool result,
+ * before the client's write lock is taken, so a slow stream delays only its
+ * own result. The encoded frame, about 4/3 of the source size, is buffered in
+ * chunks until it is written.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * return CompletableFuture.completedFuture(new ToolResultObject("success", "Rendered the chart",
+ * 		List.of(ToolBinaryResult.of(ToolBinarySource.of(chartPath), "image/png", "image", "Chart")), null, null,
+ * 		null));
+ * }</pre>
+ *
+ * @see ToolBinaryResult#of(ToolBinarySource, String, String, String)
+ * @since 1.0.12
+ */
+public final class ToolBinarySource {
+
+    private final ByteBuffer buffer;
+    private final Path file;
+    private final InputStream stream;
+    private final long streamLength;
+    private final AtomicBoolean consumed = new AtomicBoolean();
+
+    private ToolBinarySource(ByteBuffer buffer, Path file, InputStream stream, long streamLength) {
+        this.buffer = buffer;
+        this.file = file;
+        this.stream = stream;
+        this.streamLength = streamLength;
+    }
+
+    /**
+     * Creates a source over the remaining bytes of a buffer. The buffer position
+     * is not modified; later changes to its contents are visible to the source.
+     *
+     * @param buffer
+     *            the bytes to send
+     * @return the source
+     */
+    public static ToolBinarySource of(ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "buffer");
+        return new ToolBinarySource(buffer.asReadOnlyBuffer(), null, null, -1);
+    }
+
+    /**
+     * Creates a source over a byte array without copying it.
+     *
+     * @param bytes
+     *            the bytes to send
+     * @return the source
+     */
+    public static ToolBinarySource of(byte[] bytes) {
+        return of(ByteBuffer.wrap(Objects.requireNonNull(bytes, "bytes")));
+    }
+
+    /**
+     * Creates a source that memory-maps the given file each time it is
+     * serialized. The file must exist and stay unchanged until the result has
+     * been sent.
+     *
+     * @param file
+     *            the file to send
+     * @return the source
+     */
+    public static ToolBinarySource of(Path file) {
+        return new ToolBinarySource(null, Objects.requireNonNull(file, "file"), null, -1);
+    }
+
+    /**
+     * Creates a single-use source that reads the given stream to its end and
+     * closes it.
+     *
+     * @param stream
+     *            the stream to send
+     * @param length
+     *            the number of bytes the stream yields, or {@code -1} if unknown
+     * @return the source
+     */
+    public static ToolBinarySource of(InputStream stream, long length) {
+        if (length < -1 || length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("length must be -1 or between 0 and " + Integer.MAX_VALUE);
+        }
+        return new ToolBinarySource(null, null, Objects.requireNonNull(stream, "stream"), length);
+    }
+
+    /**
+     * Returns whether this source can be serialized more than once. Only stream
+     * sources cannot.
+     *
+     * @return {@code true} for buffer and file sources
+     */
+    public boolean isRepeatable() {
+        return stream == null;
+    }
+
+    /**
+     * Writes the bytes of this source as a base64 value.
+     *
+     * @param generator
+     *            the generator positioned at a value
+     * @throws IOException
+     *             if the source cannot be read or was already consumed
+     */
+    void writeTo(JsonGenerator generator) throws IOException {
+        if (buffer != null) {
+            generator.writeBinary(new BufferInputStream(buffer.duplicate()), buffer.remaining());
+        } else if (file != null) {
+            ByteBuffer mapped;
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("File too large for a tool result: " + file);
+                }
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            generator.writeBinary(new BufferInputStream(mapped), mapped.remaining());
+        } else {
+            if (!consumed.compareAndSet(false, true)) {
+                throw new IOException("Stream source was already serialized");
+            }
+            try (stream) {
+                generator.writeBinary(stream, (int) streamLength);
+            }
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return length == 0 ? 0 : -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
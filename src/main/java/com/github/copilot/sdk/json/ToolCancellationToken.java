@@ -0,0 +1,97 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Signals that a tool invocation should stop.
+ * <p>
+ * The SDK cancels the token of a running invocation when the session is
+ * aborted or closed, when the client is stopped, when the CLI reports the tool
+ * call as completed, or when the invocation passes its
+ * {@link ToolInvocation#getDeadline() deadline}. At the same time it cancels
+ * the future returned by the {@link ToolHandler} and releases any bulkhead slot
+ * the call holds, but work the handler started on its own threads keeps
+ * running unless the handler observes the token.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * ToolHandler handler = invocation -> CompletableFuture.supplyAsync(() -> {
+ * 	var token = invocation.getCancellationToken();
+ * 	var statement = connection.prepareStatement(sql);
+ * 	token.onCancel(() -> cancelQuietly(statement));
+ * 	for (var page : pages) {
+ * 		token.throwIfCancelled();
+ * 		// ...
+ * 	}
+ * 	return result;
+ * });
+ * }</pre>
+ *
+ * @see ToolInvocation#getCancellationToken()
+ * @since 1.0.12
+ */
+public final class ToolCancellationToken {
+
+    private final CompletableFuture<String> cancelled = new CompletableFuture<>();
+
+    /**
+     * Returns whether cancellation has been requested.
+     *
+     * @return {@code true} once the token is cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled.isDone();
+    }
+
+    /**
+     * Gets why the invocation was cancelled.
+     *
+     * @return the reason, or {@code null} if the token is not cancelled
+     */
+    public String getReason() {
+        return cancelled.getNow(null);
+    }
+
+    /**
+     * Throws if cancellation has been requested.
+     *
+     * @throws CancellationException
+     *             if the token is cancelled
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Tool invocation cancelled: " + getReason());
+        }
+    }
+
+    /**
+     * Registers an action to run when the token is cancelled. The action runs on
+     * the thread that cancels the token, or immediately on the calling thread if
+     * the token is already cancelled, so it should be quick and must not block.
+     *
+     * @param action
+     *            the action to run
+     */
+    public void onCancel(Runnable action) {
+        cancelled.thenRun(action);
+    }
+
+    /**
+     * Cancels the token. Only the first call has an effect.
+     * <p>
+     * <strong>Note:</strong> This method is intended for internal SDK use.
+     *
+     * @param reason
+     *            why the invocation is cancelled
+     * @return {@code true} if this call cancelled the token
+     */
+    public boolean cancel(String reason) {
+        return cancelled.complete(reason != null ? reason : "cancelled");
+    }
+}
@@ -0,0 +1,125 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.time.Duration;
+
+/**
+ * Limits how many calls of a tool run at once.
+ * <p>
+ * Attach a policy with {@link ToolDefinition#withConcurrency} to put a tool
+ * behind a bulkhead, so that a slow tool cannot occupy every callback thread
+ * and delay unrelated tools and permission replies. Calls beyond
+ * {@link #getMaxConcurrentCalls()} wait in a FIFO queue; calls that find the
+ * queue full or wait longer than {@link #getQueueTimeout()} are not run and
+ * the model receives a {@link ToolResultObject#failure failure} result
+ * explaining that the tool is at capacity.
+ * <p>
+ * Bulkheads are keyed by tool name and shared by all sessions of a client.
+ *
+ * <h2>Example Usage</h2>
+ *
+ * <pre>{@code
+ * var query = ToolDefinition.create("query_db", "Runs a read-only SQL query", schema, handler)
+ * 		.withConcurrency(new ToolConcurrencyPolicy().setMaxConcurrentCalls(4).setMaxQueueSize(16)
+ * 				.setQueueTimeout(Duration.ofSeconds(10)));
+ * }</pre>
+ *
+ * @see ToolDefinition#withConcurrency(ToolConcurrencyPolicy)
+ * @since 1.0.12
+ */
+public class ToolConcurrencyPolicy {
+
+    private int maxConcurrentCalls = 1;
+    private int maxQueueSize = 100;
+    private Duration queueTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Gets the maximum number of calls that run at once.
+     *
+     * @return the concurrency limit
+     */
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * Sets the maximum number of calls of the tool that run at once across all
+     * sessions of the client.
+     * <p>
+     * Default: 1
+     *
+     * @param maxConcurrentCalls
+     *            the concurrency limit, at least 1
+     * @return this policy for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxConcurrentCalls} is less than 1
+     */
+    public ToolConcurrencyPolicy setMaxConcurrentCalls(int maxConcurrentCalls) {
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be at least 1");
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of calls waiting for a slot.
+     *
+     * @return the queue capacity
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Sets the maximum number of calls waiting for a slot. Calls beyond this
+     * limit are rejected immediately.
+     * <p>
+     * Default: 100
+     *
+     * @param maxQueueSize
+     *            the queue capacity; {@code 0} rejects every call that cannot
+     *            start immediately
+     * @return this policy for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code maxQueueSize} is negative
+     */
+    public ToolConcurrencyPolicy setMaxQueueSize(int maxQueueSize) {
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxQueueSize must not be negative");
+        }
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
+    /**
+     * Gets the maximum time a call waits for a slot.
+     *
+     * @return the queue timeout
+     */
+    public Duration getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    /**
+     * Sets the maximum time a call waits for a slot before it is rejected.
+     * <p>
+     * Default: 30 seconds
+     *
+     * @param queueTimeout
+     *            the queue timeout
+     * @return this policy for method chaining
+     * @throws IllegalArgumentException
+     *             if {@code queueTimeout} is {@code null}, zero or negative
+     */
+    public ToolConcurrencyPolicy setQueueTimeout(Duration queueTimeout) {
+        if (queueTimeout == null || queueTimeout.isNegative() || queueTimeout.isZero()) {
+            throw new IllegalArgumentException("queueTimeout must be positive");
+        }
+        this.queueTimeout = queueTimeout;
+        return this;
+    }
+}
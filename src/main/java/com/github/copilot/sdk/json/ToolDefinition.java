@@ -9,6 +9,8 @@ import java.util.Map;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.copilot.sdk.ToolResultCache;
+import com.github.copilot.sdk.ToolResultShaper;
 
 /**
  * Defines a tool that can be invoked by the AI assistant.
@@ -52,6 +54,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  *            when {@code true}, indicates that this tool intentionally
  *            overrides a built-in CLI tool with the same name; {@code null} or
  *            {@code false} means the tool is purely custom
+ * @param concurrency
+ *            the bulkhead limiting concurrent calls of this tool, or
+ *            {@code null} if calls are not limited
  * @see SessionConfig#setTools(java.util.List)
  * @see ToolHandler
  * @since 1.0.0
@@ -59,7 +64,27 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record ToolDefinition(@JsonProperty("name") String name, @JsonProperty("description") String description,
         @JsonProperty("parameters") Object parameters, @JsonIgnore ToolHandler handler,
-        @JsonProperty("overridesBuiltInTool") Boolean overridesBuiltInTool) {
+        @JsonProperty("overridesBuiltInTool") Boolean overridesBuiltInTool,
+        @JsonIgnore ToolConcurrencyPolicy concurrency) {
+
+    /**
+     * Creates a tool definition without a concurrency policy.
+     *
+     * @param name
+     *            the unique name of the tool
+     * @param description
+     *            a description of what the tool does
+     * @param parameters
+     *            the JSON Schema defining the tool's parameters
+     * @param handler
+     *            the handler function to execute when invoked
+     * @param overridesBuiltInTool
+     *            whether the tool overrides a built-in CLI tool
+     */
+    public ToolDefinition(String name, String description, Object parameters, ToolHandler handler,
+            Boolean overridesBuiltInTool) {
+        this(name, description, parameters, handler, overridesBuiltInTool, null);
+    }
 
     /**
      * Creates a tool definition with a JSON schema for parameters.
@@ -105,4 +130,45 @@ public record ToolDefinition(@JsonProperty("name") String name, @JsonProperty("d
             ToolHandler handler) {
         return new ToolDefinition(name, description, schema, handler, true);
     }
+
+    /**
+     * Returns a copy of this tool whose results are memoized by the given cache.
+     * Only use this for idempotent tools.
+     *
+     * @param cache
+     *            the cache to use
+     * @return the cached tool definition
+     * @see ToolResultCache#wrap(ToolDefinition)
+     * @since 1.0.12
+     */
+    public ToolDefinition withCache(ToolResultCache cache) {
+        return cache.wrap(this);
+    }
+
+    /**
+     * Returns a copy of this tool whose oversized results are shortened by the
+     * given shaper.
+     *
+     * @param shaper
+     *            the shaper to use
+     * @return the shaped tool definition
+     * @see ToolResultShaper#wrap(ToolDefinition)
+     * @since 1.0.12
+     */
+    public ToolDefinition withResultShaper(ToolResultShaper shaper) {
+        return shaper.wrap(this);
+    }
+
+    /**
+     * Returns a copy of this tool whose calls are limited by the given policy.
+     *
+     * @param concurrency
+     *            the concurrency policy, or {@code null} to remove the limit
+     * @return the limited tool definition
+     * @see ToolConcurrencyPolicy
+     * @since 1.0.12
+     */
+    public ToolDefinition withConcurrency(ToolConcurrencyPolicy concurrency) {
+        return new ToolDefinition(name, description, parameters, handler, overridesBuiltInTool, concurrency);
+    }
 }
@@ -4,8 +4,10 @@
 
 package com.github.copilot.sdk.json;
 
+import java.time.Instant;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonSetter;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -34,6 +36,8 @@ public final class ToolInvocation {
     private String toolCallId;
     private String toolName;
     private JsonNode argumentsNode;
+    private ToolCancellationToken cancellationToken = new ToolCancellationToken();
+    private Instant deadline;
 
     /**
      * Gets the session ID where the tool was invoked.
@@ -120,6 +124,18 @@ public final class ToolInvocation {
         return MAPPER.convertValue(argumentsNode, MAP_TYPE);
     }
 
+    /**
+     * Gets the arguments passed to the tool as a JSON tree, without converting
+     * them.
+     *
+     * @return the arguments, or {@code null} if no arguments
+     * @since 1.0.12
+     */
+    @JsonIgnore
+    public JsonNode getArgumentsNode() {
+        return argumentsNode;
+    }
+
     /**
      * Deserializes the tool arguments into the specified type.
      * <p>
@@ -168,4 +184,63 @@ public final class ToolInvocation {
         this.argumentsNode = arguments;
         return this;
     }
+
+    /**
+     * Gets the token that signals when this invocation should stop.
+     * <p>
+     * The token fires when the session is aborted or closed, the client is
+     * stopped, the CLI completes the tool call without this client, or the
+     * {@link #getDeadline() deadline} passes.
+     *
+     * @return the cancellation token, never {@code null}
+     * @since 1.0.12
+     */
+    @JsonIgnore
+    public ToolCancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    /**
+     * Sets the cancellation token.
+     * <p>
+     * <strong>Note:</strong> This method is intended for internal SDK use.
+     *
+     * @param cancellationToken
+     *            the cancellation token
+     * @return this invocation for method chaining
+     * @since 1.0.12
+     */
+    public ToolInvocation setCancellationToken(ToolCancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken != null ? cancellationToken : new ToolCancellationToken();
+        return this;
+    }
+
+    /**
+     * Gets the time by which the invocation must complete. When it passes, the
+     * SDK answers the tool call with a failure result and cancels the
+     * {@link #getCancellationToken() token}.
+     *
+     * @return the deadline, or {@code null} if the invocation has no timeout
+     * @see CopilotClientOptions#setToolTimeout(java.time.Duration)
+     * @since 1.0.12
+     */
+    @JsonIgnore
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Sets the deadline.
+     * <p>
+     * <strong>Note:</strong> This method is intended for internal SDK use.
+     *
+     * @param deadline
+     *            the deadline, or {@code null} for none
+     * @return this invocation for method chaining
+     * @since 1.0.12
+     */
+    public ToolInvocation setDeadline(Instant deadline) {
+        this.deadline = deadline;
+        return this;
+    }
 }
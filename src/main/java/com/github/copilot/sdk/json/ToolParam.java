@@ -0,0 +1,38 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Describes a property of a {@link CopilotTool} argument type in the generated
+ * JSON schema.
+ *
+ * @see CopilotTool
+ * @since 1.0.12
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.RECORD_COMPONENT, ElementType.FIELD})
+public @interface ToolParam {
+
+    /**
+     * A description of the property, shown to the model.
+     *
+     * @return the description, or an empty string for none
+     */
+    String description() default "";
+
+    /**
+     * Whether the model must supply the property.
+     *
+     * @return {@code false} to make the property optional
+     */
+    boolean required() default true;
+}
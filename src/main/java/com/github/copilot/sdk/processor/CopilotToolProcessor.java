@@ -0,0 +1,609 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import com.github.copilot.sdk.json.CopilotTool;
+import com.github.copilot.sdk.json.ToolParam;
+
+/**
+ * Generates {@link com.github.copilot.sdk.json.ToolDefinition}s for methods
+ * annotated with {@link CopilotTool}.
+ * <p>
+ * For every class declaring annotated methods, the processor writes a
+ * {@code <ClassName>CopilotTools} class holding, per tool, the JSON schema
+ * derived from the argument type and an {@code ObjectReader} created once for
+ * that type. The processor is registered as a service, so {@code javac} picks
+ * it up from the SDK jar without further configuration.
+ *
+ * @see CopilotTool
+ * @since 1.0.12
+ */
+@SupportedAnnotationTypes("com.github.copilot.sdk.json.CopilotTool")
+public final class CopilotToolProcessor extends AbstractProcessor {
+
+    private static final String TOOL_INVOCATION = "com.github.copilot.sdk.json.ToolInvocation";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+
+    /**
+     * Creates the processor. Invoked by {@code javac}.
+     */
+    public CopilotToolProcessor() {
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        var toolsByType = new LinkedHashMap<TypeElement, List<ExecutableElement>>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(CopilotTool.class)) {
+            if (element.getKind() == ElementKind.METHOD) {
+                toolsByType.computeIfAbsent((TypeElement) element.getEnclosingElement(), k -> new ArrayList<>())
+                        .add((ExecutableElement) element);
+            }
+        }
+        toolsByType.forEach(this::generate);
+        return true;
+    }
+
+    private void generate(TypeElement type, List<ExecutableElement> methods) {
+        if (!isAccessible(type)) {
+            error(type, "@CopilotTool methods must be declared in a non-private top-level or static nested class");
+            return;
+        }
+        var tools = new ArrayList<Tool>();
+        for (ExecutableElement method : methods) {
+            Tool tool = toTool(method);
+            if (tool == null) {
+                return;
+            }
+            tools.add(tool);
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String simpleName = generatedName(type);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(render(packageName, simpleName, type, tools));
+        } catch (IOException e) {
+            error(type, "failed to write " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    private Tool toTool(ExecutableElement method) {
+        if (method.getModifiers().contains(Modifier.PRIVATE) || !method.getTypeParameters().isEmpty()) {
+            error(method, "@CopilotTool methods must be non-private and non-generic");
+            return null;
+        }
+        var params = method.getParameters();
+        TypeMirror argsType = null;
+        boolean passInvocation = false;
+        for (int i = 0; i < params.size(); i++) {
+            TypeMirror paramType = params.get(i).asType();
+            if (isInvocation(paramType) && i == params.size() - 1) {
+                passInvocation = true;
+            } else if (i == 0 && paramType.getKind() == TypeKind.DECLARED && isBindable(paramType)) {
+                argsType = paramType;
+            } else {
+                error(params.get(i), "@CopilotTool methods take an optional record or POJO argument type,"
+                        + " optionally followed by a ToolInvocation");
+                return null;
+            }
+        }
+
+        var annotation = method.getAnnotation(CopilotTool.class);
+        String name = annotation.name().isEmpty() ? method.getSimpleName().toString() : annotation.name();
+        Map<String, Object> schema;
+        if (argsType == null) {
+            schema = new LinkedHashMap<>();
+            schema.put("type", "object");
+            schema.put("properties", new LinkedHashMap<>());
+            schema.put("additionalProperties", false);
+        } else {
+            schema = schemaFor(argsType, new HashSet<>(), params.get(0));
+            if (schema == null) {
+                return null;
+            }
+        }
+        return new Tool(method, name, annotation.description(), annotation.overridesBuiltInTool(), argsType,
+                passInvocation, toJson(schema));
+    }
+
+    // Schema generation
+
+    private Map<String, Object> schemaFor(TypeMirror type, Set<String> visiting, Element site) {
+        var schema = new LinkedHashMap<String, Object>();
+        switch (type.getKind()) {
+            case BOOLEAN :
+                schema.put("type", "boolean");
+                return schema;
+            case BYTE :
+            case SHORT :
+            case INT :
+            case LONG :
+                schema.put("type", "integer");
+                return schema;
+            case FLOAT :
+            case DOUBLE :
+                schema.put("type", "number");
+                return schema;
+            case CHAR :
+                schema.put("type", "string");
+                schema.put("maxLength", 1);
+                return schema;
+            case ARRAY :
+                return arraySchema(((ArrayType) type).getComponentType(), false, visiting, site);
+            case DECLARED :
+                return declaredSchema((DeclaredType) type, visiting, site);
+            default :
+                error(site, "unsupported tool argument type " + type);
+                return null;
+        }
+    }
+
+    private Map<String, Object> declaredSchema(DeclaredType type, Set<String> visiting, Element site) {
+        var element = (TypeElement) type.asElement();
+        String qualifiedName = element.getQualifiedName().toString();
+        var schema = new LinkedHashMap<String, Object>();
+        String scalar = scalarType(qualifiedName);
+        if (scalar != null) {
+            schema.put("type", scalar);
+            String format = stringFormat(qualifiedName);
+            if (format != null) {
+                schema.put("format", format);
+            }
+            return schema;
+        }
+        if (qualifiedName.equals("java.lang.Object") || qualifiedName.startsWith("com.fasterxml.jackson.databind.")) {
+            return schema;
+        }
+        if (qualifiedName.equals("java.util.Optional")) {
+            error(site, "Optional tool arguments are not supported; use @ToolParam(required = false) instead");
+            return null;
+        }
+        if (element.getKind() == ElementKind.ENUM) {
+            var constants = new ArrayList<Object>();
+            for (Element enclosed : element.getEnclosedElements()) {
+                if (enclosed.getKind() == ElementKind.ENUM_CONSTANT) {
+                    constants.add(enclosed.getSimpleName().toString());
+                }
+            }
+            schema.put("type", "string");
+            schema.put("enum", constants);
+            return schema;
+        }
+        var typeArgs = type.getTypeArguments();
+        if (isSubtype(type, "java.util.Collection")) {
+            if (typeArgs.isEmpty()) {
+                schema.put("type", "array");
+                return schema;
+            }
+            return arraySchema(typeArgs.get(0), isSubtype(type, "java.util.Set"), visiting, site);
+        }
+        if (isSubtype(type, "java.util.Map")) {
+            schema.put("type", "object");
+            if (typeArgs.size() == 2) {
+                var values = schemaFor(typeArgs.get(1), visiting, site);
+                if (values == null) {
+                    return null;
+                }
+                schema.put("additionalProperties", values);
+            }
+            return schema;
+        }
+        if (!visiting.add(qualifiedName)) {
+            // Recursive types are described as open objects
+            schema.put("type", "object");
+            return schema;
+        }
+        try {
+            return objectSchema(element, visiting);
+        } finally {
+            visiting.remove(qualifiedName);
+        }
+    }
+
+    private Map<String, Object> arraySchema(TypeMirror itemType, boolean unique, Set<String> visiting,
+            Element site) {
+        var items = schemaFor(itemType, visiting, site);
+        if (items == null) {
+            return null;
+        }
+        var schema = new LinkedHashMap<String, Object>();
+        schema.put("type", "array");
+        schema.put("items", items);
+        if (unique) {
+            schema.put("uniqueItems", true);
+        }
+        return schema;
+    }
+
+    private Map<String, Object> objectSchema(TypeElement element, Set<String> visiting) {
+        var properties = new LinkedHashMap<String, Object>();
+        var required = new ArrayList<Object>();
+        for (Element property : propertiesOf(element)) {
+            var propertySchema = schemaFor(property.asType(), visiting, property);
+            if (propertySchema == null) {
+                return null;
+            }
+            var param = property.getAnnotation(ToolParam.class);
+            if (param != null && !param.description().isEmpty()) {
+                propertySchema.put("description", param.description());
+            }
+            String name = jsonName(property);
+            properties.put(name, propertySchema);
+            if (param == null || param.required()) {
+                required.add(name);
+            }
+        }
+        var schema = new LinkedHashMap<String, Object>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        if (!required.isEmpty()) {
+            schema.put("required", required);
+        }
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    private List<Element> propertiesOf(TypeElement element) {
+        var properties = new ArrayList<Element>();
+        if (element.getKind() == ElementKind.RECORD) {
+            properties.addAll(element.getRecordComponents());
+            return properties;
+        }
+        var setters = new HashSet<String>();
+        for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.PUBLIC) && method.getParameters().size() == 1) {
+                setters.add(method.getSimpleName().toString());
+            }
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+            var modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+                    || hasAnnotation(field, JSON_IGNORE)) {
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            if (modifiers.contains(Modifier.PUBLIC) || setters.contains(setter)) {
+                properties.add(field);
+            }
+        }
+        return properties;
+    }
+
+    private static String scalarType(String qualifiedName) {
+        switch (qualifiedName) {
+            case "java.lang.String" :
+            case "java.lang.CharSequence" :
+            case "java.lang.Character" :
+            case "java.util.UUID" :
+            case "java.net.URI" :
+            case "java.time.Instant" :
+            case "java.time.OffsetDateTime" :
+            case "java.time.ZonedDateTime" :
+            case "java.time.LocalDate" :
+            case "java.time.LocalDateTime" :
+            case "java.time.LocalTime" :
+            case "java.time.Duration" :
+                return "string";
+            case "java.lang.Byte" :
+            case "java.lang.Short" :
+            case "java.lang.Integer" :
+            case "java.lang.Long" :
+            case "java.math.BigInteger" :
+                return "integer";
+            case "java.lang.Float" :
+            case "java.lang.Double" :
+            case "java.lang.Number" :
+            case "java.math.BigDecimal" :
+                return "number";
+            case "java.lang.Boolean" :
+                return "boolean";
+            default :
+                return null;
+        }
+    }
+
+    private static String stringFormat(String qualifiedName) {
+        switch (qualifiedName) {
+            case "java.util.UUID" :
+                return "uuid";
+            case "java.net.URI" :
+                return "uri";
+            case "java.time.Instant" :
+            case "java.time.OffsetDateTime" :
+            case "java.time.ZonedDateTime" :
+                return "date-time";
+            case "java.time.LocalDate" :
+                return "date";
+            case "java.time.Duration" :
+                return "duration";
+            default :
+                return null;
+        }
+    }
+
+    private String jsonName(Element property) {
+        for (AnnotationMirror mirror : property.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(JSON_PROPERTY)) {
+                for (var entry : mirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        String value = entry.getValue().getValue().toString();
+                        if (!value.isEmpty()) {
+                            return value;
+                        }
+                    }
+                }
+            }
+        }
+        return property.getSimpleName().toString();
+    }
+
+    // Source generation
+
+    private String render(String packageName, String simpleName, TypeElement type, List<Tool> tools) {
+        String target = type.getQualifiedName().toString();
+        boolean needsTarget = tools.stream().anyMatch(t -> !t.method.getModifiers().contains(Modifier.STATIC));
+        var out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("import java.util.List;\n");
+        out.append("import java.util.Map;\n");
+        out.append("import java.util.Objects;\n");
+        out.append("import java.util.concurrent.CompletableFuture;\n");
+        out.append("import java.util.concurrent.CompletionStage;\n\n");
+        out.append("import com.fasterxml.jackson.core.JsonProcessingException;\n");
+        out.append("import com.fasterxml.jackson.core.type.TypeReference;\n");
+        out.append("import com.fasterxml.jackson.databind.DeserializationFeature;\n");
+        out.append("import com.fasterxml.jackson.databind.JsonNode;\n");
+        out.append("import com.fasterxml.jackson.databind.ObjectMapper;\n");
+        out.append("import com.fasterxml.jackson.databind.ObjectReader;\n");
+        out.append("import com.fasterxml.jackson.databind.json.JsonMapper;\n");
+        out.append("import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;\n");
+        out.append("import com.github.copilot.sdk.json.ToolDefinition;\n");
+        out.append("import com.github.copilot.sdk.json.ToolInvocation;\n\n");
+        out.append("/**\n * Tool definitions generated from the {@code @CopilotTool} methods of {@link ").append(target)
+                .append("}.\n */\n");
+        out.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+        out.append("public final class ").append(simpleName).append(" {\n\n");
+        out.append("    private static final ObjectMapper MAPPER = JsonMapper.builder()\n");
+        out.append("            .addModule(new JavaTimeModule())\n");
+        out.append("            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build();\n");
+        for (int i = 0; i < tools.size(); i++) {
+            Tool tool = tools.get(i);
+            out.append("    private static final Map<String, Object> SCHEMA_").append(i).append(" = schema(")
+                    .append(quote(tool.schemaJson)).append(");\n");
+            if (tool.argsType != null) {
+                out.append("    private static final ObjectReader READER_").append(i).append(" = MAPPER.readerFor(")
+                        .append(processingEnv.getTypeUtils().erasure(tool.argsType)).append(".class);\n");
+            }
+        }
+        out.append("\n    private ").append(simpleName).append("() {\n    }\n\n");
+
+        out.append("    /**\n     * Returns the tool definitions");
+        if (needsTarget) {
+            out.append(" bound to the given instance.\n     *\n     * @param target the instance to invoke");
+        } else {
+            out.append(".\n     *");
+        }
+        out.append("\n     * @return one definition per {@code @CopilotTool} method\n     */\n");
+        out.append("    public static List<ToolDefinition> definitions(");
+        if (needsTarget) {
+            out.append(target).append(" target");
+        }
+        out.append(") {\n");
+        if (needsTarget) {
+            out.append("        Objects.requireNonNull(target, \"target\");\n");
+        }
+        out.append("        return List.of(");
+        for (int i = 0; i < tools.size(); i++) {
+            out.append(i == 0 ? "\n" : ",\n");
+            renderDefinition(out, tools.get(i), i, target);
+        }
+        out.append(");\n    }\n\n");
+
+        out.append("    private static Map<String, Object> schema(String json) {\n");
+        out.append("        try {\n");
+        out.append("            return MAPPER.readValue(json, new TypeReference<Map<String, Object>>() {\n");
+        out.append("            });\n");
+        out.append("        } catch (JsonProcessingException e) {\n");
+        out.append("            throw new IllegalStateException(\"invalid generated schema\", e);\n");
+        out.append("        }\n    }\n\n");
+        out.append("    private static JsonNode arguments(ToolInvocation invocation) {\n");
+        out.append("        JsonNode arguments = invocation.getArgumentsNode();\n");
+        out.append("        return arguments == null || arguments.isNull() ? MAPPER.createObjectNode() : arguments;\n");
+        out.append("    }\n\n");
+        out.append("    private static CompletableFuture<Object> completed(CompletionStage<?> stage) {\n");
+        out.append("        return stage.toCompletableFuture().thenApply(result -> result);\n");
+        out.append("    }\n}\n");
+        return out.toString();
+    }
+
+    private void renderDefinition(StringBuilder out, Tool tool, int index, String target) {
+        var method = tool.method;
+        out.append("                ToolDefinition.").append(tool.overridesBuiltInTool ? "createOverride" : "create")
+                .append("(").append(quote(tool.name)).append(", ").append(quote(tool.description))
+                .append(", SCHEMA_").append(index).append(", invocation -> {\n");
+        out.append("                    try {\n");
+        var args = new ArrayList<String>();
+        if (tool.argsType != null) {
+            args.add("READER_" + index + ".readValue(arguments(invocation))");
+        }
+        if (tool.passInvocation) {
+            args.add("invocation");
+        }
+        String receiver = method.getModifiers().contains(Modifier.STATIC) ? target : "target";
+        String call = receiver + "." + method.getSimpleName() + "(" + String.join(", ", args) + ")";
+        TypeMirror returnType = method.getReturnType();
+        out.append("                        ");
+        if (returnType.getKind() == TypeKind.VOID) {
+            out.append(call).append(";\n");
+            out.append("                        return CompletableFuture.completedFuture(null);\n");
+        } else if (isSubtype(returnType, "java.util.concurrent.CompletionStage")) {
+            out.append("return completed(").append(call).append(");\n");
+        } else {
+            out.append("return CompletableFuture.completedFuture(").append(call).append(");\n");
+        }
+        out.append("                    } catch (Exception e) {\n");
+        out.append("                        return CompletableFuture.failedFuture(e);\n");
+        out.append("                    }\n");
+        out.append("                })");
+    }
+
+    // Helpers
+
+    private boolean isAccessible(TypeElement type) {
+        for (Element e = type; e.getKind().isClass() || e.getKind().isInterface(); e = e.getEnclosingElement()) {
+            var typeElement = (TypeElement) e;
+            if (typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (typeElement.getNestingKind() == NestingKind.TOP_LEVEL) {
+                return true;
+            }
+            if (typeElement.getNestingKind() != NestingKind.MEMBER
+                    || !typeElement.getModifiers().contains(Modifier.STATIC) && e.getKind() == ElementKind.CLASS) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String generatedName(TypeElement type) {
+        var name = new StringBuilder(type.getSimpleName()).append("CopilotTools");
+        for (Element e = type.getEnclosingElement(); !(e instanceof PackageElement); e = e.getEnclosingElement()) {
+            name.insert(0, e.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    private boolean isInvocation(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(TOOL_INVOCATION);
+    }
+
+    private boolean isBindable(TypeMirror type) {
+        var element = (TypeElement) ((DeclaredType) type).asElement();
+        return (element.getKind() == ElementKind.RECORD || element.getKind() == ElementKind.CLASS)
+                && scalarType(element.getQualifiedName().toString()) == null
+                && ((DeclaredType) type).getTypeArguments().isEmpty();
+    }
+
+    private boolean isSubtype(TypeMirror type, String qualifiedName) {
+        var types = processingEnv.getTypeUtils();
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(qualifiedName);
+        return element != null && types.isAssignable(types.erasure(type), types.erasure(element.asType()));
+    }
+
+    private static boolean hasAnnotation(Element element, String qualifiedName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(qualifiedName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    static String toJson(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            var out = new StringBuilder("{");
+            for (var entry : map.entrySet()) {
+                if (out.length() > 1) {
+                    out.append(',');
+                }
+                out.append(toJson(entry.getKey())).append(':').append(toJson(entry.getValue()));
+            }
+            return out.append('}').toString();
+        }
+        if (value instanceof List<?> list) {
+            var out = new StringBuilder("[");
+            for (Object item : list) {
+                if (out.length() > 1) {
+                    out.append(',');
+                }
+                out.append(toJson(item));
+            }
+            return out.append(']').toString();
+        }
+        if (value instanceof String s) {
+            return quote(s);
+        }
+        return String.valueOf(value);
+    }
+
+    private static String quote(String value) {
+        var out = new StringBuilder().append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' :
+                    out.append("\\\"");
+                    break;
+                case '\\' :
+                    out.append("\\\\");
+                    break;
+                case '\n' :
+                    out.append("\\n");
+                    break;
+                case '\r' :
+                    out.append("\\r");
+                    break;
+                case '\t' :
+                    out.append("\\t");
+                    break;
+                default :
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private record Tool(ExecutableElement method, String name, String description, boolean overridesBuiltInTool,
+            TypeMirror argsType, boolean passInvocation, String schemaJson) {
+    }
+}
@@ -0,0 +1,16 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+/**
+ * Compile-time support for annotation-driven tools.
+ *
+ * <p>
+ * {@link com.github.copilot.sdk.processor.CopilotToolProcessor} generates
+ * {@link com.github.copilot.sdk.json.ToolDefinition}s for methods annotated
+ * with {@link com.github.copilot.sdk.json.CopilotTool}. It runs automatically
+ * when the SDK is on the compile classpath.
+ *
+ * @see com.github.copilot.sdk.json.CopilotTool
+ */
+package com.github.copilot.sdk.processor;
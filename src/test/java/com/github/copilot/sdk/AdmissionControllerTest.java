@@ -0,0 +1,171 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.events.SessionErrorEvent;
+import com.github.copilot.sdk.events.SessionIdleEvent;
+import com.github.copilot.sdk.json.AdmissionControlConfig;
+
+class AdmissionControllerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private static AdmissionController.Permit admitted(CompletableFuture<AdmissionController.Permit> future)
+            throws Exception {
+        assertTrue(future.isDone(), "expected the turn to be admitted");
+        return future.get();
+    }
+
+    private static void assertRejected(CompletableFuture<AdmissionController.Permit> future) {
+        var ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+    }
+
+    @Test
+    void concurrencyCapServesTenantsRoundRobin() throws Exception {
+        var config = new AdmissionControlConfig().setMaxConcurrentPerModel(1)
+                .setTenantResolver(id -> id.substring(0, 1));
+        try (var controller = new AdmissionController(config, null, now::get)) {
+            var running = admitted(controller.acquire("a0", "gpt-5"));
+            admitted(controller.acquire("a3", "claude-sonnet-4.5"));
+            var a1first = controller.acquire("a1", "gpt-5");
+            var a1second = controller.acquire("a1", "gpt-5");
+            var a2 = controller.acquire("a2", "gpt-5");
+            var b1 = controller.acquire("b1", "gpt-5");
+
+            assertEquals(4, controller.getQueueLength());
+
+            running.release();
+            running.release(); // idempotent
+            var next = admitted(a1first);
+            assertFalse(b1.isDone());
+            next.release();
+            next = admitted(b1);
+            assertFalse(a2.isDone());
+            next.release();
+            next = admitted(a2);
+            assertFalse(a1second.isDone());
+            next.release();
+            admitted(a1second);
+            assertEquals(0, controller.getQueueLength());
+            assertEquals(1, controller.getInFlight("gpt-5"));
+        }
+    }
+
+    @Test
+    void tokenBucketLimitsRate() throws Exception {
+        var config = new AdmissionControlConfig().setRequestsPerSecond(10).setBurst(2);
+        try (var controller = new AdmissionController(config, null, now::get)) {
+            admitted(controller.acquire("s1", null));
+            admitted(controller.acquire("s2", null));
+            var third = controller.acquire("s3", null);
+            assertFalse(third.isDone());
+
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+            controller.drain();
+            admitted(third);
+            assertEquals(3, controller.getInFlight(null));
+        }
+    }
+
+    @Test
+    void shedsWhenQueueIsFullOrQuotaIsLow() throws Exception {
+        var config = new AdmissionControlConfig().setMaxConcurrentPerModel(1).setMaxQueueSize(0)
+                .setMinRemainingQuotaPercentage(10);
+        try (var controller = new AdmissionController(config, null, now::get)) {
+            var permit = admitted(controller.acquire("s1", "gpt-5"));
+            assertRejected(controller.acquire("s2", "gpt-5"));
+            permit.release();
+
+            controller.updateQuota(Map.of("chat", Map.of("isUnlimitedEntitlement", true, "remainingPercentage", 0.0),
+                    "premium_interactions", Map.of("remainingPercentage", 4.5)));
+            assertEquals(4.5, controller.getRemainingQuota());
+            assertRejected(controller.acquire("s1", "gpt-5"));
+
+            // After the probe interval a single turn is let through to refresh the quota
+            now.addAndGet(AdmissionController.QUOTA_PROBE_INTERVAL_NANOS);
+            admitted(controller.acquire("s1", "gpt-5")).release();
+            assertRejected(controller.acquire("s1", "gpt-5"));
+
+            controller.updateQuota(Map.of("premium_interactions", Map.of("remainingPercentage", 80)));
+            admitted(controller.acquire("s1", "gpt-5"));
+        }
+    }
+
+    @Test
+    void queueTimeoutRejectsAndRecordsWait() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        var config = new AdmissionControlConfig().setMaxConcurrentPerModel(1)
+                .setMaxQueueWait(Duration.ofMillis(20));
+        try (var controller = new AdmissionController(config, metrics)) {
+            admitted(controller.acquire("s1", "gpt-5"));
+            assertRejected(controller.acquire("s2", "gpt-5"));
+            var queued = controller.acquire("s3", "gpt-5");
+            controller.close();
+            assertRejected(queued);
+        }
+
+        var stats = metrics.getAdmissionStats().get("gpt-5");
+        assertEquals(1, stats.admitted());
+        assertEquals(2, stats.rejected());
+        assertTrue(stats.queueWait().getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(2L, JmxMetricsExporter.attributes(metrics).get("Admission.gpt-5.Rejected"));
+    }
+
+    @Test
+    void turnEndedByErrorDoesNotReleaseTheNextTurnWhenItsIdleEventFollows() throws Exception {
+        var config = new AdmissionControlConfig().setMaxConcurrentPerModel(2);
+        try (var controller = new AdmissionController(config, null, now::get);
+                var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept();
+                var rpc = JsonRpcClient.fromSocket(clientSocket)) {
+            var session = new CopilotSession("s1", rpc);
+            session.setAdmissionController(controller, "gpt-5");
+            InputStream in = serverSide.getInputStream();
+            OutputStream out = serverSide.getOutputStream();
+
+            var first = session.send("first");
+            answerSend(out, RpcFrames.readJson(in).get("id").asLong());
+            first.get(5, TimeUnit.SECONDS);
+            assertEquals(1, controller.getInFlight("gpt-5"));
+            session.dispatchEvent(new SessionErrorEvent());
+            assertEquals(0, controller.getInFlight("gpt-5"));
+
+            // The next turn starts before the idle event that follows the error
+            var second = session.send("second");
+            long id = RpcFrames.readJson(in).get("id").asLong();
+            assertEquals(1, controller.getInFlight("gpt-5"));
+            session.dispatchEvent(new SessionIdleEvent());
+            assertEquals(1, controller.getInFlight("gpt-5"), "the idle event ended the previous turn");
+
+            answerSend(out, id);
+            second.get(5, TimeUnit.SECONDS);
+            session.dispatchEvent(new SessionErrorEvent());
+            session.dispatchEvent(new SessionIdleEvent());
+            assertEquals(0, controller.getInFlight("gpt-5"));
+        }
+    }
+
+    private static void answerSend(OutputStream out, long id) throws Exception {
+        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":{\"messageId\":\"m\"}}");
+    }
+}
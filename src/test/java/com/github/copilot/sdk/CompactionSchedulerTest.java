@@ -0,0 +1,118 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.events.SessionCompactionCompleteEvent;
+import com.github.copilot.sdk.events.SessionIdleEvent;
+import com.github.copilot.sdk.events.SessionUsageInfoEvent;
+import com.github.copilot.sdk.events.UserMessageEvent;
+
+class CompactionSchedulerTest {
+
+    private final Map<String, CompletableFuture<Void>> compactions = new ConcurrentHashMap<>();
+
+    private CompactionScheduler newScheduler() {
+        return new CompactionScheduler(session -> {
+            var future = new CompletableFuture<Void>();
+            compactions.put(session.getSessionId(), future);
+            return future;
+        }).setThreshold(0.5).setIdleDelay(Duration.ZERO);
+    }
+
+    private void awaitCompactions(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (compactions.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        assertEquals(count, compactions.size());
+    }
+
+    @Test
+    void compactsIdleSessionsAboveThresholdWithConcurrencyCap() throws Exception {
+        var reports = new CopyOnWriteArrayList<CompactionScheduler.CompactionReport>();
+        try (var scheduler = newScheduler().setListener(reports::add)) {
+            var s1 = new CopilotSession("s1", null);
+            var s2 = new CopilotSession("s2", null);
+            var s3 = new CopilotSession("s3", null);
+            for (CopilotSession s : List.of(s1, s2, s3)) {
+                scheduler.attach(s);
+            }
+
+            s1.dispatchEvent(usageInfo(600, 1000));
+            s2.dispatchEvent(usageInfo(700, 1000));
+            s3.dispatchEvent(usageInfo(100, 1000));
+            for (CopilotSession s : List.of(s1, s2, s3)) {
+                s.dispatchEvent(new SessionIdleEvent());
+            }
+            awaitCompactions(1);
+            assertTrue(compactions.containsKey("s1"));
+
+            s1.dispatchEvent(compactionComplete(600, 200));
+            compactions.get("s1").complete(null);
+            awaitCompactions(2);
+            assertTrue(compactions.containsKey("s2"), "s3 is below the threshold");
+
+            assertEquals(1, reports.size());
+            var report = reports.get(0);
+            assertEquals("s1", report.sessionId());
+            assertTrue(report.proactive());
+            assertEquals(400, report.tokensRemoved());
+            assertNotNull(report.duration());
+
+            // Compacted session is not compacted again on its next idle
+            s1.dispatchEvent(new SessionIdleEvent());
+            compactions.get("s2").completeExceptionally(new RuntimeException("boom"));
+            Thread.sleep(50);
+            assertEquals(new CompactionScheduler.Stats(2, 1, 1, 400), scheduler.getStats());
+        }
+    }
+
+    @Test
+    void busySessionIsNotCompactedAndCliCompactionsAreReported() throws Exception {
+        var reports = new CopyOnWriteArrayList<CompactionScheduler.CompactionReport>();
+        try (var scheduler = newScheduler().setIdleDelay(Duration.ofMillis(100)).setListener(reports::add)) {
+            var session = new CopilotSession("s1", null);
+            scheduler.attach(session);
+
+            session.dispatchEvent(usageInfo(900, 1000));
+            session.dispatchEvent(new SessionIdleEvent());
+            session.dispatchEvent(new UserMessageEvent());
+            Thread.sleep(200);
+            assertTrue(compactions.isEmpty());
+
+            session.dispatchEvent(compactionComplete(900, 300));
+            assertEquals(1, reports.size());
+            assertFalse(reports.get(0).proactive());
+            assertNull(reports.get(0).duration());
+            assertEquals(0, scheduler.getStats().triggered());
+        }
+    }
+
+    private static SessionUsageInfoEvent usageInfo(double current, double limit) {
+        var event = new SessionUsageInfoEvent();
+        event.setData(new SessionUsageInfoEvent.SessionUsageInfoData(limit, current, 10));
+        return event;
+    }
+
+    private static SessionCompactionCompleteEvent compactionComplete(double pre, double post) {
+        var event = new SessionCompactionCompleteEvent();
+        event.setData(new SessionCompactionCompleteEvent.SessionCompactionCompleteData(true, null, pre, post, 20.0,
+                12.0, null, "summary", null, null, null, null));
+        return event;
+    }
+}
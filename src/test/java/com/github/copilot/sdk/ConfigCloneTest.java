@@ -32,6 +32,7 @@ class ConfigCloneTest {
         original.setPort(9000);
         original.setGitHubToken("ghp_test");
         original.setUseLoggedInUser(false);
+        original.setLifecycleEventThreads(2);
 
         CopilotClientOptions cloned = original.clone();
 
@@ -40,6 +41,7 @@ class ConfigCloneTest {
         assertEquals(original.getPort(), cloned.getPort());
         assertEquals(original.getGitHubToken(), cloned.getGitHubToken());
         assertEquals(original.getUseLoggedInUser(), cloned.getUseLoggedInUser());
+        assertEquals(2, cloned.getLifecycleEventThreads());
     }
 
     @Test
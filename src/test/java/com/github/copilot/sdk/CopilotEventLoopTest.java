@@ -0,0 +1,174 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.json.CopilotClientOptions;
+
+class CopilotEventLoopTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    /** A stand-in server that echoes the params of every request as its result. */
+    private static ServerSocket startEchoServer() throws IOException {
+        var server = new ServerSocket(0);
+        var acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    var handler = new Thread(() -> echo(socket), "echo-server");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "echo-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+    private static void echo(Socket socket) {
+        try (socket) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                JsonNode request = RpcFrames.readJson(in);
+                JsonNode result = request.get("method").asText().equals("ping")
+                        ? MAPPER.valueToTree(Map.of("message", "pong", "timestamp", 0, "protocolVersion",
+                                SdkProtocolVersion.get()))
+                        : request.get("params");
+                RpcFrames.writeJson(out, Map.of("jsonrpc", "2.0", "id", request.get("id"), "result", result));
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private static long threadsNamed(String prefix) {
+        return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().startsWith(prefix)).count();
+    }
+
+    @Test
+    void servesManyConnectionsOnOneSelectorThread() throws Exception {
+        try (var server = startEchoServer(); var loop = new CopilotEventLoop(1, 2)) {
+            var address = new InetSocketAddress("localhost", server.getLocalPort());
+            long threadsBefore = threadsNamed("jsonrpc-reader") + threadsNamed("copilot-");
+            var clients = new ArrayList<JsonRpcClient>();
+            for (int i = 0; i < 40; i++) {
+                clients.add(JsonRpcClient.fromTransport(loop.connect(address), CopilotMetrics.NOOP));
+            }
+            assertEquals(40, loop.getConnectionCount());
+            assertEquals(threadsBefore, threadsNamed("jsonrpc-reader") + threadsNamed("copilot-"),
+                    "no thread per connection");
+
+            // Interleaved requests on every connection, including frames larger than the read buffer
+            String large = "x".repeat(1024 * 1024);
+            var futures = new ArrayList<CompletableFuture<JsonNode>>();
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < clients.size(); i++) {
+                    String text = i % 10 == 0 && round == 0 ? large : "c" + i + "-r" + round;
+                    futures.add(clients.get(i).invoke("echo", Map.of("text", text), JsonNode.class));
+                }
+            }
+            for (int f = 0; f < futures.size(); f++) {
+                int i = f % clients.size();
+                int round = f / clients.size();
+                String expected = i % 10 == 0 && round == 0 ? large : "c" + i + "-r" + round;
+                assertEquals(expected, futures.get(f).get(10, TimeUnit.SECONDS).get("text").asText());
+            }
+
+            clients.get(0).close();
+            assertFalse(clients.get(0).isConnected());
+            assertEquals(39, loop.getConnectionCount());
+            assertTrue(clients.get(1).isConnected());
+
+            // Closing the loop closes the connections it serves
+            loop.close();
+            for (int i = 0; i < 50 && loop.getConnectionCount() > 0; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, loop.getConnectionCount());
+            assertFalse(clients.get(1).isConnected());
+            assertThrows(IOException.class, () -> loop.connect(address));
+        }
+    }
+
+    @Test
+    void decodesFramesSplitAcrossReadsAndClientsConnectThroughTheLoop() throws Exception {
+        byte[] first = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "{\"b\":\"é\"}".getBytes(StandardCharsets.UTF_8);
+        String firstHeader = "Content-Length: " + first.length + "\r\nContent-Type: x\r\n\r\n";
+        String secondHeader = "content-length:" + second.length + "\r\n\r\n";
+        var stream = new ByteArrayOutputStream();
+        stream.write(firstHeader.getBytes(StandardCharsets.US_ASCII));
+        stream.write(first);
+        stream.write("Content-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        stream.write(secondHeader.getBytes(StandardCharsets.US_ASCII));
+        stream.write(second);
+        byte[] bytes = stream.toByteArray();
+
+        for (int chunk : new int[]{1, 3, bytes.length}) {
+            var decoder = new FrameDecoder();
+            var frames = new ArrayList<String>();
+            var sizes = new ArrayList<Integer>();
+            for (int off = 0; off < bytes.length; off += chunk) {
+                var input = ByteBuffer.wrap(bytes, off, Math.min(chunk, bytes.length - off));
+                decoder.decode(input, (content, length, size) -> {
+                    frames.add(new String(content, 0, length, StandardCharsets.UTF_8));
+                    sizes.add(size);
+                });
+            }
+            assertEquals(List.of("{\"a\":1}", "{\"b\":\"é\"}"), frames, "chunk size " + chunk);
+            assertEquals(List.of(firstHeader.length() + first.length, secondHeader.length() + second.length), sizes);
+        }
+        byte[] malformed = "Content-Length: x\r\n".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> new FrameDecoder().decode(ByteBuffer.wrap(malformed), (c, l, s) -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> new CopilotEventLoop(0, 1));
+
+        try (var server = startEchoServer(); var loop = new CopilotEventLoop()) {
+            var options = new CopilotClientOptions().setCliUrl("localhost:" + server.getLocalPort())
+                    .setEventLoop(loop);
+            assertSame(loop, options.clone().getEventLoop());
+            try (var client = new CopilotClient(options)) {
+                client.start().get(10, TimeUnit.SECONDS);
+                assertEquals("pong", client.ping("hello").get(10, TimeUnit.SECONDS).message());
+                assertEquals(1, loop.getConnectionCount());
+            }
+            assertEquals(0, loop.getConnectionCount());
+        }
+    }
+
+    @Test
+    void loopConnectionsHaveNoStreamToRead() throws Exception {
+        try (var server = startEchoServer(); var loop = new CopilotEventLoop(1, 1);
+                var transport = loop.connect(new InetSocketAddress("localhost", server.getLocalPort()))) {
+            assertEquals(-1, transport.inputStream().read());
+            assertTrue(transport.isConnected());
+        }
+    }
+}
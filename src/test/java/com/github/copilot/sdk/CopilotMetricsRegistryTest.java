@@ -0,0 +1,95 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.events.SessionIdleEvent;
+
+class CopilotMetricsRegistryTest {
+
+    @Test
+    void recordsCallbacksByTypeAndName() {
+        var metrics = new CopilotMetricsRegistry();
+        metrics.callbackCompleted(CopilotMetrics.CallbackType.TOOL, "get_weather", 1_000_000, true);
+        metrics.callbackCompleted(CopilotMetrics.CallbackType.TOOL, "get_weather", 3_000_000, false);
+        metrics.callbackCompleted(CopilotMetrics.CallbackType.HOOK, "preToolUse", 500_000, true);
+
+        var stats = metrics.getCallbackStats();
+        assertEquals(2, stats.get("TOOL:get_weather").count());
+        assertEquals(1, stats.get("TOOL:get_weather").failures());
+        assertEquals(3_000_000, stats.get("TOOL:get_weather").latency().getMaxNanos());
+        assertEquals(1, stats.get("HOOK:preToolUse").count());
+    }
+
+    @Test
+    void pendingRequestsTracksStartedMinusFinished() {
+        var metrics = new CopilotMetricsRegistry();
+        metrics.requestStarted("a");
+        metrics.requestStarted("a");
+        metrics.requestStarted("b");
+        metrics.requestCompleted("a", 10);
+        metrics.requestFailed("b", -32603, 10);
+
+        assertEquals(1, metrics.getPendingRequests());
+        assertEquals(Map.of(-32603, 1L), metrics.getRequestStats().get("b").errorCodes());
+    }
+
+    @Test
+    void sessionReportsEventDispatchAndCallbackTiming() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept();
+                var rpc = JsonRpcClient.fromSocket(clientSocket, metrics)) {
+            var session = new CopilotSession("s1", rpc);
+            session.on(event -> {
+            });
+
+            session.dispatchEvent(new SessionIdleEvent());
+            session.timeCallback(CopilotMetrics.CallbackType.TOOL, "echo", () -> CompletableFuture.completedFuture("x"))
+                    .get();
+            assertThrows(IllegalStateException.class,
+                    () -> session.timeCallback(CopilotMetrics.CallbackType.TOOL, "boom", () -> {
+                        throw new IllegalStateException("boom");
+                    }));
+
+            assertEquals(1, metrics.getEventStats().get("session.idle").getCount());
+            assertEquals(0, metrics.getCallbackStats().get("TOOL:echo").failures());
+            assertEquals(1, metrics.getCallbackStats().get("TOOL:boom").failures());
+        }
+    }
+
+    @Test
+    void jmxExporterPublishesAttributes() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        metrics.requestStarted("session.create");
+        metrics.requestCompleted("session.create", 2_000_000);
+        metrics.frameSent(128);
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name;
+        try (var exporter = JmxMetricsExporter.register(metrics, "metrics-test")) {
+            name = exporter.getObjectName();
+            assertTrue(server.isRegistered(name));
+            assertEquals(128L, server.getAttribute(name, "BytesSent"));
+            assertEquals(1L, server.getAttribute(name, "Request.session.create.Count"));
+            assertEquals(0L, server.getAttribute(name, "PendingRequests"));
+
+            assertThrows(IllegalStateException.class, () -> JmxMetricsExporter.register(metrics, "metrics-test"));
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
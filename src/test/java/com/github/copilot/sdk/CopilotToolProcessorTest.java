@@ -0,0 +1,121 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.json.CopilotTool;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolInvocation;
+import com.github.copilot.sdk.json.ToolParam;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+class CopilotToolProcessorTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    enum Units {
+        METRIC, IMPERIAL
+    }
+
+    record Forecast(@ToolParam(description = "City name") String city,
+            @ToolParam(required = false) Integer days, @ToolParam(required = false) Units units,
+            @ToolParam(required = false) Set<String> tags) {
+    }
+
+    public static class Lookup {
+        @JsonProperty("issue_id")
+        public int id;
+        private String owner;
+
+        public void setOwner(String owner) {
+            this.owner = owner;
+        }
+    }
+
+    static class WeatherTools {
+        @CopilotTool(name = "get_forecast", description = "Gets the forecast")
+        CompletionStage<String> forecast(Forecast args) {
+            return CompletableFuture.completedFuture(args.city() + "/" + args.days() + "/" + args.units());
+        }
+
+        @CopilotTool(description = "Looks up an issue")
+        String lookup(Lookup args, ToolInvocation invocation) {
+            return invocation.getToolCallId() + ":" + args.id + "@" + args.owner;
+        }
+
+        @CopilotTool(description = "Always fails", overridesBuiltInTool = true)
+        static ToolResultObject grep() {
+            throw new IllegalStateException("boom");
+        }
+    }
+
+    private static Map<String, ToolDefinition> tools() {
+        var byName = new LinkedHashMap<String, ToolDefinition>();
+        for (var tool : CopilotToolProcessorTest_WeatherToolsCopilotTools.definitions(new WeatherTools())) {
+            byName.put(tool.name(), tool);
+        }
+        return byName;
+    }
+
+    @Test
+    void generatesSchemasAtCompileTime() throws Exception {
+        var tools = tools();
+        assertEquals(List.of("get_forecast", "lookup", "grep"), List.copyOf(tools.keySet()));
+        assertEquals(Boolean.TRUE, tools.get("grep").overridesBuiltInTool());
+
+        String forecast = MAPPER.writeValueAsString(tools.get("get_forecast").parameters());
+        assertEquals("{\"type\":\"object\",\"properties\":{"
+                + "\"city\":{\"type\":\"string\",\"description\":\"City name\"},\"days\":{\"type\":\"integer\"},"
+                + "\"units\":{\"type\":\"string\",\"enum\":[\"METRIC\",\"IMPERIAL\"]},"
+                + "\"tags\":{\"type\":\"array\",\"items\":{\"type\":\"string\"},\"uniqueItems\":true}},"
+                + "\"required\":[\"city\"],\"additionalProperties\":false}", forecast);
+        assertEquals("{\"type\":\"object\",\"properties\":{\"issue_id\":{\"type\":\"integer\"},"
+                + "\"owner\":{\"type\":\"string\"}},\"required\":[\"issue_id\",\"owner\"],"
+                + "\"additionalProperties\":false}", MAPPER.writeValueAsString(tools.get("lookup").parameters()));
+        assertEquals("{\"type\":\"object\",\"properties\":{},\"additionalProperties\":false}",
+                MAPPER.writeValueAsString(tools.get("grep").parameters()));
+    }
+
+    @Test
+    void bindsArgumentsAndAdaptsResults() throws Exception {
+        var tools = tools();
+        var session = new CopilotSession("s1", null);
+        session.registerTools(List.copyOf(tools.values()));
+
+        var forecast = new ToolInvocation().setToolCallId("c1").setToolName("get_forecast")
+                .setArguments(MAPPER.readTree("{\"city\":\"Oslo\",\"units\":\"METRIC\"}"));
+        assertEquals("Oslo/null/METRIC",
+                session.invokeTool(tools.get("get_forecast"), forecast).get(5, TimeUnit.SECONDS));
+
+        var lookup = new ToolInvocation().setToolCallId("c2").setToolName("lookup")
+                .setArguments(MAPPER.readTree("{\"issue_id\":42,\"owner\":\"octocat\"}"));
+        assertEquals("c2:42@octocat", session.invokeTool(tools.get("lookup"), lookup).get(5, TimeUnit.SECONDS));
+
+        // The generated schema is enforced before the handler runs
+        var invalid = new ToolInvocation().setToolCallId("c3").setToolName("get_forecast")
+                .setArguments(MAPPER.readTree("{\"days\":2}"));
+        var rejected = assertInstanceOf(ToolResultObject.class,
+                session.invokeTool(tools.get("get_forecast"), invalid).get(5, TimeUnit.SECONDS));
+        assertTrue(rejected.textResultForLlm().contains("missing required property 'city'"));
+
+        var failing = tools.get("grep").handler().invoke(new ToolInvocation().setToolName("grep"));
+        var error = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+        assertEquals("boom", error.getCause().getMessage());
+    }
+}
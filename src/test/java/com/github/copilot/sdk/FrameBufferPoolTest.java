@@ -0,0 +1,116 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class FrameBufferPoolTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    @Test
+    void buffersAreSizeClassedCachedPerThreadAndCapped() throws Exception {
+        var pool = new FrameBufferPool(3L * 1024 * 1024);
+        assertEquals(4096, pool.acquire(1).length);
+        assertEquals(4096, pool.acquire(4096).length);
+        assertEquals(8192, pool.acquire(4097).length);
+        assertEquals(1 << 20, pool.acquire(FrameBufferPool.MAX_POOLED_SIZE).length);
+        assertEquals(FrameBufferPool.MAX_POOLED_SIZE + 1, pool.acquire(FrameBufferPool.MAX_POOLED_SIZE + 1).length);
+
+        // Small buffers are reused by the releasing thread without touching the shared queues
+        byte[] small = pool.acquire(100);
+        pool.release(small);
+        assertSame(small, pool.acquire(200));
+        assertEquals(0, pool.getRetainedBytes());
+
+        // A second small buffer of the same class spills to the shared queue
+        byte[] other = pool.acquire(100);
+        pool.release(small);
+        pool.release(other);
+        assertEquals(4096, pool.getRetainedBytes());
+        var fromOtherThread = CompletableFuture.supplyAsync(() -> pool.acquire(100)).get(5, TimeUnit.SECONDS);
+        assertSame(other, fromOtherThread);
+        assertEquals(0, pool.getRetainedBytes());
+
+        // Large buffers are shared only up to the cap
+        byte[][] large = {pool.acquire(1 << 20), pool.acquire(1 << 20), pool.acquire(1 << 20), pool.acquire(1 << 20)};
+        for (byte[] buffer : large) {
+            pool.release(buffer);
+        }
+        assertEquals(3L * 1024 * 1024, pool.getRetainedBytes());
+        assertSame(large[0], pool.acquire(600_000));
+
+        // Arrays the pool did not hand out are ignored
+        pool.release(new byte[5000]);
+        pool.release(new byte[FrameBufferPool.MAX_POOLED_SIZE * 2]);
+        assertEquals(2L * 1024 * 1024, pool.getRetainedBytes());
+    }
+
+    @Test
+    void buffersHandedToAnotherThreadReturnToTheAcquiringThread() throws Exception {
+        var pool = new FrameBufferPool(1024 * 1024);
+        var ioThread = Executors.newSingleThreadExecutor();
+        try {
+            byte[] buffer = ioThread.submit(() -> pool.acquire(100)).get(5, TimeUnit.SECONDS);
+            pool.releaseShared(buffer);
+            assertEquals(4096, pool.getRetainedBytes());
+            assertSame(buffer, ioThread.submit(() -> pool.acquire(100)).get(5, TimeUnit.SECONDS));
+            assertEquals(0, pool.getRetainedBytes());
+
+            pool.releaseShared(new byte[5000]);
+            assertEquals(0, pool.getRetainedBytes());
+        } finally {
+            ioThread.shutdown();
+        }
+    }
+
+    @Test
+    void readerStreamsOversizedFramesAndCopiesRawResults() throws Exception {
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept();
+                var rpc = JsonRpcClient.fromSocket(clientSocket)) {
+            OutputStream out = serverSide.getOutputStream();
+            String large = "y".repeat(FrameBufferPool.MAX_POOLED_SIZE + 10);
+
+            // An oversized response is parsed from the stream, and framing stays intact
+            var big = rpc.invoke("big", Map.of(), JsonNode.class);
+            RpcFrames.write(out, MAPPER.writeValueAsBytes(Map.of("jsonrpc", "2.0", "id", 1, "result",
+                    Map.of("text", large))));
+            assertEquals(large, big.get(5, TimeUnit.SECONDS).get("text").asText());
+
+            // Malformed oversized frames are skipped
+            var next = rpc.invoke("next", Map.of(), JsonNode.class);
+            RpcFrames.write(out, ("{\"jsonrpc\":\"2.0\",\"id\":" + large).getBytes(StandardCharsets.UTF_8));
+            RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":{\"ok\":true}}");
+            assertTrue(next.get(5, TimeUnit.SECONDS).get("ok").asBoolean());
+
+            // Raw results outlive the pooled frame buffer they were read into
+            var raw = rpc.invokeRaw("raw", Map.of());
+            byte[] rawFrame = "{\"jsonrpc\":\"2.0\",\"id\":3,\"result\":[1,2,3]}".getBytes(StandardCharsets.UTF_8);
+            RpcFrames.write(out, rawFrame);
+            byte[] received = raw.get(5, TimeUnit.SECONDS);
+            var after = rpc.invoke("after", Map.of(), JsonNode.class);
+            RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":4,\"result\":{\"zzzzzzzzzzzzzzzzzzzzzzzzzzzzzz\":1}}"
+                    .getBytes(StandardCharsets.UTF_8));
+            after.get(5, TimeUnit.SECONDS);
+            assertArrayEquals(rawFrame, received);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.json.HookFallback;
+import com.github.copilot.sdk.json.PostToolUseHookOutput;
+import com.github.copilot.sdk.json.PreToolUseHookOutput;
+import com.github.copilot.sdk.json.SessionHooks;
+import com.github.copilot.sdk.json.UserPromptSubmittedHookOutput;
+
+class HookDeadlineTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    private final CopilotMetricsRegistry metrics = new CopilotMetricsRegistry();
+    private final CompletableFuture<PreToolUseHookOutput> slowPre = new CompletableFuture<>();
+    private final CompletableFuture<UserPromptSubmittedHookOutput> slowPrompt = new CompletableFuture<>();
+    private final PostToolUseHookOutput postOutput = new PostToolUseHookOutput(null, "audited", null);
+    private final SessionHooks hooks = new SessionHooks().setOnPreToolUse((input, invocation) -> slowPre)
+            .setOnUserPromptSubmitted((input, invocation) -> slowPrompt)
+            .setOnPostToolUse((input, invocation) -> CompletableFuture.supplyAsync(() -> postOutput))
+            .setTimeout(Duration.ofMillis(50)).setTimeout("postToolUse", Duration.ofSeconds(5))
+            .setFallback(HookFallback.DENY);
+
+    private ServerSocket serverSocket;
+    private Socket serverSide;
+    private JsonRpcClient rpc;
+    private CopilotSession session;
+
+    @BeforeEach
+    void connect() throws Exception {
+        serverSocket = new ServerSocket(0);
+        rpc = JsonRpcClient.fromSocket(new Socket("localhost", serverSocket.getLocalPort()), metrics);
+        serverSide = serverSocket.accept();
+        session = new CopilotSession("s1", rpc);
+        session.registerHooks(hooks);
+    }
+
+    @AfterEach
+    void disconnect() throws Exception {
+        rpc.close();
+        serverSide.close();
+        serverSocket.close();
+    }
+
+    private Object invoke(String hookType) throws Exception {
+        JsonNode input = MAPPER.readTree("{}");
+        return session.handleHooksInvoke(hookType, input).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void missedDeadlineAnswersWithTheFallbackDecision() throws Exception {
+        var pre = assertInstanceOf(PreToolUseHookOutput.class, invoke("preToolUse"));
+        assertEquals("deny", pre.permissionDecision());
+    }
+
+    @Test
+    void missedDeadlineOnHookWithoutDecisionPassesInputThrough() throws Exception {
+        assertNull(invoke("userPromptSubmitted"));
+    }
+
+    @Test
+    void perTypeTimeoutOverridesTheDefault() throws Exception {
+        assertSame(postOutput, invoke("postToolUse"));
+        assertTrue(metrics.getHookDeadlinesExceeded().isEmpty());
+    }
+
+    @Test
+    void missedDeadlinesAreCountedPerHookTypeAndExported() throws Exception {
+        invoke("preToolUse");
+        assertEquals(Map.of("preToolUse", 1L), metrics.getHookDeadlinesExceeded());
+        invoke("userPromptSubmitted");
+        assertEquals(Map.of("preToolUse", 1L, "userPromptSubmitted", 1L), metrics.getHookDeadlinesExceeded());
+        assertTrue(JmxMetricsExporter.attributes(metrics).containsKey("Hook.preToolUse.DeadlinesExceeded"));
+    }
+
+    @Test
+    void lateResultIsDiscardedButItsLatencyIsRecorded() throws Exception {
+        assertEquals("deny", ((PreToolUseHookOutput) invoke("preToolUse")).permissionDecision());
+        slowPre.complete(PreToolUseHookOutput.allow());
+
+        var stats = metrics.getCallbackStats().get("HOOK:preToolUse");
+        assertEquals(1, stats.count());
+        assertTrue(stats.latency().getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void hooksThatCompleteInTimeAreAnsweredWithTheirOwnResult() throws Exception {
+        slowPre.complete(PreToolUseHookOutput.allow());
+        var pre = assertInstanceOf(PreToolUseHookOutput.class, invoke("preToolUse"));
+        assertEquals("allow", pre.permissionDecision());
+        assertTrue(metrics.getHookDeadlinesExceeded().isEmpty());
+    }
+
+    @Test
+    void hooksHaveNoDeadlineByDefault() {
+        var defaults = new SessionHooks();
+        assertNull(defaults.getTimeout("preToolUse"));
+        assertEquals(HookFallback.PASS_THROUGH, defaults.getFallback());
+    }
+
+    @Test
+    void perTypeTimeoutsFallBackToTheDefaultWhenCleared() {
+        var timeouts = new SessionHooks().setTimeout(Duration.ofSeconds(2)).setTimeout("sessionStart",
+                Duration.ofSeconds(10));
+        assertEquals(Duration.ofSeconds(2), timeouts.getTimeout("preToolUse"));
+        assertEquals(Duration.ofSeconds(10), timeouts.getTimeout("sessionStart"));
+        timeouts.setTimeout("sessionStart", null);
+        assertEquals(Duration.ofSeconds(2), timeouts.getTimeout("sessionStart"));
+    }
+
+    @Test
+    void invalidDeadlineSettingsAreRejected() {
+        var invalid = new SessionHooks();
+        assertThrows(IllegalArgumentException.class, () -> invalid.setTimeout(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> invalid.setTimeout("onError", Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> invalid.setFallback(null));
+    }
+}
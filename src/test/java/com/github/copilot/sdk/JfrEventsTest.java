@@ -0,0 +1,106 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.copilot.sdk.events.SessionIdleEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void emitsRpcFrameDispatchAndCallbackEvents() throws Exception {
+        List<RecordedEvent> events;
+        try (var recording = new Recording()) {
+            recording.enable("com.github.copilot.sdk.*").withThreshold(Duration.ZERO);
+            recording.start();
+
+            try (var serverSocket = new ServerSocket(0);
+                    var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                    var serverSide = serverSocket.accept();
+                    var rpc = JsonRpcClient.fromSocket(clientSocket)) {
+                CompletableFuture<JsonNode> future = rpc.invoke("session.create", Map.of(), JsonNode.class);
+                long id = RpcFrames.readJson(serverSide.getInputStream()).get("id")
+                        .asLong();
+                RpcFrames.write(serverSide.getOutputStream(), "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":{}}");
+                future.get(5, TimeUnit.SECONDS);
+
+                var session = new CopilotSession("s1", rpc);
+                session.on(event -> {
+                });
+                session.dispatchEvent(new SessionIdleEvent());
+                session.timeCallback(CopilotMetrics.CallbackType.TOOL, "echo",
+                        () -> CompletableFuture.completedFuture("ok")).get();
+                session.timeCallback(CopilotMetrics.CallbackType.HOOK, "preToolUse",
+                        () -> CompletableFuture.completedFuture(null)).get();
+            }
+
+            recording.stop();
+            Path file = tempDir.resolve("events.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        RecordedEvent request = single(events, "com.github.copilot.sdk.RpcRequest");
+        assertEquals("session.create", request.getString("method"));
+        assertEquals(0, request.getInt("errorCode"));
+        assertTrue(request.getLong("requestSize") > 0);
+        assertTrue(request.getLong("responseSize") > 0);
+
+        RecordedEvent parse = single(events, "com.github.copilot.sdk.FrameParse");
+        assertEquals("response", parse.getString("kind"));
+
+        RecordedEvent dispatch = single(events, "com.github.copilot.sdk.SessionEventDispatch");
+        assertEquals("s1", dispatch.getString("sessionId"));
+        assertEquals("session.idle", dispatch.getString("eventType"));
+        assertFalse(dispatch.getBoolean("failed"));
+
+        RecordedEvent tool = single(events, "com.github.copilot.sdk.ToolInvocation");
+        assertEquals("echo", tool.getString("toolName"));
+        assertTrue(tool.getBoolean("success"));
+
+        RecordedEvent hook = single(events, "com.github.copilot.sdk.Callback");
+        assertEquals("HOOK", hook.getString("callbackType"));
+        assertEquals("preToolUse", hook.getString("name"));
+    }
+
+    @Test
+    void rpcRequestEventIsNotCreatedWhenDisabled() {
+        assertNull(JfrEvents.RpcRequest.start("session.create", 1));
+    }
+
+    @Test
+    void asyncAndFrameEventsAreNotCreatedWhenDisabled() {
+        assertNull(JfrEvents.FrameParse.start());
+        assertNull(JfrEvents.ToolInvocation.start("s1", "tool"));
+        assertNull(JfrEvents.Callback.start("s1", "HOOK", "preToolUse"));
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        var matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,282 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.copilot.sdk.json.CopilotClientOptions;
+
+class JsonRpcBatchTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    /**
+     * A stand-in CLI server that answers pings and deletes sessions, recording
+     * every frame it receives. Sessions named "locked" cannot be deleted. With
+     * {@code batches} off it rejects array frames as servers without batch
+     * support do.
+     */
+    private static ServerSocket startServer(boolean batches, List<JsonNode> received) throws IOException {
+        var server = new ServerSocket(0);
+        var thread = new Thread(() -> {
+            try (server; Socket socket = server.accept()) {
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                while (true) {
+                    JsonNode frame = RpcFrames.readJson(in);
+                    received.add(frame);
+                    if (!frame.isArray()) {
+                        RpcFrames.writeJson(out, answer(frame));
+                    } else if (batches) {
+                        var responses = new ArrayList<Object>();
+                        frame.forEach(request -> responses.add(0, answer(request)));
+                        RpcFrames.writeJson(out, responses);
+                    } else {
+                        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,"
+                                + "\"message\":\"Invalid Request\"}}");
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away
+            }
+        }, "batch-server");
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    private static Map<String, Object> answer(JsonNode request) {
+        Object result = request.get("method").asText().equals("ping")
+                ? Map.of("message", "pong", "timestamp", 0, "protocolVersion", SdkProtocolVersion.get())
+                : request.get("params").get("sessionId").asText().equals("locked")
+                        ? Map.of("success", false, "error", "session is locked")
+                        : Map.of("success", true);
+        return Map.of("jsonrpc", "2.0", "id", request.get("id"), "result", result);
+    }
+
+    @Test
+    void batchIsSentAsOneFrameAndResponsesCompleteTheirOwnFutures() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept();
+                var rpc = JsonRpcClient.fromSocket(clientSocket, metrics)) {
+            OutputStream out = serverSide.getOutputStream();
+            InputStream in = serverSide.getInputStream();
+
+            List<CompletableFuture<JsonNode>> futures = rpc.invokeBatch(
+                    List.of(new JsonRpcClient.BatchCall("a", Map.of("n", 1)),
+                            new JsonRpcClient.BatchCall("b", Map.of("n", 2)),
+                            new JsonRpcClient.BatchCall("c", Map.of("n", 3))));
+            JsonNode batch = RpcFrames.readJson(in);
+            assertTrue(batch.isArray());
+            assertEquals(3, batch.size());
+            assertEquals("b", batch.get(1).get("method").asText());
+            assertEquals(1, metrics.getFramesSent());
+
+            // Answered out of order, with an error and a server notification in the same batch
+            ArrayNode response = MAPPER.createArrayNode();
+            response.addObject().put("jsonrpc", "2.0").put("id", batch.get(2).get("id").asLong()).put("result", 3);
+            response.addObject().put("jsonrpc", "2.0").put("method", "session.event").putObject("params")
+                    .put("x", 1);
+            response.addObject().put("jsonrpc", "2.0").put("id", batch.get(0).get("id").asLong()).putObject("error")
+                    .put("code", -32602).put("message", "bad params");
+            response.addObject().put("jsonrpc", "2.0").put("id", batch.get(1).get("id").asLong()).put("result", 2);
+            var notifications = new CopyOnWriteArrayList<JsonNode>();
+            rpc.registerMethodHandler("session.event", (id, params) -> notifications.add(params));
+            RpcFrames.writeJson(out, response);
+
+            var error = assertThrows(ExecutionException.class, () -> futures.get(0).get(5, TimeUnit.SECONDS));
+            assertEquals(-32602, assertInstanceOf(JsonRpcException.class, error.getCause()).getCode());
+            assertEquals(2, futures.get(1).get(5, TimeUnit.SECONDS).asInt());
+            assertEquals(3, futures.get(2).get(5, TimeUnit.SECONDS).asInt());
+            assertEquals(1, notifications.size());
+            assertEquals(0, metrics.getPendingRequests());
+
+            // A response without an ID rejects the whole batch
+            var rejected = rpc.invokeBatch("ping", List.of(Map.of(), Map.of()), JsonNode.class);
+            RpcFrames.readJson(in);
+            RpcFrames.write(out,
+                    "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32700,\"message\":\"Parse error\"}}");
+            for (var future : rejected) {
+                error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertEquals(-32700, assertInstanceOf(JsonRpcException.class, error.getCause()).getCode());
+            }
+
+            // A single call needs no batch
+            var single = rpc.invokeBatch("ping", List.of(Map.of()), JsonNode.class);
+            assertTrue(RpcFrames.readJson(in).isObject());
+            assertEquals(1, single.size());
+            assertTrue(rpc.invokeBatch(List.of()).isEmpty());
+        }
+    }
+
+    private static final String ID_LESS_ERROR = "{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32600,"
+            + "\"message\":\"Invalid Request\"}}";
+
+    /** Answers every request of a batch frame with its own ID as the result. */
+    private static void answer(OutputStream out, JsonNode batch) throws IOException {
+        ArrayNode response = MAPPER.createArrayNode();
+        batch.forEach(request -> response.addObject().put("jsonrpc", "2.0").put("id", request.get("id").asLong())
+                .put("result", request.get("id").asLong()));
+        RpcFrames.writeJson(out, response);
+    }
+
+    private static void assertAnswered(List<CompletableFuture<JsonNode>> futures) throws Exception {
+        for (var future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS).isNumber());
+        }
+    }
+
+    @Test
+    void responseWithoutIdIsIgnoredWhileSeveralBatchesAreInFlight() throws Exception {
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept();
+                var rpc = JsonRpcClient.fromSocket(clientSocket)) {
+            OutputStream out = serverSide.getOutputStream();
+            InputStream in = serverSide.getInputStream();
+
+            var first = rpc.invokeBatch("ping", List.of(Map.of(), Map.of()), JsonNode.class);
+            JsonNode firstBatch = RpcFrames.readJson(in);
+            var second = rpc.invokeBatch("ping", List.of(Map.of(), Map.of()), JsonNode.class);
+            JsonNode secondBatch = RpcFrames.readJson(in);
+
+            // It cannot be told which batch the error rejects, so neither fails
+            RpcFrames.write(out, ID_LESS_ERROR);
+            answer(out, secondBatch);
+            assertAnswered(second);
+            assertFalse(first.get(0).isDone());
+            answer(out, firstBatch);
+            assertAnswered(first);
+        }
+    }
+
+    @Test
+    void responseWithoutIdLeavesPlainRequestsAlone() throws Exception {
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept();
+                var rpc = JsonRpcClient.fromSocket(clientSocket)) {
+            OutputStream out = serverSide.getOutputStream();
+            InputStream in = serverSide.getInputStream();
+
+            // Frames are handled in order, so the error is seen before the answer
+            var plain = rpc.invoke("ping", Map.of(), JsonNode.class);
+            long plainId = RpcFrames.readJson(in).get("id").asLong();
+            RpcFrames.write(out, ID_LESS_ERROR);
+            RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":" + plainId + ",\"result\":7}");
+            assertEquals(7, plain.get(5, TimeUnit.SECONDS).asInt());
+
+            // With one batch in flight the error rejects it, but not a plain request sent alongside
+            var other = rpc.invoke("ping", Map.of(), JsonNode.class);
+            long otherId = RpcFrames.readJson(in).get("id").asLong();
+            var batch = rpc.invokeBatch("ping", List.of(Map.of(), Map.of()), JsonNode.class);
+            RpcFrames.readJson(in);
+            RpcFrames.write(out, ID_LESS_ERROR);
+            for (var future : batch) {
+                var error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertEquals(-32600, assertInstanceOf(JsonRpcException.class, error.getCause()).getCode());
+            }
+            RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":" + otherId + ",\"result\":8}");
+            assertEquals(8, other.get(5, TimeUnit.SECONDS).asInt());
+        }
+    }
+
+    @Test
+    void oversizedBatchResponseFailsOnlyTheBatchItAnswers() throws Exception {
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept();
+                var rpc = JsonRpcClient.fromSocket(clientSocket)) {
+            rpc.setMaxFrameSize(64 * 1024);
+            OutputStream out = serverSide.getOutputStream();
+            InputStream in = serverSide.getInputStream();
+
+            var first = rpc.invokeBatch("ping", List.of(Map.of(), Map.of()), JsonNode.class);
+            JsonNode firstBatch = RpcFrames.readJson(in);
+            var second = rpc.invokeBatch("ping", List.of(Map.of(), Map.of()), JsonNode.class);
+            JsonNode secondBatch = RpcFrames.readJson(in);
+
+            ArrayNode oversized = MAPPER.createArrayNode();
+            secondBatch.forEach(request -> oversized.addObject().put("jsonrpc", "2.0")
+                    .put("result", "z".repeat(64 * 1024)).put("id", request.get("id").asLong()));
+            RpcFrames.writeJson(out, oversized);
+            for (var future : second) {
+                var error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertEquals(-32600, assertInstanceOf(JsonRpcException.class, error.getCause()).getCode());
+            }
+            answer(out, firstBatch);
+            assertAnswered(first);
+        }
+    }
+
+    @Test
+    void closeFailsBatchesInFlight() throws Exception {
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept()) {
+            var rpc = JsonRpcClient.fromSocket(clientSocket);
+            var batch = rpc.invokeBatch("ping", List.of(Map.of(), Map.of()), JsonNode.class);
+            RpcFrames.readJson(serverSide.getInputStream());
+
+            rpc.close();
+            for (var future : batch) {
+                var error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IOException.class, error.getCause());
+            }
+        }
+    }
+
+    @Test
+    void deleteSessionsSendsOneBatchAndFallsBackWithoutBatchSupport() throws Exception {
+        var received = new CopyOnWriteArrayList<JsonNode>();
+        try (var server = startServer(true, received);
+                var client = new CopilotClient(
+                        new CopilotClientOptions().setCliUrl("localhost:" + server.getLocalPort()))) {
+            client.start().get(10, TimeUnit.SECONDS);
+            client.deleteSessions(List.of("s1", "s2", "s3")).get(10, TimeUnit.SECONDS);
+            JsonNode batch = received.get(received.size() - 1);
+            assertEquals(3, batch.size());
+            assertEquals("s3", batch.get(2).get("params").get("sessionId").asText());
+
+            var error = assertThrows(ExecutionException.class,
+                    () -> client.deleteSessions(List.of("s4", "locked")).get(10, TimeUnit.SECONDS));
+            assertTrue(error.getCause().getMessage().contains("locked"), error.getCause().getMessage());
+            client.deleteSessions(List.of()).get(10, TimeUnit.SECONDS);
+        }
+
+        received.clear();
+        try (var server = startServer(false, received);
+                var client = new CopilotClient(
+                        new CopilotClientOptions().setCliUrl("localhost:" + server.getLocalPort()))) {
+            client.start().get(10, TimeUnit.SECONDS);
+            client.deleteSessions(List.of("s1", "s2")).get(10, TimeUnit.SECONDS);
+            // ping, the rejected batch, then one request per session
+            assertEquals(4, received.size());
+            assertTrue(received.get(1).isArray());
+            assertEquals(List.of("s1", "s2"), received.subList(2, 4).stream()
+                    .map(request -> request.get("params").get("sessionId").asText()).sorted().toList());
+        }
+    }
+}
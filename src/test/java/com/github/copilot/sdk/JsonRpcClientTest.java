@@ -41,10 +41,14 @@ class JsonRpcClientTest {
     }
 
     private SocketPair createSocketPair() throws Exception {
+        return createSocketPair(CopilotMetrics.NOOP);
+    }
+
+    private SocketPair createSocketPair(CopilotMetrics metrics) throws Exception {
         var serverSocket = new ServerSocket(0);
         var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
         var serverSide = serverSocket.accept();
-        var client = JsonRpcClient.fromSocket(clientSocket);
+        var client = JsonRpcClient.fromSocket(clientSocket, metrics);
         return new SocketPair(client, serverSide, serverSocket);
     }
 
@@ -224,6 +228,44 @@ class JsonRpcClientTest {
         }
     }
 
+    // ---- invokeRaw() ----
+
+    @Test
+    void testInvokeRawCompletesWithFrameBytes() throws Exception {
+        try (var pair = createSocketPair()) {
+            CompletableFuture<byte[]> raw = pair.client.invokeRaw("session.getMessages", Map.of());
+            CompletableFuture<JsonNode> parsed = pair.client.invoke("ping", Map.of(), JsonNode.class);
+
+            long rawId = MAPPER.readTree(readRpcMessage(pair.serverSide.getInputStream())).get("id").asLong();
+            long parsedId = MAPPER.readTree(readRpcMessage(pair.serverSide.getInputStream())).get("id").asLong();
+            // "id" after "result" and a server request in between must still be routed
+            String response = "{\"jsonrpc\":\"2.0\",\"result\":{\"events\":[{\"id\":1}]},\"id\":" + rawId + "}";
+            writeRpcMessage(pair.serverSide.getOutputStream(),
+                    "{\"jsonrpc\":\"2.0\",\"method\":\"session.event\",\"params\":{\"id\":" + rawId + "}}");
+            writeRpcMessage(pair.serverSide.getOutputStream(),
+                    "{\"jsonrpc\":\"2.0\",\"id\":" + parsedId + ",\"result\":{\"ok\":true}}");
+            writeRpcMessage(pair.serverSide.getOutputStream(), response);
+
+            assertTrue(parsed.get(5, TimeUnit.SECONDS).get("ok").asBoolean());
+            assertEquals(response, new String(raw.get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testInvokeRawErrorResponse() throws Exception {
+        try (var pair = createSocketPair()) {
+            CompletableFuture<byte[]> raw = pair.client.invokeRaw("session.getMessages", Map.of());
+            long id = MAPPER.readTree(readRpcMessage(pair.serverSide.getInputStream())).get("id").asLong();
+            writeRpcMessage(pair.serverSide.getOutputStream(), "{\"jsonrpc\":\"2.0\",\"id\":" + id
+                    + ",\"error\":{\"code\":-32602,\"message\":\"Session not found\"}}");
+
+            var ex = assertThrows(ExecutionException.class, () -> raw.get(5, TimeUnit.SECONDS));
+            var rpcEx = assertInstanceOf(JsonRpcException.class, ex.getCause());
+            assertEquals("Session not found", rpcEx.getMessage());
+            assertEquals(-32602, rpcEx.getCode());
+        }
+    }
+
     // ---- handleMessage: response handling ----
 
     @Test
@@ -449,4 +491,52 @@ class JsonRpcClientTest {
         pair.serverSide.close();
         pair.serverSocket.close();
     }
+
+    // ---- metrics ----
+
+    @Test
+    void testMetricsRecordRequestLatencyErrorsAndFrames() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        try (var pair = createSocketPair(metrics)) {
+            CompletableFuture<?> ok = pair.client.invoke("session.create", Map.of(), JsonNode.class);
+            CompletableFuture<?> failed = pair.client.invoke("session.send", Map.of(), JsonNode.class);
+            long okId = MAPPER.readTree(readRpcMessage(pair.serverSide.getInputStream())).get("id").asLong();
+            long failedId = MAPPER.readTree(readRpcMessage(pair.serverSide.getInputStream())).get("id").asLong();
+
+            assertEquals(2, metrics.getPendingRequests());
+
+            writeRpcMessage(pair.serverSide.getOutputStream(),
+                    "{\"jsonrpc\":\"2.0\",\"id\":" + okId + ",\"result\":{}}");
+            writeRpcMessage(pair.serverSide.getOutputStream(), "{\"jsonrpc\":\"2.0\",\"id\":" + failedId
+                    + ",\"error\":{\"code\":-32602,\"message\":\"bad\"}}");
+            ok.get(5, TimeUnit.SECONDS);
+            assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+
+            var stats = metrics.getRequestStats();
+            assertEquals(1, stats.get("session.create").count());
+            assertEquals(0, stats.get("session.create").errors());
+            assertEquals(1, stats.get("session.send").errors());
+            assertEquals(Map.of(-32602, 1L), stats.get("session.send").errorCodes());
+            assertEquals(0, metrics.getPendingRequests());
+            assertEquals(2, metrics.getFramesSent());
+            assertEquals(2, metrics.getFramesReceived());
+            assertTrue(metrics.getBytesSent() > 0);
+            assertTrue(metrics.getBytesReceived() > 0);
+        }
+    }
+
+    @Test
+    void testMetricsRecordTransportErrorOnClose() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        var pair = createSocketPair(metrics);
+        CompletableFuture<?> future = pair.client.invoke("ping", Map.of(), JsonNode.class);
+        readRpcMessage(pair.serverSide.getInputStream());
+
+        pair.client.close();
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+
+        assertEquals(Map.of(CopilotMetrics.TRANSPORT_ERROR, 1L), metrics.getRequestStats().get("ping").errorCodes());
+        pair.serverSide.close();
+        pair.serverSocket.close();
+    }
 }
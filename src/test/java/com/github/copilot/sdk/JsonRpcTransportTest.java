@@ -0,0 +1,160 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.copilot.sdk.json.CopilotClientOptions;
+import com.github.copilot.sdk.json.PingResponse;
+
+class JsonRpcTransportTest {
+
+    /**
+     * A stand-in CLI server that answers every request with a ping response. It
+     * serves whichever channel it is given, Unix domain or TCP, so both
+     * transports can be timed against the same server.
+     */
+    private static Thread startStandInServer(ServerSocketChannel server) {
+        var thread = new Thread(() -> {
+            try (var channel = server.accept()) {
+                if (channel.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY)) {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                }
+                var transport = JsonRpcTransport.of(channel);
+                InputStream in = transport.inputStream();
+                OutputStream out = transport.outputStream();
+                while (true) {
+                    var request = RpcFrames.readJson(in);
+                    var response = Map.of("jsonrpc", "2.0", "id", request.get("id").asLong(), "result",
+                            new PingResponse("pong", 0, SdkProtocolVersion.get()));
+                    RpcFrames.writeJson(out, response);
+                }
+            } catch (IOException e) {
+                // Client went away
+            }
+        }, "stand-in-server");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void unixSocketTransportCarriesRequestsBothWays(@TempDir Path dir) throws Exception {
+        Path socketPath = dir.resolve("cli.sock");
+        try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            startStandInServer(server);
+
+            var metrics = new CopilotMetricsRegistry();
+            try (var rpc = JsonRpcClient.fromUnixSocket(socketPath, metrics)) {
+                assertTrue(rpc.isConnected());
+                assertNull(rpc.getProcess());
+                // Many round trips with writes racing the blocked reader thread
+                for (int i = 0; i < 200; i++) {
+                    var ping = rpc.invoke("ping", Map.of("message", "m" + i), PingResponse.class).get(5,
+                            TimeUnit.SECONDS);
+                    assertEquals("pong", ping.message());
+                }
+                assertEquals(200, metrics.getFramesReceived());
+                rpc.close();
+                assertFalse(rpc.isConnected());
+            }
+        }
+        assertThrows(IOException.class, () -> JsonRpcClient.fromUnixSocket(socketPath, CopilotMetrics.NOOP));
+    }
+
+    @Test
+    void clientConnectsThroughUnixCliUrl(@TempDir Path dir) throws Exception {
+        assertEquals(Path.of("/run/copilot.sock"), CliServerManager.parseSocketPath("unix:/run/copilot.sock"));
+        assertEquals(Path.of("/run/copilot.sock"), CliServerManager.parseSocketPath("UNIX:///run/copilot.sock"));
+        assertNull(CliServerManager.parseSocketPath("localhost:8080"));
+        assertThrows(IllegalArgumentException.class, () -> CliServerManager.parseSocketPath("unix:"));
+
+        Path socketPath = dir.resolve("cli.sock");
+        try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            startStandInServer(server);
+
+            try (var client = new CopilotClient(new CopilotClientOptions().setCliUrl("unix:" + socketPath))) {
+                client.start().get(5, TimeUnit.SECONDS);
+                assertEquals("pong", client.ping("hello").get(5, TimeUnit.SECONDS).message());
+            }
+        }
+    }
+
+    @Test
+    void tcpTransportSendsFramesWithoutNagleDelay() throws Exception {
+        try (var server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                var socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+                var transport = JsonRpcTransport.of(socket)) {
+            assertTrue(socket.getTcpNoDelay());
+        }
+    }
+
+    /**
+     * Times ping round trips over a Unix domain socket and over loopback TCP
+     * against the same stand-in server. Timings depend on the host, so this is
+     * opt-in with {@code -Dcopilot.transportComparison=true} and only reports
+     * the numbers.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "copilot.transportComparison", matches = "true")
+    void unixSocketAndTcpRoundTripComparison(@TempDir Path dir) throws Exception {
+        try (var unixServer = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                var tcpServer = ServerSocketChannel.open(StandardProtocolFamily.INET)) {
+            unixServer.bind(UnixDomainSocketAddress.of(dir.resolve("cli.sock")));
+            tcpServer.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            startStandInServer(unixServer);
+            startStandInServer(tcpServer);
+
+            long unixNanos;
+            try (var rpc = JsonRpcClient.fromUnixSocket(dir.resolve("cli.sock"), CopilotMetrics.NOOP)) {
+                unixNanos = medianRoundTripNanos(rpc);
+            }
+            long tcpNanos;
+            try (var rpc = JsonRpcClient.fromSocket(new Socket(InetAddress.getLoopbackAddress(),
+                    tcpServer.socket().getLocalPort()))) {
+                tcpNanos = medianRoundTripNanos(rpc);
+            }
+            System.out.printf("Median ping round trip: unix %d us, tcp %d us%n", unixNanos / 1000, tcpNanos / 1000);
+        }
+    }
+
+    private static long medianRoundTripNanos(JsonRpcClient rpc) throws Exception {
+        int warmup = 2_000;
+        long[] samples = new long[10_000];
+        for (int i = -warmup; i < samples.length; i++) {
+            long start = System.nanoTime();
+            var ping = rpc.invoke("ping", Map.of("message", "m"), PingResponse.class).get(5, TimeUnit.SECONDS);
+            long elapsed = System.nanoTime() - start;
+            assertEquals("pong", ping.message());
+            if (i >= 0) {
+                samples[i] = elapsed;
+            }
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
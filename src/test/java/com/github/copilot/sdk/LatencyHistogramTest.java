@@ -0,0 +1,94 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptySnapshotReportsZero() {
+        var snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.percentileNanos(99.0));
+        assertEquals(0.0, snapshot.getMeanNanos());
+    }
+
+    @Test
+    void bucketsAreContiguousAndMonotonic() {
+        long previousUpper = -1;
+        for (int i = 0; i < 200; i++) {
+            long upper = LatencyHistogram.upperBoundOf(i);
+            assertTrue(upper > previousUpper, "bucket " + i);
+            assertEquals(i, LatencyHistogram.indexOf(upper));
+            assertEquals(i, LatencyHistogram.indexOf(previousUpper + 1));
+            previousUpper = upper;
+        }
+        assertTrue(LatencyHistogram.indexOf(Long.MAX_VALUE) >= 0);
+    }
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+
+        var snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMaxNanos());
+        assertEquals(500.0, snapshot.percentileMillis(50.0), 500.0 * 0.125);
+        assertEquals(990.0, snapshot.percentileMillis(99.0), 990.0 * 0.125);
+        assertEquals(1000.0, snapshot.percentileMillis(100.0), 0.001);
+        assertEquals(500.5, snapshot.getMeanNanos() / 1_000_000.0, 0.001);
+    }
+
+    @Test
+    void negativeValuesAreRecordedAsZero() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.snapshot().getMaxNanos());
+    }
+
+    @Test
+    void concurrentRecordingLosesNoObservations() throws Exception {
+        var histogram = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 10_000;
+        var start = new CountDownLatch(1);
+        var workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            var worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        var snapshot = histogram.snapshot();
+        assertEquals((long) threads * perThread, snapshot.getCount());
+        assertEquals(perThread - 1, snapshot.getMaxNanos());
+    }
+}
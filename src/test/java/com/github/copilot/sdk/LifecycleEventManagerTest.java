@@ -7,11 +7,19 @@ package com.github.copilot.sdk;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.github.copilot.sdk.json.SessionLifecycleEvent;
+import com.github.copilot.sdk.json.SessionLifecycleHandler;
 
 /**
  * Unit tests for {@link LifecycleEventManager} covering subscribe, unsubscribe,
@@ -33,6 +41,12 @@ class LifecycleEventManagerTest {
         return e;
     }
 
+    private static SessionLifecycleEvent event(String type, String sessionId) {
+        var e = event(type);
+        e.setSessionId(sessionId);
+        return e;
+    }
+
     // ===== wildcard subscribe / dispatch =====
 
     @Test
@@ -196,4 +210,92 @@ class LifecycleEventManagerTest {
         assertEquals(1, list1.size());
         assertEquals(1, list2.size());
     }
+
+    // ===== copy-on-write snapshots =====
+
+    @Test
+    void handlerSubscribedDuringDispatchDoesNotSeeCurrentEvent() {
+        var late = new ArrayList<SessionLifecycleEvent>();
+        manager.subscribe(e -> manager.subscribe(late::add));
+
+        manager.dispatch(event("created"));
+        assertTrue(late.isEmpty(), "Handler added mid-dispatch should only see later events");
+
+        manager.dispatch(event("updated"));
+        assertEquals(1, late.size());
+    }
+
+    @Test
+    void duplicateSubscriptionIsRemovedOncePerClose() throws Exception {
+        var received = new ArrayList<SessionLifecycleEvent>();
+        SessionLifecycleHandler handler = received::add;
+        AutoCloseable first = manager.subscribe("created", handler);
+        manager.subscribe("created", handler);
+
+        first.close();
+        manager.dispatch(event("created"));
+
+        assertEquals(1, received.size());
+    }
+
+    // ===== asynchronous delivery =====
+
+    @Test
+    void asyncDeliveryPreservesPerSessionOrder() throws Exception {
+        int sessions = 8;
+        int eventsPerSession = 200;
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        var done = new CountDownLatch(sessions * eventsPerSession);
+
+        try (var async = new LifecycleEventManager(3)) {
+            assertTrue(async.isAsync());
+            async.subscribe(e -> {
+                received.computeIfAbsent(e.getSessionId(), k -> new CopyOnWriteArrayList<>())
+                        .add(Integer.parseInt(e.getType()));
+                done.countDown();
+            });
+
+            for (int i = 0; i < eventsPerSession; i++) {
+                for (int s = 0; s < sessions; s++) {
+                    async.dispatch(event(String.valueOf(i), "session-" + s));
+                }
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(sessions, received.size());
+        for (List<Integer> order : received.values()) {
+            for (int i = 0; i < eventsPerSession; i++) {
+                assertEquals(i, order.get(i));
+            }
+        }
+    }
+
+    @Test
+    void asyncDeliveryRunsOffCallerThread() throws Exception {
+        var caller = Thread.currentThread();
+        var handlerThread = new AtomicReference<Thread>();
+        var done = new CountDownLatch(1);
+
+        try (var async = new LifecycleEventManager(1)) {
+            async.subscribe(e -> {
+                handlerThread.set(Thread.currentThread());
+                done.countDown();
+            });
+            async.dispatch(event("created", "s1"));
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+
+        assertNotSame(caller, handlerThread.get());
+        assertTrue(handlerThread.get().getName().startsWith("copilot-lifecycle-"));
+    }
+
+    @Test
+    void dispatchAfterCloseIsDropped() {
+        var async = new LifecycleEventManager(1);
+        async.close();
+
+        assertDoesNotThrow(() -> async.dispatch(event("created", "s1")));
+    }
 }
@@ -0,0 +1,193 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.copilot.sdk.json.CopilotClientOptions;
+
+class MaxFrameSizeTest {
+
+    private static final int LIMIT = 64 * 1024;
+    private static final String HUGE = "z".repeat(3 * LIMIT);
+
+    private final CopilotMetricsRegistry metrics = new CopilotMetricsRegistry();
+    private ServerSocket serverSocket;
+    private CopilotEventLoop loop;
+    private Socket serverSide;
+    private JsonRpcClient rpc;
+    private InputStream in;
+    private OutputStream out;
+
+    /** Connects a client that reads on its own reader thread. */
+    private void connect() throws IOException {
+        serverSocket = new ServerSocket(0);
+        connect(JsonRpcClient.fromSocket(new Socket("localhost", serverSocket.getLocalPort()), metrics));
+    }
+
+    /** Connects a client whose frames are decoded by an event loop. */
+    private void connectThroughEventLoop() throws IOException {
+        serverSocket = new ServerSocket(0);
+        loop = new CopilotEventLoop();
+        connect(JsonRpcClient.fromTransport(
+                loop.connect(new InetSocketAddress("localhost", serverSocket.getLocalPort())), metrics));
+    }
+
+    private void connect(JsonRpcClient client) throws IOException {
+        rpc = client;
+        rpc.setMaxFrameSize(LIMIT);
+        serverSide = serverSocket.accept();
+        in = serverSide.getInputStream();
+        out = serverSide.getOutputStream();
+    }
+
+    @AfterEach
+    void disconnect() throws Exception {
+        if (rpc == null) {
+            return;
+        }
+        rpc.close();
+        serverSide.close();
+        serverSocket.close();
+        if (loop != null) {
+            loop.close();
+        }
+    }
+
+    /** Reads the next request the server receives and returns its ID. */
+    private long nextRequestId() throws IOException {
+        return RpcFrames.readJson(in).get("id").asLong();
+    }
+
+    private static void assertFrameTooLarge(CompletableFuture<?> request) {
+        var e = assertThrows(ExecutionException.class, () -> request.get(5, TimeUnit.SECONDS));
+        var rpcError = assertInstanceOf(JsonRpcException.class, e.getCause());
+        assertEquals(-32600, rpcError.getCode());
+        assertTrue(rpcError.getMessage().contains("exceeds the maximum frame size of " + LIMIT), rpcError.getMessage());
+    }
+
+    private void assertAnswered(CompletableFuture<JsonNode> request, long id) throws Exception {
+        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":{\"ok\":true}}");
+        assertTrue(request.get(5, TimeUnit.SECONDS).get("ok").asBoolean());
+    }
+
+    @Test
+    void oversizedResponseFailsItsRequest() throws Exception {
+        connect();
+        var request = rpc.invoke("session.getMessages", Map.of(), JsonNode.class);
+        long id = nextRequestId();
+        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":{\"events\":[\"" + HUGE + "\"]}}");
+        assertFrameTooLarge(request);
+    }
+
+    @Test
+    void oversizedResponseWithIdAfterResultFailsItsRequest() throws Exception {
+        connect();
+        var first = rpc.invoke("ping", Map.of(), JsonNode.class);
+        long firstId = nextRequestId();
+        var second = rpc.invoke("session.getMessages", Map.of(), JsonNode.class);
+        long secondId = nextRequestId();
+
+        // The reader finds the ID past the result however far into the frame it is
+        RpcFrames.write(out,
+                "{\"jsonrpc\":\"2.0\",\"result\":{\"events\":[\"" + HUGE + "\"]},\"id\":" + secondId + "}");
+        assertFrameTooLarge(second);
+        assertAnswered(first, firstId);
+    }
+
+    @Test
+    void oversizedServerRequestIsAnsweredWithAnError() throws Exception {
+        connect();
+        RpcFrames.write(out,
+                "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"tool.call\",\"params\":{\"x\":\"" + HUGE + "\"}}");
+        JsonNode error = RpcFrames.readJson(in);
+        assertEquals(7, error.get("id").asInt());
+        assertEquals(-32600, error.get("error").get("code").asInt());
+    }
+
+    @Test
+    void oversizedNotificationIsDroppedAndLaterFramesAreRead() throws Exception {
+        connect();
+        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"method\":\"session.event\",\"params\":{\"x\":\"" + HUGE + "\"}}");
+        var request = rpc.invoke("ping", Map.of(), JsonNode.class);
+        assertAnswered(request, nextRequestId());
+    }
+
+    @Test
+    void rejectedFramesAreCountedAndExported() throws Exception {
+        connect();
+        var request = rpc.invoke("session.getMessages", Map.of(), JsonNode.class);
+        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":" + nextRequestId() + ",\"result\":\"" + HUGE + "\"}");
+        assertFrameTooLarge(request);
+        var small = rpc.invoke("ping", Map.of(), JsonNode.class);
+        assertAnswered(small, nextRequestId());
+
+        assertEquals(1, metrics.getFramesRejected());
+        assertEquals(2, metrics.getFramesReceived());
+        assertEquals(1L, JmxMetricsExporter.attributes(metrics).get("FramesRejected"));
+    }
+
+    @Test
+    void eventLoopFailsRequestForOversizedResponse() throws Exception {
+        connectThroughEventLoop();
+        var raw = rpc.invokeRaw("session.getMessages", Map.of());
+        long id = nextRequestId();
+        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":{\"events\":[\"" + HUGE + "\"]}}");
+        assertFrameTooLarge(raw);
+
+        var small = rpc.invoke("ping", Map.of(), JsonNode.class);
+        assertAnswered(small, nextRequestId());
+        assertEquals(1, metrics.getFramesRejected());
+    }
+
+    @Test
+    void eventLoopMatchesResponseWithIdBeyondThePrefixToTheSoleOutstandingRequest() throws Exception {
+        connectThroughEventLoop();
+        var request = rpc.invoke("session.getMessages", Map.of(), JsonNode.class);
+        long id = nextRequestId();
+        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"result\":\"" + HUGE + "\",\"id\":" + id + "}");
+        assertFrameTooLarge(request);
+    }
+
+    @Test
+    void eventLoopLeavesRequestsPendingWhenAnOversizedResponseCannotBeMatched() throws Exception {
+        connectThroughEventLoop();
+        var first = rpc.invoke("ping", Map.of(), JsonNode.class);
+        long firstId = nextRequestId();
+        var second = rpc.invoke("ping", Map.of(), JsonNode.class);
+        long secondId = nextRequestId();
+
+        RpcFrames.write(out, "{\"jsonrpc\":\"2.0\",\"result\":\"" + HUGE + "\",\"id\":" + secondId + "}");
+        var small = rpc.invoke("ping", Map.of(), JsonNode.class);
+        assertAnswered(small, nextRequestId());
+        assertEquals(1, metrics.getFramesRejected());
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        assertAnswered(first, firstId);
+    }
+
+    @Test
+    void maxFrameSizeOptionIsValidated() {
+        var options = new CopilotClientOptions();
+        assertEquals(64 * 1024 * 1024, options.getMaxFrameSize());
+        assertEquals(LIMIT, options.setMaxFrameSize(LIMIT).clone().getMaxFrameSize());
+        assertThrows(IllegalArgumentException.class, () -> options.setMaxFrameSize(1024));
+    }
+}
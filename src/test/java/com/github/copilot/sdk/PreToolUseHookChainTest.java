@@ -0,0 +1,98 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.json.HookInvocation;
+import com.github.copilot.sdk.json.PreToolUseHookChain;
+import com.github.copilot.sdk.json.PreToolUseHookInput;
+import com.github.copilot.sdk.json.PreToolUseHookOutput;
+import com.github.copilot.sdk.json.SessionHooks;
+
+class PreToolUseHookChainTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    private static PreToolUseHookOutput output(String decision, String reason, String args, String context)
+            throws Exception {
+        return new PreToolUseHookOutput(decision, reason, args != null ? MAPPER.readTree(args) : null, context, null);
+    }
+
+    @Test
+    void runsHooksInParallelAndShortCircuitsOnDeny() throws Exception {
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            // Each hook waits for all three to have started, which only works in parallel
+            var started = new CountDownLatch(3);
+            var hooks = new SessionHooks();
+            for (int i = 0; i < 3; i++) {
+                String context = "check " + i;
+                hooks.addOnPreToolUse((input, invocation) -> {
+                    started.countDown();
+                    try {
+                        assertTrue(started.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return CompletableFuture.completedFuture(new PreToolUseHookOutput("allow", null, null, context,
+                            null));
+                });
+            }
+            var chain = assertInstanceOf(PreToolUseHookChain.class, hooks.getOnPreToolUse()).setExecutor(executor);
+            var merged = chain.handle(new PreToolUseHookInput(), new HookInvocation()).get(5, TimeUnit.SECONDS);
+            assertEquals("allow", merged.permissionDecision());
+            assertEquals("check 0\ncheck 1\ncheck 2", merged.additionalContext());
+
+            // A deny answers without waiting for a hook that never completes
+            var never = new CompletableFuture<PreToolUseHookOutput>();
+            var denying = new PreToolUseHookChain().setExecutor(executor).add((input, invocation) -> never)
+                    .add((input, invocation) -> CompletableFuture.completedFuture(PreToolUseHookOutput.deny("pii")));
+            var denied = denying.handle(new PreToolUseHookInput(), new HookInvocation()).get(5, TimeUnit.SECONDS);
+            assertEquals("deny", denied.permissionDecision());
+            assertEquals("pii", denied.permissionDecisionReason());
+
+            var failing = new PreToolUseHookChain().setExecutor(executor)
+                    .add((input, invocation) -> CompletableFuture.completedFuture(PreToolUseHookOutput.allow()))
+                    .add((input, invocation) -> {
+                        throw new IllegalStateException("quota service down");
+                    });
+            var error = assertThrows(ExecutionException.class,
+                    () -> failing.handle(new PreToolUseHookInput(), new HookInvocation()).get(5, TimeUnit.SECONDS));
+            assertEquals("quota service down", error.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void mergesOutputsDeterministically() throws Exception {
+        var merged = PreToolUseHookChain.merge(Arrays.asList(output("allow", null, "{\"path\":\"a\",\"n\":1}", "x"),
+                null, output("ask", "needs review", "{\"path\":\"b\"}", null), output("allow", "ok", null, "y"),
+                output("ask", "second", null, null)));
+        assertEquals("ask", merged.permissionDecision());
+        assertEquals("needs review", merged.permissionDecisionReason(), "the first most restrictive reason wins");
+        assertEquals(MAPPER.readTree("{\"path\":\"b\",\"n\":1}"), merged.modifiedArgs());
+        assertEquals("x\ny", merged.additionalContext());
+        assertNull(merged.suppressOutput());
+
+        var suppressed = PreToolUseHookChain.merge(Arrays.asList(new PreToolUseHookOutput(null, null, null, null,
+                false), new PreToolUseHookOutput(null, null, MAPPER.readTree("[1]"), null, true)));
+        assertNull(suppressed.permissionDecision());
+        assertTrue(suppressed.suppressOutput());
+        assertEquals(MAPPER.readTree("[1]"), suppressed.modifiedArgs());
+        assertNull(PreToolUseHookChain.merge(Arrays.asList(null, null)));
+    }
+}
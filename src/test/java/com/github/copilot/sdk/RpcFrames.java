@@ -0,0 +1,87 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Content-Length framing for tests that play the server side of a JSON-RPC
+ * connection.
+ */
+final class RpcFrames {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    private RpcFrames() {
+    }
+
+    /** Writes one frame with the given body. */
+    static void write(OutputStream out, byte[] content) throws IOException {
+        out.write(("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write(content);
+        out.flush();
+    }
+
+    /** Writes one frame whose body is the given JSON text. */
+    static void write(OutputStream out, String json) throws IOException {
+        write(out, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Serializes a message and writes it as one frame. */
+    static void writeJson(OutputStream out, Object message) throws IOException {
+        write(out, MAPPER.writeValueAsBytes(message));
+    }
+
+    /**
+     * Reads the body of one frame. Header lines end with a line feed, a blank
+     * line ends the headers and header names are case-insensitive.
+     *
+     * @throws IOException
+     *             if the stream ends first
+     */
+    static byte[] read(InputStream in) throws IOException {
+        var line = new StringBuilder();
+        int contentLength = -1;
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("EOF");
+            }
+            if (b != '\n') {
+                line.append((char) b);
+                continue;
+            }
+            String header = line.toString().trim();
+            line.setLength(0);
+            if (header.isEmpty()) {
+                break;
+            }
+            if (header.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        byte[] content = in.readNBytes(contentLength);
+        if (content.length < contentLength) {
+            throw new IOException("EOF");
+        }
+        return content;
+    }
+
+    /** Reads the body of one frame as text. */
+    static String readString(InputStream in) throws IOException {
+        return new String(read(in), StandardCharsets.UTF_8);
+    }
+
+    /** Reads the body of one frame as a JSON tree. */
+    static JsonNode readJson(InputStream in) throws IOException {
+        return MAPPER.readTree(read(in));
+    }
+}
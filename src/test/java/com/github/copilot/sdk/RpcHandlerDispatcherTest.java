@@ -149,6 +149,28 @@ class RpcHandlerDispatcherTest {
         assertDoesNotThrow(() -> invokeHandler("session.event", null, params));
     }
 
+    @Test
+    void sessionEventObserversRunBeforeSessionHandlers() {
+        var order = new CopyOnWriteArrayList<String>();
+        List<RpcHandlerDispatcher.SessionEventObserver> observers = List.of((session, event) -> {
+            order.add("observer:" + session.getSessionId() + ":" + event.getType());
+            throw new IllegalStateException("observer failures are isolated");
+        });
+        new RpcHandlerDispatcher(sessions, lifecycleEvents::add, observers).registerHandlers(rpc);
+        CopilotSession session = createSession("s1");
+        session.on(event -> order.add("handler:" + event.getType()));
+
+        ObjectNode params = MAPPER.createObjectNode();
+        params.put("sessionId", "s1");
+        ObjectNode event = params.putObject("event");
+        event.put("type", "session.idle");
+        event.putObject("data");
+
+        invokeHandler("session.event", null, params);
+
+        assertEquals(List.of("observer:s1:session.idle", "handler:session.idle"), order);
+    }
+
     // ===== session.lifecycle tests =====
 
     @Test
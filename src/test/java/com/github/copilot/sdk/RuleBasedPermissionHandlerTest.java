@@ -0,0 +1,171 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.json.PermissionInvocation;
+import com.github.copilot.sdk.json.PermissionRequest;
+import com.github.copilot.sdk.json.PermissionRequestResult;
+
+class RuleBasedPermissionHandlerTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+    private volatile CompletableFuture<PermissionRequestResult> delegateResult = approved();
+
+    private static CompletableFuture<PermissionRequestResult> approved() {
+        return CompletableFuture.completedFuture(new PermissionRequestResult().setKind("approved"));
+    }
+
+    private RuleBasedPermissionHandler newHandler() {
+        return new RuleBasedPermissionHandler((request, invocation) -> {
+            delegateCalls.incrementAndGet();
+            return delegateResult;
+        }, now::get);
+    }
+
+    private static PermissionRequest request(String json) throws Exception {
+        return MAPPER.readValue(json, PermissionRequest.class);
+    }
+
+    private static PermissionInvocation invocation(String sessionId) {
+        var invocation = new PermissionInvocation();
+        invocation.setSessionId(sessionId);
+        return invocation;
+    }
+
+    private static String decide(RuleBasedPermissionHandler handler, PermissionRequest request, String sessionId)
+            throws Exception {
+        return handler.handle(request, invocation(sessionId)).get(5, TimeUnit.SECONDS).getKind();
+    }
+
+    @Test
+    void compiledRulesDecideWithoutDelegate() throws Exception {
+        var handler = newHandler().allow("read", "/workspace/*").allow("read", "/etc/hosts").deny("read", "*.pem")
+                .allow("shell", "git status*").deny("shell", "*rm -rf*").allow("mcp", "github/get_?ssue")
+                .deny("url");
+
+        var read = request("{\"kind\":\"read\",\"toolCallId\":\"c1\",\"path\":\"/workspace/src/Main.java\"}");
+        assertEquals("/workspace/src/Main.java", read.getExtensionData().get("path"));
+        assertEquals("approved", decide(handler, read, "s1"));
+        assertEquals("approved", decide(handler, request("{\"kind\":\"read\",\"path\":\"/etc/hosts\"}"), "s1"));
+        assertEquals("denied-by-rules",
+                decide(handler, request("{\"kind\":\"read\",\"path\":\"/workspace/key.pem\"}"), "s1"));
+        assertEquals("approved",
+                decide(handler, request("{\"kind\":\"shell\",\"fullCommandText\":\"git status --short\"}"), "s1"));
+        assertEquals("denied-by-rules", decide(handler,
+                request("{\"kind\":\"shell\",\"fullCommandText\":\"git status; rm -rf /\"}"), "s1"));
+        assertEquals("approved",
+                decide(handler, request("{\"kind\":\"mcp\",\"serverName\":\"github\",\"toolName\":\"get_issue\"}"),
+                        "s1"));
+        assertEquals("denied-by-rules", decide(handler, request("{\"kind\":\"url\",\"url\":\"https://x\"}"), "s1"));
+        assertEquals(0, delegateCalls.get());
+
+        assertEquals("approved", decide(handler, request("{\"kind\":\"read\",\"path\":\"/tmp/a\"}"), "s1"));
+        assertEquals(1, delegateCalls.get());
+        assertEquals(new RuleBasedPermissionHandler.Stats(7, 0, 1), handler.getStats());
+
+        // Extension data survives a round trip
+        assertTrue(MAPPER.writeValueAsString(read).contains("\"path\":\"/workspace/src/Main.java\""));
+    }
+
+    @Test
+    void pathsAreNormalizedAndTraversalIsNeverApprovedByRules() throws Exception {
+        var handler = newHandler().allow("read", "/workspace/*").allow("write", "*").deny("read", "/etc/*");
+
+        assertEquals("denied-by-rules",
+                decide(handler, request("{\"kind\":\"read\",\"path\":\"/workspace/../etc/passwd\"}"), "s1"));
+        assertEquals("approved",
+                decide(handler, request("{\"kind\":\"read\",\"path\":\"/workspace/./src/../pom.xml\"}"), "s1"));
+        assertEquals(0, delegateCalls.get());
+
+        // Escaping paths fall through to the delegate instead of matching an allow rule
+        assertEquals("approved", decide(handler, request("{\"kind\":\"write\",\"fileName\":\"../.bashrc\"}"), "s1"));
+        assertEquals(1, delegateCalls.get());
+        assertNull(new RuleBasedPermissionHandler(null).allow("read", "/workspace/*")
+                .evaluate("read", "/workspace/../../x", false));
+        assertFalse(RuleBasedPermissionHandler.mayApprove("write", "../.bashrc"));
+        assertFalse(RuleBasedPermissionHandler.mayApprove("read", "a\\..\\b"));
+    }
+
+    @Test
+    void chainedShellCommandsAreNeverApprovedByPrefixRules() throws Exception {
+        var handler = new RuleBasedPermissionHandler(null).allow("shell", "git status*");
+
+        assertEquals("approved",
+                decide(handler, request("{\"kind\":\"shell\",\"fullCommandText\":\"git status --short\"}"), "s1"));
+        for (String command : new String[]{"git status; rm -rf /", "git status && curl x", "git status || true",
+                "git status | sh", "git status `id`", "git status $(id)", "git status > /etc/hosts",
+                "git status\nrm -rf /"}) {
+            String json = MAPPER.writeValueAsString(Map.of("kind", "shell", "fullCommandText", command));
+            assertEquals("denied-no-approval-rule-and-could-not-request-from-user",
+                    decide(handler, request(json), "s1"), command);
+        }
+    }
+
+    @Test
+    void cachesDelegateDecisionsPerScopeWithTtlAndBound() throws Exception {
+        var handler = newHandler().setCacheTtl(Duration.ofMinutes(1)).setMaxCacheEntries(2);
+        var a = request("{\"kind\":\"write\",\"fileName\":\"a.txt\"}");
+        var b = request("{\"kind\":\"write\",\"fileName\":\"b.txt\"}");
+
+        delegateResult = new CompletableFuture<>();
+        var first = handler.handle(a, invocation("s1"));
+        var second = handler.handle(a, invocation("s1"));
+        delegateResult.complete(new PermissionRequestResult().setKind("approved"));
+        assertEquals("approved", first.get().getKind());
+        assertEquals("approved", second.get().getKind());
+        assertEquals(1, delegateCalls.get(), "concurrent misses share one delegate call");
+
+        decide(handler, a, "s2");
+        assertEquals(2, delegateCalls.get(), "decisions are scoped to the session");
+
+        decide(handler, b, "s1");
+        assertEquals(3, delegateCalls.get());
+        decide(handler, a, "s1");
+        assertEquals(4, delegateCalls.get(), "least recently used entry was evicted");
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        decide(handler, b, "s1");
+        assertEquals(5, delegateCalls.get(), "expired entry is not reused");
+
+        delegateResult = CompletableFuture.completedFuture(
+                new PermissionRequestResult().setKind("denied-no-approval-rule-and-could-not-request-from-user"));
+        var c = request("{\"kind\":\"write\",\"fileName\":\"c.txt\"}");
+        decide(handler, c, "s1");
+        decide(handler, c, "s1");
+        assertEquals(7, delegateCalls.get(), "transient denials are not cached");
+
+        var tenants = newHandler().setCacheScope(invocation -> invocation.getSessionId().substring(0, 1));
+        delegateResult = approved();
+        decide(tenants, a, "t-1");
+        decide(tenants, a, "t-2");
+        assertEquals(8, delegateCalls.get(), "sessions of a tenant share decisions");
+        assertEquals(1, tenants.getStats().cacheHits());
+    }
+
+    @Test
+    void missWithoutDelegateIsDenied() throws Exception {
+        var handler = new RuleBasedPermissionHandler(null).allow("read");
+        assertEquals("approved", decide(handler, request("{\"kind\":\"read\"}"), "s1"));
+        assertEquals("denied-no-approval-rule-and-could-not-request-from-user",
+                decide(handler, request("{\"kind\":\"shell\",\"fullCommandText\":\"ls\"}"), "s1"));
+        assertThrows(IllegalArgumentException.class, () -> handler.allow("read", ""));
+        assertNull(RuleBasedPermissionHandler.subjectOf("shell", Map.of("fullCommandText", 1)));
+    }
+}
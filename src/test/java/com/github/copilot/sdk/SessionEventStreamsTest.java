@@ -0,0 +1,97 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.events.AbstractSessionEvent;
+import com.github.copilot.sdk.events.AssistantMessageEvent;
+import com.github.copilot.sdk.events.UserMessageEvent;
+import com.github.copilot.sdk.json.GetMessagesOptions;
+
+class SessionEventStreamsTest {
+
+    private final List<UUID> ids = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+
+    SessionEventStreamsTest() {
+        for (int i = 0; i < 1000; i++) {
+            var id = UUID.randomUUID();
+            ids.add(id);
+            String type = i % 2 == 0 ? "user.message" : "assistant.message";
+            String data = i % 2 == 0
+                    ? "{\"content\":\"question " + i + "\"}"
+                    : "{\"messageId\":\"m" + i + "\",\"content\":\"answer " + i + "\"}";
+            events.add("{\"id\":\"" + id + "\",\"timestamp\":\"2026-01-01T00:00:00Z\",\"type\":\"" + type
+                    + "\",\"data\":" + data + "}");
+        }
+        // Unknown types are skipped
+        events.add("{\"id\":\"" + UUID.randomUUID() + "\",\"type\":\"future.event\",\"data\":{}}");
+    }
+
+    private byte[] response() {
+        String json = "{\"jsonrpc\":\"2.0\",\"id\":7,\"result\":{\"cursor\":{\"skip\":[1,{\"a\":2}]},\"events\":["
+                + String.join(",", events) + "]}}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<UUID> idsOf(Stream<AbstractSessionEvent> stream) {
+        try (stream) {
+            return stream.map(AbstractSessionEvent::getId).toList();
+        }
+    }
+
+    @Test
+    void streamsResponseInOrderSequentiallyAndInParallel() throws Exception {
+        assertEquals(ids, idsOf(SessionEventStreams.fromResponse(response(), new GetMessagesOptions())));
+
+        var pool = new ForkJoinPool(4);
+        try {
+            var parallel = new GetMessagesOptions().setParallel(true).setChunkSize(7).setPool(pool);
+            assertEquals(ids, idsOf(SessionEventStreams.fromResponse(response(), parallel)));
+
+            var records = events.stream().map(json -> json.getBytes(StandardCharsets.UTF_8)).toList();
+            assertEquals(ids, idsOf(SessionEventStreams.fromRecords(records, parallel)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void filtersEventTypesBeforeBinding() throws Exception {
+        var options = new GetMessagesOptions().setEventTypes(Set.of("assistant.message")).setParallel(true)
+                .setChunkSize(10);
+        List<AbstractSessionEvent> answers;
+        try (var stream = SessionEventStreams.fromResponse(response(), options)) {
+            answers = stream.toList();
+        }
+        assertEquals(500, answers.size());
+        assertTrue(answers.stream().allMatch(AssistantMessageEvent.class::isInstance));
+        assertEquals(ids.get(1), answers.get(0).getId());
+
+        // Partially consumed parallel streams cancel their remaining chunks on close
+        try (var stream = SessionEventStreams.fromResponse(response(),
+                new GetMessagesOptions().setParallel(true).setChunkSize(1))) {
+            assertInstanceOf(UserMessageEvent.class, stream.findFirst().orElseThrow());
+        }
+    }
+
+    @Test
+    void responseWithoutEventsIsEmpty() throws Exception {
+        byte[] frame = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{}}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(List.of(), idsOf(SessionEventStreams.fromResponse(frame, new GetMessagesOptions())));
+        assertThrows(IllegalArgumentException.class, () -> new GetMessagesOptions().setChunkSize(0));
+    }
+}
@@ -0,0 +1,115 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.events.SessionIdleEvent;
+import com.github.copilot.sdk.events.UserMessageEvent;
+import com.github.copilot.sdk.json.PermissionHandler;
+import com.github.copilot.sdk.json.ResumeSessionConfig;
+import com.github.copilot.sdk.json.SessionConfig;
+
+class SessionHibernatorTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final List<CopilotSession> closed = new CopyOnWriteArrayList<>();
+    private final List<ResumeSessionConfig> resumeConfigs = new CopyOnWriteArrayList<>();
+    private volatile CompletableFuture<Void> resumeGate = CompletableFuture.completedFuture(null);
+
+    private SessionHibernator newHibernator(CopilotMetrics metrics) {
+        return new SessionHibernator(config -> CompletableFuture.completedFuture(new CopilotSession("created", null)),
+                (id, config) -> {
+                    resumeConfigs.add(config);
+                    return resumeGate.thenApply(v -> {
+                        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(40));
+                        return new CopilotSession(id, null);
+                    });
+                }, closed::add, metrics, now::get).setIdleTimeout(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void hibernatesIdleSessionsAndResumesOnDemand() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        try (var hibernator = newHibernator(metrics)) {
+            var config = new SessionConfig().setOnPermissionRequest(PermissionHandler.APPROVE_ALL).setModel("gpt-5");
+            CopilotSession created = hibernator.create(config).get();
+            var busy = new CopilotSession("busy", null);
+            hibernator.register(busy, new ResumeSessionConfig().setOnPermissionRequest(PermissionHandler.APPROVE_ALL));
+            busy.dispatchEvent(new UserMessageEvent());
+
+            now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+            hibernator.sweep();
+            hibernator.hibernate("busy").get(5, TimeUnit.SECONDS);
+            assertFalse(hibernator.isLive("created"));
+            assertTrue(hibernator.isLive("busy"), "sessions in a turn are not hibernated");
+
+            resumeGate = new CompletableFuture<>();
+            var first = hibernator.get("created");
+            var second = hibernator.get("created");
+            assertTrue(hibernator.isLive("created"));
+            resumeGate.complete(null);
+            CopilotSession resumed = first.get(5, TimeUnit.SECONDS);
+            assertSame(resumed, second.get(5, TimeUnit.SECONDS));
+            assertNotSame(created, resumed);
+            assertEquals(List.of(created), closed);
+            assertEquals(1, resumeConfigs.size(), "concurrent accesses share one resume");
+            assertEquals("gpt-5", resumeConfigs.get(0).getModel());
+            assertTrue(resumeConfigs.get(0).isDisableResume());
+
+            busy.dispatchEvent(new SessionIdleEvent());
+            now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+            hibernator.sweep();
+            assertEquals(new SessionHibernator.Stats(0, 2, 3, 1, 0), hibernator.getStats());
+
+            var ex = assertThrows(ExecutionException.class, () -> hibernator.get("unknown").get());
+            assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        }
+
+        var stats = metrics.getHibernationStats();
+        assertEquals(3, stats.hibernations());
+        assertEquals(1, stats.resumes());
+        assertEquals(40, stats.resumeLatency().percentileMillis(50.0), 1.0);
+        assertEquals(1L, JmxMetricsExporter.attributes(metrics).get("Hibernation.Resumes"));
+    }
+
+    @Test
+    void boundsLiveSessionsByLeastRecentUse() throws Exception {
+        try (var hibernator = newHibernator(null).setMaxLiveSessions(2)) {
+            var config = new ResumeSessionConfig().setOnPermissionRequest(PermissionHandler.APPROVE_ALL);
+            var a = new CopilotSession("a", null);
+            var b = new CopilotSession("b", null);
+            hibernator.register(a, config);
+            hibernator.register(b, config);
+            hibernator.get("a").get();
+            a.dispatchEvent(new UserMessageEvent());
+
+            hibernator.register(new CopilotSession("c", null), config);
+            assertFalse(hibernator.isLive("b"));
+
+            // "a" is busy, so resuming "b" evicts "c" even though "a" is older
+            hibernator.get("b").get(5, TimeUnit.SECONDS);
+            assertTrue(hibernator.isLive("a"));
+            assertFalse(hibernator.isLive("c"));
+            hibernator.hibernate("c").get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("b", "c"), closed.stream().map(CopilotSession::getSessionId).toList());
+
+            resumeGate = CompletableFuture.failedFuture(new RuntimeException("boom"));
+            assertThrows(ExecutionException.class, () -> hibernator.get("c").get(5, TimeUnit.SECONDS));
+            assertFalse(hibernator.isLive("c"));
+            assertEquals(1, hibernator.getStats().resumeFailures());
+        }
+    }
+}
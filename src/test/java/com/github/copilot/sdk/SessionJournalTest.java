@@ -0,0 +1,152 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.events.AbstractSessionEvent;
+import com.github.copilot.sdk.events.SessionEventParser;
+
+class SessionJournalTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    @TempDir
+    Path root;
+
+    private static String eventJson(UUID id, String content) {
+        return "{\"id\":\"" + id + "\",\"timestamp\":\"2026-01-01T00:00:00Z\",\"type\":\"user.message\","
+                + "\"data\":{\"content\":\"" + content + "\"}}";
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void appendsAcrossSegmentsAndRecoversOnReopen() throws Exception {
+        var ids = new ArrayList<UUID>();
+        try (var journal = SessionJournal.open(root, "s/1", 4096)) {
+            assertTrue(journal.isSynced());
+            for (int i = 0; i < 100; i++) {
+                var id = UUID.randomUUID();
+                ids.add(id);
+                assertTrue(journal.append(bytes(eventJson(id, "message " + i)), id));
+            }
+            assertFalse(journal.append(bytes(eventJson(ids.get(99), "duplicate")), ids.get(99)));
+            // An event larger than a segment gets a segment of its own
+            var big = UUID.randomUUID();
+            ids.add(big);
+            journal.append(bytes(eventJson(big, "x".repeat(10_000))), big);
+        }
+        Path dir = SessionJournal.directoryOf(root, "s/1");
+        try (var files = Files.list(dir)) {
+            assertTrue(files.count() > 2);
+        }
+
+        try (var reopened = SessionJournal.open(root, "s/1", 4096)) {
+            assertFalse(reopened.isSynced(), "a non-empty journal must be caught up first");
+            assertEquals(101, reopened.size());
+            assertEquals(ids.get(100), reopened.getLastEventId());
+            List<byte[]> records = reopened.readAll();
+            assertEquals(101, records.size());
+            assertEquals(ids.get(42), SessionEventParser.parse(MAPPER.readTree(records.get(42))).getId());
+        }
+
+        SessionJournal.delete(root, "s/1");
+        assertFalse(Files.exists(dir));
+    }
+
+    @Test
+    void catchUpAppendsOnlyTheTailOrRebuildsOnDivergence() throws Exception {
+        var a = UUID.randomUUID();
+        var b = UUID.randomUUID();
+        var c = UUID.randomUUID();
+        try (var journal = SessionJournal.open(root, "s1", 4096)) {
+            journal.append(bytes(eventJson(a, "a")), a);
+            journal.markStale();
+            assertFalse(journal.append(bytes(eventJson(b, "b")), b), "stale journals ignore live events");
+
+            journal.catchUp(List.of(bytes(eventJson(a, "a")), bytes(eventJson(b, "b")), bytes(eventJson(c, "c"))),
+                    List.of(a, b, c));
+            assertTrue(journal.isSynced());
+            assertEquals(3, journal.size());
+
+            journal.markStale();
+            var d = UUID.randomUUID();
+            journal.catchUp(List.of(bytes(eventJson(d, "d"))), List.of(d));
+            assertEquals(1, journal.size());
+            assertEquals(d, journal.getLastEventId());
+        }
+    }
+
+    @Test
+    void getMessagesIsServedFromJournalAfterCatchUp() throws Exception {
+        var history = new ArrayList<String>();
+        var ids = new ArrayList<UUID>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(UUID.randomUUID());
+            history.add(eventJson(ids.get(i), "m" + i));
+        }
+        var requests = new AtomicInteger();
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept()) {
+            var server = new Thread(() -> {
+                try {
+                    var in = serverSide.getInputStream();
+                    while (true) {
+                        var request = RpcFrames.readJson(in);
+                        requests.incrementAndGet();
+                        RpcFrames.write(serverSide.getOutputStream(), "{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id")
+                                + ",\"result\":{\"events\":[" + String.join(",", history) + "]}}");
+                    }
+                } catch (IOException e) {
+                    // socket closed
+                }
+            });
+            server.setDaemon(true);
+            server.start();
+
+            var rpc = JsonRpcClient.fromSocket(clientSocket);
+            try (var journal = SessionJournal.open(root, "s1", 4096)) {
+                journal.append(bytes(history.get(0)), ids.get(0));
+                journal.markStale();
+                var session = new CopilotSession("s1", rpc);
+                session.setJournal(journal);
+
+                List<AbstractSessionEvent> first = session.getMessages().get(5, TimeUnit.SECONDS);
+                assertEquals(ids, first.stream().map(AbstractSessionEvent::getId).toList());
+                assertEquals(3, journal.size());
+
+                var live = UUID.randomUUID();
+                session.journalEvent(MAPPER.readTree(eventJson(live, "live")),
+                        SessionEventParser.parse(MAPPER.readTree(eventJson(live, "live"))));
+                List<AbstractSessionEvent> second = session.getMessages().get(5, TimeUnit.SECONDS);
+                assertEquals(4, second.size());
+                assertEquals(live, second.get(3).getId());
+                assertEquals(1, requests.get(), "synced journal is read locally");
+            } finally {
+                rpc.close();
+            }
+        }
+    }
+}
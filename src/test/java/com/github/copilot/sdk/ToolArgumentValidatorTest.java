@@ -0,0 +1,140 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolInvocation;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+class ToolArgumentValidatorTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    private static final Map<String, Object> SCHEMA = Map.of("type", "object", "properties",
+            Map.of("city", Map.of("type", "string", "minLength", 2, "pattern", "^[A-Z]"), "days",
+                    Map.of("type", "integer", "minimum", 1, "maximum", 14), "units",
+                    Map.of("enum", List.of("metric", "imperial")), "tags",
+                    Map.of("type", "array", "items", Map.of("type", "string"), "maxItems", 2), "when",
+                    Map.of("anyOf", List.of(Map.of("type", "string"), Map.of("type", "null")))),
+            "required", List.of("city"), "additionalProperties", false);
+
+    private static List<String> validate(String json) throws Exception {
+        var tool = ToolDefinition.create("weather", "Gets the weather", SCHEMA, invocation -> null);
+        return ToolArgumentValidator.forTool(tool).validate(MAPPER.readTree(json));
+    }
+
+    @Test
+    void acceptsValidArguments() throws Exception {
+        assertEquals(List.of(), validate("{\"city\":\"Paris\",\"days\":3.0,\"units\":\"metric\",\"tags\":[\"a\"],"
+                + "\"when\":null}"));
+    }
+
+    @Test
+    void reportsMissingRequiredProperty() throws Exception {
+        assertEquals(List.of("$: missing required property 'city'"), validate("{}"));
+    }
+
+    @Test
+    void treatsNullArgumentsAsEmptyObject() throws Exception {
+        assertEquals(List.of("$: missing required property 'city'"), validate("null"));
+    }
+
+    @Test
+    void reportsTypeMismatch() throws Exception {
+        assertEquals(List.of("$.city: expected string but got integer"), validate("{\"city\":7}"));
+    }
+
+    @Test
+    void checksStringLengthAndPattern() throws Exception {
+        assertEquals(List.of("$.city: must be at least 2 characters", "$.city: must match pattern ^[A-Z]"),
+                validate("{\"city\":\"p\"}"));
+    }
+
+    @Test
+    void checksIntegerTypeAndBounds() throws Exception {
+        assertEquals(List.of("$.days: expected integer but got number", "$.days: must be <= 14"),
+                validate("{\"city\":\"Paris\",\"days\":20.5}"));
+    }
+
+    @Test
+    void checksEnum() throws Exception {
+        assertEquals(List.of("$.units: must be one of [\"metric\",\"imperial\"]"),
+                validate("{\"city\":\"Paris\",\"units\":\"kelvin\"}"));
+    }
+
+    @Test
+    void checksArrayItemsAndSize() throws Exception {
+        assertEquals(List.of("$.tags: must have at most 2 items", "$.tags[2]: expected string but got boolean"),
+                validate("{\"city\":\"Paris\",\"tags\":[\"a\",\"b\",true]}"));
+    }
+
+    @Test
+    void checksAnyOf() throws Exception {
+        assertEquals(List.of("$.when: does not match any of the allowed schemas"),
+                validate("{\"city\":\"Paris\",\"when\":1}"));
+    }
+
+    @Test
+    void rejectsAdditionalProperties() throws Exception {
+        assertEquals(List.of("$: unexpected property 'extra'"), validate("{\"city\":\"Paris\",\"extra\":1}"));
+    }
+
+    @Test
+    void validatorsAreCompiledOncePerDefinition() {
+        var tool = ToolDefinition.create("weather", "Gets the weather", SCHEMA, invocation -> null);
+        assertSame(ToolArgumentValidator.forTool(tool), ToolArgumentValidator.forTool(tool));
+    }
+
+    @Test
+    void schemasWithoutConstraintsAcceptAnything() throws Exception {
+        var open = ToolArgumentValidator.compile(MAPPER.readTree("{\"type\":\"object\",\"$ref\":\"#/x\"}"));
+        assertEquals(List.of(), open.validate(MAPPER.readTree("{\"anything\":[1,2]}")));
+    }
+
+    @Test
+    void sessionRejectsInvalidArgumentsWithoutRunningHandler() throws Exception {
+        var calls = new AtomicInteger();
+        var session = new CopilotSession("s1", null);
+        var tool = countingTool(calls);
+        session.registerTools(List.of(tool));
+
+        var invalid = new ToolInvocation().setToolName("weather").setArguments(MAPPER.readTree("{\"city\":1}"));
+        var result = assertInstanceOf(ToolResultObject.class,
+                session.invokeTool(tool, invalid).get(5, TimeUnit.SECONDS));
+        assertEquals("failure", result.resultType());
+        assertTrue(result.textResultForLlm().contains("$.city: expected string but got integer"));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void sessionRunsHandlerForValidArguments() throws Exception {
+        var calls = new AtomicInteger();
+        var session = new CopilotSession("s1", null);
+        var tool = countingTool(calls);
+        session.registerTools(List.of(tool));
+
+        var valid = new ToolInvocation().setToolName("weather").setArguments(MAPPER.readTree("{\"city\":\"Oslo\"}"));
+        assertEquals("sunny", session.invokeTool(tool, valid).get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    private static ToolDefinition countingTool(AtomicInteger calls) {
+        return ToolDefinition.create("weather", "Gets the weather", SCHEMA, invocation -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("sunny");
+        });
+    }
+}
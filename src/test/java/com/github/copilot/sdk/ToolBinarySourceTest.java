@@ -0,0 +1,131 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.json.ToolBinaryResult;
+import com.github.copilot.sdk.json.ToolBinarySource;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+class ToolBinarySourceTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private static String encodedData(ToolBinaryResult result) throws Exception {
+        var tree = MAPPER.readTree(MAPPER.writeValueAsBytes(
+                new ToolResultObject("success", "done", List.of(result), null, null, null)));
+        var binary = tree.get("binaryResultsForLlm").get(0);
+        assertEquals("image/png", binary.get("mimeType").asText());
+        assertEquals("image", binary.get("type").asText());
+        assertFalse(binary.has("description"));
+        return binary.get("data").asText();
+    }
+
+    @Test
+    void encodesBufferFileAndStreamSourcesWhileSerializing() throws Exception {
+        var bytes = new byte[100_003];
+        new Random(42).nextBytes(bytes);
+        String expected = Base64.getEncoder().encodeToString(bytes);
+
+        var buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        var fromBuffer = ToolBinaryResult.of(ToolBinarySource.of(buffer), "image/png", "image", null);
+        assertNull(fromBuffer.data());
+        assertEquals(expected, encodedData(fromBuffer));
+        assertEquals(expected, encodedData(fromBuffer), "buffer sources are repeatable");
+        assertEquals(0, buffer.position(), "the caller's buffer position is untouched");
+
+        Path file = Files.write(tempDir.resolve("chart.png"), bytes);
+        var fromFile = ToolBinaryResult.of(ToolBinarySource.of(file), "image/png", "image", null);
+        assertEquals(expected, encodedData(fromFile));
+        assertEquals(expected, encodedData(fromFile));
+
+        var stream = ToolBinarySource.of(new ByteArrayInputStream(bytes), -1);
+        assertFalse(stream.isRepeatable());
+        var fromStream = ToolBinaryResult.of(stream, "image/png", "image", null);
+        assertEquals(expected, encodedData(fromStream));
+        assertThrows(JsonMappingException.class, () -> encodedData(fromStream));
+
+        var sized = ToolBinarySource.of(new ByteArrayInputStream(bytes), bytes.length);
+        assertEquals(expected, encodedData(ToolBinaryResult.of(sized, "image/png", "image", null)));
+        assertThrows(IllegalArgumentException.class, () -> ToolBinarySource.of(new ByteArrayInputStream(bytes), -2));
+    }
+
+    @Test
+    void base64StringResultsKeepTheirWireFormat() throws Exception {
+        var result = new ToolBinaryResult("aGk=", "text/plain", "file", "greeting");
+        String json = MAPPER.writeValueAsString(result);
+        assertEquals("{\"data\":\"aGk=\",\"mimeType\":\"text/plain\",\"type\":\"file\",\"description\":\"greeting\"}",
+                json);
+        assertEquals(result, MAPPER.readValue(json, ToolBinaryResult.class));
+        assertEquals("{\"type\":\"file\"}", MAPPER.writeValueAsString(new ToolBinaryResult(null, null, "file", null)));
+    }
+
+    @Test
+    void slowStreamSourceDoesNotHoldUpOtherSends() throws Exception {
+        byte[] bytes = new byte[3 * 1024 * 1024];
+        new Random(7).nextBytes(bytes);
+        var pipe = new PipedOutputStream();
+        var source = ToolBinarySource.of(new PipedInputStream(pipe, 64 * 1024), bytes.length);
+        var result = new ToolResultObject("success", "done",
+                List.of(ToolBinaryResult.of(source, "image/png", "image", null)), null, null, null);
+
+        try (var serverSocket = new ServerSocket(0);
+                var clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+                var serverSide = serverSocket.accept();
+                var rpc = JsonRpcClient.fromSocket(clientSocket)) {
+            var slow = CompletableFuture.runAsync(() -> {
+                try {
+                    rpc.sendResponse(1, result);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            // The response is still being encoded, but a notification goes out first
+            CompletableFuture.runAsync(() -> {
+                try {
+                    rpc.notify("session.log", Map.of("message", "hi"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).get(5, TimeUnit.SECONDS);
+            InputStream in = serverSide.getInputStream();
+            assertEquals("session.log", RpcFrames.readJson(in).get("method").asText());
+
+            pipe.write(bytes);
+            pipe.close();
+            var binary = RpcFrames.readJson(in).get("result").get("binaryResultsForLlm").get(0);
+            slow.get(10, TimeUnit.SECONDS);
+            assertArrayEquals(bytes, Base64.getDecoder().decode(binary.get("data").asText()));
+        }
+    }
+}
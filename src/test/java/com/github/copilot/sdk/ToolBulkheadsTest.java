@@ -0,0 +1,100 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.json.ToolConcurrencyPolicy;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolInvocation;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+class ToolBulkheadsTest {
+
+    private final List<CompletableFuture<Object>> started = new CopyOnWriteArrayList<>();
+
+    private ToolDefinition tool(ToolConcurrencyPolicy policy) {
+        return ToolDefinition.create("query_db", "Runs a query", Map.of(), invocation -> {
+            var future = new CompletableFuture<Object>();
+            started.add(future);
+            return future;
+        }).withConcurrency(policy);
+    }
+
+    @Test
+    void queuesCallsBeyondLimitAndRejectsOverflow() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        var bulkheads = new ToolBulkheads(metrics);
+        var session = new CopilotSession("s1", null);
+        session.setToolBulkheads(bulkheads);
+        var tool = tool(new ToolConcurrencyPolicy().setMaxConcurrentCalls(1).setMaxQueueSize(1));
+        var invocation = new ToolInvocation().setSessionId("s1").setToolName("query_db");
+
+        var first = session.invokeTool(tool, invocation);
+        var second = session.invokeTool(tool, invocation);
+        var third = session.invokeTool(tool, invocation);
+        assertEquals(1, started.size());
+        assertEquals(Map.of("query_db", 1), bulkheads.getQueueDepths());
+
+        var rejected = assertInstanceOf(ToolResultObject.class, third.get(5, TimeUnit.SECONDS));
+        assertEquals("failure", rejected.resultType());
+        assertTrue(rejected.error().contains("queue full"));
+
+        started.get(0).complete("one");
+        assertEquals("one", first.get(5, TimeUnit.SECONDS));
+        waitFor(() -> started.size() == 2);
+        assertEquals(Map.of("query_db", 0), bulkheads.getQueueDepths());
+        started.get(1).complete("two");
+        assertEquals("two", second.get(5, TimeUnit.SECONDS));
+
+        var stats = metrics.getToolBulkheadStats().get("query_db");
+        assertEquals(2, stats.admitted());
+        assertEquals(1, stats.rejected());
+        assertEquals(1L, JmxMetricsExporter.attributes(metrics).get("ToolBulkhead.query_db.Rejected"));
+    }
+
+    @Test
+    void rejectsCallsThatTimeOutInQueue() throws Exception {
+        var bulkheads = new ToolBulkheads(null);
+        var tool = tool(new ToolConcurrencyPolicy().setMaxConcurrentCalls(1)
+                .setQueueTimeout(Duration.ofMillis(50)));
+
+        var first = bulkheads.invoke(tool, () -> tool.handler().invoke(new ToolInvocation()));
+        var queued = bulkheads.invoke(tool, () -> tool.handler().invoke(new ToolInvocation()));
+        var result = assertInstanceOf(ToolResultObject.class, queued.get(5, TimeUnit.SECONDS));
+        assertTrue(result.error().contains("timed out"));
+
+        started.get(0).complete("done");
+        first.get(5, TimeUnit.SECONDS);
+        bulkheads.invoke(tool, () -> tool.handler().invoke(new ToolInvocation()));
+        assertEquals(2, started.size(), "the freed slot is not held by the timed-out call");
+
+        // Tools without a policy bypass the bulkhead
+        var unlimited = tool(null);
+        for (int i = 0; i < 3; i++) {
+            bulkheads.invoke(unlimited, () -> unlimited.handler().invoke(new ToolInvocation()));
+        }
+        assertEquals(5, started.size());
+        assertThrows(IllegalArgumentException.class, () -> new ToolConcurrencyPolicy().setMaxConcurrentCalls(0));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
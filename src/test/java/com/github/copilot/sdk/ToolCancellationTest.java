@@ -0,0 +1,107 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.events.AbortEvent;
+import com.github.copilot.sdk.events.ToolExecutionCompleteEvent;
+import com.github.copilot.sdk.json.ToolConcurrencyPolicy;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolInvocation;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+class ToolCancellationTest {
+
+    private final List<ToolInvocation> invocations = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<Object>> started = new CopyOnWriteArrayList<>();
+
+    private ToolDefinition tool() {
+        return ToolDefinition.create("slow", "Never finishes on its own", Map.of(), invocation -> {
+            invocations.add(invocation);
+            var future = new CompletableFuture<Object>();
+            started.add(future);
+            return future;
+        }).withConcurrency(new ToolConcurrencyPolicy().setMaxConcurrentCalls(1));
+    }
+
+    private static ToolInvocation invocation(String toolCallId) {
+        return new ToolInvocation().setSessionId("s1").setToolCallId(toolCallId).setToolName("slow");
+    }
+
+    @Test
+    void abortCancelsTokenHandlerAndQueuedCalls() throws Exception {
+        var session = new CopilotSession("s1", null);
+        var tool = tool();
+
+        var running = session.invokeTool(tool, invocation("c1"));
+        var queued = session.invokeTool(tool, invocation("c2"));
+        assertEquals(1, started.size());
+        assertNull(invocations.get(0).getDeadline());
+
+        session.dispatchEvent(new AbortEvent());
+        assertThrows(CancellationException.class, () -> running.get(5, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertTrue(invocations.get(0).getCancellationToken().isCancelled());
+        assertEquals("session aborted", invocations.get(0).getCancellationToken().getReason());
+        assertTrue(started.get(0).isCancelled(), "the handler future is cancelled");
+
+        // The aborted calls released the bulkhead, and later calls get a fresh token
+        session.invokeTool(tool, invocation("c3"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, started.size(), "the aborted queued call never ran; the new call did");
+        assertFalse(invocations.get(1).getCancellationToken().isCancelled());
+
+        var completed = new ToolExecutionCompleteEvent();
+        completed.setData(new ToolExecutionCompleteEvent.ToolExecutionCompleteData("c3", false, null, null, null,
+                null, null, null, null));
+        session.dispatchEvent(completed);
+        assertEquals("tool call completed by the CLI", invocations.get(1).getCancellationToken().getReason());
+    }
+
+    @Test
+    void timeoutAnswersWithFailureAndCancelsToken() throws Exception {
+        var session = new CopilotSession("s1", null);
+        session.setToolTimeout(Duration.ofMillis(50));
+
+        var result = assertInstanceOf(ToolResultObject.class,
+                session.invokeTool(tool(), invocation("c1")).get(5, TimeUnit.SECONDS));
+        assertEquals("failure", result.resultType());
+        var invocation = invocations.get(0);
+        assertNotNull(invocation.getDeadline());
+        assertTrue(invocation.getCancellationToken().getReason().startsWith("timed out"));
+        assertTrue(started.get(0).isCancelled());
+        assertThrows(CancellationException.class, () -> invocation.getCancellationToken().throwIfCancelled());
+
+        session.close();
+        var afterTimeout = session.invokeTool(tool(), invocation("c2"));
+        started.get(1).complete("done");
+        assertEquals("done", afterTimeout.get(5, TimeUnit.SECONDS));
+        assertFalse(invocations.get(1).getCancellationToken().isCancelled(), "completed calls are not cancelled");
+    }
+
+    @Test
+    void cancellationWithTimeoutLikeReasonIsNotReportedAsTimeout() throws Exception {
+        var session = new CopilotSession("s1", null);
+        session.setToolTimeout(Duration.ofMinutes(1));
+
+        var call = session.invokeTool(tool(), invocation("c1"));
+        invocations.get(0).getCancellationToken().cancel("timed out after 60000 ms");
+        assertThrows(CancellationException.class, () -> call.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,167 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.events.AbortEvent;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolInvocation;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+class ToolResultCacheTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile CompletableFuture<Object> result = CompletableFuture.completedFuture("result");
+    private volatile ToolInvocation handled;
+
+    private ToolDefinition tool(ToolResultCache cache) {
+        return ToolDefinition.create("lookup", "Looks things up", Map.of(), invocation -> {
+            calls.incrementAndGet();
+            handled = invocation;
+            return result;
+        }).withCache(cache);
+    }
+
+    private static Object invoke(ToolDefinition tool, String sessionId, String arguments) throws Exception {
+        return tool.handler().invoke(invocation(sessionId, arguments)).get(5, TimeUnit.SECONDS);
+    }
+
+    private static ToolInvocation invocation(String sessionId, String arguments) throws Exception {
+        return new ToolInvocation().setSessionId(sessionId).setToolName("lookup")
+                .setArguments(MAPPER.readTree(arguments));
+    }
+
+    @Test
+    void memoizesByCanonicalArgumentsPerSession() throws Exception {
+        var metrics = new CopilotMetricsRegistry();
+        var cache = new ToolResultCache(now::get).setTtl(Duration.ofMinutes(1)).setMetrics(metrics);
+        var tool = tool(cache);
+
+        result = new CompletableFuture<>();
+        var first = tool.handler().invoke(invocation("s1", "{\"id\":1,\"opts\":{\"a\":true,\"b\":[1,2]}}"));
+        var second = tool.handler().invoke(invocation("s1", "{\"opts\":{\"b\":[1,2],\"a\":true},\"id\":1}"));
+        result.complete("result");
+        assertEquals("result", first.get(5, TimeUnit.SECONDS));
+        assertEquals("result", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get(), "concurrent identical calls share one invocation");
+
+        assertEquals("result", invoke(tool, "s1", "{\"id\":1,\"opts\":{\"b\":[1,2],\"a\":true}}"));
+        assertEquals(1, calls.get());
+        invoke(tool, "s1", "{\"id\":2}");
+        invoke(tool, "s2", "{\"id\":1,\"opts\":{\"a\":true,\"b\":[1,2]}}");
+        assertEquals(3, calls.get(), "different arguments and sessions miss");
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        invoke(tool, "s1", "{\"id\":2}");
+        assertEquals(4, calls.get(), "expired entry is not reused");
+
+        assertEquals(new CopilotMetricsRegistry.ToolCacheStats(2, 4), metrics.getToolCacheStats().get("lookup"));
+        assertEquals(2L, JmxMetricsExporter.attributes(metrics).get("ToolCache.lookup.Hits"));
+        var stats = cache.getStats();
+        assertEquals(3, stats.entries());
+        assertEquals(2, stats.hits());
+        assertEquals(4, stats.misses());
+
+        cache.invalidate("lookup");
+        assertEquals(0, cache.getStats().entries());
+        assertEquals(0, cache.getStats().bytes());
+    }
+
+    @Test
+    void boundsEntriesAndBytesAndSkipsFailures() throws Exception {
+        var cache = new ToolResultCache(now::get).setScope(ToolResultCache.Scope.CLIENT).setMaxEntries(2);
+        var tool = tool(cache);
+
+        invoke(tool, "s1", "{\"id\":1}");
+        invoke(tool, "s2", "{\"id\":1}");
+        assertEquals(1, calls.get(), "client scope shares results across sessions");
+        invoke(tool, "s1", "{\"id\":2}");
+        invoke(tool, "s1", "{\"id\":3}");
+        invoke(tool, "s1", "{\"id\":1}");
+        assertEquals(4, calls.get(), "least recently used entry was evicted");
+        assertEquals(2, cache.getStats().evictions());
+
+        long perEntry = cache.getStats().bytes() / 2;
+        cache.invalidateAll();
+        cache.setMaxEntries(100).setMaxBytes(perEntry * 2);
+        invoke(tool, "s1", "{\"id\":4}");
+        invoke(tool, "s1", "{\"id\":5}");
+        invoke(tool, "s1", "{\"id\":6}");
+        assertEquals(2, cache.getStats().entries());
+        assertTrue(cache.getStats().bytes() <= perEntry * 2);
+
+        result = CompletableFuture.completedFuture(ToolResultObject.error("boom"));
+        invoke(tool, "s1", "{\"id\":7}");
+        invoke(tool, "s1", "{\"id\":7}");
+        result = CompletableFuture.failedFuture(new RuntimeException("boom"));
+        assertThrows(Exception.class, () -> invoke(tool, "s1", "{\"id\":8}"));
+        assertThrows(Exception.class, () -> invoke(tool, "s1", "{\"id\":8}"));
+        assertEquals(11, calls.get(), "failed results are not cached");
+
+        result = CompletableFuture.completedFuture(ToolResultObject.success("x".repeat(10_000)));
+        invoke(tool, "s1", "{\"id\":9}");
+        invoke(tool, "s1", "{\"id\":9}");
+        assertEquals(13, calls.get(), "results larger than the byte bound are not cached");
+        assertThrows(IllegalArgumentException.class, () -> cache.setTtl(Duration.ZERO));
+    }
+
+    @Test
+    void abortingOneSessionLeavesAJoinedCallRunningForTheOther() throws Exception {
+        var cache = new ToolResultCache(now::get).setScope(ToolResultCache.Scope.CLIENT);
+        var tool = tool(cache);
+        var s1 = new CopilotSession("s1", null);
+        var s2 = new CopilotSession("s2", null);
+
+        result = new CompletableFuture<>();
+        var first = s1.invokeTool(tool, invocation("s1", "{\"id\":1}").setToolCallId("c1"));
+        var second = s2.invokeTool(tool, invocation("s2", "{\"id\":1}").setToolCallId("c2"));
+        assertEquals(1, calls.get(), "both sessions joined one invocation");
+
+        s1.dispatchEvent(new AbortEvent());
+        assertThrows(CancellationException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertFalse(second.isDone());
+        assertFalse(result.isCancelled());
+        assertFalse(handled.getCancellationToken().isCancelled(), "the shared call has its own token");
+
+        result.complete("result");
+        assertEquals("result", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, cache.getStats().entries());
+    }
+
+    @Test
+    void cancellingEveryCallerCancelsTheSharedCall() throws Exception {
+        var cache = new ToolResultCache(now::get);
+        var tool = tool(cache);
+
+        var pending = new CompletableFuture<Object>();
+        result = pending;
+        var first = tool.handler().invoke(invocation("s1", "{\"id\":1}"));
+        var second = tool.handler().invoke(invocation("s1", "{\"id\":1}"));
+        first.cancel(true);
+        assertFalse(pending.isCancelled());
+        second.cancel(true);
+        assertTrue(pending.isCancelled());
+        assertTrue(handled.getCancellationToken().isCancelled());
+
+        result = CompletableFuture.completedFuture("result");
+        assertEquals("result", invoke(tool, "s1", "{\"id\":1}"));
+        assertEquals(2, calls.get(), "the cancelled call was evicted");
+    }
+}
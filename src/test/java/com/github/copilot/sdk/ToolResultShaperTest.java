@@ -0,0 +1,154 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.copilot.sdk.json.ToolDefinition;
+import com.github.copilot.sdk.json.ToolInvocation;
+import com.github.copilot.sdk.json.ToolResultObject;
+
+class ToolResultShaperTest {
+
+    private static final ObjectMapper MAPPER = JsonRpcClient.getObjectMapper();
+    private static final String LOG = IntStream.rangeClosed(1, 500).mapToObj(i -> "line " + i + " ok ✓")
+            .collect(Collectors.joining("\n"));
+    private static final Pattern NOTICE = Pattern.compile("\n\n\\[Result shortened.*\\]$", Pattern.DOTALL);
+
+    private static String body(Object shaped) {
+        String text = shaped instanceof ToolResultObject tro ? tro.textResultForLlm() : (String) shaped;
+        assertTrue(NOTICE.matcher(text).find(), text);
+        return NOTICE.matcher(text).replaceAll("");
+    }
+
+    private static int bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Test
+    void strategiesKeepResultsWithinBudget() throws Exception {
+        var shaper = new ToolResultShaper().setMaxBytes(256);
+        assertSame("small", shaper.shape("s1", "t", "small"));
+
+        String headTail = body(shaper.shape("s1", "t", LOG));
+        assertTrue(bytes(headTail) <= 256);
+        assertTrue(headTail.startsWith("line 1 ok ✓\n") && headTail.endsWith("line 500 ok ✓"));
+        assertTrue(headTail.contains("\n[...]\n"));
+
+        assertTrue(body(shaper.setStrategy(ToolResultShaper.Strategy.HEAD).shape("s1", "t", LOG))
+                .startsWith("line 1 "));
+        assertTrue(body(shaper.setStrategy(ToolResultShaper.Strategy.TAIL).shape("s1", "t", LOG))
+                .endsWith("line 500 ok ✓"));
+
+        String sampled = body(shaper.setStrategy(ToolResultShaper.Strategy.SAMPLE_LINES).shape("s1", "t", LOG));
+        assertTrue(bytes(sampled) <= 256);
+        assertTrue(sampled.startsWith("1: line 1 ok ✓\n"), sampled);
+        assertFalse(sampled.contains("2: line 2 "), "lines are sampled, not contiguous");
+
+        var rows = IntStream.range(0, 200).mapToObj(i -> Map.of("id", i, "name", "x".repeat(300))).toList();
+        var json = shaper.setStrategy(ToolResultShaper.Strategy.JSON_PRUNE).setMaxBytes(1024)
+                .shape("s1", "t", Map.of("total", 200, "rows", rows));
+        var pruned = MAPPER.readTree(body(json));
+        assertEquals(200, pruned.get("total").asInt());
+        assertTrue(pruned.get("rows").size() < 200);
+        assertTrue(pruned.get("rows").get(pruned.get("rows").size() - 1).asText().endsWith("more items"));
+        assertTrue(bytes(body(json)) <= 1024);
+
+        // Text that is not JSON falls back to head and tail
+        assertTrue(body(shaper.shape("s1", "t", LOG)).contains("\n[...]\n"));
+        assertThrows(IllegalArgumentException.class, () -> shaper.setMaxTokens(4));
+    }
+
+    @Test
+    void noticeNamesTheStrategyIndependentlyOfTheDefaultLocale() {
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try {
+            var shaper = new ToolResultShaper().setMaxBytes(256).setStrategy(ToolResultShaper.Strategy.SAMPLE_LINES);
+            assertTrue(((String) shaper.shape("s1", "t", LOG)).contains("bytes (sample_lines)."));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    void fullResultsArePagedThroughThePageTool() throws Exception {
+        var shaper = new ToolResultShaper().setMaxBytes(512).setPageBytes(1024).setPageToolName("read_more");
+        ToolDefinition logs = ToolDefinition.create("read_logs", "Reads logs", Map.of(),
+                invocation -> CompletableFuture.completedFuture(
+                        new ToolResultObject("success", LOG, null, null, "audit", null)))
+                .withResultShaper(shaper);
+
+        var result = (ToolResultObject) logs.handler().invoke(new ToolInvocation()).get(5, TimeUnit.SECONDS);
+        assertEquals("audit", result.sessionLog());
+        var notice = Pattern.compile("stored as '(read_logs-\\d+)' in (\\d+) pages; call read_more")
+                .matcher(result.textResultForLlm());
+        assertTrue(notice.find(), result.textResultForLlm());
+        String id = notice.group(1);
+        int pages = Integer.parseInt(notice.group(2));
+        assertTrue(pages > 1);
+
+        var pageTool = shaper.getPageTool();
+        assertEquals("read_more", pageTool.name());
+        var full = new StringBuilder();
+        for (int page = 1; page <= pages; page++) {
+            String text = (String) pageTool.handler().invoke(new ToolInvocation()
+                    .setArguments(MAPPER.readTree("{\"id\":\"" + id + "\",\"page\":" + page + "}")))
+                    .get(5, TimeUnit.SECONDS);
+            String header = "[Page " + page + " of " + pages + " of '" + id + "']\n";
+            assertTrue(text.startsWith(header));
+            full.append(text.substring(header.length()));
+        }
+        assertEquals(LOG, full.toString());
+
+        var outOfRange = (ToolResultObject) pageTool.handler().invoke(new ToolInvocation()
+                .setArguments(MAPPER.readTree("{\"id\":\"" + id + "\",\"page\":99}"))).get(5, TimeUnit.SECONDS);
+        assertEquals("failure", outOfRange.resultType());
+
+        // The store is bounded; the least recently used result is dropped
+        shaper.setStoreLimits(1, Long.MAX_VALUE);
+        logs.handler().invoke(new ToolInvocation()).get(5, TimeUnit.SECONDS);
+        assertEquals(1, shaper.getStoredResultCount());
+        var evicted = (ToolResultObject) pageTool.handler().invoke(new ToolInvocation()
+                .setArguments(MAPPER.readTree("{\"id\":\"" + id + "\"}"))).get(5, TimeUnit.SECONDS);
+        assertTrue(evicted.textResultForLlm().contains("no longer available"));
+    }
+
+    @Test
+    void storedResultsAreReadableOnlyByTheirSession() throws Exception {
+        var shaper = new ToolResultShaper().setMaxBytes(512);
+        var session = new CopilotSession("s1", null);
+        var pageTool = shaper.getPageTool();
+        session.registerTools(List.of(pageTool));
+
+        var notice = Pattern.compile("stored as '([^']+)'").matcher((String) shaper.shape("s1", "t", LOG));
+        assertTrue(notice.find());
+        var arguments = MAPPER.readTree("{\"id\":\"" + notice.group(1) + "\"}");
+        var own = pageTool.handler().invoke(new ToolInvocation().setSessionId("s1").setArguments(arguments));
+        assertTrue(((String) own.get(5, TimeUnit.SECONDS)).startsWith("[Page 1 of "));
+
+        var other = (ToolResultObject) pageTool.handler()
+                .invoke(new ToolInvocation().setSessionId("s2").setArguments(arguments)).get(5, TimeUnit.SECONDS);
+        assertEquals("failure", other.resultType());
+        assertTrue(other.textResultForLlm().contains("no longer available"));
+
+        shaper.shape("s2", "t", LOG);
+        session.close();
+        assertEquals(1, shaper.getStoredResultCount(), "closing a session drops only its results");
+    }
+}
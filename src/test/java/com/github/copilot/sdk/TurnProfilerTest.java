@@ -0,0 +1,160 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.events.AssistantMessageDeltaEvent;
+import com.github.copilot.sdk.events.AssistantTurnEndEvent;
+import com.github.copilot.sdk.events.AssistantTurnStartEvent;
+import com.github.copilot.sdk.events.AssistantUsageEvent;
+import com.github.copilot.sdk.events.SessionIdleEvent;
+import com.github.copilot.sdk.events.ToolExecutionCompleteEvent;
+import com.github.copilot.sdk.events.ToolExecutionStartEvent;
+
+class TurnProfilerTest {
+
+    private ServerSocket serverSocket;
+    private Socket clientSocket;
+    private Socket serverSide;
+    private JsonRpcClient rpc;
+    private CopilotSession session;
+
+    @BeforeEach
+    void setup() throws Exception {
+        serverSocket = new ServerSocket(0);
+        clientSocket = new Socket("localhost", serverSocket.getLocalPort());
+        serverSide = serverSocket.accept();
+        rpc = JsonRpcClient.fromSocket(clientSocket);
+        session = new CopilotSession("s1", rpc);
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        rpc.close();
+        serverSide.close();
+        serverSocket.close();
+    }
+
+    @Test
+    void buildsProfileFromTurnEvents() throws Exception {
+        var profiles = new ArrayList<TurnProfile>();
+        var profiler = new TurnProfiler(profiles::add);
+        profiler.attach(session);
+
+        session.dispatchEvent(turnStart("t1"));
+        Thread.sleep(5);
+        session.dispatchEvent(delta());
+        session.dispatchEvent(delta());
+        session.dispatchEvent(usage(1000.0, 120.0, 40.0));
+        session.dispatchEvent(toolStart("call-1", "grep"));
+        Thread.sleep(5);
+        session.dispatchEvent(toolComplete("call-1"));
+        session.timeCallback(CopilotMetrics.CallbackType.PERMISSION, "shell",
+                () -> CompletableFuture.completedFuture(null)).get();
+        session.dispatchEvent(turnEnd("t1"));
+
+        assertEquals(1, profiles.size());
+        TurnProfile profile = profiles.get(0);
+        assertEquals("s1", profile.sessionId());
+        assertEquals("t1", profile.turnId());
+        assertNotNull(profile.timeToFirstToken());
+        assertTrue(profile.timeToFirstToken().toMillis() >= 5);
+        assertTrue(profile.duration().compareTo(profile.timeToFirstToken()) >= 0);
+        assertEquals(Duration.ofSeconds(1), profile.modelTime());
+        assertEquals(40.0, profile.outputTokens());
+        assertEquals(40.0, profile.tokensPerSecond(), 0.001);
+        assertTrue(profile.toolTime().get("grep").toMillis() >= 5);
+        assertEquals(profile.toolTime().get("grep"), profile.totalToolTime());
+        assertTrue(profile.permissionWait().toNanos() > 0);
+        assertEquals(Duration.ZERO, profile.hookWait());
+    }
+
+    @Test
+    void idleClosesOpenTurnAndNonStreamingTurnHasNoTtft() {
+        List<TurnProfile> profiles = new ArrayList<>();
+        var profiler = new TurnProfiler(profiles::add);
+        profiler.attach(session);
+
+        session.dispatchEvent(turnStart("t1"));
+        session.dispatchEvent(new SessionIdleEvent());
+        session.dispatchEvent(new SessionIdleEvent());
+
+        assertEquals(1, profiles.size());
+        assertNull(profiles.get(0).timeToFirstToken());
+    }
+
+    @Test
+    void aggregatesAcrossSessionsAndStopsWhenDetached() throws Exception {
+        var profiler = new TurnProfiler();
+        var other = new CopilotSession("s2", rpc);
+        profiler.attach(session);
+        var handle = profiler.attach(other);
+
+        for (CopilotSession s : List.of(session, other)) {
+            s.dispatchEvent(turnStart("t"));
+            s.dispatchEvent(delta());
+            s.dispatchEvent(usage(500.0, 10.0, 25.0));
+            s.dispatchEvent(turnEnd("t"));
+        }
+        handle.close();
+        other.dispatchEvent(turnStart("t"));
+        other.dispatchEvent(turnEnd("t"));
+
+        TurnProfiler.Summary summary = profiler.getSummary();
+        assertEquals(2, summary.turns());
+        assertEquals(2, summary.timeToFirstToken().getCount());
+        assertEquals(50.0, summary.outputTokens());
+    }
+
+    private static AssistantTurnStartEvent turnStart(String turnId) {
+        var event = new AssistantTurnStartEvent();
+        event.setData(new AssistantTurnStartEvent.AssistantTurnStartData(turnId, null));
+        return event;
+    }
+
+    private static AssistantTurnEndEvent turnEnd(String turnId) {
+        var event = new AssistantTurnEndEvent();
+        event.setData(new AssistantTurnEndEvent.AssistantTurnEndData(turnId));
+        return event;
+    }
+
+    private static AssistantMessageDeltaEvent delta() {
+        var event = new AssistantMessageDeltaEvent();
+        event.setData(new AssistantMessageDeltaEvent.AssistantMessageDeltaData("m1", "x", null));
+        return event;
+    }
+
+    private static AssistantUsageEvent usage(double durationMs, double input, double output) {
+        var event = new AssistantUsageEvent();
+        event.setData(new AssistantUsageEvent.AssistantUsageData("gpt-5", input, output, null, null, null, durationMs,
+                null, null, null, null, null, null));
+        return event;
+    }
+
+    private static ToolExecutionStartEvent toolStart(String callId, String name) {
+        var event = new ToolExecutionStartEvent();
+        event.setData(new ToolExecutionStartEvent.ToolExecutionStartData(callId, name, null, null, null, null));
+        return event;
+    }
+
+    private static ToolExecutionCompleteEvent toolComplete(String callId) {
+        var event = new ToolExecutionCompleteEvent();
+        event.setData(new ToolExecutionCompleteEvent.ToolExecutionCompleteData(callId, true, null, null, null, null,
+                null, null, null));
+        return event;
+    }
+}
@@ -0,0 +1,139 @@
+/*---------------------------------------------------------------------------------------------
+ *  Copyright (c) Microsoft Corporation. All rights reserved.
+ *--------------------------------------------------------------------------------------------*/
+
+package com.github.copilot.sdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.copilot.sdk.events.AssistantUsageEvent.AssistantUsageData;
+import com.github.copilot.sdk.events.AssistantUsageEvent.CopilotUsage;
+
+class UsageLedgerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final UsageLedger ledger = new UsageLedger(now::get);
+
+    private static AssistantUsageData usage(String model, double input, double output, double cost) {
+        return new AssistantUsageData(model, input, output, 5.0, 1.0, cost, 100.0, null, null, null, null,
+                Map.of("premium", Map.of("remaining", 10)), new CopilotUsage(null, 2_000.0));
+    }
+
+    @Test
+    void accumulatesPerModelSessionAndTag() {
+        ledger.tagSession("s1", "tenant:acme");
+        ledger.record("s1", usage("gpt-5", 100, 20, 0.5));
+        ledger.record("s1", usage("claude-sonnet-4.5", 50, 10, 0.25));
+        ledger.record("s2", usage("gpt-5", 10, 2, 0.1));
+
+        UsageLedger.Snapshot snapshot = ledger.snapshot();
+        assertEquals(new UsageLedger.Usage(3, 160, 32, 15, 3, 0.85, 6_000.0), snapshot.total());
+        assertEquals(2, snapshot.byModel().get("gpt-5").requests());
+        assertEquals(110, snapshot.byModel().get("gpt-5").inputTokens());
+        assertEquals(150, snapshot.bySession().get("s1").inputTokens());
+        assertEquals(30, snapshot.byTag().get("tenant:acme").outputTokens());
+        assertNull(snapshot.byTag().get("s2"));
+        assertEquals(Map.of("remaining", 10), ledger.getQuotaSnapshots().get("gpt-5").get("premium"));
+    }
+
+    @Test
+    void rollingWindowsDropOldBuckets() {
+        ledger.record("s1", usage("gpt-5", 100, 10, 0));
+        now.addAndGet(30_000);
+        ledger.record("s1", usage("gpt-5", 200, 20, 0));
+
+        assertEquals(200, ledger.getUsage(Duration.ofSeconds(10)).inputTokens());
+        assertEquals(300, ledger.getUsage(Duration.ofMinutes(1)).inputTokens());
+        assertEquals(300, ledger.getModelUsage("gpt-5", Duration.ofMinutes(5)).inputTokens());
+
+        now.addAndGet(45_000);
+        assertEquals(200, ledger.getUsage(Duration.ofMinutes(1)).inputTokens());
+        assertEquals(0, ledger.getUsage(Duration.ofSeconds(30)).inputTokens());
+        assertEquals(300, ledger.getUsage(Duration.ofMinutes(10)).inputTokens());
+
+        now.addAndGet(Duration.ofHours(2).toMillis());
+        assertEquals(UsageLedger.Usage.EMPTY, ledger.getUsage(Duration.ofHours(1)));
+        assertEquals(300, ledger.getTotal().inputTokens());
+    }
+
+    @Test
+    void reusedBucketIsResetForNewPeriod() {
+        ledger.record("s1", usage("gpt-5", 100, 10, 0));
+        now.addAndGet(60_000);
+        ledger.record("s1", usage("gpt-5", 7, 1, 0));
+
+        assertEquals(7, ledger.getUsage(Duration.ofSeconds(1)).inputTokens());
+    }
+
+    @Test
+    void forgetSessionKeepsAggregates() {
+        ledger.tagSession("s1", "a", "b");
+        ledger.record("s1", usage("gpt-5", 10, 1, 0));
+        ledger.forgetSession("s1");
+
+        assertEquals(UsageLedger.Usage.EMPTY, ledger.getSessionUsage("s1"));
+        assertTrue(ledger.getSessionTags("s1").isEmpty());
+        assertEquals(10, ledger.getTagUsage("a", Duration.ofMinutes(1)).inputTokens());
+        assertEquals(10, ledger.getTotal().inputTokens());
+    }
+
+    @Test
+    void concurrentRecordingIsLossless() throws Exception {
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            String session = "s" + t;
+            var thread = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    ledger.record(session, usage("gpt-5", 1, 1, 0));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, ledger.getTotal().requests());
+        assertEquals(40_000, ledger.getUsage(Duration.ofMinutes(1)).outputTokens());
+        assertEquals(5_000, ledger.getSessionUsage("s3").inputTokens());
+    }
+
+    @Test
+    void concurrentWritersRollingIntoNewPeriodLoseNothing() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            // Every bucket of the ring now belongs to an older period
+            now.addAndGet(Duration.ofHours(1).toMillis());
+            var start = new CountDownLatch(1);
+            var threads = new ArrayList<Thread>();
+            for (int t = 0; t < 8; t++) {
+                var thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        ledger.record("s1", usage("gpt-5", 1, 1, 0));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(800, ledger.getUsage(Duration.ofSeconds(1)).inputTokens(), "round " + round);
+            assertEquals(800, ledger.getUsage(Duration.ofMinutes(1)).inputTokens(), "round " + round);
+        }
+    }
+}